@@ -0,0 +1,22 @@
+package pl.projektchmury.authservice.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Configuration;
+import pl.projektchmury.authservice.logging.MeteredAsyncAppender;
+import pl.projektchmury.authservice.logging.SamplingTurboFilter;
+
+// Metryki potoku logowania (logback-spring.xml): ile zdarzeń odrzuciła pełna kolejka asynchroniczna
+// i ile wyciął sampling. Rosnące wartości oznaczają, że logi są niekompletne.
+@Configuration
+public class LoggingMetricsConfig {
+
+    public LoggingMetricsConfig(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("logging.events.dropped", MeteredAsyncAppender.class, appender -> MeteredAsyncAppender.droppedCount())
+                .description("Zdarzenia logowania odrzucone przez pełną kolejkę AsyncAppender")
+                .register(meterRegistry);
+        FunctionCounter.builder("logging.events.sampled", SamplingTurboFilter.class, filter -> SamplingTurboFilter.suppressedCount())
+                .description("Zdarzenia logowania odrzucone przez sampling (limit na logger na sekundę)")
+                .register(meterRegistry);
+    }
+}
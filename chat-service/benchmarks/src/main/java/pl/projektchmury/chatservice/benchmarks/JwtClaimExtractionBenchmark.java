@@ -0,0 +1,58 @@
+package pl.projektchmury.chatservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.oauth2.jwt.Jwt;
+import pl.projektchmury.chatservice.config.JwtClaims;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// Odczyt nicku z tokenu tak, jak robią to kontrolery (JwtClaims.username):
+// access token ma claim "username", ID token tylko "cognito:username" (ścieżka z fallbackiem).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtClaimExtractionBenchmark {
+
+    private Jwt accessToken;
+    private Jwt idToken;
+
+    @Setup
+    public void setUp() {
+        Instant now = Instant.now();
+        accessToken = Jwt.withTokenValue("access-token")
+                .header("alg", "RS256")
+                .subject("3f1c2b7a-0000-4000-8000-000000000001")
+                .claim("username", "alice")
+                .claim("token_use", "access")
+                .claim("client_id", "client")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .build();
+        idToken = Jwt.withTokenValue("id-token")
+                .header("alg", "RS256")
+                .subject("3f1c2b7a-0000-4000-8000-000000000001")
+                .claim("cognito:username", "alice")
+                .claim("token_use", "id")
+                .claim("aud", "client")
+                .issuedAt(now)
+                .expiresAt(now.plusSeconds(3600))
+                .build();
+    }
+
+    @Benchmark
+    public String usernameFromAccessToken() {
+        return JwtClaims.username(accessToken);
+    }
+
+    @Benchmark
+    public String usernameFromIdToken() {
+        return JwtClaims.username(idToken);
+    }
+}
@@ -0,0 +1,108 @@
+package pl.projektchmury.chatservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.repository.ReactiveMessageRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Zapytania listy odebranych przez MessageRepository (JPA + Hibernate) na bazie w pamięci.
+// Mierzy narzut warstwy repozytorium (mapowanie encji vs projekcja, count), a nie planer Postgresa -
+// indeksy z migracji Flyway nie są tu odtwarzane. Konfiguracja bazy: benchmark.properties.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageRepositoryBenchmark {
+
+    private static final String RECIPIENT = "recipient";
+
+    @Param({"100", "2000"})
+    public int inboxSize;
+
+    private ConfigurableApplicationContext context;
+    private MessageRepository messageRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(RepositoryBenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run("--spring.config.name=benchmark");
+        messageRepository = context.getBean(MessageRepository.class);
+
+        List<Message> messages = new ArrayList<>(inboxSize * 2);
+        for (int i = 0; i < inboxSize; i++) {
+            Message message = new Message("author" + (i % 20), "Wiadomość " + i + " - treść średniej długości, jak w typowej rozmowie.");
+            message.setRecipientUsername(RECIPIENT);
+            message.setRead(i % 4 != 0);
+            if (i % 10 == 0) {
+                message.setFileId("file-" + i);
+            }
+            messages.add(message);
+            // Szum: wiadomości do innych odbiorców, żeby zapytania faktycznie filtrowały
+            Message other = new Message("author" + (i % 20), "Inna wiadomość " + i);
+            other.setRecipientUsername("other" + (i % 50));
+            messages.add(other);
+        }
+        messageRepository.saveAll(messages);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Message> findByRecipient() {
+        return messageRepository.findByRecipientUsername(RECIPIENT);
+    }
+
+    @Benchmark
+    public List<MessageRepository.MessageSummary> findSummariesByRecipient() {
+        return messageRepository.findSummariesByRecipientUsernameOrderByIdDesc(RECIPIENT);
+    }
+
+    @Benchmark
+    public long countUnread() {
+        return messageRepository.countByRecipientUsernameAndReadFalse(RECIPIENT);
+    }
+
+    // Minimalny kontekst: tylko DataSource + JPA, bez bezpieczeństwa, WebClienta i schedulerów aplikacji
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({
+            DataSourceAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class
+    })
+    @EntityScan(basePackageClasses = Message.class)
+    @EnableJpaRepositories(basePackageClasses = MessageRepository.class,
+            excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveMessageRepository.class))
+    static class RepositoryBenchmarkConfig {
+    }
+}
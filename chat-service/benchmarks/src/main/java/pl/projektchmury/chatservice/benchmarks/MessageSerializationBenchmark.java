@@ -0,0 +1,54 @@
+package pl.projektchmury.chatservice.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import pl.projektchmury.chatservice.model.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializacja listy wiadomości do JSON - to, co robią /sent i /received dla całej skrzynki.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MessageSerializationBenchmark {
+
+    @Param({"1", "50", "1000"})
+    public int listSize;
+
+    private ObjectWriter writer;
+    private List<Message> messages;
+
+    @Setup
+    public void setUp() {
+        // Ten sam builder, którego używa Spring Boot do konfiguracji ObjectMappera kontrolerów
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Message.class));
+        messages = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            Message message = new Message("author" + (i % 10), "Treść wiadomości numer " + i + " - trochę tekstu, żeby przypominała prawdziwą.");
+            message.setId((long) i);
+            message.setRecipientUsername("recipient");
+            message.setRead(i % 3 == 0);
+            if (i % 5 == 0) {
+                message.setFileId("file-" + i);
+            }
+            messages.add(message);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeMessages() throws Exception {
+        return writer.writeValueAsBytes(messages);
+    }
+}
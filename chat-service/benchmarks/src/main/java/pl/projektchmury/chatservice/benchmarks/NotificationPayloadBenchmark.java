@@ -0,0 +1,41 @@
+package pl.projektchmury.chatservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.projektchmury.chatservice.client.NotificationServiceClient;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Budowanie payloadu powiadomienia wykonywane dla każdej zapisanej wiadomości.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NotificationPayloadBenchmark {
+
+    @Param({"20", "500"})
+    public int contentLength;
+
+    private String content;
+
+    @Setup
+    public void setUp() {
+        content = "x".repeat(contentLength);
+    }
+
+    @Benchmark
+    public Map<String, String> buildPayload() {
+        return NotificationServiceClient.buildNotificationPayload("bob", "alice", content, "12345", false);
+    }
+
+    @Benchmark
+    public Map<String, String> buildPayloadWithFile() {
+        return NotificationServiceClient.buildNotificationPayload("bob", "alice", content, "12345", true);
+    }
+}
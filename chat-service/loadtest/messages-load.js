@@ -0,0 +1,34 @@
+// Porównanie obciążeniowe chat-service: profil domyślny (Tomcat + JPA) vs "reactive" (Netty + R2DBC).
+// Uruchomienie:
+//   k6 run -e BASE_URL=http://localhost:8082 -e TOKEN=<jwt> -e USERNAME=<nick> -e VUS=500 loadtest/messages-load.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8082';
+const TOKEN = __ENV.TOKEN;
+const USERNAME = __ENV.USERNAME || 'loadtest';
+const VUS = parseInt(__ENV.VUS || '200');
+
+export const options = {
+    scenarios: {
+        inbox: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(90)', 'p(99)', 'p(99.9)', 'max'],
+};
+
+const params = { headers: { Authorization: `Bearer ${TOKEN}` } };
+
+export default function () {
+    const received = http.get(`${BASE_URL}/api/messages/received?username=${USERNAME}`, params);
+    check(received, { 'received 200': (r) => r.status === 200 });
+
+    const sent = http.get(`${BASE_URL}/api/messages/sent?username=${USERNAME}`, params);
+    check(sent, { 'sent 200': (r) => r.status === 200 });
+
+    const unread = http.get(`${BASE_URL}/api/messages/unread-count?username=${USERNAME}`, params);
+    check(unread, { 'unread-count 200': (r) => r.status === 200 });
+}
@@ -2,8 +2,10 @@ package pl.projektchmury.chatservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ChatServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,56 @@
+package pl.projektchmury.chatservice.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.Map;
+
+// Klient metadanych plików z file-service (GET /api/files/metadata/{fileId}).
+@Component
+public class FileServiceClient {
+    private static final Logger logger = LoggerFactory.getLogger(FileServiceClient.class);
+
+    private static final ParameterizedTypeReference<Map<String, Object>> METADATA_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private final WebClient webClient;
+
+    @Value("${app.services.file.url:http://file-service:8083/api/files}")
+    private String fileServiceUrl;
+
+    public FileServiceClient(WebClient.Builder webClientBuilder,
+                             @Value("${app.services.file.response-timeout-ms:2000}") long responseTimeoutMillis) {
+        HttpClient httpClient = HttpClient.create()
+                .responseTimeout(Duration.ofMillis(responseTimeoutMillis));
+        this.webClient = webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+
+    // Pusty Mono, gdy plik nie istnieje (404).
+    public Mono<Map<String, Object>> getMetadata(String fileId, String authToken) {
+        return webClient.get()
+                .uri(fileServiceUrl + "/metadata/{fileId}", fileId)
+                .header(HttpHeaders.AUTHORIZATION, authToken)
+                .retrieve()
+                .bodyToMono(METADATA_TYPE)
+                .onErrorResume(WebClientResponseException.class, error -> {
+                    if (error.getStatusCode() == HttpStatus.NOT_FOUND) {
+                        logger.debug("Brak metadanych dla pliku {}", fileId);
+                        return Mono.empty();
+                    }
+                    return Mono.error(error);
+                });
+    }
+}
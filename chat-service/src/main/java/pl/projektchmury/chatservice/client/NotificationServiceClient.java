@@ -1,29 +1,105 @@
 package pl.projektchmury.chatservice.client;
 
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
+// Klient notification-service.
+// Każde wywołanie przechodzi przez: limit czasu -> bulkhead (limit równoległych wywołań) -> circuit breaker.
+// Odczyty historii (bootstrap) mają osobny circuit breaker (notificationServiceReads): idą z tokenem użytkownika,
+// więc np. seria wygasłych tokenów nie może otworzyć obwodu wysyłki powiadomień.
+// Gdy obwód jest otwarty albo bulkhead pełny, powiadomienie trafia do ograniczonej kolejki zapasowej,
+// opróżnianej cyklicznie, gdy notification-service znów odpowiada.
+// Przy włączonym batchowaniu powiadomienia są zbierane w buforze i wysyłane paczkami do /send-batch
+// (gdy bufor osiągnie batch.max-size albo co batch.max-delay-ms), zamiast osobnego POST /send na każdą wiadomość.
+// Paczki idą zawsze z tokenem usługi (ServiceTokenProvider) - mieszczą powiadomienia wielu nadawców naraz.
+// Pojedynczy /send idzie z tokenem nadawcy, a bez niego (authToken == null, np. wiadomość zaplanowana) - z tokenem usługi.
 @Component
 public class NotificationServiceClient {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationServiceClient.class);
+    static final String RESILIENCE_INSTANCE = "notificationService";
+    static final String READS_CIRCUIT_BREAKER = "notificationServiceReads";
+
     private final WebClient webClient;
+    private final ServiceTokenProvider serviceTokenProvider;
+    private final CircuitBreaker circuitBreaker;
+    private final CircuitBreaker readsCircuitBreaker;
+    private final Bulkhead bulkhead;
+    private final BlockingQueue<PendingNotification> fallbackQueue;
+    private final BlockingQueue<PendingNotification> batchBuffer;
+    private final Duration callTimeout;
+
+    private final Counter enqueuedCounter;
+    private final Counter droppedCounter;
+    private final Counter replayedCounter;
+    private final Counter failedCounter;
+    private final DistributionSummary batchSizeSummary;
 
     @Value("${app.services.notification.url}")
     private String notificationServiceUrl; // Ta właściwość zostanie wstrzyknięta
 
-    public NotificationServiceClient(WebClient.Builder webClientBuilder) {
-        // Nie budujemy tutaj z base URL, bo pełny URL będzie w notificationServiceUrl
-        this.webClient = webClientBuilder.build();
+    @Value("${app.services.notification.fallback.drain-batch-size:100}")
+    private int drainBatchSize;
+
+    @Value("${app.services.notification.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    // Nie może przekraczać app.notifications.send-batch.max-size w notification-service
+    @Value("${app.services.notification.batch.max-size:50}")
+    private int batchMaxSize;
+
+    public NotificationServiceClient(@Qualifier("notificationWebClient") WebClient notificationWebClient,
+                                     ServiceTokenProvider serviceTokenProvider,
+                                     CircuitBreakerRegistry circuitBreakerRegistry,
+                                     BulkheadRegistry bulkheadRegistry,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${app.services.notification.call-timeout-ms:5000}") long callTimeoutMillis,
+                                     @Value("${app.services.notification.fallback.queue-capacity:10000}") int fallbackQueueCapacity,
+                                     @Value("${app.services.notification.batch.buffer-capacity:10000}") int batchBufferCapacity) {
+        this.webClient = notificationWebClient;
+        this.serviceTokenProvider = serviceTokenProvider;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE);
+        this.readsCircuitBreaker = circuitBreakerRegistry.circuitBreaker(READS_CIRCUIT_BREAKER);
+        this.bulkhead = bulkheadRegistry.bulkhead(RESILIENCE_INSTANCE);
+        this.fallbackQueue = new ArrayBlockingQueue<>(fallbackQueueCapacity);
+        this.batchBuffer = new ArrayBlockingQueue<>(batchBufferCapacity);
+        this.callTimeout = Duration.ofMillis(callTimeoutMillis);
+
+        meterRegistry.gaugeCollectionSize("chat.notifications.fallback.queue.size", List.of(), fallbackQueue);
+        this.enqueuedCounter = meterRegistry.counter("chat.notifications.fallback.enqueued");
+        this.droppedCounter = meterRegistry.counter("chat.notifications.fallback.dropped");
+        this.replayedCounter = meterRegistry.counter("chat.notifications.fallback.replayed");
+        this.failedCounter = meterRegistry.counter("chat.notifications.failed");
+        this.batchSizeSummary = meterRegistry.summary("chat.notifications.batch.size");
+        meterRegistry.gaugeCollectionSize("chat.notifications.batch.buffer.size", List.of(), batchBuffer);
     }
 
     public void sendNewMessageNotification(
@@ -32,8 +108,58 @@ public class NotificationServiceClient {
             String messageContentPreview, // Podgląd treści wiadomości
             String originalMessageId, // ID oryginalnej wiadomości z chat-service
             boolean hasFile,          // Czy wiadomość ma załącznik
-            String authToken          // Token JWT oryginalnego nadawcy
+            String authToken          // Token JWT oryginalnego nadawcy; null = token usługi
     ) {
+        Map<String, String> payload = buildNotificationPayload(
+                recipientUsername, senderUsername, messageContentPreview, originalMessageId, hasFile);
+
+        logger.debug("Przygotowano payload do wysłania powiadomienia: {} (token: {})",
+                payload, (authToken != null && !authToken.isEmpty()) ? "OBECNY" : "BRAK");
+
+        PendingNotification notification = new PendingNotification(payload, authToken);
+        if (!batchEnabled) {
+            send(notification).subscribe(); // Wykonaj asynchronicznie (fire-and-forget)
+            return;
+        }
+        if (!batchBuffer.offer(notification)) {
+            // Bufor pełny - nie blokujemy wątku zapisu wiadomości, wysyłamy pojedynczo.
+            send(notification).subscribe();
+            return;
+        }
+        if (batchBuffer.size() >= batchMaxSize) {
+            flushBatch(); // Paczka pełna - nie czekamy na kolejny tick
+        }
+    }
+
+    // Opróżnia bufor paczkami po batch.max-size. Wywoływane co batch.max-delay-ms oraz przy zapełnieniu paczki.
+    // drainTo jest bezpieczne wątkowo, więc równoległe wywołania nigdy nie wyślą tego samego powiadomienia dwa razy.
+    @Scheduled(fixedDelayString = "${app.services.notification.batch.max-delay-ms:50}")
+    public void flushBatch() {
+        List<PendingNotification> batch = new ArrayList<>(batchMaxSize);
+        while (batchBuffer.drainTo(batch, batchMaxSize) > 0) {
+            dispatch(batch);
+            batch = new ArrayList<>(batchMaxSize);
+        }
+    }
+
+    // /send-batch nie wiąże nadawców z paczki z tokenem (notification-service sprawdza tylko, czy token jest ważny),
+    // więc jedna paczka z tokenem usługi obejmuje powiadomienia wszystkich nadawców.
+    // Bez skonfigurowanego tokenu usługi paczek nie da się wysłać - wtedy pojedynczo, z tokenami nadawców.
+    private void dispatch(List<PendingNotification> notifications) {
+        if (!batchEnabled || !serviceTokenProvider.isConfigured()) {
+            notifications.forEach(notification -> send(notification).subscribe());
+            return;
+        }
+        for (int from = 0; from < notifications.size(); from += batchMaxSize) {
+            sendBatch(notifications.subList(from, Math.min(from + batchMaxSize, notifications.size()))).subscribe();
+        }
+    }
+
+    public static Map<String, String> buildNotificationPayload(String recipientUsername,
+                                                               String senderUsername,
+                                                               String messageContentPreview,
+                                                               String originalMessageId,
+                                                               boolean hasFile) {
         String notificationType = hasFile ? "NEW_MESSAGE_WITH_FILE" : "NEW_MESSAGE";
         String subject = "Nowa wiadomość od " + senderUsername;
         String notificationMessageBody = senderUsername + " wysłał Ci wiadomość" +
@@ -46,30 +172,132 @@ public class NotificationServiceClient {
         payload.put("type", notificationType);
         payload.put("subject", subject);
         payload.put("message", notificationMessageBody);
+        payload.put("senderId", senderUsername); // notification-service scala serie wiadomości od jednego nadawcy
         if (originalMessageId != null) {
             payload.put("relatedEntityId", originalMessageId);
         }
+        return payload;
+    }
 
-        logger.info("Przygotowano payload do wysłania powiadomienia: {}", payload);
-        logger.info("URL docelowy dla powiadomienia: {}/send", notificationServiceUrl);
-        logger.info("Token autoryzacyjny dla powiadomienia: {}", (authToken != null && !authToken.isEmpty()) ? "OBECNY" : "BRAK");
-
+    // Pierwsza strona historii powiadomień użytkownika (właściciel tokenu) - używana przez /api/messages/bootstrap.
+    // Odpowiedź w formacie notification-service: {"items": [...], "nextCursor": "..." | null}.
+    // Wspólny bulkhead z wysyłką (jeden limit równoległych wywołań do notification-service), ale własny circuit breaker,
+    // który nie liczy odpowiedzi 4xx (np. 401 dla wygasłego tokenu) jako awarii - patrz application.properties.
+    public Mono<Map<String, Object>> getNotificationHistory(String authToken, int limit) {
+        return webClient.get()
+                .uri(notificationServiceUrl + "/history?limit={limit}", limit)
+                .header(HttpHeaders.AUTHORIZATION, authToken)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .timeout(callTimeout)
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(readsCircuitBreaker));
+    }
 
-        webClient.post()
-                .uri(notificationServiceUrl + "/send") // Endpoint w notification-service
-                .header(HttpHeaders.AUTHORIZATION, authToken) // Przekazanie tokenu
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(payload)
-                .retrieve() // Rozpocznij pobieranie odpowiedzi
-                .toBodilessEntity() // Interesuje nas tylko status, nie ciało odpowiedzi
+    private Mono<Void> send(PendingNotification notification) {
+        String recipientUsername = notification.payload().get("targetUserId");
+        return authorization(notification)
+                .flatMap(authorization -> webClient.post()
+                        .uri(notificationServiceUrl + "/send") // Endpoint w notification-service
+                        .header(HttpHeaders.AUTHORIZATION, authorization) // Token nadawcy albo token usługi
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(notification.payload())
+                        .retrieve() // Rozpocznij pobieranie odpowiedzi
+                        .toBodilessEntity() // Interesuje nas tylko status, nie ciało odpowiedzi
+                        .timeout(callTimeout) // Twardy limit na całe wywołanie (połączenie + odpowiedź)
+                        .transformDeferred(BulkheadOperator.of(bulkhead))
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
                 .doOnSuccess(response ->
-                        logger.info("Powiadomienie wysłane pomyślnie do {}, status: {}",
+                        logger.debug("Powiadomienie wysłane pomyślnie do {}, status: {}",
                                 recipientUsername, response.getStatusCode())
                 )
-                .doOnError(error ->
+                .then()
+                .onErrorResume(error -> {
+                    if (isRetryable(error)) {
+                        enqueue(notification, error);
+                    } else {
+                        failedCounter.increment();
                         logger.error("Błąd podczas wysyłania powiadomienia do {}: {}",
-                                recipientUsername, error.getMessage(), error)
+                                recipientUsername, error.getMessage(), error);
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> sendBatch(List<PendingNotification> batch) {
+        batchSizeSummary.record(batch.size());
+        List<Map<String, String>> payloads = batch.stream().map(PendingNotification::payload).toList();
+        return serviceTokenProvider.authorizationHeader()
+                .flatMap(authorization -> webClient.post()
+                        .uri(notificationServiceUrl + "/send-batch")
+                        .header(HttpHeaders.AUTHORIZATION, authorization)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(payloads)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(callTimeout)
+                        .transformDeferred(BulkheadOperator.of(bulkhead))
+                        .transformDeferred(CircuitBreakerOperator.of(circuitBreaker)))
+                .doOnSuccess(response ->
+                        logger.debug("Paczka {} powiadomień wysłana pomyślnie, status: {}", batch.size(), response.getStatusCode())
                 )
-                .subscribe(); // Wykonaj asynchronicznie (fire-and-forget)
+                .then()
+                .onErrorResume(error -> {
+                    if (isRetryable(error)) {
+                        batch.forEach(notification -> enqueue(notification, error));
+                    } else {
+                        failedCounter.increment(batch.size());
+                        logger.error("Błąd podczas wysyłania paczki {} powiadomień: {}", batch.size(), error.getMessage(), error);
+                    }
+                    return Mono.empty();
+                });
+    }
+
+    // Token usługi pobieramy przed circuit breakerem - błąd Cognito nie jest awarią notification-service.
+    private Mono<String> authorization(PendingNotification notification) {
+        return (notification.authToken() != null)
+                ? Mono.just(notification.authToken())
+                : serviceTokenProvider.authorizationHeader();
+    }
+
+    // Chwilowe przyczyny, po których powiadomienie wraca do kolejki zapasowej zamiast przepaść.
+    private static boolean isRetryable(Throwable error) {
+        return error instanceof CallNotPermittedException
+                || error instanceof BulkheadFullException
+                || error instanceof ServiceTokenProvider.ServiceTokenUnavailableException;
+    }
+
+    private void enqueue(PendingNotification notification, Throwable reason) {
+        if (fallbackQueue.offer(notification)) {
+            enqueuedCounter.increment();
+            logger.warn("notification-service niedostępny ({}), powiadomienie dla {} odłożone do kolejki zapasowej (rozmiar: {}).",
+                    reason.getClass().getSimpleName(), notification.payload().get("targetUserId"), fallbackQueue.size());
+        } else {
+            droppedCounter.increment();
+            logger.error("Kolejka zapasowa powiadomień pełna - odrzucono powiadomienie dla {}.", notification.payload().get("targetUserId"));
+        }
+    }
+
+    // Ponawianie odłożonych powiadomień. Gdy obwód jest otwarty, nic nie robimy - po waitDurationInOpenState
+    // circuit breaker sam przejdzie w HALF_OPEN i przepuści kilka próbnych wywołań (także stąd).
+    @Scheduled(fixedDelayString = "${app.services.notification.fallback.drain-interval-ms:5000}")
+    public void drainFallbackQueue() {
+        if (fallbackQueue.isEmpty() || circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            return;
+        }
+        List<PendingNotification> drainedNotifications = new ArrayList<>(drainBatchSize);
+        int drained = fallbackQueue.drainTo(drainedNotifications, drainBatchSize);
+        replayedCounter.increment(drained);
+        dispatch(drainedNotifications);
+        logger.info("Ponowiono {} powiadomień z kolejki zapasowej (pozostało: {}, stan obwodu: {}).",
+                drained, fallbackQueue.size(), circuitBreaker.getState());
+    }
+
+    int getFallbackQueueSize() {
+        return fallbackQueue.size();
+    }
+
+    record PendingNotification(Map<String, String> payload, String authToken) {
     }
 }
@@ -0,0 +1,105 @@
+package pl.projektchmury.chatservice.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+// Token samego chat-service (Cognito, przepływ client_credentials) do wywołań notification-service,
+// przy których nie ma żądania użytkownika - np. dostarczenie wiadomości zaplanowanej (ScheduledMessageService).
+// Nie przechowujemy tokenów użytkowników: token dostępu Cognito wygasa po ok. godzinie, więc i tak nie nadawałby się
+// do wiadomości zaplanowanych na później. Token usługi trzymamy w pamięci i pobieramy nowy przed wygaśnięciem.
+@Component
+public class ServiceTokenProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceTokenProvider.class);
+
+    // Błąd pobrania tokenu (np. Cognito chwilowo niedostępne) - powiadomienie można ponowić później.
+    public static class ServiceTokenUnavailableException extends RuntimeException {
+        ServiceTokenUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private record CachedToken(String authorizationHeader, Instant expiresAt) {
+    }
+
+    private final WebClient webClient;
+    private final String tokenUri;
+    private final String clientId;
+    private final String clientSecret;
+    private final String scope;
+    private final Duration refreshBefore;
+    private final Duration callTimeout;
+    private volatile CachedToken cached;
+
+    public ServiceTokenProvider(@Qualifier("notificationWebClient") WebClient notificationWebClient,
+                                @Value("${app.services.notification.oauth.token-uri:}") String tokenUri,
+                                @Value("${app.services.notification.oauth.client-id:}") String clientId,
+                                @Value("${app.services.notification.oauth.client-secret:}") String clientSecret,
+                                @Value("${app.services.notification.oauth.scope:notification-service/send}") String scope,
+                                @Value("${app.services.notification.oauth.refresh-before-expiry-ms:60000}") long refreshBeforeMillis,
+                                @Value("${app.services.notification.call-timeout-ms:5000}") long callTimeoutMillis) {
+        this.webClient = notificationWebClient;
+        this.tokenUri = tokenUri;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.scope = scope;
+        this.refreshBefore = Duration.ofMillis(refreshBeforeMillis);
+        this.callTimeout = Duration.ofMillis(callTimeoutMillis);
+        if (!isConfigured()) {
+            logger.warn("Brak app.services.notification.oauth.* - powiadomienia o wiadomościach zaplanowanych nie będą wysyłane.");
+        }
+    }
+
+    public boolean isConfigured() {
+        return !tokenUri.isEmpty() && !clientId.isEmpty() && !clientSecret.isEmpty();
+    }
+
+    // Gotowa wartość nagłówka Authorization ("Bearer ...").
+    // Błędy: IllegalStateException (brak konfiguracji), ServiceTokenUnavailableException (nieudane pobranie).
+    public Mono<String> authorizationHeader() {
+        if (!isConfigured()) {
+            return Mono.error(new IllegalStateException("Token usługi nie jest skonfigurowany (app.services.notification.oauth.*)"));
+        }
+        CachedToken token = cached;
+        if (token != null && Instant.now().plus(refreshBefore).isBefore(token.expiresAt())) {
+            return Mono.just(token.authorizationHeader());
+        }
+        // Równoległe odświeżenia są możliwe tylko w krótkiej chwili wygaśnięcia (raz na godzinę) - nie synchronizujemy ich.
+        return webClient.post()
+                .uri(tokenUri)
+                .headers(headers -> headers.setBasicAuth(clientId, clientSecret))
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body(BodyInserters.fromFormData("grant_type", "client_credentials").with("scope", scope))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {
+                })
+                .timeout(callTimeout)
+                .map(this::cache)
+                .onErrorMap(error -> !(error instanceof ServiceTokenUnavailableException),
+                        error -> new ServiceTokenUnavailableException("Nie udało się pobrać tokenu usługi: " + error.getMessage(), error));
+    }
+
+    private String cache(Map<String, Object> response) {
+        Object accessToken = response.get("access_token");
+        if (!(accessToken instanceof String value) || value.isEmpty()) {
+            throw new ServiceTokenUnavailableException("Odpowiedź bez access_token", null);
+        }
+        long expiresIn = (response.get("expires_in") instanceof Number number) ? number.longValue() : 3600;
+        String header = "Bearer " + value;
+        cached = new CachedToken(header, Instant.now().plusSeconds(expiresIn));
+        logger.debug("Pobrano token usługi dla notification-service (ważny {} s).", expiresIn);
+        return header;
+    }
+}
@@ -0,0 +1,22 @@
+package pl.projektchmury.chatservice.config;
+
+import org.springframework.security.oauth2.jwt.Jwt;
+
+// Odczyt nicku użytkownika z tokenu Cognito: najpierw claim "username" (access token),
+// potem "cognito:username" (ID token). null, gdy tokenu brak albo nie ma w nim nicku.
+public final class JwtClaims {
+
+    private JwtClaims() {
+    }
+
+    public static String username(Jwt jwt) {
+        if (jwt == null) {
+            return null;
+        }
+        String username = jwt.getClaimAsString("username");
+        if (username == null) {
+            username = jwt.getClaimAsString("cognito:username");
+        }
+        return username;
+    }
+}
@@ -0,0 +1,53 @@
+package pl.projektchmury.chatservice.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// WebClient dla NotificationServiceClient z jawnymi limitami czasu i ograniczoną pulą połączeń,
+// żeby "zawieszony" notification-service nie trzymał w nieskończoność połączeń i pamięci chat-service.
+@Configuration
+public class NotificationClientConfig {
+
+    @Value("${app.services.notification.connect-timeout-ms:2000}")
+    private int connectTimeoutMillis;
+
+    @Value("${app.services.notification.response-timeout-ms:3000}")
+    private long responseTimeoutMillis;
+
+    @Value("${app.services.notification.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${app.services.notification.pending-acquire-timeout-ms:1000}")
+    private long pendingAcquireTimeoutMillis;
+
+    @Value("${app.services.notification.max-idle-time-ms:30000}")
+    private long maxIdleTimeMillis;
+
+    @Bean
+    public WebClient notificationWebClient(WebClient.Builder webClientBuilder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("notification-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxConnections * 2)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMillis))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMillis))
+                .metrics(true)
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMillis));
+
+        // Nie budujemy z base URL, bo pełny URL jest w app.services.notification.url
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,18 @@
+package pl.projektchmury.chatservice.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Tomcat jest na classpath (spring-boot-starter-web), więc bez tego Spring Boot uruchomiłby
+// WebFlux na Tomcacie. W profilu "reactive" chcemy pętli zdarzeń Reactor Netty.
+@Configuration
+@Profile("reactive")
+public class ReactiveWebConfig {
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,30 @@
+package pl.projektchmury.chatservice.config;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.repository.ReactiveMessageRepository;
+
+// Repozytoria JPA i R2DBC leżą w jednym pakiecie, a w danym profilu aktywny jest tylko jeden moduł Spring Data,
+// więc jawnie wskazujemy, które interfejsy należą do którego modułu.
+@Configuration
+public class RepositoryConfig {
+
+    @Configuration
+    @Profile("!reactive")
+    @EnableJpaRepositories(basePackageClasses = MessageRepository.class,
+            excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveMessageRepository.class))
+    static class JpaRepositoriesConfig {
+    }
+
+    @Configuration
+    @Profile("reactive")
+    @EnableR2dbcRepositories(basePackageClasses = ReactiveMessageRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ReactiveMessageRepository.class))
+    static class R2dbcRepositoriesConfig {
+    }
+}
@@ -0,0 +1,58 @@
+package pl.projektchmury.chatservice.config;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Fail-fast przy starcie: jeśli brakuje któregoś z indeksów z migracji Flyway
+// (albo CREATE INDEX CONCURRENTLY zostawił go w stanie INVALID), aplikacja nie wystartuje,
+// zamiast po cichu obsługiwać skrzynki odbiorcze sekwencyjnym skanem tabeli.
+@Component
+@ConditionalOnProperty(name = "app.db.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(SchemaIndexVerifier.class);
+
+    // Musi odpowiadać nazwom z db/migration/V2__message_list_indexes.sql
+    static final List<String> EXPECTED_INDEXES = List.of(
+            "idx_message_author_id",
+            "idx_message_recipient_id",
+            "idx_message_recipient_unread",
+            "idx_scheduled_message_pending",
+            "idx_scheduled_message_author_pending"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // DataSource bierzemy z Flyway, bo w profilu "reactive" nie ma głównej puli JDBC.
+    public SchemaIndexVerifier(Flyway flyway) {
+        this.jdbcTemplate = new JdbcTemplate(flyway.getConfiguration().getDataSource());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Set<String> validIndexes = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i " +
+                        "JOIN pg_class c ON c.oid = i.indexrelid " +
+                        "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                        "WHERE n.nspname = current_schema() AND i.indisvalid AND i.indisready",
+                String.class));
+
+        List<String> missing = EXPECTED_INDEXES.stream()
+                .filter(name -> !validIndexes.contains(name))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Brakujące lub niepoprawne (INVALID) indeksy bazy danych: " + missing +
+                    ". Sprawdź historię migracji Flyway (flyway_schema_history).");
+        }
+        logger.info("Weryfikacja indeksów zakończona pomyślnie ({} indeksów).", EXPECTED_INDEXES.size());
+    }
+}
@@ -1,8 +1,12 @@
 package pl.projektchmury.chatservice.controller;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpHeaders; // WAŻNY IMPORT
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,15 +14,23 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
-import pl.projektchmury.chatservice.client.NotificationServiceClient; // WAŻNY IMPORT
+import pl.projektchmury.chatservice.config.JwtClaims;
 import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.model.ScheduledMessage;
 import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.service.BootstrapService;
+import pl.projektchmury.chatservice.service.MessageService;
+import pl.projektchmury.chatservice.service.ScheduledMessageService;
+import reactor.core.publisher.Mono;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 @RestController
+@Profile("!reactive") // W profilu "reactive" zastępuje to wersja WebFlux/R2DBC
 @RequestMapping("/api/messages")
 public class MessageController {
     private static final Logger logger = LoggerFactory.getLogger(MessageController.class);
@@ -26,8 +38,22 @@ public class MessageController {
     @Autowired
     private MessageRepository messageRepository;
 
-    @Autowired // WSTRZYKNIĘCIE KLIENTA POWIADOMIEŃ
-    private NotificationServiceClient notificationServiceClient;
+    @Autowired
+    private MessageService messageService;
+
+    @Autowired
+    private ScheduledMessageService scheduledMessageService;
+
+    @Autowired
+    private BootstrapService bootstrapService;
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary receivedBatchSize;
+
+    public MessageController(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.receivedBatchSize = meterRegistry.summary("chat.messages.received.returned");
+    }
 
     // Endpoint: wiadomości wysłane przez danego użytkownika
     @GetMapping("/sent")
@@ -39,66 +65,100 @@ public class MessageController {
     // Endpoint: wiadomości odebrane przez danego użytkownika
     @GetMapping("/received")
     public List<Message> getReceivedMessages(@RequestParam String username, @AuthenticationPrincipal Jwt jwt) {
-        String requesterNick = null;
-        if (jwt != null) {
-            requesterNick = jwt.getClaimAsString("username");
-            if (requesterNick == null) {
-                requesterNick = jwt.getClaimAsString("cognito:username");
-            }
-        }
+        String requesterNick = JwtClaims.username(jwt);
         String requesterLog = (requesterNick != null) ? requesterNick : ((jwt != null) ? jwt.getSubject() : "UNKNOWN_REQUESTER");
 
-        logger.info("[getReceivedMessages] Użytkownik {} (żądający: {}) pobiera odebrane wiadomości.", username, requesterLog);
         List<Message> messages = messageRepository.findByRecipientUsername(username);
-        if (messages.isEmpty()) {
-            logger.info("[getReceivedMessages] Nie znaleziono wiadomości dla odbiorcy: {}", username);
-        } else {
-            messages.forEach(msg -> logger.info("[getReceivedMessages] Wiadomość ID: {}, Nadawca: {}, Odbiorca: {}, Treść: '{}', Status read: {}",
-                    msg.getId(), msg.getAuthorUsername(), msg.getRecipientUsername(), msg.getContent().substring(0, Math.min(msg.getContent().length(), 20)), msg.isRead()));
-        }
+        // Zamiast linii logu na każdą wiadomość - jedna linia DEBUG i metryka rozmiaru skrzynki
+        receivedBatchSize.record(messages.size());
+        logger.debug("[getReceivedMessages] Użytkownik {} (żądający: {}) pobrał {} odebranych wiadomości.", username, requesterLog, messages.size());
         return messages;
     }
 
-    // Endpoint tworzenia wiadomości
+    // Endpoint: lekka lista odebranych (bez treści) - tylko ID, nadawca, status przeczytania i załącznik
+    @GetMapping("/received/summary")
+    public List<MessageRepository.MessageSummary> getReceivedSummary(@RequestParam String username) {
+        return messageRepository.findSummariesByRecipientUsernameOrderByIdDesc(username);
+    }
+
+    // Endpoint: liczba nieprzeczytanych wiadomości odebranych
+    @GetMapping("/unread-count")
+    public Map<String, Long> getUnreadCount(@RequestParam String username) {
+        return Map.of("unreadCount", messageRepository.countByRecipientUsernameAndReadFalse(username));
+    }
+
+    // Endpoint: wszystko, czego frontend potrzebuje po zalogowaniu, w jednym żądaniu
+    // (wysłane, odebrane, historia powiadomień, metadane plików) - części pobierane równolegle.
+    @GetMapping("/bootstrap")
+    public Mono<ResponseEntity<?>> bootstrap(@AuthenticationPrincipal Jwt jwt,
+                                             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+        String username = JwtClaims.username(jwt);
+        if (username == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        return bootstrapService.bootstrap(username, authorizationHeader)
+                .map(ResponseEntity::ok);
+    }
+
+    // Endpoint tworzenia wiadomości.
+    // Opcjonalne pole "deliverAt" (epoch millis lub ISO-8601) planuje wysyłkę na później - wtedy zwracamy 202 Accepted.
     @PostMapping
-    public Message addMessage(@RequestBody Map<String, String> body,
-                              @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) { // Pobranie nagłówka Authorization
+    public ResponseEntity<?> addMessage(@RequestBody Map<String, String> body,
+                                        @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) { // Pobranie nagłówka Authorization
         String authorUsername = body.get("author");
         String content = body.get("content");
         String recipientUsername = body.get("recipient");
         String fileId = body.get("fileId");
+        String deliverAtRaw = body.get("deliverAt");
+
+        // Treści wiadomości nie logujemy - tylko jej długość.
+        logger.debug("Próba zapisu wiadomości. Nadawca: {}, długość treści: {}, odbiorca: {}, fileId: {}, deliverAt: {}",
+                authorUsername, content != null ? content.length() : 0, recipientUsername, fileId, deliverAtRaw);
 
-        logger.debug("Próba zapisu wiadomości. Nadawca: {}, treść: {}, odbiorca: {}, fileId: {}",
-                authorUsername, content, recipientUsername, fileId);
+        if (deliverAtRaw != null && !deliverAtRaw.isEmpty()) {
+            Long deliverAt = parseDeliverAt(deliverAtRaw);
+            if (deliverAt == null) {
+                logger.warn("Nieprawidłowy format deliverAt: {}", deliverAtRaw);
+                return ResponseEntity.badRequest().body(Map.of("error", "Nieprawidłowy format deliverAt (epoch millis lub ISO-8601)."));
+            }
+            if (deliverAt > System.currentTimeMillis()) {
+                ScheduledMessage scheduled = new ScheduledMessage();
+                scheduled.setAuthorUsername(authorUsername);
+                scheduled.setRecipientUsername(recipientUsername);
+                scheduled.setContent(content);
+                if (fileId != null && !fileId.isEmpty()) {
+                    scheduled.setFileId(fileId);
+                }
+                scheduled.setDeliverAt(deliverAt);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(scheduledMessageService.schedule(scheduled));
+            }
+            // Termin w przeszłości - wysyłamy od razu, jak zwykłą wiadomość.
+        }
 
         Message msg = new Message(authorUsername, content);
         msg.setRecipientUsername(recipientUsername);
         if (fileId != null && !fileId.isEmpty()) {
             msg.setFileId(fileId);
         }
-        Message savedMessage = messageRepository.save(msg);
-        logger.info("Wiadomość ID: {} zapisana pomyślnie.", savedMessage.getId());
-
-        // Po pomyślnym zapisaniu wiadomości, wyślij powiadomienie, jeśli jest odbiorca i nie jest to wiadomość do samego siebie
-        if (savedMessage.getRecipientUsername() != null &&
-                !savedMessage.getRecipientUsername().isEmpty() &&
-                !savedMessage.getRecipientUsername().equals(savedMessage.getAuthorUsername())) {
-
-            logger.info("Inicjowanie wysyłania powiadomienia dla wiadomości ID: {} do odbiorcy: {}",
-                    savedMessage.getId(), savedMessage.getRecipientUsername());
-            notificationServiceClient.sendNewMessageNotification(
-                    savedMessage.getRecipientUsername(),
-                    savedMessage.getAuthorUsername(),
-                    savedMessage.getContent(),
-                    savedMessage.getId().toString(),
-                    savedMessage.getFileId() != null && !savedMessage.getFileId().isEmpty(),
-                    authorizationHeader // Przekazanie oryginalnego tokenu nadawcy
-            );
-        } else {
-            logger.info("Pominięto wysyłanie powiadomienia dla wiadomości ID: {} (brak odbiorcy lub wiadomość do samego siebie).", savedMessage.getId());
-        }
+        return ResponseEntity.ok(messageService.saveAndNotify(msg, authorizationHeader));
+    }
 
-        return savedMessage;
+    // Endpoint: oczekujące wiadomości zaplanowane przez danego użytkownika
+    @GetMapping("/scheduled")
+    public List<ScheduledMessage> getScheduledMessages(@RequestParam String username) {
+        return scheduledMessageService.getPendingForAuthor(username);
+    }
+
+    private Long parseDeliverAt(String raw) {
+        try {
+            return Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            try {
+                return Instant.parse(raw).toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
     }
 
     // ZMODYFIKOWANY ENDPOINT: Oznaczanie wiadomości jako przeczytanej
@@ -113,58 +173,43 @@ public class MessageController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Brak autoryzacji.");
         }
 
-        String currentUsernameFromToken = jwt.getClaimAsString("username");
+        String currentUsernameFromToken = JwtClaims.username(jwt);
         if (currentUsernameFromToken == null) {
-            currentUsernameFromToken = jwt.getClaimAsString("cognito:username");
-        }
-
-        if (currentUsernameFromToken == null) {
-            logger.error("[markMessageAsRead] Nie można uzyskać nazwy użytkownika (nicku) z tokenu JWT. Dostępne claimy: {}.", jwt.getClaims());
+            logger.error("[markMessageAsRead] Nie można uzyskać nazwy użytkownika (nicku) z tokenu JWT. Sub: {}.", jwt.getSubject());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Błąd konfiguracji autoryzacji: brak nicku w tokenie.");
         }
 
-        logger.info("[markMessageAsRead] Użytkownik z tokenu (nick): {} (sub: {}) próbuje oznaczyć wiadomość ID: {} jako przeczytaną.",
-                currentUsernameFromToken, jwt.getSubject(), messageId);
-
         Optional<Message> optionalMessage = messageRepository.findById(messageId);
 
         if (optionalMessage.isEmpty()) {
-            logger.warn("[markMessageAsRead] Nie znaleziono wiadomości o ID: {} (Użytkownik z tokenu: {}).", messageId, currentUsernameFromToken);
+            markAsReadOutcome("not_found").increment();
+            logger.debug("[markMessageAsRead] Nie znaleziono wiadomości o ID: {} (Użytkownik z tokenu: {}).", messageId, currentUsernameFromToken);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Wiadomość nie znaleziona.");
         }
 
         Message message = optionalMessage.get();
-        logger.info("[markMessageAsRead] Znaleziono wiadomość ID: {}. Aktualny status read: {}. Odbiorca w wiadomości: {}.",
-                messageId, message.isRead(), message.getRecipientUsername());
 
         if (!currentUsernameFromToken.equals(message.getRecipientUsername())) {
+            markAsReadOutcome("forbidden").increment();
             logger.warn("[markMessageAsRead] Użytkownik z tokenu (nick): {} próbował oznaczyć wiadomość (ID: {}) nie dla niego (odbiorca w wiadomości: {}).",
                     currentUsernameFromToken, messageId, message.getRecipientUsername());
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Nie masz uprawnień do tej operacji.");
         }
 
         if (message.isRead()) {
-            logger.info("[markMessageAsRead] Wiadomość (ID: {}) była już oznaczona jako przeczytana. Zwracam OK.", messageId);
+            markAsReadOutcome("already_read").increment();
             return ResponseEntity.ok(message);
         }
 
-        logger.info("[markMessageAsRead] Oznaczanie wiadomości (ID: {}) jako read=true.", messageId);
         message.setRead(true);
-        logger.info("[markMessageAsRead] Stan message (ID: {}) PRZED zapisem: read={}", messageId, message.isRead());
-
         Message updatedMessage = messageRepository.save(message);
 
-        logger.info("[markMessageAsRead] Stan message (ID: {}) PO zapisie (z updatedMessage): read={}", messageId, updatedMessage.isRead());
-
-        Optional<Message> reFetchedMessageOptional = messageRepository.findById(messageId);
-        if (reFetchedMessageOptional.isPresent()) {
-            Message reFetchedMessage = reFetchedMessageOptional.get();
-            logger.info("[markMessageAsRead] Stan message (ID: {}) PO PONOWNYM ODCZYCIE Z BAZY: read={}", messageId, reFetchedMessage.isRead());
-        } else {
-            logger.error("[markMessageAsRead] BŁĄD KRYTYCZNY: Wiadomość (ID: {}) zniknęła po zapisie!", messageId);
-        }
-
-        logger.info("[markMessageAsRead] Wiadomość (ID: {}) pomyślnie oznaczona jako przeczytana przez użytkownika (nick z tokenu): {}. Zwracam OK.", messageId, currentUsernameFromToken);
+        markAsReadOutcome("marked").increment();
+        logger.debug("[markMessageAsRead] Wiadomość (ID: {}) oznaczona jako przeczytana przez użytkownika (nick z tokenu): {}.", messageId, currentUsernameFromToken);
         return ResponseEntity.ok(updatedMessage);
     }
+
+    private Counter markAsReadOutcome(String outcome) {
+        return meterRegistry.counter("chat.messages.mark-as-read", "outcome", outcome);
+    }
 }
@@ -0,0 +1,89 @@
+package pl.projektchmury.chatservice.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import pl.projektchmury.chatservice.config.JwtClaims;
+import pl.projektchmury.chatservice.model.PresenceEvent;
+import pl.projektchmury.chatservice.service.PresenceService;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Obecność i wskaźnik pisania. Działa w obu profilach (MVC i "reactive"), bo nie korzysta z bazy danych.
+@RestController
+@RequestMapping("/api/presence")
+public class PresenceController {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceController.class);
+
+    private final PresenceService presenceService;
+
+    private final int maxWatchedUsers;
+
+    public PresenceController(PresenceService presenceService,
+                              @Value("${app.presence.max-watched-users:200}") int maxWatchedUsers) {
+        this.presenceService = presenceService;
+        this.maxWatchedUsers = maxWatchedUsers;
+    }
+
+    @PostMapping("/heartbeat")
+    public ResponseEntity<?> heartbeat(@AuthenticationPrincipal Jwt jwt) {
+        String username = JwtClaims.username(jwt);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        presenceService.heartbeat(username);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Body: {"recipient": "nick", "typing": true|false}; brak "typing" = true
+    @PostMapping("/typing")
+    public ResponseEntity<?> typing(@RequestBody Map<String, Object> body, @AuthenticationPrincipal Jwt jwt) {
+        String username = JwtClaims.username(jwt);
+        if (username == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        Object recipient = body.get("recipient");
+        if (!(recipient instanceof String recipientUsername) || recipientUsername.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Pole 'recipient' jest wymagane."));
+        }
+        if (Boolean.FALSE.equals(body.get("typing"))) {
+            presenceService.stopTyping(username, recipientUsername);
+        } else {
+            presenceService.typing(username, recipientUsername);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping
+    public List<PresenceEvent> getPresence(@RequestParam Set<String> users) {
+        return presenceService.getPresence(users);
+    }
+
+    // Strumień paczek zmian (SSE) dla zalogowanego użytkownika. Parametr users (wymagany) to osoby, których obecność
+    // śledzi klient - np. rozmówcy z listy wiadomości. Zdarzenia TYPING trafiają tylko do adresata pisania.
+    // Endpoint produkuje tylko text/event-stream, więc błędy zgłaszamy statusem (ResponseStatusException), a nie mapą JSON.
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<List<PresenceEvent>>> events(@RequestParam Set<String> users, @AuthenticationPrincipal Jwt jwt) {
+        String username = JwtClaims.username(jwt);
+        if (username == null) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Brak nicku w tokenie.");
+        }
+        if (users.size() > maxWatchedUsers) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Można śledzić najwyżej " + maxWatchedUsers + " użytkowników.");
+        }
+        logger.debug("Nowy subskrybent zdarzeń obecności: {} (śledzi {} użytkowników)", username, users.size());
+        return presenceService.eventsFor(username, Set.copyOf(users))
+                .map(batch -> ServerSentEvent.builder(batch).event("presence").build());
+    }
+}
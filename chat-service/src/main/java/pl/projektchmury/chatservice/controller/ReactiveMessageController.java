@@ -0,0 +1,141 @@
+package pl.projektchmury.chatservice.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import pl.projektchmury.chatservice.client.NotificationServiceClient;
+import pl.projektchmury.chatservice.config.JwtClaims;
+import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.repository.ReactiveMessageRepository;
+import pl.projektchmury.chatservice.service.BootstrapService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+// Wersja MessageController dla profilu "reactive": to samo API /api/messages,
+// ale obsługiwane przez WebFlux + R2DBC, bez trzymania wątku przez cały czas zapytania do bazy.
+@RestController
+@RequestMapping("/api/messages")
+@Profile("reactive")
+public class ReactiveMessageController {
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveMessageController.class);
+
+    private final ReactiveMessageRepository messageRepository;
+    private final NotificationServiceClient notificationServiceClient;
+    private final BootstrapService bootstrapService;
+
+    public ReactiveMessageController(ReactiveMessageRepository messageRepository,
+                                     NotificationServiceClient notificationServiceClient,
+                                     BootstrapService bootstrapService) {
+        this.messageRepository = messageRepository;
+        this.notificationServiceClient = notificationServiceClient;
+        this.bootstrapService = bootstrapService;
+    }
+
+    @GetMapping("/sent")
+    public Flux<Message> getSentMessages(@RequestParam String username) {
+        return messageRepository.findByAuthorUsername(username);
+    }
+
+    @GetMapping("/received")
+    public Flux<Message> getReceivedMessages(@RequestParam String username) {
+        return messageRepository.findByRecipientUsername(username);
+    }
+
+    @GetMapping("/received/summary")
+    public Flux<MessageRepository.MessageSummary> getReceivedSummary(@RequestParam String username) {
+        return messageRepository.findSummariesByRecipientUsernameOrderByIdDesc(username);
+    }
+
+    @GetMapping("/unread-count")
+    public Mono<Map<String, Long>> getUnreadCount(@RequestParam String username) {
+        return messageRepository.countByRecipientUsernameAndReadFalse(username)
+                .map(count -> Map.of("unreadCount", count));
+    }
+
+    @GetMapping("/bootstrap")
+    public Mono<ResponseEntity<?>> bootstrap(@AuthenticationPrincipal Jwt jwt,
+                                             @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+        String username = JwtClaims.username(jwt);
+        if (username == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        return bootstrapService.bootstrap(username, authorizationHeader)
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> addMessage(@RequestBody Map<String, String> body,
+                                              @RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+        String deliverAtRaw = body.get("deliverAt");
+        if (deliverAtRaw != null && !deliverAtRaw.isEmpty()) {
+            // Wiadomości zaplanowane korzystają z JPA (ScheduledMessageService), dostępnego tylko w profilu domyślnym.
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED)
+                    .body(Map.of("error", "Wysyłka zaplanowana (deliverAt) nie jest dostępna w profilu reactive.")));
+        }
+
+        Message msg = new Message(body.get("author"), body.get("content"));
+        msg.setRecipientUsername(body.get("recipient"));
+        String fileId = body.get("fileId");
+        if (fileId != null && !fileId.isEmpty()) {
+            msg.setFileId(fileId);
+        }
+        return messageRepository.save(msg)
+                .doOnNext(saved -> {
+                    logger.info("Wiadomość ID: {} zapisana pomyślnie.", saved.getId());
+                    if (saved.getRecipientUsername() != null &&
+                            !saved.getRecipientUsername().isEmpty() &&
+                            !saved.getRecipientUsername().equals(saved.getAuthorUsername())) {
+                        notificationServiceClient.sendNewMessageNotification(
+                                saved.getRecipientUsername(),
+                                saved.getAuthorUsername(),
+                                saved.getContent(),
+                                saved.getId().toString(),
+                                saved.getFileId() != null && !saved.getFileId().isEmpty(),
+                                authorizationHeader
+                        );
+                    }
+                })
+                .map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{messageId}/mark-as-read")
+    public Mono<ResponseEntity<?>> markMessageAsRead(@PathVariable Long messageId,
+                                                     @AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return Mono.just(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Brak autoryzacji."));
+        }
+        String currentUsername = JwtClaims.username(jwt);
+        if (currentUsername == null) {
+            logger.error("[markMessageAsRead] Nie można uzyskać nazwy użytkownika (nicku) z tokenu JWT. Sub: {}.", jwt.getSubject());
+            return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Błąd konfiguracji autoryzacji: brak nicku w tokenie."));
+        }
+        String requester = currentUsername;
+
+        return messageRepository.findById(messageId)
+                .flatMap(message -> {
+                    if (!requester.equals(message.getRecipientUsername())) {
+                        logger.warn("[markMessageAsRead] Użytkownik {} próbował oznaczyć wiadomość (ID: {}) nie dla niego.", requester, messageId);
+                        return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN).body((Object) "Nie masz uprawnień do tej operacji."));
+                    }
+                    if (message.isRead()) {
+                        return Mono.just(ResponseEntity.ok((Object) message));
+                    }
+                    return messageRepository.markAsRead(messageId)
+                            .map(updated -> {
+                                message.setRead(true);
+                                return ResponseEntity.ok((Object) message);
+                            });
+                })
+                .<ResponseEntity<?>>map(response -> response)
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body("Wiadomość nie znaleziona."));
+    }
+}
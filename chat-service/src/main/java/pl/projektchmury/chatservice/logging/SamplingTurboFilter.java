@@ -0,0 +1,81 @@
+package pl.projektchmury.chatservice.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Próbkowanie logów: każdy logger z listy prefixów może wypuścić co najwyżej maxPerSecond zdarzeń INFO/DEBUG/TRACE
+// na sekundę, nadmiar jest odrzucany jeszcze przed sformatowaniem komunikatu. WARN i ERROR nigdy nie są próbkowane.
+// Liczba odrzuconych zdarzeń jest dostępna przez suppressedCount() (metryka logging.events.sampled).
+// Konfiguracja w logback-spring.xml.
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final AtomicLong SUPPRESSED = new AtomicLong();
+
+    private final List<String> prefixes = new ArrayList<>();
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private int maxPerSecond = 100;
+
+    public static long suppressedCount() {
+        return SUPPRESSED.get();
+    }
+
+    public void addPrefix(String prefix) {
+        prefixes.add(prefix);
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || logger == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL; // I tak nie zostanie zalogowane - nie liczymy
+        }
+        String name = logger.getName();
+        if (!matchesPrefix(name)) {
+            return FilterReply.NEUTRAL;
+        }
+        Window window = windows.computeIfAbsent(name, key -> new Window());
+        if (window.tryAcquire(System.currentTimeMillis() / 1000, maxPerSecond)) {
+            return FilterReply.NEUTRAL;
+        }
+        SUPPRESSED.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    private boolean matchesPrefix(String loggerName) {
+        for (String prefix : prefixes) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Okno jednosekundowe na logger. Wyścig przy zmianie sekundy może przepuścić kilka zdarzeń więcej - to akceptowalne.
+    private static final class Window {
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        private boolean tryAcquire(long currentSecond, int limit) {
+            long windowSecond = second.get();
+            if (windowSecond != currentSecond && second.compareAndSet(windowSecond, currentSecond)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() <= limit;
+        }
+    }
+}
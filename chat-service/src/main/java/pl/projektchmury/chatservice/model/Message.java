@@ -5,11 +5,14 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Column; // Import dla @Column
+import org.springframework.data.relational.core.mapping.Table;
 
 @Entity
+@Table("message") // Mapowanie dla Spring Data R2DBC (profil "reactive"), ta sama tabela co w JPA
 public class Message {
 
     @Id
+    @org.springframework.data.annotation.Id // Identyfikator dla R2DBC
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
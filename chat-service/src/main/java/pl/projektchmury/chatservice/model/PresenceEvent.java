@@ -0,0 +1,8 @@
+package pl.projektchmury.chatservice.model;
+
+// Zmiana obecności lub wskaźnika pisania wysyłana subskrybentom (GET /api/presence/events).
+// Dla TYPE_PRESENCE recipientUsername jest null; active oznacza odpowiednio "online" albo "pisze".
+public record PresenceEvent(String type, String username, String recipientUsername, boolean active, long lastSeen) {
+    public static final String TYPE_PRESENCE = "PRESENCE";
+    public static final String TYPE_TYPING = "TYPING";
+}
@@ -0,0 +1,101 @@
+package pl.projektchmury.chatservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+// Wiadomość zaplanowana do wysłania później ("send later").
+// Trwale przechowywana w Postgresie, dopóki nie zostanie dostarczona jako zwykły Message.
+@Entity
+@Table(name = "scheduled_message") // Indeksy: db/migration/V2__message_list_indexes.sql
+public class ScheduledMessage {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_DELIVERED = "DELIVERED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String authorUsername;
+    private String recipientUsername;
+
+    private String content;
+    private String fileId;
+
+    @Column(nullable = false)
+    private long deliverAt; // Moment dostarczenia (epoch millis)
+
+    @Column(nullable = false)
+    private String status = STATUS_PENDING;
+
+    private Long deliveredMessageId; // ID wiadomości utworzonej w momencie dostarczenia
+
+    public ScheduledMessage() {}
+
+    public Message toMessage() {
+        Message msg = new Message(authorUsername, content);
+        msg.setRecipientUsername(recipientUsername);
+        if (fileId != null && !fileId.isEmpty()) {
+            msg.setFileId(fileId);
+        }
+        return msg;
+    }
+
+    public Long getId() {
+        return id;
+    }
+    public void setId(Long id) { this.id = id; }
+
+    public String getAuthorUsername() {
+        return authorUsername;
+    }
+    public void setAuthorUsername(String authorUsername) {
+        this.authorUsername = authorUsername;
+    }
+
+    public String getRecipientUsername() {
+        return recipientUsername;
+    }
+    public void setRecipientUsername(String recipientUsername) {
+        this.recipientUsername = recipientUsername;
+    }
+
+    public String getContent() {
+        return content;
+    }
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getFileId() {
+        return fileId;
+    }
+    public void setFileId(String fileId) {
+        this.fileId = fileId;
+    }
+
+    public long getDeliverAt() {
+        return deliverAt;
+    }
+    public void setDeliverAt(long deliverAt) {
+        this.deliverAt = deliverAt;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getDeliveredMessageId() {
+        return deliveredMessageId;
+    }
+    public void setDeliveredMessageId(Long deliveredMessageId) {
+        this.deliveredMessageId = deliveredMessageId;
+    }
+}
@@ -5,7 +5,22 @@ import pl.projektchmury.chatservice.model.Message;
 
 import java.util.List;
 
+// Indeksy pod te zapytania: db/migration/V2__message_list_indexes.sql
 public interface MessageRepository extends JpaRepository<Message, Long> {
+
+    // Projekcja listy odebranych bez treści - obsługiwana w całości przez indeks pokrywający idx_message_recipient_id.
+    interface MessageSummary {
+        Long getId();
+        String getAuthorUsername();
+        boolean isRead();
+        String getFileId();
+    }
+
     List<Message> findByAuthorUsername(String username);
     List<Message> findByRecipientUsername(String username);
+
+    List<MessageSummary> findSummariesByRecipientUsernameOrderByIdDesc(String username);
+
+    // Index-only scan po indeksie częściowym idx_message_recipient_unread.
+    long countByRecipientUsernameAndReadFalse(String username);
 }
@@ -0,0 +1,24 @@
+package pl.projektchmury.chatservice.repository;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import pl.projektchmury.chatservice.model.Message;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Odpowiednik MessageRepository dla profilu "reactive" (R2DBC, bez blokowania wątków).
+// Korzysta z tych samych tabel i indeksów co wersja JPA.
+public interface ReactiveMessageRepository extends R2dbcRepository<Message, Long> {
+    Flux<Message> findByAuthorUsername(String username);
+    Flux<Message> findByRecipientUsername(String username);
+
+    Flux<MessageRepository.MessageSummary> findSummariesByRecipientUsernameOrderByIdDesc(String username);
+
+    Mono<Long> countByRecipientUsernameAndReadFalse(String username);
+
+    // Pojedynczy UPDATE zamiast odczyt-zapis-odczyt jak w wersji JPA.
+    @Modifying
+    @Query("UPDATE message SET read = TRUE WHERE id = :id AND read = FALSE")
+    Mono<Integer> markAsRead(Long id);
+}
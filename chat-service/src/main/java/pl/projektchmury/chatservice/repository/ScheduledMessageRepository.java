@@ -0,0 +1,44 @@
+package pl.projektchmury.chatservice.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import pl.projektchmury.chatservice.model.ScheduledMessage;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ScheduledMessageRepository extends JpaRepository<ScheduledMessage, Long> {
+
+    // Lekka projekcja do ładowania horyzontu do koła czasowego - tylko ID i termin.
+    interface PendingDelivery {
+        Long getId();
+        long getDeliverAt();
+    }
+
+    // Stronicowanie "keyset" po (deliverAt, id) zamiast OFFSET, żeby ładowanie
+    // dużego horyzontu nie degradowało się przy milionach oczekujących wpisów.
+    // Literał 'PENDING' (a nie parametr) pozwala użyć indeksu częściowego idx_scheduled_message_pending.
+    @Query("select s.id as id, s.deliverAt as deliverAt from ScheduledMessage s " +
+            "where s.status = 'PENDING' and s.deliverAt <= :upTo " +
+            "and (s.deliverAt > :afterDeliverAt or (s.deliverAt = :afterDeliverAt and s.id > :afterId)) " +
+            "order by s.deliverAt, s.id")
+    List<PendingDelivery> findPendingWindow(@Param("afterDeliverAt") long afterDeliverAt,
+                                            @Param("afterId") long afterId,
+                                            @Param("upTo") long upTo,
+                                            Pageable pageable);
+
+    // SELECT ... FOR UPDATE SKIP LOCKED: przy kilku instancjach chat-service tylko jedna
+    // "przejmie" dany wpis, a powtórnie zaplanowane ID zostaną po prostu pominięte.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<ScheduledMessage> findByIdInAndStatus(Collection<Long> ids, String status);
+
+    @Query("select s from ScheduledMessage s where s.authorUsername = :authorUsername and s.status = 'PENDING' order by s.deliverAt")
+    List<ScheduledMessage> findPendingByAuthorUsername(@Param("authorUsername") String authorUsername);
+}
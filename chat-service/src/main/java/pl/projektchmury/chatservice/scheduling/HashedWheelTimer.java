@@ -0,0 +1,161 @@
+package pl.projektchmury.chatservice.scheduling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Haszowane koło czasowe (hashed timing wheel) w wersji "wsadowej".
+// Jeden wątek "tyka" co tickMillis i przy każdym tyknięciu zbiera WSZYSTKIE wpisy,
+// których termin minął, w jedną listę przekazywaną do onExpired.
+// Dodanie wpisu to O(1) (kolejka lock-free), obsługa tyknięcia to O(wpisy w jednym kubełku),
+// więc nie potrzebujemy osobnego wątku ani zadania na każdy element.
+public class HashedWheelTimer<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    // Ile nowych wpisów maksymalnie przenosimy z kolejki do koła w jednym tyknięciu,
+    // żeby masowe dodawanie nie zagłodziło obsługi terminów.
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Queue<Entry<T>>> wheel;
+    private final Queue<Entry<T>> pendingEntries = new ConcurrentLinkedQueue<>();
+    private final Consumer<List<T>> onExpired;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Thread workerThread;
+
+    private volatile boolean running = true;
+    private volatile long startNanos;
+    private volatile long startEpochMillis; // Czas ścienny odpowiadający startNanos
+    private long tick; // Modyfikowane wyłącznie przez wątek roboczy
+
+    public HashedWheelTimer(String name, long tickMillis, int wheelSize, Consumer<List<T>> onExpired) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive: " + tickMillis);
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("wheelSize must be a power of two: " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = wheelSize - 1;
+        this.onExpired = onExpired;
+        this.wheel = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+        this.startNanos = System.nanoTime();
+        this.startEpochMillis = System.currentTimeMillis();
+        this.workerThread = new Thread(this::run, name);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    // Zaplanuj element na podany moment (epoch millis). Terminy z przeszłości trafiają do najbliższego tyknięcia.
+    public void schedule(T item, long deadlineEpochMillis) {
+        pendingEntries.add(new Entry<>(item, relativeDeadline(deadlineEpochMillis)));
+        size.incrementAndGet();
+    }
+
+    // Termin w ms od startu koła. Przeliczenie względem stałej bazy (bez odczytu zegara przy każdym wywołaniu),
+    // żeby ten sam termin zawsze trafiał do tego samego tyknięcia, niezależnie od chwili wywołania schedule().
+    long relativeDeadline(long deadlineEpochMillis) {
+        return Math.max(0, deadlineEpochMillis - startEpochMillis);
+    }
+
+    // Liczba elementów oczekujących (w kole i w kolejce do przeniesienia).
+    public int size() {
+        return size.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = waitForNextTick();
+            if (!running) {
+                break;
+            }
+            transferPendingEntries();
+            List<T> expired = expireBucket(wheel.get((int) (tick & mask)), deadline);
+            tick++;
+            if (!expired.isEmpty()) {
+                size.addAndGet(-expired.size());
+                try {
+                    onExpired.accept(expired);
+                } catch (RuntimeException e) {
+                    logger.error("Błąd podczas obsługi {} wygasłych wpisów koła czasowego: {}", expired.size(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadline = tickMillis * (tick + 1);
+        while (running) {
+            long currentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            long sleepMillis = deadline - currentMillis;
+            if (sleepMillis <= 0) {
+                return currentMillis;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+        return deadline;
+    }
+
+    private void transferPendingEntries() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry<T> entry = pendingEntries.poll();
+            if (entry == null) {
+                return;
+            }
+            long calculatedTicks = entry.deadline / tickMillis;
+            long ticks = Math.max(calculatedTicks, tick); // Przeterminowane wpisy do bieżącego kubełka
+            entry.remainingRounds = (calculatedTicks - tick) / wheel.size();
+            wheel.get((int) (ticks & mask)).add(entry);
+        }
+    }
+
+    private List<T> expireBucket(Queue<Entry<T>> bucket, long deadline) {
+        List<T> expired = new ArrayList<>();
+        Iterator<Entry<T>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Entry<T> entry = iterator.next();
+            if (entry.remainingRounds <= 0 && entry.deadline <= deadline) {
+                iterator.remove();
+                expired.add(entry.item);
+            } else if (entry.remainingRounds > 0) {
+                entry.remainingRounds--;
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        private final long deadline; // Milisekundy od startu koła
+        private long remainingRounds;
+
+        private Entry(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+    }
+}
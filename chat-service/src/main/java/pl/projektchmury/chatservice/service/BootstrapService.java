@@ -0,0 +1,153 @@
+package pl.projektchmury.chatservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.chatservice.client.FileServiceClient;
+import pl.projektchmury.chatservice.client.NotificationServiceClient;
+import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.repository.ReactiveMessageRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Składa dane potrzebne frontendowi po zalogowaniu (wysłane, odebrane, historia powiadomień, metadane plików)
+// w jedną odpowiedź. Wszystkie części są pobierane równolegle, każda ma własny limit czasu;
+// część, która się nie powiedzie, jest zwracana jako pusta i wymieniona w "failedParts", reszta idzie normalnie.
+@Service
+public class BootstrapService {
+    private static final Logger logger = LoggerFactory.getLogger(BootstrapService.class);
+
+    public static final String PART_SENT = "sent";
+    public static final String PART_RECEIVED = "received";
+    public static final String PART_NOTIFICATIONS = "notifications";
+    public static final String PART_FILES = "files";
+
+    // W profilu domyślnym dostępne jest tylko repozytorium JPA, w "reactive" - tylko R2DBC
+    private final ObjectProvider<MessageRepository> messageRepository;
+    private final ObjectProvider<ReactiveMessageRepository> reactiveMessageRepository;
+    private final NotificationServiceClient notificationServiceClient;
+    private final FileServiceClient fileServiceClient;
+
+    @Value("${app.bootstrap.messages-timeout-ms:1500}")
+    private long messagesTimeoutMillis;
+
+    @Value("${app.bootstrap.notifications-timeout-ms:1500}")
+    private long notificationsTimeoutMillis;
+
+    @Value("${app.bootstrap.notifications-limit:20}")
+    private int notificationsLimit;
+
+    @Value("${app.bootstrap.files-timeout-ms:1000}")
+    private long filesTimeoutMillis;
+
+    // Metadane pobieramy tylko dla najnowszych plików, żeby duża skrzynka nie generowała setek wywołań
+    @Value("${app.bootstrap.max-files:50}")
+    private int maxFiles;
+
+    @Value("${app.bootstrap.file-concurrency:8}")
+    private int fileConcurrency;
+
+    public BootstrapService(ObjectProvider<MessageRepository> messageRepository,
+                            ObjectProvider<ReactiveMessageRepository> reactiveMessageRepository,
+                            NotificationServiceClient notificationServiceClient,
+                            FileServiceClient fileServiceClient) {
+        this.messageRepository = messageRepository;
+        this.reactiveMessageRepository = reactiveMessageRepository;
+        this.notificationServiceClient = notificationServiceClient;
+        this.fileServiceClient = fileServiceClient;
+    }
+
+    public Mono<Map<String, Object>> bootstrap(String username, String authorizationHeader) {
+        Set<String> failedParts = ConcurrentHashMap.newKeySet();
+
+        Mono<List<Message>> sent = part(PART_SENT, findSent(username), messagesTimeoutMillis, List.of(), failedParts).cache();
+        Mono<List<Message>> received = part(PART_RECEIVED, findReceived(username), messagesTimeoutMillis, List.of(), failedParts).cache();
+        Mono<Map<String, Object>> notifications = part(PART_NOTIFICATIONS,
+                notificationServiceClient.getNotificationHistory(authorizationHeader, notificationsLimit),
+                notificationsTimeoutMillis, Map.of(), failedParts);
+
+        // Metadane plików zależą od wiadomości, więc startują, gdy tylko obie listy są gotowe
+        Mono<Map<String, Map<String, Object>>> files = Mono.zip(sent, received)
+                .flatMap(messages -> part(PART_FILES,
+                        fetchFileMetadata(Stream.concat(messages.getT1().stream(), messages.getT2().stream()), authorizationHeader, failedParts),
+                        filesTimeoutMillis, Map.of(), failedParts));
+
+        return Mono.zip(sent, received, notifications, files)
+                .map(parts -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("username", username);
+                    body.put(PART_SENT, parts.getT1());
+                    body.put(PART_RECEIVED, parts.getT2());
+                    // Pierwsza strona historii; kolejne frontend pobiera z notification-service kursorem
+                    body.put(PART_NOTIFICATIONS, parts.getT3().getOrDefault("items", List.of()));
+                    body.put("notificationsNextCursor", parts.getT3().get("nextCursor"));
+                    body.put(PART_FILES, parts.getT4());
+                    body.put("partial", !failedParts.isEmpty());
+                    body.put("failedParts", List.copyOf(failedParts));
+                    return body;
+                });
+    }
+
+    private Mono<List<Message>> findSent(String username) {
+        ReactiveMessageRepository reactive = reactiveMessageRepository.getIfAvailable();
+        if (reactive != null) {
+            return reactive.findByAuthorUsername(username).collectList();
+        }
+        // Repozytorium JPA jest blokujące - wykonujemy je na puli do operacji blokujących, równolegle z resztą
+        return Mono.fromCallable(() -> messageRepository.getObject().findByAuthorUsername(username))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<List<Message>> findReceived(String username) {
+        ReactiveMessageRepository reactive = reactiveMessageRepository.getIfAvailable();
+        if (reactive != null) {
+            return reactive.findByRecipientUsername(username).collectList();
+        }
+        return Mono.fromCallable(() -> messageRepository.getObject().findByRecipientUsername(username))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Map<String, Map<String, Object>>> fetchFileMetadata(Stream<Message> messages, String authorizationHeader, Set<String> failedParts) {
+        List<String> fileIds = messages
+                .filter(message -> message.getFileId() != null && !message.getFileId().isEmpty())
+                .sorted(Comparator.comparing(Message::getId, Comparator.nullsLast(Comparator.reverseOrder())))
+                .map(Message::getFileId)
+                .distinct()
+                .limit(maxFiles)
+                .toList();
+        return Flux.fromIterable(fileIds)
+                .flatMap(fileId -> fileServiceClient.getMetadata(fileId, authorizationHeader)
+                        .map(metadata -> Map.entry(fileId, metadata))
+                        .onErrorResume(error -> {
+                            // Jeden niedostępny plik nie przekreśla pozostałych metadanych
+                            failedParts.add(PART_FILES);
+                            return Mono.empty();
+                        }), fileConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, LinkedHashMap::new);
+    }
+
+    private <T> Mono<T> part(String name, Mono<T> source, long timeoutMillis, T fallback, Set<String> failedParts) {
+        return source
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .onErrorResume(error -> {
+                    logger.warn("[bootstrap] Część '{}' niedostępna: {}", name, Objects.toString(error.getMessage(), error.getClass().getSimpleName()));
+                    failedParts.add(name);
+                    return Mono.just(fallback);
+                })
+                .defaultIfEmpty(fallback);
+    }
+}
@@ -0,0 +1,54 @@
+package pl.projektchmury.chatservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.chatservice.client.NotificationServiceClient;
+import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+
+// Wspólna ścieżka "zapisz wiadomość i powiadom odbiorcę".
+// Używana zarówno przez MessageController (wysyłka natychmiastowa),
+// jak i przez ScheduledMessageService (wysyłka zaplanowana).
+@Service
+@Profile("!reactive") // Wymaga JPA, które jest wyłączone w profilu "reactive"
+public class MessageService {
+    private static final Logger logger = LoggerFactory.getLogger(MessageService.class);
+
+    private final MessageRepository messageRepository;
+    private final NotificationServiceClient notificationServiceClient;
+
+    public MessageService(MessageRepository messageRepository, NotificationServiceClient notificationServiceClient) {
+        this.messageRepository = messageRepository;
+        this.notificationServiceClient = notificationServiceClient;
+    }
+
+    public Message saveAndNotify(Message msg, String authorizationHeader) {
+        Message savedMessage = messageRepository.save(msg);
+        logger.info("Wiadomość ID: {} zapisana pomyślnie.", savedMessage.getId());
+        notifyRecipient(savedMessage, authorizationHeader);
+        return savedMessage;
+    }
+
+    // Po pomyślnym zapisaniu wiadomości, wyślij powiadomienie, jeśli jest odbiorca i nie jest to wiadomość do samego siebie
+    public void notifyRecipient(Message savedMessage, String authorizationHeader) {
+        if (savedMessage.getRecipientUsername() != null &&
+                !savedMessage.getRecipientUsername().isEmpty() &&
+                !savedMessage.getRecipientUsername().equals(savedMessage.getAuthorUsername())) {
+
+            logger.info("Inicjowanie wysyłania powiadomienia dla wiadomości ID: {} do odbiorcy: {}",
+                    savedMessage.getId(), savedMessage.getRecipientUsername());
+            notificationServiceClient.sendNewMessageNotification(
+                    savedMessage.getRecipientUsername(),
+                    savedMessage.getAuthorUsername(),
+                    savedMessage.getContent(),
+                    savedMessage.getId().toString(),
+                    savedMessage.getFileId() != null && !savedMessage.getFileId().isEmpty(),
+                    authorizationHeader // Token nadawcy; null = token usługi (np. wiadomość zaplanowana)
+            );
+        } else {
+            logger.info("Pominięto wysyłanie powiadomienia dla wiadomości ID: {} (brak odbiorcy lub wiadomość do samego siebie).", savedMessage.getId());
+        }
+    }
+}
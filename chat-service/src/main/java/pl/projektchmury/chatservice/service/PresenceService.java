@@ -0,0 +1,264 @@
+package pl.projektchmury.chatservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.chatservice.model.PresenceEvent;
+import pl.projektchmury.chatservice.scheduling.HashedWheelTimer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Obecność (online/offline) i wskaźnik pisania trzymane wyłącznie w pamięci węzła - bez zapisów do Postgresa.
+// - Stan jest w mapach podzielonych na paski (stripes), więc heartbeat to get() + CAS na znaczniku czasu.
+//   Nowy obiekt i zadanie w kole czasowym powstają tylko przy przejściu offline -> online.
+// - Wygasanie obsługuje HashedWheelTimer: wpis budzi się po TTL i albo się przedłuża (był heartbeat),
+//   albo przechodzi w offline.
+// - Zmiany nie są wysyłane pojedynczo: klucze zmienione od ostatniego cyklu są zbierane i co event-flush-ms
+//   subskrybenci dostają jedną listę z AKTUALNYM stanem (kilka zmian tego samego klucza = jedno zdarzenie).
+@Service
+public class PresenceService {
+    private static final Logger logger = LoggerFactory.getLogger(PresenceService.class);
+
+    private static final long EXPIRED = -1L;
+    private static final char TYPING_KEY_SEPARATOR = '\u0000';
+
+    private final List<Map<String, PresenceEntry>> presenceStripes;
+    private final List<Map<String, PresenceEntry>> typingStripes;
+    private final int stripeMask;
+    private final long presenceTtlMillis;
+    private final long typingTtlMillis;
+    private final HashedWheelTimer<PresenceEntry> wheel;
+    private final Queue<PresenceEntry> changedEntries = new ConcurrentLinkedQueue<>();
+    // directBestEffort: wolny subskrybent traci paczkę zamiast blokować pozostałych
+    private final Sinks.Many<List<PresenceEvent>> eventSink = Sinks.many().multicast().directBestEffort();
+
+    public PresenceService(MeterRegistry meterRegistry,
+                           @Value("${app.presence.stripes:64}") int stripes,
+                           @Value("${app.presence.ttl-ms:30000}") long presenceTtlMillis,
+                           @Value("${app.presence.typing-ttl-ms:5000}") long typingTtlMillis,
+                           @Value("${app.presence.tick-ms:100}") long tickMillis,
+                           @Value("${app.presence.wheel-size:512}") int wheelSize) {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("app.presence.stripes must be a power of two: " + stripes);
+        }
+        this.stripeMask = stripes - 1;
+        this.presenceStripes = createStripes(stripes);
+        this.typingStripes = createStripes(stripes);
+        this.presenceTtlMillis = presenceTtlMillis;
+        this.typingTtlMillis = typingTtlMillis;
+        this.wheel = new HashedWheelTimer<>("presence-wheel", tickMillis, wheelSize, this::onExpired);
+
+        meterRegistry.gauge("chat.presence.online", presenceStripes, PresenceService::countEntries);
+        meterRegistry.gauge("chat.presence.typing", typingStripes, PresenceService::countEntries);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        eventSink.tryEmitComplete();
+    }
+
+    // Heartbeat klienta: użytkownik jest online przez kolejne ttl-ms.
+    public void heartbeat(String username) {
+        touch(presenceStripes, username, username, null, presenceTtlMillis);
+    }
+
+    // Użytkownik pisze do recipientUsername; wygasa samo po typing-ttl-ms bez kolejnego sygnału.
+    // Pisanie oznacza też obecność.
+    public void typing(String username, String recipientUsername) {
+        touch(typingStripes, username + TYPING_KEY_SEPARATOR + recipientUsername, username, recipientUsername, typingTtlMillis);
+        heartbeat(username);
+    }
+
+    // Jawne zakończenie pisania (np. po wysłaniu wiadomości) - bez czekania na TTL.
+    public void stopTyping(String username, String recipientUsername) {
+        String key = username + TYPING_KEY_SEPARATOR + recipientUsername;
+        Map<String, PresenceEntry> stripe = stripe(typingStripes, key);
+        PresenceEntry entry = stripe.get(key);
+        if (entry != null && entry.expire(entry.lastSeen.get())) {
+            stripe.remove(key, entry);
+            changedEntries.add(entry);
+        }
+    }
+
+    public List<PresenceEvent> getPresence(Collection<String> usernames) {
+        List<PresenceEvent> result = new ArrayList<>(usernames.size());
+        for (String username : usernames) {
+            PresenceEntry entry = stripe(presenceStripes, username).get(username);
+            long lastSeen = (entry != null) ? entry.lastSeen.get() : EXPIRED;
+            boolean online = lastSeen != EXPIRED;
+            result.add(new PresenceEvent(PresenceEvent.TYPE_PRESENCE, username, null, online, online ? lastSeen : 0L));
+        }
+        return result;
+    }
+
+    public Flux<List<PresenceEvent>> events() {
+        return eventSink.asFlux();
+    }
+
+    // Zdarzenia widoczne dla jednego użytkownika: obecność tylko obserwowanych przez niego osób
+    // i wskaźnik pisania tylko wtedy, gdy ktoś pisze właśnie do niego (nie do innych).
+    public Flux<List<PresenceEvent>> eventsFor(String viewerUsername, Set<String> watchedUsernames) {
+        return events()
+                .map(batch -> batch.stream()
+                        .filter(event -> isVisibleTo(event, viewerUsername, watchedUsernames))
+                        .toList())
+                .filter(batch -> !batch.isEmpty());
+    }
+
+    static boolean isVisibleTo(PresenceEvent event, String viewerUsername, Set<String> watchedUsernames) {
+        if (PresenceEvent.TYPE_TYPING.equals(event.type())) {
+            return viewerUsername.equals(event.recipientUsername());
+        }
+        return watchedUsernames.contains(event.username());
+    }
+
+    private void touch(List<Map<String, PresenceEntry>> stripes, String key, String username, String recipientUsername, long ttlMillis) {
+        Map<String, PresenceEntry> stripe = stripe(stripes, key);
+        long now = System.currentTimeMillis();
+        while (true) {
+            PresenceEntry entry = stripe.get(key);
+            if (entry == null) {
+                PresenceEntry created = new PresenceEntry(key, username, recipientUsername, stripes, ttlMillis, now);
+                entry = stripe.putIfAbsent(key, created);
+                if (entry == null) {
+                    wheel.schedule(created, now + ttlMillis);
+                    changedEntries.add(created);
+                    return;
+                }
+            }
+            if (entry.refresh(now)) {
+                return;
+            }
+            // Wpis właśnie wygasł w wątku koła - pomagamy go usunąć i zakładamy nowy.
+            // Czas bierzemy ponownie, żeby nowe "online" nie było starsze niż wygaśnięcie.
+            stripe.remove(key, entry);
+            now = Math.max(now, System.currentTimeMillis());
+        }
+    }
+
+    // Wywoływane przez wątek koła czasowego dla wpisów, którym minął TTL od momentu zaplanowania.
+    private void onExpired(List<PresenceEntry> entries) {
+        long now = System.currentTimeMillis();
+        for (PresenceEntry entry : entries) {
+            long lastSeen = entry.lastSeen.get();
+            if (lastSeen == EXPIRED) {
+                continue; // Zakończone wcześniej przez stopTyping
+            }
+            long deadline = lastSeen + entry.ttlMillis;
+            if (deadline > now) {
+                wheel.schedule(entry, deadline); // Był heartbeat - przedłużamy
+            } else if (entry.expire(lastSeen)) {
+                stripe(entry.stripes, entry.key).remove(entry.key, entry);
+                changedEntries.add(entry);
+            } else {
+                wheel.schedule(entry, entry.lastSeen.get() + entry.ttlMillis); // Heartbeat wygrał wyścig
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.presence.event-flush-ms:250}")
+    public void flushEvents() {
+        if (changedEntries.isEmpty()) {
+            return;
+        }
+        // Deduplikacja po kluczu (z zachowaniem kolejności pierwszej zmiany)
+        Map<String, PresenceEntry> changed = new LinkedHashMap<>();
+        PresenceEntry entry;
+        while ((entry = changedEntries.poll()) != null) {
+            changed.putIfAbsent(typeOf(entry) + TYPING_KEY_SEPARATOR + entry.key, entry);
+        }
+
+        List<PresenceEvent> events = new ArrayList<>(changed.size());
+        for (PresenceEntry changedEntry : changed.values()) {
+            // Stan odczytujemy teraz, a nie w momencie zmiany - dzięki temu kolejność zdarzeń nie ma znaczenia
+            PresenceEntry current = stripe(changedEntry.stripes, changedEntry.key).get(changedEntry.key);
+            long lastSeen = (current != null) ? current.lastSeen.get() : EXPIRED;
+            boolean active = lastSeen != EXPIRED;
+            events.add(new PresenceEvent(typeOf(changedEntry), changedEntry.username, changedEntry.recipientUsername,
+                    active, active ? lastSeen : System.currentTimeMillis()));
+        }
+        Sinks.EmitResult result = eventSink.tryEmitNext(events);
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            logger.warn("Nie udało się wysłać {} zdarzeń obecności do subskrybentów: {}", events.size(), result);
+        }
+    }
+
+    private String typeOf(PresenceEntry entry) {
+        return (entry.recipientUsername == null) ? PresenceEvent.TYPE_PRESENCE : PresenceEvent.TYPE_TYPING;
+    }
+
+    private Map<String, PresenceEntry> stripe(List<Map<String, PresenceEntry>> stripes, String key) {
+        int hash = key.hashCode();
+        return stripes.get((hash ^ (hash >>> 16)) & stripeMask);
+    }
+
+    private static List<Map<String, PresenceEntry>> createStripes(int count) {
+        List<Map<String, PresenceEntry>> stripes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+        return stripes;
+    }
+
+    private static double countEntries(List<Map<String, PresenceEntry>> stripes) {
+        long count = 0;
+        for (Map<String, PresenceEntry> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    private static final class PresenceEntry {
+        private final String key;
+        private final String username;
+        private final String recipientUsername;
+        private final List<Map<String, PresenceEntry>> stripes;
+        private final long ttlMillis;
+        // Ostatni sygnał (epoch millis) albo EXPIRED, gdy wpis został już zakończony
+        private final AtomicLong lastSeen;
+
+        private PresenceEntry(String key, String username, String recipientUsername,
+                              List<Map<String, PresenceEntry>> stripes, long ttlMillis, long now) {
+            this.key = key;
+            this.username = username;
+            this.recipientUsername = recipientUsername;
+            this.stripes = stripes;
+            this.ttlMillis = ttlMillis;
+            this.lastSeen = new AtomicLong(now);
+        }
+
+        // false = wpis już wygasł i trzeba założyć nowy
+        private boolean refresh(long now) {
+            while (true) {
+                long current = lastSeen.get();
+                if (current == EXPIRED) {
+                    return false;
+                }
+                if (current >= now || lastSeen.compareAndSet(current, now)) {
+                    return true;
+                }
+            }
+        }
+
+        // Udaje się tylko, jeśli od odczytu observedLastSeen nie było nowego sygnału
+        private boolean expire(long observedLastSeen) {
+            return observedLastSeen != EXPIRED && lastSeen.compareAndSet(observedLastSeen, EXPIRED);
+        }
+    }
+}
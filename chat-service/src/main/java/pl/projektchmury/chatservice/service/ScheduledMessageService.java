@@ -0,0 +1,180 @@
+package pl.projektchmury.chatservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.projektchmury.chatservice.model.Message;
+import pl.projektchmury.chatservice.model.ScheduledMessage;
+import pl.projektchmury.chatservice.repository.MessageRepository;
+import pl.projektchmury.chatservice.repository.ScheduledMessageRepository;
+import pl.projektchmury.chatservice.scheduling.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wiadomości "wyślij później".
+// Wszystkie oczekujące wpisy leżą trwale w tabeli scheduled_message; w pamięci (w kole czasowym)
+// trzymamy tylko najbliższy horyzont. Co horizonSeconds/2 dociągamy kolejne okno zapytaniem
+// zakresowym po indeksie częściowym (deliver_at, id) WHERE status = 'PENDING' - bez wątku na element i bez skanowania całej tabeli.
+@Service
+@Profile("!reactive") // Wymaga JPA, które jest wyłączone w profilu "reactive"
+public class ScheduledMessageService {
+    private static final Logger logger = LoggerFactory.getLogger(ScheduledMessageService.class);
+
+    private final ScheduledMessageRepository scheduledMessageRepository;
+    private final MessageRepository messageRepository;
+    private final MessageService messageService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.scheduled-messages.tick-ms:100}")
+    private long tickMillis;
+
+    @Value("${app.scheduled-messages.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${app.scheduled-messages.horizon-seconds:300}")
+    private long horizonSeconds;
+
+    @Value("${app.scheduled-messages.load-page-size:1000}")
+    private int loadPageSize;
+
+    @Value("${app.scheduled-messages.delivery-batch-size:200}")
+    private int deliveryBatchSize;
+
+    @Value("${app.scheduled-messages.delivery-threads:2}")
+    private int deliveryThreads;
+
+    @Value("${app.scheduled-messages.retry-delay-ms:30000}")
+    private long retryDelayMillis;
+
+    // Górna granica (epoch millis) okna, które zostało już załadowane do koła.
+    // -1 oznacza "nic", więc pierwsze ładowanie obejmie też wpisy zaległe sprzed restartu.
+    private final AtomicLong loadedUpTo = new AtomicLong(-1);
+
+    private HashedWheelTimer<Long> wheel;
+    private ThreadPoolExecutor deliveryExecutor;
+
+    public ScheduledMessageService(ScheduledMessageRepository scheduledMessageRepository,
+                                   MessageRepository messageRepository,
+                                   MessageService messageService,
+                                   TransactionTemplate transactionTemplate) {
+        this.scheduledMessageRepository = scheduledMessageRepository;
+        this.messageRepository = messageRepository;
+        this.messageService = messageService;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    void start() {
+        // CallerRunsPolicy: gdy dostarczanie nie nadąża, wątek koła zwalnia zamiast gubić partie.
+        deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1000), r -> {
+                    Thread t = new Thread(r, "scheduled-message-delivery");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        wheel = new HashedWheelTimer<>("scheduled-message-wheel", tickMillis, wheelSize, this::onExpired);
+    }
+
+    @PreDestroy
+    void stop() {
+        wheel.close();
+        deliveryExecutor.shutdown();
+    }
+
+    public ScheduledMessage schedule(ScheduledMessage scheduledMessage) {
+        ScheduledMessage saved = scheduledMessageRepository.save(scheduledMessage);
+        // Odczyt loadedUpTo PO zapisie: jeśli loader przesunął już okno za nasz termin,
+        // sami wrzucamy wpis do koła. Ewentualny duplikat (loader też go znajdzie) jest nieszkodliwy,
+        // bo deliver() przejmuje tylko wiersze w statusie PENDING.
+        if (saved.getDeliverAt() <= loadedUpTo.get()) {
+            wheel.schedule(saved.getId(), saved.getDeliverAt());
+        }
+        logger.info("Zaplanowano wiadomość ID: {} na {}.", saved.getId(), saved.getDeliverAt());
+        return saved;
+    }
+
+    public List<ScheduledMessage> getPendingForAuthor(String authorUsername) {
+        return scheduledMessageRepository.findPendingByAuthorUsername(authorUsername);
+    }
+
+    @Scheduled(initialDelayString = "${app.scheduled-messages.initial-load-delay-ms:0}",
+            fixedDelayString = "#{${app.scheduled-messages.horizon-seconds:300} * 500}")
+    public void loadHorizon() {
+        long from = loadedUpTo.get();
+        long upTo = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(horizonSeconds);
+        // Najpierw przesuwamy granicę, potem czytamy - patrz komentarz w schedule().
+        loadedUpTo.set(upTo);
+
+        long afterDeliverAt = from;
+        long afterId = Long.MAX_VALUE; // Wpisy z terminem == from zostały załadowane w poprzednim oknie
+        int loaded = 0;
+        while (true) {
+            List<ScheduledMessageRepository.PendingDelivery> page = scheduledMessageRepository.findPendingWindow(
+                    afterDeliverAt, afterId, upTo, PageRequest.of(0, loadPageSize));
+            for (ScheduledMessageRepository.PendingDelivery pending : page) {
+                wheel.schedule(pending.getId(), pending.getDeliverAt());
+            }
+            loaded += page.size();
+            if (page.size() < loadPageSize) {
+                break;
+            }
+            ScheduledMessageRepository.PendingDelivery last = page.get(page.size() - 1);
+            afterDeliverAt = last.getDeliverAt();
+            afterId = last.getId();
+        }
+        if (loaded > 0) {
+            logger.info("Załadowano {} zaplanowanych wiadomości do koła czasowego (okno do {}, w kole: {}).", loaded, upTo, wheel.size());
+        }
+    }
+
+    private void onExpired(List<Long> ids) {
+        for (int i = 0; i < ids.size(); i += deliveryBatchSize) {
+            List<Long> batch = new ArrayList<>(ids.subList(i, Math.min(ids.size(), i + deliveryBatchSize)));
+            deliveryExecutor.execute(() -> deliver(batch));
+        }
+    }
+
+    void deliver(List<Long> ids) {
+        try {
+            List<ScheduledMessage> claimed = new ArrayList<>();
+            List<Message> delivered = transactionTemplate.execute(status -> {
+                List<ScheduledMessage> pending = scheduledMessageRepository.findByIdInAndStatus(ids, ScheduledMessage.STATUS_PENDING);
+                List<Message> messages = new ArrayList<>(pending.size());
+                for (ScheduledMessage scheduled : pending) {
+                    messages.add(scheduled.toMessage());
+                }
+                List<Message> saved = messageRepository.saveAll(messages);
+                for (int i = 0; i < pending.size(); i++) {
+                    pending.get(i).setStatus(ScheduledMessage.STATUS_DELIVERED);
+                    pending.get(i).setDeliveredMessageId(saved.get(i).getId());
+                }
+                claimed.addAll(pending);
+                return saved;
+            });
+            // Powiadomienia dopiero po commicie, tą samą ścieżką co przy zwykłej wysyłce, ale z tokenem usługi
+            // (null) - token nadawcy z chwili planowania mógł już wygasnąć, więc go nie przechowujemy.
+            for (Message message : delivered) {
+                messageService.notifyRecipient(message, null);
+            }
+            logger.info("Dostarczono {} z {} zaplanowanych wiadomości z partii.", claimed.size(), ids.size());
+        } catch (RuntimeException e) {
+            // Transakcja wycofana - wiersze pozostają PENDING, ponawiamy partię po retryDelayMillis.
+            logger.error("Błąd podczas dostarczania partii {} zaplanowanych wiadomości, ponowienie za {} ms: {}",
+                    ids.size(), retryDelayMillis, e.getMessage(), e);
+            long retryAt = System.currentTimeMillis() + retryDelayMillis;
+            ids.forEach(id -> wheel.schedule(id, retryAt));
+        }
+    }
+}
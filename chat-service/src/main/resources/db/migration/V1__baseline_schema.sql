@@ -0,0 +1,23 @@
+-- Schemat bazowy chat-service (wcześniej tworzony przez spring.jpa.hibernate.ddl-auto=update).
+-- IF NOT EXISTS pozwala uruchomić tę migrację na bazie, którą Hibernate już utworzył.
+
+CREATE TABLE IF NOT EXISTS message (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    author_username    VARCHAR(255),
+    recipient_username VARCHAR(255),
+    content            VARCHAR(255),
+    file_id            VARCHAR(255),
+    read               BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE TABLE IF NOT EXISTS scheduled_message (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    author_username      VARCHAR(255),
+    recipient_username   VARCHAR(255),
+    content              VARCHAR(255),
+    file_id              VARCHAR(255),
+    deliver_at           BIGINT       NOT NULL,
+    status               VARCHAR(255) NOT NULL,
+    delivered_message_id BIGINT,
+    auth_token           VARCHAR(4096)
+);
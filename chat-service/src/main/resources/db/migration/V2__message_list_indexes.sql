@@ -0,0 +1,32 @@
+-- Indeksy pod zapytania listujące wiadomości.
+-- CONCURRENTLY nie blokuje zapisów na dużej, działającej tabeli - dlatego ta migracja
+-- działa poza transakcją (patrz V2__message_list_indexes.sql.conf).
+-- Nazwy indeksów są sprawdzane przy starcie przez SchemaIndexVerifier.
+
+-- /sent: findByAuthorUsername
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_author_id
+    ON message (author_username, id DESC);
+
+-- /received: findByRecipientUsername oraz projekcja MessageSummary (/received/summary).
+-- INCLUDE czyni go indeksem pokrywającym dla projekcji - bez sięgania do tabeli.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_recipient_id
+    ON message (recipient_username, id DESC)
+    INCLUDE (author_username, read, file_id);
+
+-- Indeks częściowy: tylko nieprzeczytane wiadomości (mały, bo większość wiadomości jest przeczytana).
+-- Obsługuje countByRecipientUsernameAndReadFalse jako index-only scan.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_message_recipient_unread
+    ON message (recipient_username, id DESC)
+    WHERE read = FALSE;
+
+-- Ładowanie horyzontu koła czasowego w ScheduledMessageService (keyset po deliver_at, id).
+-- Częściowy, bo interesują nas wyłącznie wpisy oczekujące (zapytania używają literału 'PENDING',
+-- żeby planer mógł dopasować predykat indeksu także przy planach generycznych).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_scheduled_message_pending
+    ON scheduled_message (deliver_at, id)
+    WHERE status = 'PENDING';
+
+-- /scheduled: oczekujące wiadomości autora
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_scheduled_message_author_pending
+    ON scheduled_message (author_username, deliver_at)
+    WHERE status = 'PENDING';
@@ -0,0 +1,3 @@
+-- Wiadomości zaplanowane nie przechowują już tokenu nadawcy - powiadomienie przy dostarczeniu
+-- wysyła chat-service z własnym tokenem usługi (ServiceTokenProvider).
+ALTER TABLE scheduled_message DROP COLUMN IF EXISTS auth_token;
@@ -0,0 +1,87 @@
+package pl.projektchmury.chatservice.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTimerTest {
+
+    @Test
+    void firesOverdueAndFutureEntriesInDeadlineOrder() throws InterruptedException {
+        List<Integer> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        try (HashedWheelTimer<Integer> timer = new HashedWheelTimer<>("test-wheel", 10, 8, batch -> {
+            fired.addAll(batch);
+            batch.forEach(i -> latch.countDown());
+        })) {
+            long now = System.currentTimeMillis();
+            timer.schedule(3, now + 250); // Więcej niż jeden obrót koła (8 * 10 ms)
+            timer.schedule(2, now + 40);
+            timer.schedule(1, now - 1000); // Przeterminowany
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertEquals(List.of(1, 2, 3), fired);
+            assertEquals(0, timer.size());
+        }
+    }
+
+    @Test
+    void deliversEntriesWithTheSameDeadlineAsOneBatch() throws InterruptedException {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        try (HashedWheelTimer<Integer> timer = new HashedWheelTimer<>("test-wheel", 20, 16, batch -> {
+            batches.add(batch);
+            latch.countDown();
+        })) {
+            long deadline = System.currentTimeMillis() + 100;
+            for (int i = 0; i < 1000; i++) {
+                timer.schedule(i, deadline);
+            }
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            assertEquals(1000, batches.get(0).size());
+        }
+    }
+
+    // Regresja: termin był przeliczany przy każdym wywołaniu z dwóch osobnych odczytów zegara (currentTimeMillis
+    // i nanoTime), więc ten sam termin zaplanowany w różnych chwilach mógł wypaść o 1 ms dalej - w innym tyknięciu.
+    @Test
+    void convertsTheSameDeadlineIdenticallyRegardlessOfWhenItIsScheduled() throws InterruptedException {
+        try (HashedWheelTimer<Integer> timer = new HashedWheelTimer<>("test-wheel", 10, 8, batch -> {
+        })) {
+            long deadline = System.currentTimeMillis() + 500;
+            long first = timer.relativeDeadline(deadline);
+            for (int i = 0; i < 20; i++) {
+                Thread.sleep(3); // Kolejne wywołania przy innych odczytach zegara
+                assertEquals(first, timer.relativeDeadline(deadline));
+            }
+        }
+    }
+
+    @Test
+    void deliversTheSameDeadlineScheduledAtDifferentTimesAsOneBatch() throws InterruptedException {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        try (HashedWheelTimer<Integer> timer = new HashedWheelTimer<>("test-wheel", 10, 16, batch -> {
+            batches.add(batch);
+            latch.countDown();
+        })) {
+            long deadline = System.currentTimeMillis() + 300;
+            for (int i = 0; i < 10; i++) {
+                timer.schedule(i, deadline);
+                Thread.sleep(7); // Wywołania rozłożone na kilka tyknięć
+            }
+
+            assertTrue(latch.await(2, TimeUnit.SECONDS));
+            Thread.sleep(50); // Ewentualna druga partia z tym samym terminem
+            assertEquals(1, batches.size());
+            assertEquals(10, batches.get(0).size());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package pl.projektchmury.chatservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.chatservice.model.PresenceEvent;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceServiceTest {
+
+    private final PresenceService presenceService = new PresenceService(new SimpleMeterRegistry(), 4, 100, 50, 10, 16);
+
+    @AfterEach
+    void tearDown() {
+        presenceService.shutdown();
+    }
+
+    @Test
+    void heartbeatKeepsUserOnlineUntilTtlPasses() throws InterruptedException {
+        presenceService.heartbeat("alice");
+        assertTrue(presenceService.getPresence(Set.of("alice")).get(0).active());
+
+        for (int i = 0; i < 5; i++) { // 5 x 40 ms > TTL 100 ms, ale heartbeaty co 40 ms przedłużają obecność
+            Thread.sleep(40);
+            presenceService.heartbeat("alice");
+        }
+        assertTrue(presenceService.getPresence(Set.of("alice")).get(0).active());
+
+        Thread.sleep(300);
+        assertFalse(presenceService.getPresence(Set.of("alice")).get(0).active());
+    }
+
+    @Test
+    void publishesCoalescedChangesAsOneBatch() throws InterruptedException {
+        List<List<PresenceEvent>> batches = new CopyOnWriteArrayList<>();
+        presenceService.events().subscribe(batches::add);
+
+        presenceService.typing("alice", "bob");
+        presenceService.stopTyping("alice", "bob");
+        presenceService.heartbeat("carol");
+        presenceService.flushEvents();
+
+        assertEquals(1, batches.size());
+        List<PresenceEvent> events = batches.get(0);
+        assertEquals(3, events.size()); // typing alice->bob, obecność alice, obecność carol
+        PresenceEvent typing = events.stream().filter(e -> PresenceEvent.TYPE_TYPING.equals(e.type())).findFirst().orElseThrow();
+        assertFalse(typing.active()); // Stan aktualny w chwili wysyłki, a nie pierwsza zmiana
+
+        Thread.sleep(300);
+        presenceService.flushEvents();
+        assertEquals(2, batches.size());
+        assertTrue(batches.get(1).stream().noneMatch(PresenceEvent::active));
+    }
+
+    @Test
+    void deliversTypingOnlyToItsRecipientAndPresenceOnlyOfWatchedUsers() {
+        List<List<PresenceEvent>> bobBatches = new CopyOnWriteArrayList<>();
+        List<List<PresenceEvent>> daveBatches = new CopyOnWriteArrayList<>();
+        presenceService.eventsFor("bob", Set.of("alice")).subscribe(bobBatches::add);
+        presenceService.eventsFor("dave", Set.of("carol")).subscribe(daveBatches::add);
+
+        presenceService.typing("alice", "bob");
+        presenceService.typing("carol", "bob");
+        presenceService.flushEvents();
+
+        assertEquals(1, bobBatches.size());
+        List<PresenceEvent> bobEvents = bobBatches.get(0);
+        // Oba wskaźniki pisania do boba, ale obecność tylko obserwowanej alice
+        assertEquals(2, bobEvents.stream().filter(e -> PresenceEvent.TYPE_TYPING.equals(e.type())).count());
+        assertEquals(List.of("alice"), bobEvents.stream()
+                .filter(e -> PresenceEvent.TYPE_PRESENCE.equals(e.type())).map(PresenceEvent::username).toList());
+
+        // dave nie widzi, że carol pisze do boba - tylko jej obecność
+        assertEquals(1, daveBatches.size());
+        assertTrue(daveBatches.get(0).stream().noneMatch(e -> PresenceEvent.TYPE_TYPING.equals(e.type())));
+        assertEquals(List.of("carol"), daveBatches.get(0).stream().map(PresenceEvent::username).toList());
+    }
+}
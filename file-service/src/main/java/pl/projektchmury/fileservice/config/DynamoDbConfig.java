@@ -6,11 +6,17 @@ import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
 
 @Configuration
 public class DynamoDbConfig {
@@ -29,26 +35,68 @@ public class DynamoDbConfig {
     @Value("${AWS_SECRET_ACCESS_KEY:#{null}}")
     private String secretKey;
 
+    // Pula połączeń, limity czasu i ponowienia - domyślny klient SDK nie ma limitu czasu wywołania.
+    // Serwis wykonuje tylko pojedyncze PutItem/GetItem w wątku żądania, więc wystarcza klient synchroniczny.
+    @Value("${aws.dynamodb.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${aws.dynamodb.http.connection-acquisition-timeout-ms:2000}")
+    private long connectionAcquisitionTimeoutMillis;
+
+    @Value("${aws.dynamodb.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMillis;
+
+    @Value("${aws.dynamodb.http.socket-timeout-ms:5000}")
+    private long socketTimeoutMillis;
+
+    @Value("${aws.dynamodb.http.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMillis;
+
+    @Value("${aws.dynamodb.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    // standard | adaptive | legacy (adaptive dodatkowo dławi żądania po błędach throttlingu)
+    @Value("${aws.dynamodb.retry.mode:adaptive}")
+    private String retryMode;
+
+    @Value("${aws.dynamodb.retry.max-retries:3}")
+    private int maxRetries;
+
+    @Value("${aws.dynamodb.api-call-attempt-timeout-ms:3000}")
+    private long apiCallAttemptTimeoutMillis;
+
+    @Value("${aws.dynamodb.api-call-timeout-ms:10000}")
+    private long apiCallTimeoutMillis;
+
     @Bean
     public DynamoDbClient dynamoDbClient() {
-        DynamoDbClient client;
+        var builder = DynamoDbClient.builder()
+                .region(Region.of(region))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis))
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                        .tcpKeepAlive(tcpKeepAlive))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                                .numRetries(maxRetries)
+                                .build())
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMillis))
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMillis))
+                        .build());
         if (dynamoDbEndpoint != null && !dynamoDbEndpoint.isEmpty()) {
             // Konfiguracja dla lokalnego endpointu
-            client = DynamoDbClient.builder()
-                    .region(Region.of(region))
-                    .endpointOverride(URI.create(dynamoDbEndpoint))
+            builder.endpointOverride(URI.create(dynamoDbEndpoint))
                     // Użyj statycznych (dummy) credentials dla lokalnego endpointu
                     .credentialsProvider(StaticCredentialsProvider.create(
-                            AwsBasicCredentials.create(accessKeyId, secretKey)))
-                    .build();
+                            AwsBasicCredentials.create(accessKeyId, secretKey)));
         } else {
             // Standardowa konfiguracja dla AWS (użyje domyślnego providera)
-            client = DynamoDbClient.builder()
-                    .region(Region.of(region))
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build();
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
         }
-        return client;
+        return builder.build();
     }
 
     @Bean
@@ -0,0 +1,28 @@
+package pl.projektchmury.fileservice.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// AsyncAppender, który liczy zdarzenia odrzucone z powodu pełnej kolejki
+// (poniżej discardingThreshold odrzucane są INFO i niższe, przy neverBlock=true - wszystko, gdy kolejka jest pełna).
+// Standardowy AsyncAppender gubi je po cichu; tu są dostępne przez droppedCount() (metryka logging.events.dropped).
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private static final AtomicLong DROPPED = new AtomicLong();
+
+    public static long droppedCount() {
+        return DROPPED.get();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int remainingCapacity = getRemainingCapacity();
+        if ((remainingCapacity < getDiscardingThreshold() && isDiscardable(event)) ||
+                (remainingCapacity == 0 && isNeverBlock())) {
+            DROPPED.incrementAndGet();
+        }
+        super.append(event);
+    }
+}
@@ -6,10 +6,41 @@ package pl.projektchmury.fileservice.model;
 
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
 
 @DynamoDbBean
 public class FileMetadata {
 
+    // Schemat tabeli budowany raz przy ładowaniu klasy, z referencji do getterów/setterów - bez refleksji
+    // TableSchema.fromBean. Przy dodaniu pola trzeba dopisać je też tutaj.
+    public static final StaticTableSchema<FileMetadata> TABLE_SCHEMA = StaticTableSchema.builder(FileMetadata.class)
+            .newItemSupplier(FileMetadata::new)
+            .addAttribute(String.class, a -> a.name("fileId")
+                    .getter(FileMetadata::getFileId)
+                    .setter(FileMetadata::setFileId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("originalFilename")
+                    .getter(FileMetadata::getOriginalFilename)
+                    .setter(FileMetadata::setOriginalFilename))
+            .addAttribute(String.class, a -> a.name("contentType")
+                    .getter(FileMetadata::getContentType)
+                    .setter(FileMetadata::setContentType))
+            .addAttribute(long.class, a -> a.name("size")
+                    .getter(FileMetadata::getSize)
+                    .setter(FileMetadata::setSize))
+            .addAttribute(String.class, a -> a.name("s3Key")
+                    .getter(FileMetadata::getS3Key)
+                    .setter(FileMetadata::setS3Key))
+            .addAttribute(String.class, a -> a.name("uploaderUsername")
+                    .getter(FileMetadata::getUploaderUsername)
+                    .setter(FileMetadata::setUploaderUsername))
+            .addAttribute(long.class, a -> a.name("uploadTimestamp")
+                    .getter(FileMetadata::getUploadTimestamp)
+                    .setter(FileMetadata::setUploadTimestamp))
+            .build();
+
     private String fileId; // UUID
     private String originalFilename;
     private String contentType;
@@ -9,7 +9,6 @@ import pl.projektchmury.fileservice.model.FileMetadata;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
 
 import java.util.Optional;
@@ -23,8 +22,8 @@ public class DynamoDbFileMetadataRepository implements FileMetadataRepository {
     @Autowired
     public DynamoDbFileMetadataRepository(DynamoDbEnhancedClient enhancedClient,
                                           @Value("${aws.dynamodb.table-name.file-metadata}") String tableName) {
-        // Tworzymy obiekt tabeli na podstawie klasy modelu i nazwy tabeli
-        this.metadataTable = enhancedClient.table(tableName, TableSchema.fromBean(FileMetadata.class));
+        // Tworzymy obiekt tabeli raz, ze statycznego schematu modelu (bez refleksji przy starcie)
+        this.metadataTable = enhancedClient.table(tableName, FileMetadata.TABLE_SCHEMA);
     }
 
     @Override
@@ -17,6 +17,8 @@ export default function App() {
         INotificationRecord[]
     >([]);
     const [chatMessagesRefreshKey, setChatMessagesRefreshKey] = useState(0);
+    const [notificationsRefreshSignal, setNotificationsRefreshSignal] = useState(0);
+    const [notificationsNextCursor, setNotificationsNextCursor] = useState<string | null>(null);
 
     const notificationApiUrl = import.meta.env.VITE_NOTIFICATION_API_URL;
     const chatApiUrl = import.meta.env.VITE_CHAT_API_URL;
@@ -26,8 +28,21 @@ export default function App() {
         setUsername(u);
     };
 
-    const updateNotificationsList = (notifications: INotificationRecord[]) => {
+    // nextCursor: kursor kolejnej (starszej) strony historii; undefined = bez zmian
+    const updateNotificationsList = (notifications: INotificationRecord[], nextCursor?: string | null) => {
         setAllNotifications(notifications);
+        if (nextCursor !== undefined) {
+            setNotificationsNextCursor(nextCursor);
+        }
+    };
+
+    // Powiadomienia z /api/messages/bootstrap; null = bootstrap ich nie dostarczył, więc dzwonek pobiera je sam
+    const handleBootstrapNotifications = (notifications: INotificationRecord[] | null, nextCursor?: string | null) => {
+        if (notifications) {
+            updateNotificationsList([...notifications].sort((a, b) => b.timestamp - a.timestamp), nextCursor ?? null);
+        } else {
+            setNotificationsRefreshSignal((signal) => signal + 1);
+        }
     };
 
     const markChatMessageAsReadOnBackend = async (messageId: number) => {
@@ -196,10 +211,13 @@ export default function App() {
                         notificationApiUrl={notificationApiUrl}
                         onNotificationItemClick={handleNotificationItemClick}
                         notificationsFromApp={allNotifications}
+                        nextCursor={notificationsNextCursor}
                         onNotificationsFetched={updateNotificationsList}
                         onMarkNotificationAsRead={
                             markNotificationAsReadInService
                         } // Ta funkcja jest przekazywana do przycisku w panelu
+                        deferInitialFetch={true}
+                        refreshSignal={notificationsRefreshSignal}
                     />
                 )}
             </header>
@@ -213,6 +231,7 @@ export default function App() {
                         onChatMessageMarkedAsRead={
                             handleChatMessageMarkedAsRead
                         }
+                        onBootstrapNotifications={handleBootstrapNotifications}
                         key={chatMessagesRefreshKey}
                     />
                 </div>
@@ -3,7 +3,7 @@ import { useEffect, useState } from "react"; // Usunięto useCallback, useRef
 import "./chat.css";
 import { FiPlus, FiCircle, FiCheckSquare, FiArrowRight, FiChevronDown, FiChevronUp } from "react-icons/fi";
 import { motion, AnimatePresence } from "framer-motion";
-import { IMessage } from '../types/types'; // Upewnij się, że ścieżka jest poprawna
+import { IBootstrapResponse, IMessage, INotificationRecord } from '../types/types'; // Upewnij się, że ścieżka jest poprawna
 
 interface ChatProps {
     token: string;
@@ -11,6 +11,7 @@ interface ChatProps {
     highlightedMessageId?: number | null; // Przyjmujemy ten prop
     onMessageCardClick?: (messageId: number) => void; // Do resetowania highlightu
     onChatMessageMarkedAsRead?: (messageId: number) => void; // Do powiadomienia App.tsx
+    onBootstrapNotifications?: (notifications: INotificationRecord[] | null, nextCursor?: string | null) => void; // null = trzeba pobrać osobno
 }
 
 export default function Chat({
@@ -19,6 +20,7 @@ export default function Chat({
                                  highlightedMessageId,
                                  onMessageCardClick,
                                  onChatMessageMarkedAsRead,
+                                 onBootstrapNotifications,
                              }: ChatProps) {
     const [sentMessages, setSentMessages] = useState<IMessage[]>([]);
     const [receivedMessages, setReceivedMessages] = useState<IMessage[]>([]);
@@ -68,6 +70,43 @@ export default function Chat({
         }
     };
 
+    // Jedno żądanie zamiast /sent + /received + /history przy starcie.
+    // Zwraca false, gdy bootstrap jest niedostępny - wtedy pobieramy wszystko osobno.
+    const loadBootstrap = async (): Promise<boolean> => {
+        if (!chatApiUrl) return false;
+        try {
+            const res = await fetch(`${chatApiUrl}/bootstrap`, {
+                headers: { Authorization: `Bearer ${token}` },
+            });
+            if (!res.ok) {
+                console.error("Error fetching bootstrap:", res.statusText);
+                return false;
+            }
+            const data = (await res.json()) as IBootstrapResponse;
+            if (data.failedParts.includes("sent")) {
+                fetchSentMessages();
+            } else {
+                setSentMessages([...data.sent].sort((a, b) => b.id - a.id));
+            }
+            if (data.failedParts.includes("received")) {
+                fetchReceivedMessages();
+            } else {
+                setReceivedMessages([...data.received].sort((a, b) => b.id - a.id));
+            }
+            if (onBootstrapNotifications) {
+                if (data.failedParts.includes("notifications")) {
+                    onBootstrapNotifications(null);
+                } else {
+                    onBootstrapNotifications(data.notifications, data.notificationsNextCursor ?? null);
+                }
+            }
+            return true;
+        } catch (error) {
+            console.error("Error fetching bootstrap:", error);
+            return false;
+        }
+    };
+
     // Funkcja do oznaczania wiadomości jako przeczytanej w chat-service
     const handleMarkMessageAsReadInChat = async (messageId: number) => {
         if (!chatApiUrl) return;
@@ -103,8 +142,15 @@ export default function Chat({
 
     useEffect(() => {
         console.log("Chat.tsx: Fetching messages due to change in props or mount.");
-        fetchSentMessages();
-        fetchReceivedMessages();
+        loadBootstrap().then((loaded) => {
+            if (!loaded) {
+                fetchSentMessages();
+                fetchReceivedMessages();
+                if (onBootstrapNotifications) {
+                    onBootstrapNotifications(null);
+                }
+            }
+        });
     }, [chatApiUrl, username, token]);
 
     const sendMessage = async () => {
@@ -2,9 +2,52 @@
 import React, { useState, useEffect, useRef } from 'react';
 import { FiBell } from 'react-icons/fi';
 import NotificationsPanel from './NotificationsPanel';
-import { INotificationRecord } from '../types/types.tsx'; // Upewnij się, że ścieżka jest poprawna
+import { INotificationDelta, INotificationPage, INotificationRecord } from '../types/types.tsx'; // Upewnij się, że ścieżka jest poprawna
 import './notifications.css';
 
+const NOTIFICATIONS_PAGE_SIZE = 20;
+const POLL_INTERVAL_MS = 30000;
+const STREAM_RETRY_MIN_MS = 1000;
+const STREAM_RETRY_MAX_MS = 30000;
+
+interface IStreamEvent {
+    id: string | null;
+    event: string;
+    data: string;
+}
+
+// Czytnik text/event-stream na fetch - EventSource nie pozwala wysłać nagłówka Authorization.
+// Zwraca, gdy serwer zamknie strumień; przerwanie (AbortController) kończy się wyjątkiem z fetch/read.
+const readEventStream = async (body: ReadableStream<Uint8Array>, onEvent: (event: IStreamEvent) => void) => {
+    const reader = body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+    for (;;) {
+        const { done, value } = await reader.read();
+        if (done) return;
+        buffer += decoder.decode(value, { stream: true });
+        const blocks = buffer.split(/\r?\n\r?\n/);
+        buffer = blocks.pop() ?? ''; // Niepełne zdarzenie czeka na resztę danych
+        for (const block of blocks) {
+            const event: IStreamEvent = { id: null, event: 'message', data: '' };
+            const data: string[] = [];
+            for (const line of block.split(/\r?\n/)) {
+                if (!line || line.startsWith(':')) continue; // Komentarze (heartbeat)
+                const separator = line.indexOf(':');
+                const field = separator === -1 ? line : line.slice(0, separator);
+                const fieldValue = separator === -1 ? '' : line.slice(separator + 1).replace(/^ /, '');
+                if (field === 'id') event.id = fieldValue;
+                else if (field === 'event') event.event = fieldValue;
+                else if (field === 'data') data.push(fieldValue);
+            }
+            if (data.length) {
+                event.data = data.join('\n');
+                onEvent(event);
+            }
+        }
+    }
+};
+
 interface NotificationsBellProps {
     token: string;
     username: string;
@@ -12,8 +55,11 @@ interface NotificationsBellProps {
     onNotificationItemClick: (record: INotificationRecord) => void;
     // Nowe propsy do zarządzania stanem z App.tsx
     notificationsFromApp: INotificationRecord[];
-    onNotificationsFetched: (notifications: INotificationRecord[]) => void; // Callback do App.tsx
+    nextCursor: string | null; // Kursor starszej strony historii (null = brak starszych)
+    onNotificationsFetched: (notifications: INotificationRecord[], nextCursor?: string | null) => void; // Callback do App.tsx
     onMarkNotificationAsRead: (notificationId: string) => Promise<boolean>; // Funkcja z App.tsx
+    deferInitialFetch?: boolean; // Pierwsza lista przychodzi z /api/messages/bootstrap (przez App.tsx)
+    refreshSignal?: number; // Zmiana wartości wymusza natychmiastowe pobranie
 }
 
 const NotificationsBell: React.FC<NotificationsBellProps> = ({
@@ -22,27 +68,111 @@ const NotificationsBell: React.FC<NotificationsBellProps> = ({
                                                                  notificationApiUrl,
                                                                  onNotificationItemClick,
                                                                  notificationsFromApp,
+                                                                 nextCursor,
                                                                  onNotificationsFetched,
                                                                  onMarkNotificationAsRead,
+                                                                 deferInitialFetch = false,
+                                                                 refreshSignal = 0,
                                                              }) => {
     // const [allNotifications, setAllNotifications] = useState<INotificationRecord[]>([]); // Stan zarządzany przez App.tsx
     const [unreadCount, setUnreadCount] = useState(0);
     const [showPanel, setShowPanel] = useState(false);
     const bellRef = useRef<HTMLDivElement>(null);
 
+    // Aktualna lista dla callbacków z setInterval (inaczej widziałyby listę z chwili utworzenia interwału)
+    const notificationsRef = useRef<INotificationRecord[]>(notificationsFromApp);
+    notificationsRef.current = notificationsFromApp;
+    // Czy użytkownik doczytał starsze strony - wtedy odświeżenie nie może ich usunąć
+    const olderPagesLoadedRef = useRef(false);
+    // Czy strumień /stream jest połączony - wtedy odpytywanie /history jest zbędne
+    const streamConnectedRef = useRef(false);
+    // Od kiedy pytać o zmiany (/history?since=) - syncedAt z ostatniej odpowiedzi; null = od najnowszego na liście
+    const syncedAtRef = useRef<number | null>(null);
+    const [loadingOlder, setLoadingOlder] = useState(false);
+
+    const fetchPage = async (cursor?: string): Promise<INotificationPage | null> => {
+        const params = new URLSearchParams({ limit: String(NOTIFICATIONS_PAGE_SIZE) });
+        if (cursor) params.set('cursor', cursor);
+        const res = await fetch(`${notificationApiUrl}/history?${params}`, {
+            headers: { Authorization: `Bearer ${token}` },
+        });
+        if (!res.ok) {
+            console.error("Error fetching notifications:", await res.text());
+            return null;
+        }
+        return (await res.json()) as INotificationPage;
+    };
+
+    const fetchDelta = async (since: number): Promise<INotificationDelta | null> => {
+        const params = new URLSearchParams({ since: String(since), limit: String(NOTIFICATIONS_PAGE_SIZE) });
+        const res = await fetch(`${notificationApiUrl}/history?${params}`, {
+            headers: { Authorization: `Bearer ${token}` },
+        });
+        if (!res.ok) {
+            console.error("Error fetching notification changes:", await res.text());
+            return null;
+        }
+        return (await res.json()) as INotificationDelta;
+    };
+
+    // Nowe powiadomienia na początek listy (bez duplikatów - okno zapytania zachodzi na poprzednie) i zmiany przeczytania
+    const applyDelta = (delta: INotificationDelta) => {
+        const current = notificationsRef.current;
+        const knownIds = new Set(current.map((n) => n.notificationId));
+        const readIds = new Set(delta.readIds);
+        const added = delta.items.filter((n) => !knownIds.has(n.notificationId));
+        const changed = current.some((n) => !n.readNotification && readIds.has(n.notificationId));
+        if (added.length || changed) {
+            const merged = [...added, ...current]
+                .map((n) => (!n.readNotification && readIds.has(n.notificationId) ? { ...n, readNotification: true } : n))
+                .sort((a, b) => b.timestamp - a.timestamp);
+            notificationsRef.current = merged;
+            onNotificationsFetched(merged);
+        }
+        syncedAtRef.current = delta.syncedAt;
+    };
+
+    // Odpytywanie: tylko zmiany od poprzedniego razu (zwykle pusta odpowiedź). Pierwsza strona od nowa, gdy
+    // nie ma od czego liczyć zmian, gdy zmian było za dużo (truncated) albo po błędzie.
+    const pollNotifications = async () => {
+        if (!notificationApiUrl || !token || !username) return;
+        const current = notificationsRef.current;
+        const since = syncedAtRef.current ?? (current.length ? Math.max(...current.map((n) => n.timestamp)) : null);
+        if (since !== null) {
+            try {
+                const delta = await fetchDelta(since);
+                if (delta && !delta.truncated) {
+                    applyDelta(delta);
+                    return;
+                }
+            } catch (error) {
+                console.error("Error fetching notification changes:", error);
+            }
+        }
+        await fetchNotifications();
+    };
+
+    // Odświeżenie = pobranie tylko najnowszej strony, a nie całej historii
     const fetchNotifications = async () => {
         if (!notificationApiUrl || !token || !username) return;
+        syncedAtRef.current = null; // Zmiany liczymy od nowa - od najnowszego powiadomienia z pobranej strony
         try {
-            const res = await fetch(`${notificationApiUrl}/history`, {
-                headers: { Authorization: `Bearer ${token}` },
-            });
-            if (res.ok) {
-                const data: INotificationRecord[] = await res.json();
-                data.sort((a, b) => b.timestamp - a.timestamp);
-                onNotificationsFetched(data); // Aktualizuj stan w App.tsx
-            } else {
-                console.error("Error fetching notifications:", await res.text());
+            const page = await fetchPage();
+            if (!page) {
                 onNotificationsFetched([]); // W przypadku błędu, wyślij pustą listę
+                return;
+            }
+            const newest = [...page.items].sort((a, b) => b.timestamp - a.timestamp);
+            if (olderPagesLoadedRef.current) {
+                // Zachowaj doczytane starsze powiadomienia, kursor starszej strony się nie zmienia
+                const newestIds = new Set(newest.map((n) => n.notificationId));
+                const oldestTimestamp = newest.length ? newest[newest.length - 1].timestamp : Number.MAX_SAFE_INTEGER;
+                const older = notificationsRef.current.filter(
+                    (n) => !newestIds.has(n.notificationId) && n.timestamp <= oldestTimestamp,
+                );
+                onNotificationsFetched([...newest, ...older]);
+            } else {
+                onNotificationsFetched(newest, page.nextCursor); // Aktualizuj stan w App.tsx
             }
         } catch (error) {
             console.error("Error fetching notifications:", error);
@@ -50,19 +180,117 @@ const NotificationsBell: React.FC<NotificationsBellProps> = ({
         }
     };
 
+    const loadOlderNotifications = async () => {
+        if (!nextCursor || loadingOlder) return;
+        setLoadingOlder(true);
+        try {
+            const page = await fetchPage(nextCursor);
+            if (page) {
+                olderPagesLoadedRef.current = true;
+                const knownIds = new Set(notificationsRef.current.map((n) => n.notificationId));
+                onNotificationsFetched(
+                    [...notificationsRef.current, ...page.items.filter((n) => !knownIds.has(n.notificationId))],
+                    page.nextCursor,
+                );
+            }
+        } catch (error) {
+            console.error("Error fetching older notifications:", error);
+        } finally {
+            setLoadingOlder(false);
+        }
+    };
+
     useEffect(() => {
-        fetchNotifications(); // Pobierz przy montowaniu
-        const intervalId = setInterval(fetchNotifications, 30000);
+        if (!deferInitialFetch || refreshSignal > 0) {
+            fetchNotifications(); // Pobierz przy montowaniu (chyba że dane przyjdą z bootstrapu)
+        }
+        // Odpytywanie zostaje jako zapas, gdy strumień nie działa (np. proxy go zrywa)
+        const intervalId = setInterval(() => {
+            if (!streamConnectedRef.current) pollNotifications();
+        }, POLL_INTERVAL_MS);
         return () => clearInterval(intervalId);
-    }, [token, notificationApiUrl, username]); // Zależności dla pobierania
+    }, [token, notificationApiUrl, username, refreshSignal]); // Zależności dla pobierania
 
-    // Aktualizuj licznik nieprzeczytanych, gdy zmieni się lista z App.tsx
+    // Nowe powiadomienie ze strumienia na początek listy (bez duplikatów - po wznowieniu serwer powtarza ostatnie)
+    const mergeStreamedNotification = (record: INotificationRecord) => {
+        const current = notificationsRef.current;
+        if (current.some((n) => n.notificationId === record.notificationId)) return;
+        const merged = [record, ...current].sort((a, b) => b.timestamp - a.timestamp);
+        notificationsRef.current = merged; // Kolejne zdarzenie może przyjść przed ponownym renderem
+        onNotificationsFetched(merged);
+    };
+
+    // Strumień SSE (/stream) z ponownym łączeniem (backoff) i wznowieniem od ostatniego zdarzenia (Last-Event-ID)
     useEffect(() => {
-        const count = notificationsFromApp.filter(
-            (n) => n.userId === username && !n.readNotification,
-        ).length;
-        setUnreadCount(count);
-    }, [notificationsFromApp, username]);
+        if (!notificationApiUrl || !token || !username) return;
+        const controller = new AbortController();
+        let lastEventId: string | null = null;
+        let retryMs = STREAM_RETRY_MIN_MS;
+
+        const connect = async () => {
+            while (!controller.signal.aborted) {
+                try {
+                    const headers: Record<string, string> = {
+                        Authorization: `Bearer ${token}`,
+                        Accept: 'text/event-stream',
+                    };
+                    if (lastEventId) headers['Last-Event-ID'] = lastEventId;
+                    const res = await fetch(`${notificationApiUrl}/stream`, { headers, signal: controller.signal });
+                    if (!res.ok || !res.body) throw new Error(`Notification stream responded with ${res.status}`);
+                    streamConnectedRef.current = true;
+                    retryMs = STREAM_RETRY_MIN_MS;
+                    await readEventStream(res.body, (event) => {
+                        if (event.event !== 'notification') return;
+                        if (event.id && (!lastEventId || Number(event.id) > Number(lastEventId))) {
+                            lastEventId = event.id;
+                        }
+                        mergeStreamedNotification(JSON.parse(event.data) as INotificationRecord);
+                    });
+                } catch (error) {
+                    if (controller.signal.aborted) return;
+                    console.warn("Notification stream disconnected:", error);
+                } finally {
+                    streamConnectedRef.current = false;
+                }
+                await new Promise((resolve) => setTimeout(resolve, retryMs));
+                retryMs = Math.min(retryMs * 2, STREAM_RETRY_MAX_MS);
+            }
+        };
+        connect();
+        return () => {
+            controller.abort();
+            streamConnectedRef.current = false;
+        };
+    }, [token, notificationApiUrl, username]);
+
+    // Plakietka pochodzi z licznika w notification-service (/unread-count), bo lista zawiera tylko
+    // pobrane strony historii. Odświeżamy go, gdy zmieni się liczba nieprzeczytanych na liście
+    // (nowe powiadomienia z odpytywania, oznaczenie jako przeczytane).
+    const loadedUnreadCount = notificationsFromApp.filter(
+        (n) => n.userId === username && !n.readNotification,
+    ).length;
+
+    useEffect(() => {
+        if (!notificationApiUrl || !token || !username) return;
+        let cancelled = false;
+        const fetchUnreadCount = async () => {
+            try {
+                const res = await fetch(`${notificationApiUrl}/unread-count`, {
+                    headers: { Authorization: `Bearer ${token}` },
+                });
+                if (!res.ok) throw new Error(res.statusText);
+                const data: { unreadCount: number } = await res.json();
+                if (!cancelled) setUnreadCount(data.unreadCount);
+            } catch (error) {
+                console.error("Error fetching unread count:", error);
+                if (!cancelled) setUnreadCount(loadedUnreadCount); // Przybliżenie z pobranej listy
+            }
+        };
+        fetchUnreadCount();
+        return () => {
+            cancelled = true;
+        };
+    }, [loadedUnreadCount, token, notificationApiUrl, username]);
 
 
     useEffect(() => {
@@ -112,6 +340,9 @@ const NotificationsBell: React.FC<NotificationsBellProps> = ({
                     onMarkAsRead={handleMarkNotificationAsReadClickedInPanel} // Przekaż tę funkcję
                     onNotificationClick={handleNotificationContentClickedInPanel} // Przekaż tę funkcję
                     currentUsername={username}
+                    hasMore={nextCursor !== null}
+                    loadingMore={loadingOlder}
+                    onLoadMore={loadOlderNotifications}
                 />
             )}
         </div>
@@ -9,6 +9,9 @@ interface NotificationsPanelProps {
     onMarkAsRead: (notificationId: string) => void; // Ta funkcja teraz pochodzi z App.tsx przez NotificationsBell
     onNotificationClick: (record: INotificationRecord) => void;
     currentUsername: string;
+    hasMore: boolean; // Są starsze powiadomienia do doczytania
+    loadingMore: boolean;
+    onLoadMore: () => void;
 }
 
 const NotificationsPanel: React.FC<NotificationsPanelProps> = ({
@@ -16,6 +19,9 @@ const NotificationsPanel: React.FC<NotificationsPanelProps> = ({
                                                                    onMarkAsRead,
                                                                    onNotificationClick,
                                                                    currentUsername,
+                                                                   hasMore,
+                                                                   loadingMore,
+                                                                   onLoadMore,
                                                                }) => {
     const userNotifications = notifications.filter(
         (n) => n.userId === currentUsername,
@@ -74,6 +80,11 @@ const NotificationsPanel: React.FC<NotificationsPanelProps> = ({
                     </li>
                 ))}
             </ul>
+            {hasMore && (
+                <button className="load-more-button" onClick={onLoadMore} disabled={loadingMore}>
+                    {loadingMore ? 'Loading...' : 'Load older'}
+                </button>
+            )}
         </div>
     );
 };
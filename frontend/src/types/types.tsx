@@ -7,6 +7,21 @@ export interface INotificationRecord {
     status: string;
     readNotification: boolean;
     relatedEntityId?: string;
+    coalescedCount?: number; // Liczba scalonych powiadomień (powiadomienie zbiorcze "X wysłał Ci N wiadomości")
+}
+
+// Strona historii z GET /api/notifications/history; nextCursor = null, gdy nie ma starszych
+export interface INotificationPage {
+    items: INotificationRecord[];
+    nextCursor: string | null;
+}
+
+// Zmiany od poprzedniego odpytania (GET /history?since=)
+export interface INotificationDelta {
+    items: INotificationRecord[];
+    readIds: string[]; // Powiadomienia oznaczone w tym czasie jako przeczytane (np. w innej karcie)
+    syncedAt: number; // Wartość "since" dla następnego odpytania
+    truncated: boolean; // Zmian było więcej niż limit - trzeba pobrać pierwszą stronę od nowa
 }
 
 export interface IMessage {
@@ -17,3 +32,15 @@ export interface IMessage {
     fileId?: string | null;
     read: boolean;
 }
+
+// Odpowiedź GET /api/messages/bootstrap - części z failedParts są puste i trzeba je pobrać osobno
+export interface IBootstrapResponse {
+    username: string;
+    sent: IMessage[];
+    received: IMessage[];
+    notifications: INotificationRecord[];
+    notificationsNextCursor: string | null;
+    files: Record<string, unknown>;
+    partial: boolean;
+    failedParts: string[];
+}
@@ -0,0 +1,22 @@
+#!/usr/bin/env bash
+# Buduje notification-service i moduł benchmarków, uruchamia JMH i zapisuje wynik jako results/<commit>.json,
+# żeby wyniki z kolejnych commitów można było porównywać (np. jmh.morethan.me albo jq).
+# Użycie: ./run.sh [regex benchmarków] [dodatkowe opcje JMH]
+set -euo pipefail
+
+cd "$(dirname "$0")"
+INCLUDE="${1:-.*}"
+OPTIONS="${2:--f 1 -wi 3 -w 2s -i 5 -r 2s}"
+COMMIT="$(git rev-parse --short HEAD)"
+if ! git diff --quiet HEAD -- ..; then
+  COMMIT="${COMMIT}-dirty"
+fi
+mkdir -p results
+
+(cd .. && ./mvnw -B -q install -DskipTests)
+../mvnw -B -q package exec:exec \
+  -Djmh.include="$INCLUDE" \
+  -Djmh.options="$OPTIONS" \
+  -Djmh.result.file="$PWD/results/${COMMIT}.json"
+
+echo "Wynik: results/${COMMIT}.json"
@@ -0,0 +1,175 @@
+package pl.projektchmury.notificationservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import pl.projektchmury.notificationservice.model.NotificationPage;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.DynamoDbNotificationRepository;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Pierwsza strona historii (GET /history bez pamięci podręcznej) przy wielu równoczesnych klientach:
+// - blocking: wątek "serwera" (pula serverThreads, jak pula wątków Tomcata) czeka na DynamoDB (findPageByUserId);
+// - async:    wątek "serwera" tylko wysyła zapytanie (findPageByUserIdAsync) i wraca do puli, odpowiedź kończy future.
+// Wątki JMH (@Threads, -t) to klienci - każdy czeka na swoją odpowiedź. Throughput = odpowiedzi/ms dla wszystkich
+// klientów, SampleTime = rozkład czasu odpowiedzi (p99 w wynikach JMH).
+// Wymaga DynamoDB Local (docker run -p 8000:8000 amazon/dynamodb-local), adres: -Ddynamodb.endpoint=...
+// Tabele są tworzone i wypełniane przy pierwszym uruchomieniu.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(512)
+public class AsyncIoConcurrencyBenchmark {
+
+    private static final String HISTORY_TABLE = "bench-notification-history";
+    private static final String COUNTERS_TABLE = "bench-notification-counters";
+    private static final int USERS = 100;
+    private static final int RECORDS_PER_USER = 20;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"blocking", "async"})
+    public String mode;
+
+    // Wątki obsługujące żądania (domyślnie jak server.tomcat.threads.max).
+    @Param("200")
+    public int serverThreads;
+
+    // Pula połączeń HTTP każdego z klientów DynamoDB (aws.dynamodb.http.max-connections).
+    @Param("50")
+    public int maxConnections;
+
+    private DynamoDbClient dynamoDbClient;
+    private DynamoDbAsyncClient dynamoDbAsyncClient;
+    private DynamoDbNotificationRepository repository;
+    private ExecutorService serverPool;
+    private boolean async;
+
+    @Setup
+    public void setUp() {
+        URI endpoint = URI.create(System.getProperty("dynamodb.endpoint", "http://localhost:8000"));
+        StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("bench", "bench"));
+        dynamoDbClient = DynamoDbClient.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .httpClientBuilder(ApacheHttpClient.builder().maxConnections(maxConnections))
+                .build();
+        dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(endpoint)
+                .credentialsProvider(credentials)
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .maxPendingConnectionAcquires(10_000))
+                .build();
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        DynamoDbEnhancedAsyncClient enhancedAsyncClient = DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+
+        boolean created = createTablesIfMissing(enhancedClient);
+        repository = new DynamoDbNotificationRepository(enhancedClient, dynamoDbClient, dynamoDbAsyncClient, enhancedAsyncClient,
+                HISTORY_TABLE, COUNTERS_TABLE, 8, 200);
+        if (created) {
+            seed();
+        }
+        serverPool = Executors.newFixedThreadPool(serverThreads);
+        async = "async".equals(mode);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serverPool.shutdownNow();
+        dynamoDbAsyncClient.close();
+        dynamoDbClient.close();
+    }
+
+    @Benchmark
+    public NotificationPage historyFirstPage() throws Exception {
+        String userId = "bench-user-" + ThreadLocalRandom.current().nextInt(USERS);
+        if (async) {
+            return serverPool.submit(() -> repository.findPageByUserIdAsync(userId, PAGE_SIZE, null)).get().get();
+        }
+        return serverPool.submit(() -> repository.findPageByUserId(userId, PAGE_SIZE, null)).get();
+    }
+
+    private boolean createTablesIfMissing(DynamoDbEnhancedClient enhancedClient) {
+        try {
+            dynamoDbClient.describeTable(request -> request.tableName(HISTORY_TABLE));
+            return false;
+        } catch (ResourceNotFoundException e) {
+            enhancedClient.table(HISTORY_TABLE, NotificationRecord.TABLE_SCHEMA).createTable(CreateTableEnhancedRequest.builder()
+                    .globalSecondaryIndices(
+                            EnhancedGlobalSecondaryIndex.builder()
+                                    .indexName(NotificationRecord.USER_ID_TIMESTAMP_INDEX)
+                                    .projection(projection -> projection.projectionType(ProjectionType.ALL))
+                                    .build(),
+                            EnhancedGlobalSecondaryIndex.builder()
+                                    .indexName(NotificationRecord.UNREAD_USER_ID_TIMESTAMP_INDEX)
+                                    .projection(projection -> projection.projectionType(ProjectionType.ALL))
+                                    .build())
+                    .build());
+            dynamoDbClient.createTable(request -> request
+                    .tableName(COUNTERS_TABLE)
+                    .billingMode(BillingMode.PAY_PER_REQUEST)
+                    .keySchema(KeySchemaElement.builder().attributeName("userId").keyType(KeyType.HASH).build())
+                    .attributeDefinitions(AttributeDefinition.builder()
+                            .attributeName("userId")
+                            .attributeType(ScalarAttributeType.S)
+                            .build()));
+            dynamoDbClient.waiter().waitUntilTableExists(request -> request.tableName(HISTORY_TABLE));
+            dynamoDbClient.waiter().waitUntilTableExists(request -> request.tableName(COUNTERS_TABLE));
+            return true;
+        }
+    }
+
+    private void seed() {
+        long now = System.currentTimeMillis();
+        for (int user = 0; user < USERS; user++) {
+            for (int i = 0; i < RECORDS_PER_USER; i++) {
+                NotificationRecord record = new NotificationRecord();
+                record.setNotificationId(UUID.randomUUID().toString());
+                record.setUserId("bench-user-" + user);
+                record.setType("NEW_MESSAGE");
+                record.setMessage("Nowa wiadomość " + i);
+                record.setTimestamp(now - i * 1_000L);
+                record.setStatus(NotificationRecord.STATUS_SENT);
+                record.setReadNotification(false);
+                record.setUnreadUserId(record.getUserId());
+                record.setVersion(1L);
+                repository.save(record);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pl.projektchmury.notificationservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Mapowanie jednego powiadomienia obiekt <-> element DynamoDB, wykonywane dla każdego zapisu (itemToMap)
+// i każdego elementu strony historii (mapToItem). Oba schematy są zbudowane w @Setup - to koszt w stanie ustalonym.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TableSchemaMappingBenchmark {
+
+    @Param({"bean", "static"})
+    public String schema;
+
+    private TableSchema<NotificationRecord> tableSchema;
+    private NotificationRecord record;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setUp() {
+        tableSchema = "bean".equals(schema) ? TableSchema.fromBean(NotificationRecord.class) : NotificationRecord.TABLE_SCHEMA;
+        record = new NotificationRecord();
+        record.setNotificationId("3f1c2a9e-7b4d-4c1e-9a57-0f2d8b6e4a11");
+        record.setUserId("bob");
+        record.setType("NEW_MESSAGE");
+        record.setMessage("Nowa wiadomość od alice");
+        record.setTimestamp(1_700_000_000_000L);
+        record.setStatus(NotificationRecord.STATUS_SENT);
+        record.setRelatedEntityId("12345");
+        record.setUnreadUserId("bob");
+        record.setVersion(2L);
+        record.setExpiresAt(1_702_592_000L);
+        item = tableSchema.itemToMap(record, true);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> itemToMap() {
+        return tableSchema.itemToMap(record, true);
+    }
+
+    @Benchmark
+    public NotificationRecord mapToItem() {
+        return tableSchema.mapToItem(item);
+    }
+}
@@ -0,0 +1,34 @@
+package pl.projektchmury.notificationservice.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.concurrent.TimeUnit;
+
+// Koszt zbudowania schematu tabeli przy starcie serwisu: jedno wywołanie w świeżej JVM (każdy fork to osobny "start").
+// fromBean zapamiętuje schemat per klasa, więc liczy się tylko pierwsze wywołanie - kolejne to odczyt z mapy.
+// TABLE_SCHEMA buduje się przy inicjalizacji klasy NotificationRecord, czyli przy pierwszym odczycie pola.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(20)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class TableSchemaStartupBenchmark {
+
+    @Benchmark
+    public TableSchema<NotificationRecord> beanSchema() {
+        return TableSchema.fromBean(NotificationRecord.class);
+    }
+
+    @Benchmark
+    public TableSchema<NotificationRecord> staticSchema() {
+        return NotificationRecord.TABLE_SCHEMA;
+    }
+}
@@ -5,38 +5,39 @@ import org.springframework.security.oauth2.core.OAuth2TokenValidator; // Interfe
 import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult; // Wynik walidacji tokenu (sukces/porażka)
 import org.springframework.security.oauth2.jwt.Jwt; // Reprezentuje zdekodowany token JWT
 
+import java.util.Arrays; // Do filtrowania przekazanych wartości "audience"
 import java.util.List; // Do pracy z listami, np. listą "audiences" w tokenie
 
 // Ten walidator sprawdza, czy token JWT jest przeznaczony dla tej konkretnej aplikacji (serwisu).
 // "Audience" (odbiorca) w tokenie JWT określa, dla kogo token został wystawiony.
 public class AudienceValidator implements OAuth2TokenValidator<Jwt> {
 
-    // Przechowuje oczekiwaną wartość "audience" (np. Client ID z Cognito), którą ten serwis akceptuje.
-    private final String audience;
+    // Przechowuje akceptowane wartości "audience" (Client ID aplikacji z Cognito i opcjonalnie klienta usługi chat-service).
+    private final List<String> audiences;
 
-    // Konstruktor, który przyjmuje oczekiwaną wartość "audience".
-    // Ta wartość będzie wstrzyknięta z konfiguracji (np. z aws.cognito.clientId).
-    public AudienceValidator(String audience) {
-        this.audience = audience;
+    // Konstruktor, który przyjmuje oczekiwane wartości "audience" (puste są pomijane).
+    // Te wartości będą wstrzyknięte z konfiguracji (aws.cognito.clientId, aws.cognito.serviceClientId).
+    public AudienceValidator(String... audiences) {
+        this.audiences = Arrays.stream(audiences).filter(audience -> audience != null && !audience.isEmpty()).toList();
     }
 
     @Override // Nadpisujemy metodę z interfejsu OAuth2TokenValidator.
     // Ta metoda jest wywoływana przez Spring Security, aby sprawdzić token.
     public OAuth2TokenValidatorResult validate(Jwt jwt) {
         // Pobierz listę "audiences" (odbiorców) z tokenu JWT.
-        List<String> audiences = jwt.getAudience();
+        List<String> tokenAudiences = jwt.getAudience();
 
         // SCENARIUSZ 1: Tokeny od Cognito czasami nie mają standardowego claimu "aud" (audience),
         // ale zamiast tego mają claim "client_id", który pełni podobną rolę.
         // Jeśli lista "audiences" jest pusta lub null...
-        if (audiences == null || audiences.isEmpty()) {
+        if (tokenAudiences == null || tokenAudiences.isEmpty()) {
             // ...spróbuj pobrać wartość claimu "client_id" z tokenu.
             String clientIdClaim = jwt.getClaimAsString("client_id");
             // Jeśli "client_id" istnieje i jest równy oczekiwanej przez nas wartości "audience"...
-            if (clientIdClaim != null && clientIdClaim.equals(audience)) {
+            if (clientIdClaim != null && audiences.contains(clientIdClaim)) {
                 return OAuth2TokenValidatorResult.success(); // ...token jest ważny dla tego odbiorcy. Sukces!
             }
-        } else if (audiences.contains(audience)) {
+        } else if (tokenAudiences.stream().anyMatch(audiences::contains)) {
             // SCENARIUSZ 2: Token ma standardowy claim "aud" (audience) i zawiera oczekiwaną przez nas wartość.
             return OAuth2TokenValidatorResult.success(); // Sukces!
         }
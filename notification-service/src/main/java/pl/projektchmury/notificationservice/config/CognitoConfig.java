@@ -0,0 +1,37 @@
+// Konfigurator Klienta Cognito (katalog użytkowników dla powiadomień do wszystkich)
+package pl.projektchmury.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania wartości z plików konfiguracyjnych
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider; // Poświadczenia z roli IAM (Fargate) albo lokalnego AWS CLI
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+
+import java.net.URI; // Dla lokalnego endpointu Cognito (LocalStack)
+
+@Configuration
+public class CognitoConfig {
+
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CognitoConfig.class);
+
+    // Ta sama pula, która wystawia tokeny sprawdzane w SecurityConfig.
+    @Value("${aws.cognito.region}")
+    private String region;
+
+    // Jak aws.sns.endpoint - tylko do testów z LocalStack.
+    @Value("${aws.cognito.endpoint:#{null}}")
+    private String cognitoEndpoint;
+
+    @Bean(destroyMethod = "close")
+    public CognitoIdentityProviderClient cognitoIdentityProviderClient() {
+        var builder = CognitoIdentityProviderClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(DefaultCredentialsProvider.create());
+        if (cognitoEndpoint != null && !cognitoEndpoint.isEmpty()) {
+            logger.info("Configuring CognitoIdentityProviderClient to use local endpoint: {}", cognitoEndpoint);
+            builder.endpointOverride(URI.create(cognitoEndpoint));
+        }
+        return builder.build();
+    }
+}
@@ -6,13 +6,27 @@ import org.springframework.context.annotation.Configuration; // Oznacza, że ta
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials; // Do tworzenia prostych, statycznych poświadczeń (login/hasło)
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider; // Sposób na automatyczne pobranie poświadczeń AWS
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider; // Provider dla statycznych poświadczeń
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration; // Limity czasu wywołań i polityka ponowień
+import software.amazon.awssdk.core.retry.RetryMode; // Tryb ponowień SDK (STANDARD, ADAPTIVE, ...)
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient; // Asynchroniczny klient Enhanced (CompletableFuture/Publisher)
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient; // "Ulepszony" klient DynamoDB, ułatwiający pracę z obiektami Java
+import software.amazon.awssdk.http.apache.ApacheHttpClient; // Blokujący klient HTTP z pulą połączeń (dla DynamoDbClient)
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient; // Nieblokujący klient HTTP (Netty) dla DynamoDbAsyncClient
 import software.amazon.awssdk.regions.Region; // Do określenia regionu AWS
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient; // Asynchroniczny klient DynamoDB - wywołania zwracają CompletableFuture
+import software.amazon.awssdk.services.dynamodb.DynamoDbBaseClientBuilder; // Wspólny interfejs budowniczych obu klientów
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient; // Podstawowy klient do interakcji z usługą AWS DynamoDB
 
 import java.net.URI; // Do reprezentowania adresów URL, np. dla lokalnego endpointu DynamoDB
+import java.time.Duration; // Do określania limitów czasu
+import java.util.Locale;
 
 @Configuration // Mówi Springowi: "Ta klasa definiuje konfigurację dla połączenia z DynamoDB."
+// Dwa klienty o tych samych ustawieniach: synchroniczny (Apache) dla zwykłych zapytań repozytoriów
+// i asynchroniczny (Netty) dla operacji wysyłających wiele żądań naraz (np. markAllAsRead) - tam jedno połączenie
+// z puli obsługuje żądanie bez blokowania wątku, więc współbieżność nie wymaga puli wątków.
+// Domyślny klient SDK nie ma limitu czasu wywołania, a pula ma 50 połączeń - tu wszystko jest jawne i konfigurowalne.
 public class DynamoDbConfig {
 
     // Wstrzyknij wartość właściwości "aws.region" (np. "us-east-1").
@@ -34,33 +48,73 @@ public class DynamoDbConfig {
     @Value("${aws.secretKey:#{null}}")
     private String secretKey;
 
+    // Rozmiar puli połączeń HTTP (osobno dla klienta synchronicznego i asynchronicznego).
+    @Value("${aws.dynamodb.http.max-connections:50}")
+    private int maxConnections;
+
+    // Jak długo żądanie czeka na wolne połączenie z puli, zanim zakończy się błędem.
+    @Value("${aws.dynamodb.http.connection-acquisition-timeout-ms:2000}")
+    private long connectionAcquisitionTimeoutMillis;
+
+    @Value("${aws.dynamodb.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMillis;
+
+    // Limit czasu odczytu odpowiedzi na otwartym połączeniu.
+    @Value("${aws.dynamodb.http.socket-timeout-ms:5000}")
+    private long socketTimeoutMillis;
+
+    // Bezczynne połączenia dłuższe niż to są zamykane (DynamoDB i NAT i tak zrywają je po kilku minutach).
+    @Value("${aws.dynamodb.http.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMillis;
+
+    @Value("${aws.dynamodb.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    // Ile żądań może czekać w kolejce na połączenie w kliencie asynchronicznym (ponad maxConnections w toku).
+    @Value("${aws.dynamodb.async.max-pending-connection-acquires:1000}")
+    private int maxPendingConnectionAcquires;
+
+    // ADAPTIVE = STANDARD + lokalne dławienie po błędach throttlingu, żeby nie pogłębiać przeciążenia tabeli.
+    @Value("${aws.dynamodb.retry.mode:adaptive}")
+    private String retryMode;
+
+    @Value("${aws.dynamodb.retry.max-retries:3}")
+    private int maxRetries;
+
+    // Limit jednej próby i całego wywołania (łącznie z ponowieniami).
+    @Value("${aws.dynamodb.api-call-attempt-timeout-ms:3000}")
+    private long apiCallAttemptTimeoutMillis;
+
+    @Value("${aws.dynamodb.api-call-timeout-ms:10000}")
+    private long apiCallTimeoutMillis;
+
     @Bean // Mówi Springowi: "Stwórz i zarządzaj obiektem DynamoDbClient."
     public DynamoDbClient dynamoDbClient() {
-        DynamoDbClient client; // Zmienna na klienta DynamoDB.
+        return configure(DynamoDbClient.builder())
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis))
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                        .tcpKeepAlive(tcpKeepAlive))
+                .build(); // Zbuduj klienta.
+    }
 
-        // Sprawdź, czy mamy zdefiniowany lokalny endpoint DynamoDB.
-        if (dynamoDbEndpoint != null && !dynamoDbEndpoint.isEmpty()) {
-            // Jeśli tak, konfigurujemy klienta do łączenia się z lokalnym DynamoDB.
-            logger.info("Configuring DynamoDbClient to use local endpoint: {}", dynamoDbEndpoint); // Dodaj logowanie
-            client = DynamoDbClient.builder() // Używamy budowniczego.
-                    .region(Region.of(region)) // Ustaw region (ważne nawet dla lokalnego).
-                    .endpointOverride(URI.create(dynamoDbEndpoint)) // Ustaw adres lokalnego DynamoDB.
-                    // Dla lokalnego DynamoDB często używamy "dummy" (fałszywych) poświadczeń,
-                    // bo lokalna instancja może ich nie wymagać lub akceptować dowolne.
-                    .credentialsProvider(StaticCredentialsProvider.create(
-                            AwsBasicCredentials.create(accessKeyId, secretKey))) // Użyj statycznych poświadczeń.
-                    .build(); // Zbuduj klienta.
-        } else {
-            // Jeśli nie ma lokalnego endpointu, konfigurujemy klienta dla prawdziwego AWS DynamoDB.
-            logger.info("Configuring DynamoDbClient for AWS region: {}", region); // Dodaj logowanie
-            client = DynamoDbClient.builder()
-                    .region(Region.of(region)) // Ustaw region AWS.
-                    // DefaultCredentialsProvider automatycznie znajdzie poświadczenia AWS
-                    // (np. z roli IAM zadania Fargate).
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build(); // Zbuduj klienta.
-        }
-        return client; // Zwróć skonfigurowanego klienta.
+    @Bean(destroyMethod = "close")
+    // Klient asynchroniczny na Netty: żądania w toku nie zajmują wątków, a liczbę równoczesnych żądań
+    // ogranicza pula połączeń (maxConnections) i kolejka oczekujących (maxPendingConnectionAcquires).
+    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+        return configure(DynamoDbAsyncClient.builder())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .maxPendingConnectionAcquires(maxPendingConnectionAcquires)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMillis))
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .readTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                        .tcpKeepAlive(tcpKeepAlive))
+                .build();
     }
 
     @Bean // Mówi Springowi: "Stwórz i zarządzaj obiektem DynamoDbEnhancedClient."
@@ -75,6 +129,43 @@ public class DynamoDbConfig {
                 .build(); // Zbuduj ulepszonego klienta.
     }
 
+    @Bean // Odpowiednik DynamoDbEnhancedClient na kliencie asynchronicznym (te same schematy TABLE_SCHEMA).
+    public DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .build();
+    }
+
+    // Ustawienia wspólne dla obu klientów: region, endpoint, poświadczenia, limity czasu i ponowienia.
+    private <B extends DynamoDbBaseClientBuilder<B, ?>> B configure(B builder) {
+        builder.region(Region.of(region)) // Ustaw region (ważne nawet dla lokalnego).
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                                .numRetries(maxRetries)
+                                .build())
+                        .apiCallAttemptTimeout(Duration.ofMillis(apiCallAttemptTimeoutMillis))
+                        .apiCallTimeout(Duration.ofMillis(apiCallTimeoutMillis))
+                        .build());
+
+        // Sprawdź, czy mamy zdefiniowany lokalny endpoint DynamoDB.
+        if (dynamoDbEndpoint != null && !dynamoDbEndpoint.isEmpty()) {
+            // Jeśli tak, konfigurujemy klienta do łączenia się z lokalnym DynamoDB.
+            logger.info("Configuring DynamoDB client to use local endpoint: {}", dynamoDbEndpoint);
+            builder.endpointOverride(URI.create(dynamoDbEndpoint)) // Ustaw adres lokalnego DynamoDB.
+                    // Dla lokalnego DynamoDB często używamy "dummy" (fałszywych) poświadczeń,
+                    // bo lokalna instancja może ich nie wymagać lub akceptować dowolne.
+                    .credentialsProvider(StaticCredentialsProvider.create(
+                            AwsBasicCredentials.create(accessKeyId, secretKey))); // Użyj statycznych poświadczeń.
+        } else {
+            // Jeśli nie ma lokalnego endpointu, konfigurujemy klienta dla prawdziwego AWS DynamoDB.
+            logger.info("Configuring DynamoDB client for AWS region: {}", region);
+            // DefaultCredentialsProvider automatycznie znajdzie poświadczenia AWS
+            // (np. z roli IAM zadania Fargate).
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+        return builder;
+    }
+
     // Dodaj logger, jeśli go używasz w tej klasie
     private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DynamoDbConfig.class);
 }
@@ -0,0 +1,38 @@
+// Konfigurator Klienta S3 (archiwum powiadomień)
+package pl.projektchmury.notificationservice.config;
+
+import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania wartości z plików konfiguracyjnych
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty; // Klient potrzebny tylko dla archiwum w S3
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider; // Poświadczenia z roli IAM (Fargate) albo lokalnego AWS CLI
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+import java.net.URI; // Dla lokalnego endpointu S3 (LocalStack)
+
+@Configuration
+@ConditionalOnProperty(name = "app.notifications.archive.storage", havingValue = "s3")
+public class S3Config {
+
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(S3Config.class);
+
+    @Value("${aws.region}")
+    private String region;
+
+    // Jak aws.sns.endpoint - tylko do testów z LocalStack.
+    @Value("${aws.s3.endpoint:#{null}}")
+    private String s3Endpoint;
+
+    @Bean(destroyMethod = "close")
+    public S3Client s3Client() {
+        var builder = S3Client.builder()
+                .region(Region.of(region))
+                .credentialsProvider(DefaultCredentialsProvider.create());
+        if (s3Endpoint != null && !s3Endpoint.isEmpty()) {
+            logger.info("Configuring S3Client to use local endpoint: {}", s3Endpoint);
+            builder.endpointOverride(URI.create(s3Endpoint)).forcePathStyle(true); // LocalStack nie obsługuje bucketów w subdomenie
+        }
+        return builder.build();
+    }
+}
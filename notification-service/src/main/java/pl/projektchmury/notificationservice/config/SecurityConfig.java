@@ -1,15 +1,20 @@
 package pl.projektchmury.notificationservice.config;
 
+import jakarta.servlet.DispatcherType; // Rodzaj przekazania żądania w kontenerze (REQUEST, ASYNC, ERROR, ...)
 import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania wartości z konfiguracji
 import org.springframework.context.annotation.Bean; // Do tworzenia beanów Springa
 import org.springframework.context.annotation.Configuration; // Oznacza klasę konfiguracyjną
 import org.springframework.http.HttpMethod; // Do określania metod HTTP (GET, POST, itp.)
+import org.springframework.security.authorization.AuthorizationDecision; // Wynik decyzji o dostępie
+import org.springframework.security.authorization.AuthorizationManager; // Własna reguła dostępu do ścieżek
 import org.springframework.security.config.annotation.web.builders.HttpSecurity; // Do konfiguracji bezpieczeństwa HTTP
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity; // Włącza wsparcie Spring Security dla aplikacji webowych
 import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator; // Łączy wiele walidatorów tokenów w jeden
 import org.springframework.security.oauth2.core.OAuth2TokenValidator; // Interfejs walidatora tokenów
 import org.springframework.security.oauth2.jwt.*; // Klasy związane z obsługą tokenów JWT
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken; // Uwierzytelnienie tokenem JWT
 import org.springframework.security.web.SecurityFilterChain; // Definiuje łańcuch filtrów bezpieczeństwa Springa
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext; // Kontekst żądania dla AuthorizationManager
 import org.springframework.web.cors.CorsConfiguration; // Do konfiguracji CORS
 import org.springframework.web.cors.CorsConfigurationSource; // Źródło konfiguracji CORS
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource; // Implementacja CorsConfigurationSource oparta na URL
@@ -32,6 +37,11 @@ public class SecurityConfig {
     @Value("${aws.cognito.clientId}")
     private String clientId;
 
+    // Client ID klienta usługi chat-service (przepływ client_credentials) - pusty = tokeny usługi nie są akceptowane.
+    // Taki token nie ma nicku użytkownika, więc wolno mu tylko wysyłać powiadomienia (/send, /send-batch).
+    @Value("${aws.cognito.serviceClientId:}")
+    private String serviceClientId;
+
     // Wstrzyknij adres URL frontendu zdefiniowany w zmiennej środowiskowej (np. ustawionej przez Terraform).
     // Używane do konfiguracji CORS.
     @Value("${app.cors.allowed-origin.frontend}")
@@ -49,7 +59,7 @@ public class SecurityConfig {
         NimbusJwtDecoder jwtDecoder = (NimbusJwtDecoder) JwtDecoders.fromOidcIssuerLocation(issuerUri);
 
         // Stwórz nasz niestandardowy walidator "audience" (sprawdza, czy token jest dla nas).
-        OAuth2TokenValidator<Jwt> audienceValidator = new AudienceValidator(clientId);
+        OAuth2TokenValidator<Jwt> audienceValidator = new AudienceValidator(clientId, serviceClientId);
         // Stwórz standardowy walidator, który sprawdza, czy pole "iss" (issuer) w tokenie zgadza się z issuerUri.
         OAuth2TokenValidator<Jwt> withIssuer = JwtValidators.createDefaultWithIssuer(issuerUri);
 
@@ -75,10 +85,15 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 // Autoryzacja żądań HTTP - które ścieżki są dostępne dla kogo.
                 .authorizeHttpRequests(auth -> auth
+                        // Ponowne wejście żądania asynchronicznego (strumień SSE /stream, odpowiedzi z CompletableFuture)
+                        // i obsługa błędów - żądanie zostało już sprawdzone przy pierwszym wejściu.
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                         // Zezwól na wszystkie żądania do endpointów Actuatora (np. /actuator/health).
                         .requestMatchers("/actuator/**").permitAll()
-                        // Wszystkie żądania do /api/notifications/** muszą być uwierzytelnione (muszą mieć ważny token JWT).
-                        .requestMatchers("/api/notifications/**").authenticated()
+                        // Wysyłka powiadomień: token użytkownika albo token usługi chat-service.
+                        .requestMatchers(HttpMethod.POST, "/api/notifications/send", "/api/notifications/send-batch").authenticated()
+                        // Pozostałe żądania do /api/notifications/** wymagają tokenu użytkownika (z nickiem).
+                        .requestMatchers("/api/notifications/**").access(userTokenOnly())
                         // Zezwól na wszystkie żądania typu OPTIONS do dowolnej ścieżki.
                         // Przeglądarki wysyłają żądania OPTIONS (tzw. "preflight requests") przed niektórymi żądaniami CORS,
                         // aby sprawdzić, czy serwer zezwala na takie żądanie.
@@ -94,6 +109,13 @@ public class SecurityConfig {
         return http.build(); // Zbuduj i zwróć skonfigurowany łańcuch filtrów bezpieczeństwa.
     }
 
+    // Token użytkownika ma claim "username" (access token) albo "cognito:username" (ID token); token usługi - żadnego.
+    private static AuthorizationManager<RequestAuthorizationContext> userTokenOnly() {
+        return (authentication, context) -> new AuthorizationDecision(
+                authentication.get() instanceof JwtAuthenticationToken token
+                        && (token.getToken().hasClaim("username") || token.getToken().hasClaim("cognito:username")));
+    }
+
     @Bean // Mówi Springowi: "Stwórz i zarządzaj obiektem CorsConfigurationSource."
     // To źródło dostarcza konfigurację CORS dla Spring Security.
     public CorsConfigurationSource corsConfigurationSource() {
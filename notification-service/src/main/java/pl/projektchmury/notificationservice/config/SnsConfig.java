@@ -5,10 +5,12 @@ import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania w
 import org.springframework.context.annotation.Bean; // Oznacza, że metoda tworzy "bean" zarządzany przez Springa (obiekt, którym Spring może zarządzać i wstrzykiwać)
 import org.springframework.context.annotation.Configuration; // Oznacza, że ta klasa zawiera konfigurację beanów Springa
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider; // Sposób na automatyczne pobranie poświadczeń AWS (np. z roli IAM na Fargate)
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient; // Nieblokujący klient HTTP (Netty) używany przez klienta asynchronicznego
 import software.amazon.awssdk.regions.Region; // Do określenia regionu AWS
-import software.amazon.awssdk.services.sns.SnsClient; // Główny klient do interakcji z usługą AWS SNS
+import software.amazon.awssdk.services.sns.SnsAsyncClient; // Asynchroniczny klient AWS SNS - wywołania zwracają CompletableFuture
 
 import java.net.URI; // Do reprezentowania adresów URL, np. dla lokalnego endpointu SNS
+import java.time.Duration; // Do określania limitów czasu
 
 @Configuration // Mówi Springowi: "Hej, ta klasa zawiera definicje obiektów (beanów), którymi masz zarządzać"
 public class SnsConfig {
@@ -25,34 +27,34 @@ public class SnsConfig {
     @Value("${aws.sns.endpoint:#{null}}")
     private String snsEndpoint;
 
-    @Bean // Mówi Springowi: "Metoda snsClient() tworzy obiekt SnsClient, którym masz zarządzać."
+    // Maksymalna liczba równoczesnych połączeń HTTP do SNS. Nie powinna być mniejsza niż
+    // app.notifications.publish.max-in-flight, inaczej żądania czekają na wolne połączenie w kliencie.
+    @Value("${aws.sns.max-concurrency:50}")
+    private int maxConcurrency;
+
+    @Bean(destroyMethod = "close") // Mówi Springowi: "Metoda snsAsyncClient() tworzy obiekt SnsAsyncClient, którym masz zarządzać."
     // Spring wywoła tę metodę raz, stworzy obiekt i będzie go wstrzykiwać tam, gdzie jest potrzebny (np. do SnsService).
-    public SnsClient snsClient() {
-        SnsClient snsClient; // Deklaracja zmiennej dla klienta SNS.
+    // Klient asynchroniczny nie blokuje wątku na czas wywołania SNS - wynik przychodzi jako CompletableFuture.
+    public SnsAsyncClient snsAsyncClient() {
+        var builder = SnsAsyncClient.builder() // Używamy "budowniczego" (builder pattern) do stworzenia klienta.
+                .region(Region.of(region)) // Ustawiamy region AWS (nawet dla LocalStack jest to potrzebne).
+                // DefaultCredentialsProvider automatycznie znajdzie poświadczenia AWS:
+                // - Na Fargate: z roli IAM przypisanej do zadania.
+                // - Lokalnie (jeśli masz skonfigurowane AWS CLI): z Twoich lokalnych poświadczeń.
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConcurrency) // Limit równoczesnych połączeń do SNS.
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(5))); // Jak długo czekać na wolne połączenie z puli.
 
         // Sprawdź, czy mamy zdefiniowany lokalny endpoint SNS (np. dla LocalStack).
         if (snsEndpoint != null && !snsEndpoint.isEmpty()) {
-            // Jeśli tak, konfigurujemy klienta SNS do łączenia się z tym lokalnym adresem.
-            logger.info("Configuring SnsClient to use local endpoint: {}", snsEndpoint);
-            snsClient = SnsClient.builder() // Używamy "budowniczego" (builder pattern) do stworzenia klienta.
-                    .region(Region.of(region)) // Ustawiamy region AWS (nawet dla LocalStack jest to potrzebne).
-                    .endpointOverride(URI.create(snsEndpoint)) // NADPISUJEMY standardowy adres AWS adresem lokalnym.
-                    // Dla LocalStack często potrzebne są jakiekolwiek (nawet "dummy") poświadczenia,
-                    // DefaultCredentialsProvider spróbuje je znaleźć w standardowych miejscach.
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build(); // Zbuduj obiekt klienta SNS.
+            // Jeśli tak, NADPISUJEMY standardowy adres AWS adresem lokalnym.
+            logger.info("Configuring SnsAsyncClient to use local endpoint: {}", snsEndpoint);
+            builder.endpointOverride(URI.create(snsEndpoint));
         } else {
-            // Jeśli nie ma lokalnego endpointu, konfigurujemy klienta do łączenia się z prawdziwą usługą AWS SNS.
-            logger.info("Configuring SnsClient for AWS region: {}", region);
-            snsClient = SnsClient.builder()
-                    .region(Region.of(region)) // Ustawiamy region AWS.
-                    // DefaultCredentialsProvider automatycznie znajdzie poświadczenia AWS:
-                    // - Na Fargate: z roli IAM przypisanej do zadania.
-                    // - Lokalnie (jeśli masz skonfigurowane AWS CLI): z Twoich lokalnych poświadczeń.
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build(); // Zbuduj obiekt klienta SNS.
+            logger.info("Configuring SnsAsyncClient for AWS region: {}", region);
         }
-        return snsClient; // Zwróć skonfigurowanego klienta SNS, żeby Spring mógł nim zarządzać.
+        return builder.build(); // Zwróć skonfigurowanego klienta SNS, żeby Spring mógł nim zarządzać.
     }
 
     // Dodaj logger, jeśli go używasz w tej klasie (jak w przykładzie powyżej)
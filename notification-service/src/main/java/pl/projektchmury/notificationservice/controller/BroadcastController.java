@@ -0,0 +1,118 @@
+package pl.projektchmury.notificationservice.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import pl.projektchmury.notificationservice.model.BroadcastJob;
+import pl.projektchmury.notificationservice.service.BroadcastService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Powiadomienia do wszystkich użytkowników - tylko dla administratorów (grupa app.notifications.broadcast.admin-group
+// w puli Cognito, claim "cognito:groups" w tokenie). Wysyłka trwa w tle - POST zwraca zadanie (202), a postęp
+// (usersProcessed / estimatedUsers, status) jest pod GET /{broadcastId}.
+@RestController
+@RequestMapping("/api/notifications/broadcasts")
+public class BroadcastController {
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastController.class);
+
+    private final BroadcastService broadcastService;
+
+    @Value("${app.notifications.broadcast.admin-group:admins}")
+    private String adminGroup;
+
+    public BroadcastController(BroadcastService broadcastService) {
+        this.broadcastService = broadcastService;
+    }
+
+    // Body: {"message": "Przerwa techniczna w nocy z soboty na niedzielę", "type": "MAINTENANCE"} (type opcjonalny).
+    @PostMapping
+    public ResponseEntity<?> start(@RequestBody Map<String, String> body, @AuthenticationPrincipal Jwt jwt) {
+        ResponseEntity<?> denied = checkAdmin(jwt);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            BroadcastJob job = broadcastService.start(nickFrom(jwt), body.get("type"), body.get("message"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.error("Nie udało się rozpocząć wysyłki do wszystkich: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Nie udało się rozpocząć wysyłki."));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list(@AuthenticationPrincipal Jwt jwt) {
+        ResponseEntity<?> denied = checkAdmin(jwt);
+        if (denied != null) {
+            return denied;
+        }
+        List<BroadcastJob> jobs = broadcastService.list();
+        return ResponseEntity.ok(jobs);
+    }
+
+    @GetMapping("/{broadcastId}")
+    public ResponseEntity<?> get(@PathVariable String broadcastId, @AuthenticationPrincipal Jwt jwt) {
+        ResponseEntity<?> denied = checkAdmin(jwt);
+        if (denied != null) {
+            return denied;
+        }
+        return found(broadcastService.find(broadcastId));
+    }
+
+    @PostMapping("/{broadcastId}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable String broadcastId, @AuthenticationPrincipal Jwt jwt) {
+        ResponseEntity<?> denied = checkAdmin(jwt);
+        if (denied != null) {
+            return denied;
+        }
+        return found(broadcastService.cancel(broadcastId));
+    }
+
+    // Wznawia wysyłkę FAILED albo CANCELLED od ostatniego zapisanego punktu wznowienia.
+    @PostMapping("/{broadcastId}/resume")
+    public ResponseEntity<?> resume(@PathVariable String broadcastId, @AuthenticationPrincipal Jwt jwt) {
+        ResponseEntity<?> denied = checkAdmin(jwt);
+        if (denied != null) {
+            return denied;
+        }
+        try {
+            return found(broadcastService.resume(broadcastId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private static ResponseEntity<?> found(Optional<BroadcastJob> job) {
+        return job.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Wysyłka nie znaleziona.")));
+    }
+
+    // null = administrator, w przeciwnym razie odpowiedź z odmową.
+    private ResponseEntity<?> checkAdmin(Jwt jwt) {
+        if (jwt == null || nickFrom(jwt) == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        List<String> groups = jwt.getClaimAsStringList("cognito:groups");
+        if (groups == null || !groups.contains(adminGroup)) {
+            logger.warn("Użytkownik {} bez grupy {} próbował zarządzać wysyłką do wszystkich", nickFrom(jwt), adminGroup);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Brak uprawnień administratora."));
+        }
+        return null;
+    }
+
+    // Nick z access tokenu ("username") albo z ID tokenu ("cognito:username").
+    private static String nickFrom(Jwt jwt) {
+        String nick = jwt.getClaimAsString("username");
+        return (nick != null) ? nick : jwt.getClaimAsString("cognito:username");
+    }
+}
@@ -1,93 +1,362 @@
 // Zewnętrzne żądanie HTTP POST -> NotificationController.createNotification()
 // NotificationController -> NotificationStorageService.sendAndStoreNotification()
-// NotificationStorageService -> SnsService.sendSnsNotification()
-// SnsService (używając SnsClient skonfigurowanego przez SnsConfig) -> AWS SNS (wysyłka wiadomości)
-// SnsService zwraca snsMessageId (lub null) -> NotificationStorageService
-// NotificationStorageService tworzy NotificationRecord i wywołuje -> DynamoDbNotificationRepository.save()
+// NotificationStorageService tworzy NotificationRecord (status PENDING) i wywołuje -> DynamoDbNotificationRepository.save()
 // DynamoDbNotificationRepository (używając DynamoDbEnhancedClient skonfigurowanego przez DynamoDbConfig) -> AWS DynamoDB (zapis rekordu)
-// Dyn/amoDbNotificationRepository zwraca zapisany rekord -> NotificationStorageService
+// NotificationStorageService zleca wysyłkę -> NotificationPublisher.publish() (kolejka, bez czekania)
 // NotificationStorageService zwraca zapisany rekord -> NotificationController
 // NotificationController zwraca odpowiedź HTTP do klienta.
+// W tle: NotificationPublisher -> SnsService.publishAsync() (SnsAsyncClient skonfigurowany przez SnsConfig) -> AWS SNS
+// Po odpowiedzi SNS (z ewentualnymi ponowieniami) -> DynamoDbNotificationRepository.updateStatus() (PENDING -> SENT/FAILED)
 
 package pl.projektchmury.notificationservice.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.projektchmury.notificationservice.model.MarkAsReadResult;
+import pl.projektchmury.notificationservice.model.NotificationDelta;
+import pl.projektchmury.notificationservice.model.NotificationPage;
 import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.model.NotificationRequest;
+import pl.projektchmury.notificationservice.service.NotificationArchiver;
+import pl.projektchmury.notificationservice.service.NotificationCoalescer;
 import pl.projektchmury.notificationservice.service.NotificationStorageService;
+import pl.projektchmury.notificationservice.service.NotificationStreamRegistry;
 
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/notifications")
 public class NotificationController {
     private static final Logger logger = LoggerFactory.getLogger(NotificationController.class);
     private final NotificationStorageService notificationService;
+    private final NotificationArchiver notificationArchiver; // Odczyt historii z archiwum (po wygaśnięciu TTL)
+    private final NotificationCoalescer notificationCoalescer; // Scalanie serii powiadomień od jednego nadawcy
+    private final NotificationStreamRegistry streamRegistry; // Strumienie SSE dla /stream
+
+    // Maksymalna liczba powiadomień w jednym żądaniu /send-batch.
+    @Value("${app.notifications.send-batch.max-size:100}")
+    private int maxBatchSize;
+
+    // Rozmiar strony historii, gdy klient nie poda "limit", i górna granica dla "limit".
+    @Value("${app.notifications.history.default-limit:20}")
+    private int defaultHistoryLimit;
+
+    @Value("${app.notifications.history.max-limit:100}")
+    private int maxHistoryLimit;
+
+    // /history, /unread, /unread-count i /send zwracają CompletableFuture: przy true wątek Tomcata wraca do puli na czas
+    // zapytania do DynamoDB (klient asynchroniczny), a odpowiedź wysyła async dispatch po zakończeniu future.
+    // false (domyślnie) = te same metody synchronicznie w wątku żądania. Domyślne true dopiero po zmierzeniu zysku
+    // (benchmarks/README.md, AsyncIoConcurrencyBenchmark).
+    @Value("${app.notifications.async-io.enabled:false}")
+    private boolean asyncIo;
 
     @Autowired
-    public NotificationController(NotificationStorageService notificationService) {
+    public NotificationController(NotificationStorageService notificationService, NotificationArchiver notificationArchiver,
+                                  NotificationCoalescer notificationCoalescer, NotificationStreamRegistry streamRegistry) {
         this.notificationService = notificationService;
+        this.notificationArchiver = notificationArchiver;
+        this.notificationCoalescer = notificationCoalescer;
+        this.streamRegistry = streamRegistry;
     }
 
-    @GetMapping("/history")
-    public ResponseEntity<List<NotificationRecord>> getHistory(@AuthenticationPrincipal Jwt jwt) {
+    // Strumień nowych powiadomień (text/event-stream): zdarzenia "notification" z rekordem w JSON i id = timestamp.
+    // Nagłówek Last-Event-ID wznawia strumień - serwer odtworzy powiadomienia od tej chwili (duplikaty odrzuca klient
+    // po notificationId). Błędy bez treści JSON - odpowiedź ma typ strumienia, a nie application/json.
+    @GetMapping("/stream")
+    public ResponseEntity<SseEmitter> stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                             @AuthenticationPrincipal Jwt jwt) {
         if (jwt == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
+        String requestingUserNick = nickFrom(jwt);
+        if (requestingUserNick == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        Long resumeFrom = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                resumeFrom = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                logger.debug("Ignorowanie nieprawidłowego Last-Event-ID '{}' od {}", lastEventId, requestingUserNick);
+            }
+        }
+        SseEmitter emitter = streamRegistry.open(requestingUserNick, resumeFrom);
+        if (emitter == null) {
+            // Limit połączeń tej instancji - klient spróbuje ponownie (ALB może trafić na inną instancję).
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no") // Bez buforowania odpowiedzi przez proxy
+                .body(emitter);
+    }
+
+    // Historia powiadomień stronami: ?limit=N (domyślnie history.default-limit, najwyżej history.max-limit)
+    // i ?cursor=<nextCursor z poprzedniej strony>. Odpowiedź: {"items": [...], "nextCursor": "..." | null}.
+    // ?since=<syncedAt z poprzedniej odpowiedzi> - tylko zmiany od tej chwili (NotificationDelta):
+    // {"items": [...], "readIds": [...], "syncedAt": ..., "truncated": false}. Pierwsze "since" klient bierze
+    // z najnowszego timestamp pierwszej strony historii.
+    @GetMapping("/history")
+    public CompletableFuture<ResponseEntity<?>> getHistory(@RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Long since,
+                                                           @AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
         String requestingUserNick = jwt.getClaimAsString("username");
         if (requestingUserNick == null) {
             requestingUserNick = jwt.getClaimAsString("cognito:username");
         }
         if (requestingUserNick == null) {
             logger.error("Nie można pobrać nicku użytkownika z tokenu dla /history. Sub: {}", jwt.getSubject());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null); // Zwracamy null jako ciało dla List<NotificationRecord>
+            return completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        if (limit != null && limit < 1) {
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Parametr 'limit' musi być dodatni.")));
+        }
+        int pageSize = pageSize(limit);
+        if (since != null) {
+            if (cursor != null) {
+                return completed(ResponseEntity.badRequest().body(Map.of("error", "Parametry 'since' i 'cursor' wykluczają się.")));
+            }
+            if (since < 0) {
+                return completed(ResponseEntity.badRequest().body(Map.of("error", "Parametr 'since' nie może być ujemny.")));
+            }
+            return getHistoryChanges(requestingUserNick, since, pageSize);
+        }
+
+        logger.debug("Pobieranie historii powiadomień dla użytkownika (nick): {}, limit: {}", requestingUserNick, pageSize);
+        try {
+            CompletableFuture<NotificationPage> page = asyncIo
+                    ? notificationService.getNotificationHistoryAsync(requestingUserNick, pageSize, cursor)
+                    : CompletableFuture.completedFuture(notificationService.getNotificationHistory(requestingUserNick, pageSize, cursor));
+            return page.thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Nieprawidłowy kursor historii od użytkownika {}", requestingUserNick);
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Nieprawidłowy kursor.")));
+        }
+    }
+
+    private CompletableFuture<ResponseEntity<?>> getHistoryChanges(String userNick, long since, int limit) {
+        CompletableFuture<NotificationDelta> delta;
+        if (asyncIo) {
+            delta = notificationService.getNotificationChangesAsync(userNick, since, limit);
+        } else {
+            try {
+                delta = CompletableFuture.completedFuture(notificationService.getNotificationChanges(userNick, since, limit));
+            } catch (RuntimeException e) {
+                delta = CompletableFuture.failedFuture(e);
+            }
+        }
+        return delta.<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                .exceptionally(error -> {
+                    logger.error("Błąd pobierania zmian historii od {} dla {}: {}", since, userNick, error.getMessage());
+                    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .body(Map.of("error", "Nie udało się pobrać zmian historii."));
+                });
+    }
+
+    // Historia starsza niż retencja w DynamoDB - z archiwum (S3 / katalog lokalny). Wolna ścieżka: czyta kubełek
+    // użytkownika z każdego dnia, w którym mogły wygasnąć powiadomienia z [from, to], więc zakres jest ograniczony,
+    // a liczba równoczesnych odczytów na instancję też (ponad limit - 429).
+    // Daty w formacie ISO (2025-01-31), UTC, obie włącznie. Odpowiedź w kształcie /history (nextCursor zawsze null).
+    @GetMapping("/history/archive")
+    public ResponseEntity<?> getArchivedHistory(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                @AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        String requestingUserNick = nickFrom(jwt);
+        if (requestingUserNick == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        try {
+            List<NotificationRecord> items = notificationArchiver.readArchivedHistory(requestingUserNick, from, to);
+            return ResponseEntity.ok(new NotificationPage(items, null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (NotificationArchiver.ArchiveBusyException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "Archiwum powiadomień jest chwilowo przeciążone, spróbuj ponownie za chwilę."));
+        } catch (IOException e) {
+            logger.error("Błąd odczytu archiwum powiadomień dla {}: {}", requestingUserNick, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", "Archiwum powiadomień jest niedostępne."));
+        }
+    }
+
+    // Tylko nieprzeczytane, stronami jak /history - zapytanie na indeksie rzadkim, więc przeczytane nic nie kosztują.
+    @GetMapping("/unread")
+    public CompletableFuture<ResponseEntity<?>> getUnread(@RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        String requestingUserNick = nickFrom(jwt);
+        if (requestingUserNick == null) {
+            return completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        if (limit != null && limit < 1) {
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Parametr 'limit' musi być dodatni.")));
+        }
+        try {
+            CompletableFuture<NotificationPage> page = asyncIo
+                    ? notificationService.getUnreadNotificationsAsync(requestingUserNick, pageSize(limit), cursor)
+                    : CompletableFuture.completedFuture(notificationService.getUnreadNotifications(requestingUserNick, pageSize(limit), cursor));
+            return page.thenApply(ResponseEntity::ok);
+        } catch (IllegalArgumentException e) {
+            return completed(ResponseEntity.badRequest().body(Map.of("error", "Nieprawidłowy kursor.")));
         }
-        logger.info("Pobieranie historii powiadomień dla użytkownika (nick): {}", requestingUserNick);
-        List<NotificationRecord> history = notificationService.getNotificationHistory(requestingUserNick);
-        return ResponseEntity.ok(history);
+    }
+
+    // Licznik do plakietki dzwonka: {"unreadCount": N} - jeden mały odczyt z tabeli liczników.
+    @GetMapping("/unread-count")
+    public CompletableFuture<ResponseEntity<?>> getUnreadCount(@AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        String requestingUserNick = nickFrom(jwt);
+        if (requestingUserNick == null) {
+            return completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        CompletableFuture<Long> count = asyncIo
+                ? notificationService.getUnreadCountAsync(requestingUserNick)
+                : CompletableFuture.completedFuture(notificationService.getUnreadCount(requestingUserNick));
+        return count.thenApply(unreadCount -> ResponseEntity.ok(Map.of("unreadCount", unreadCount)));
     }
 
     @PostMapping("/send")
-    public ResponseEntity<NotificationRecord> createNotification(
+    public CompletableFuture<ResponseEntity<NotificationRecord>> createNotification(
             @RequestBody Map<String, String> payload,
             @AuthenticationPrincipal Jwt jwt
     ) {
         if (jwt == null) {
             logger.warn("Niezautoryzowane żądanie do /api/notifications/send");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
         }
 
-        String targetUserIdFromPayload = payload.get("targetUserId");
-        String type = payload.getOrDefault("type", "UNDEFINED");
-        String subject = payload.get("subject");
-        String message = payload.get("message");
-        String relatedEntityId = payload.get("relatedEntityId");
-
-        if (targetUserIdFromPayload == null || targetUserIdFromPayload.isEmpty() ||
-                message == null || message.isEmpty()) {
-            logger.warn("Brakujące dane w payloadzie dla /send: targetUserId={}, message={}", targetUserIdFromPayload, message);
-            return ResponseEntity.badRequest().body(null); // Zwracamy null jako ciało dla NotificationRecord
+        NotificationRequest request = NotificationRequest.fromPayload(payload);
+        if (!request.isValid()) {
+            logger.warn("Brakujące dane w payloadzie dla /send: targetUserId={}, message present={}", request.targetUserId(), request.message() != null);
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(null)); // Zwracamy null jako ciało dla NotificationRecord
         }
 
-        logger.info("Odebrano żądanie utworzenia powiadomienia dla targetUserId: {}, type: {}, subject: {}, message: {}, relatedEntityId: {}. Zainicjowane przez użytkownika z tokenu (sub): {}",
-                targetUserIdFromPayload, type, subject, message, relatedEntityId, jwt.getSubject());
+        // Bez tematu i treści - mogą zawierać dane z wiadomości użytkowników.
+        logger.info("Odebrano żądanie utworzenia powiadomienia dla targetUserId: {}, type: {}, relatedEntityId: {}. Zainicjowane przez użytkownika z tokenu (sub): {}",
+                request.targetUserId(), request.type(), request.relatedEntityId(), jwt.getSubject());
 
+        // Seria wiadomości od jednego nadawcy jest scalana - rekord powstanie dopiero po zamknięciu okna.
+        if (notificationCoalescer.offer(request)) {
+            return CompletableFuture.completedFuture(ResponseEntity.accepted().build());
+        }
+
+        if (asyncIo) {
+            return notificationService.sendAndStoreNotificationAsync(request.targetUserId(), request.type(), request.subject(),
+                    request.message(), request.relatedEntityId()).thenApply(ResponseEntity::ok);
+        }
         NotificationRecord record = notificationService.sendAndStoreNotification(
-                targetUserIdFromPayload,
-                type,
-                subject,
-                message,
-                relatedEntityId
+                request.targetUserId(),
+                request.type(),
+                request.subject(),
+                request.message(),
+                request.relatedEntityId()
         );
-        return ResponseEntity.ok(record);
+        return CompletableFuture.completedFuture(ResponseEntity.ok(record));
+    }
+
+    // Wsadowa wersja /send: przyjmuje listę payloadów w tym samym formacie co /send.
+    // Całość przechodzi jedną walidację JWT, zapis idzie przez BatchWriteItem, a wysyłka (w tle) przez PublishBatch.
+    // Niepoprawne wpisy są pomijane (i liczone w "rejected"), reszta jest przetwarzana.
+    @PostMapping("/send-batch")
+    public ResponseEntity<?> createNotificationBatch(
+            @RequestBody List<Map<String, String>> payloads,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        if (jwt == null) {
+            logger.warn("Niezautoryzowane żądanie do /api/notifications/send-batch");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (payloads == null || payloads.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Pusta lista powiadomień."));
+        }
+        if (payloads.size() > maxBatchSize) {
+            logger.warn("Za duża paczka w /send-batch: {} (limit {})", payloads.size(), maxBatchSize);
+            return ResponseEntity.badRequest().body(Map.of("error", "Maksymalna liczba powiadomień w jednym żądaniu: " + maxBatchSize));
+        }
+
+        List<NotificationRequest> requests = new ArrayList<>(payloads.size());
+        int rejected = 0;
+        int coalesced = 0;
+        for (Map<String, String> payload : payloads) {
+            NotificationRequest request = NotificationRequest.fromPayload(payload);
+            if (request.isValid()) {
+                if (notificationCoalescer.offer(request)) {
+                    coalesced++; // Trafi do powiadomienia zbiorczego przy zamknięciu okna
+                } else {
+                    requests.add(request);
+                }
+            } else {
+                rejected++;
+                logger.warn("Brakujące dane w payloadzie dla /send-batch: targetUserId={}, message present={}", request.targetUserId(), request.message() != null);
+            }
+        }
+
+        logger.info("Odebrano paczkę {} powiadomień ({} odrzuconych, {} do scalenia). Zainicjowane przez użytkownika z tokenu (sub): {}",
+                payloads.size(), rejected, coalesced, jwt.getSubject());
+
+        List<NotificationRecord> records = requests.isEmpty()
+                ? List.of()
+                : notificationService.sendAndStoreNotificationBatch(requests);
+        return ResponseEntity.ok(Map.of("records", records, "rejected", rejected, "coalesced", coalesced));
+    }
+
+    // Oznacza jako przeczytane wszystkie nieprzeczytane powiadomienia użytkownika (opcjonalnie tylko te
+    // z timestamp <= upTo, np. czas ostatniego wyświetlonego powiadomienia). Odpowiedź: {"updated": N}.
+    // Zapisy idą na osobnej puli (limit zapisów na sekundę), wątek żądania jest zwalniany od razu;
+    // gdy kolejka puli jest pełna - 503 z Retry-After.
+    @PostMapping("/mark-all-read")
+    public CompletableFuture<ResponseEntity<?>> markAllNotificationsAsRead(@RequestParam(required = false) Long upTo,
+                                                                          @AuthenticationPrincipal Jwt jwt) {
+        if (jwt == null) {
+            return completed(ResponseEntity.status(HttpStatus.UNAUTHORIZED).build());
+        }
+        String requestingUserNick = nickFrom(jwt);
+        if (requestingUserNick == null) {
+            return completed(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", "Brak nicku w tokenie.")));
+        }
+        CompletableFuture<Integer> updated;
+        try {
+            updated = notificationService.markAllNotificationsAsReadAsync(requestingUserNick, upTo);
+        } catch (RejectedExecutionException e) {
+            logger.warn("[N_MarkAllRead] Kolejka mark-all-read pełna, odrzucono żądanie użytkownika {}.", requestingUserNick);
+            return completed(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(Map.of("error", "Zbyt wiele operacji w toku, spróbuj ponownie później.")));
+        }
+        return updated.thenApply(count -> {
+            logger.info("[N_MarkAllRead] Użytkownik {} oznaczył {} powiadomień jako przeczytane.", requestingUserNick, count);
+            return ResponseEntity.ok(Map.of("updated", count));
+        });
     }
 
     @PostMapping("/{notificationId}/mark-as-read")
@@ -111,27 +380,26 @@ public class NotificationController {
 
         logger.info("[N_MarkAsRead] Użytkownik (nick): {} próbuje oznaczyć powiadomienie ID: {} jako przeczytane.", requestingUserNick, notificationId);
 
-        boolean success = notificationService.markNotificationAsRead(notificationId, requestingUserNick);
-
-        if (success) {
-            logger.info("[N_MarkAsRead] Powiadomienie {} pomyślnie oznaczone jako przeczytane dla użytkownika {}.", notificationId, requestingUserNick);
-            Optional<NotificationRecord> updatedRecord = notificationService.getNotificationById(notificationId);
-            return updatedRecord
-                    .<ResponseEntity<?>>map(ResponseEntity::ok) // Jawne rzutowanie na ResponseEntity<?>
-                    .orElseGet(() -> {
-                        logger.error("[N_MarkAsRead] Nie znaleziono powiadomienia {} po aktualizacji, mimo że operacja save zwróciła sukces.", notificationId);
-                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Błąd po aktualizacji powiadomienia."));
-                    });
-        } else {
-            logger.warn("[N_MarkAsRead] Nie udało się oznaczyć powiadomienia {} jako przeczytane dla użytkownika {} (nie znaleziono, brak uprawnień, lub już przeczytane).", notificationId, requestingUserNick);
-            Optional<NotificationRecord> recordOptional = notificationService.getNotificationById(notificationId);
-            if (recordOptional.isEmpty()) {
-                logger.warn("[N_MarkAsRead] Powiadomienie {} nie istnieje.", notificationId);
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Powiadomienie nie znalezione."));
-            }
-            logger.warn("[N_MarkAsRead] Powiadomienie {} istnieje, ale użytkownik {} nie jest właścicielem lub już jest przeczytane. Właściciel: {}, Status przeczytania: {}",
-                    notificationId, requestingUserNick, recordOptional.get().getUserId(), recordOptional.get().isReadNotification());
-            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Brak uprawnień lub powiadomienie już przeczytane/nie znalezione."));
-        }
+        // Odpowiedź budujemy z wyniku UpdateItem (ALL_NEW / ALL_OLD) - bez ponownego odczytu rekordu.
+        MarkAsReadResult result = notificationService.markNotificationAsRead(notificationId, requestingUserNick);
+        return switch (result.outcome()) {
+            case MARKED, ALREADY_READ -> ResponseEntity.ok(result.record());
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Powiadomienie nie znalezione."));
+            case FORBIDDEN -> ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Brak uprawnień do tego powiadomienia."));
+        };
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private int pageSize(Integer limit) {
+        return (limit == null) ? defaultHistoryLimit : Math.min(limit, maxHistoryLimit);
+    }
+
+    // Nick z access tokenu ("username") albo z ID tokenu ("cognito:username").
+    private static String nickFrom(Jwt jwt) {
+        String nick = jwt.getClaimAsString("username");
+        return (nick != null) ? nick : jwt.getClaimAsString("cognito:username");
     }
 }
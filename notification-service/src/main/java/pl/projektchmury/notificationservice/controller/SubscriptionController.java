@@ -0,0 +1,75 @@
+package pl.projektchmury.notificationservice.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+import pl.projektchmury.notificationservice.model.NotificationSubscription;
+import pl.projektchmury.notificationservice.service.SubscriptionRegistry;
+
+import java.util.Map;
+
+// Subskrypcje SNS zalogowanego użytkownika (np. powiadomienia na e-mail). Każda subskrypcja dostaje tylko
+// powiadomienia tego użytkownika (FilterPolicy na atrybucie targetUserId) - nick zawsze pochodzi z tokenu.
+@RestController
+@RequestMapping("/api/notifications/subscriptions")
+public class SubscriptionController {
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionController.class);
+
+    private final SubscriptionRegistry subscriptionRegistry;
+
+    public SubscriptionController(SubscriptionRegistry subscriptionRegistry) {
+        this.subscriptionRegistry = subscriptionRegistry;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> list(@AuthenticationPrincipal Jwt jwt) {
+        String nick = nickFrom(jwt);
+        if (nick == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        return ResponseEntity.ok(subscriptionRegistry.list(nick));
+    }
+
+    // Body: {"protocol": "email", "endpoint": "jan@example.com"}. Dla e-mail SNS wysyła link potwierdzający.
+    @PostMapping
+    public ResponseEntity<?> subscribe(@RequestBody Map<String, String> body, @AuthenticationPrincipal Jwt jwt) {
+        String nick = nickFrom(jwt);
+        if (nick == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        try {
+            NotificationSubscription subscription = subscriptionRegistry.subscribe(nick, body.get("protocol"), body.get("endpoint"));
+            return ResponseEntity.status(HttpStatus.CREATED).body(subscription);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RuntimeException e) {
+            logger.error("Nie udało się utworzyć subskrypcji dla {}: {}", nick, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", "Nie udało się utworzyć subskrypcji."));
+        }
+    }
+
+    // ARN zawiera dwukropki, więc przekazujemy go w parametrze, a nie w ścieżce.
+    @DeleteMapping
+    public ResponseEntity<?> unsubscribe(@RequestParam String arn, @AuthenticationPrincipal Jwt jwt) {
+        String nick = nickFrom(jwt);
+        if (nick == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Brak nicku w tokenie."));
+        }
+        if (!subscriptionRegistry.unsubscribe(nick, arn)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Subskrypcja nie znaleziona."));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static String nickFrom(Jwt jwt) {
+        if (jwt == null) {
+            return null;
+        }
+        String nick = jwt.getClaimAsString("username");
+        return (nick != null) ? nick : jwt.getClaimAsString("cognito:username");
+    }
+}
@@ -0,0 +1,203 @@
+package pl.projektchmury.notificationservice.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore; // Pola techniczne - nie pokazujemy ich w odpowiedziach API
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+
+// Zadanie wysyłki powiadomienia do wszystkich użytkowników (BroadcastService) razem z punktem wznowienia i postępem.
+// Tabela notification-broadcasts: klucz partycji broadcastId.
+@DynamoDbBean
+public class BroadcastJob {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    // Schemat statyczny budowany raz (bez refleksji TableSchema.fromBean) - jak NotificationRecord.TABLE_SCHEMA.
+    public static final StaticTableSchema<BroadcastJob> TABLE_SCHEMA = buildTableSchema();
+
+    private static StaticTableSchema<BroadcastJob> buildTableSchema() {
+        return StaticTableSchema.builder(BroadcastJob.class)
+                .newItemSupplier(BroadcastJob::new)
+                .addAttribute(String.class, a -> a.name("broadcastId")
+                        .getter(BroadcastJob::getBroadcastId)
+                        .setter(BroadcastJob::setBroadcastId)
+                        .tags(primaryPartitionKey()))
+                .addAttribute(String.class, a -> a.name("type")
+                        .getter(BroadcastJob::getType)
+                        .setter(BroadcastJob::setType))
+                .addAttribute(String.class, a -> a.name("message")
+                        .getter(BroadcastJob::getMessage)
+                        .setter(BroadcastJob::setMessage))
+                .addAttribute(String.class, a -> a.name("status")
+                        .getter(BroadcastJob::getStatus)
+                        .setter(BroadcastJob::setStatus))
+                .addAttribute(String.class, a -> a.name("createdBy")
+                        .getter(BroadcastJob::getCreatedBy)
+                        .setter(BroadcastJob::setCreatedBy))
+                .addAttribute(long.class, a -> a.name("createdAt")
+                        .getter(BroadcastJob::getCreatedAt)
+                        .setter(BroadcastJob::setCreatedAt))
+                .addAttribute(long.class, a -> a.name("updatedAt")
+                        .getter(BroadcastJob::getUpdatedAt)
+                        .setter(BroadcastJob::setUpdatedAt))
+                .addAttribute(long.class, a -> a.name("estimatedUsers")
+                        .getter(BroadcastJob::getEstimatedUsers)
+                        .setter(BroadcastJob::setEstimatedUsers))
+                .addAttribute(long.class, a -> a.name("usersProcessed")
+                        .getter(BroadcastJob::getUsersProcessed)
+                        .setter(BroadcastJob::setUsersProcessed))
+                .addAttribute(String.class, a -> a.name("lastError")
+                        .getter(BroadcastJob::getLastError)
+                        .setter(BroadcastJob::setLastError))
+                .addAttribute(String.class, a -> a.name("pageToken")
+                        .getter(BroadcastJob::getPageToken)
+                        .setter(BroadcastJob::setPageToken))
+                .addAttribute(String.class, a -> a.name("owner")
+                        .getter(BroadcastJob::getOwner)
+                        .setter(BroadcastJob::setOwner))
+                .addAttribute(long.class, a -> a.name("leaseExpiresAt")
+                        .getter(BroadcastJob::getLeaseExpiresAt)
+                        .setter(BroadcastJob::setLeaseExpiresAt))
+                .addAttribute(long.class, a -> a.name("version")
+                        .getter(BroadcastJob::getVersion)
+                        .setter(BroadcastJob::setVersion))
+                .build();
+    }
+
+    // Identyfikator zadania (UUID).
+    private String broadcastId;
+    // Typ zapisywanych powiadomień (np. "BROADCAST").
+    private String type;
+    // Treść powiadomienia dla każdego użytkownika.
+    private String message;
+    // RUNNING, COMPLETED, FAILED albo CANCELLED.
+    private String status;
+    // Nick administratora, który zlecił wysyłkę.
+    private String createdBy;
+    // Czas utworzenia (milisekundy od epochy).
+    private long createdAt;
+    // Czas ostatniego zapisu postępu.
+    private long updatedAt;
+    // Przybliżona liczba użytkowników w katalogu przy starcie (-1 = nieznana).
+    private long estimatedUsers;
+    // Użytkownicy, dla których powiadomienie jest już zapisane (do punktu wznowienia).
+    private long usersProcessed;
+    // Powód ostatniego błędu (status FAILED).
+    private String lastError;
+    // Punkt wznowienia: token pierwszej strony katalogu, która nie jest jeszcze w całości zapisana
+    // (null = od początku albo koniec).
+    private String pageToken;
+    // Instancja, która wykonuje zadanie, i do kiedy (dzierżawa odnawiana przy zapisie postępu).
+    private String owner;
+    private long leaseExpiresAt;
+    // Wersja elementu - każdy zapis jest warunkowy na poprzedniej wersji (optimistic locking).
+    private long version;
+
+    @DynamoDbPartitionKey
+    public String getBroadcastId() {
+        return broadcastId;
+    }
+    public void setBroadcastId(String broadcastId) {
+        this.broadcastId = broadcastId;
+    }
+
+    public String getType() {
+        return type;
+    }
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public long getEstimatedUsers() {
+        return estimatedUsers;
+    }
+    public void setEstimatedUsers(long estimatedUsers) {
+        this.estimatedUsers = estimatedUsers;
+    }
+
+    public long getUsersProcessed() {
+        return usersProcessed;
+    }
+    public void setUsersProcessed(long usersProcessed) {
+        this.usersProcessed = usersProcessed;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    @JsonIgnore
+    public String getPageToken() {
+        return pageToken;
+    }
+    public void setPageToken(String pageToken) {
+        this.pageToken = pageToken;
+    }
+
+    @JsonIgnore
+    public String getOwner() {
+        return owner;
+    }
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    @JsonIgnore
+    public long getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+    public void setLeaseExpiresAt(long leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
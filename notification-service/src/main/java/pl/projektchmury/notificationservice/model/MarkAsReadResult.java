@@ -0,0 +1,22 @@
+package pl.projektchmury.notificationservice.model;
+
+// Wynik oznaczenia powiadomienia jako przeczytane (NotificationRepository.markAsRead).
+// record to stan rekordu po operacji (ReturnValues=ALL_NEW) albo zastany stan, gdy nic nie zmieniono;
+// null dla NOT_FOUND i FORBIDDEN.
+public record MarkAsReadResult(Outcome outcome, NotificationRecord record) {
+
+    public enum Outcome {
+        MARKED,       // Zmieniono nieprzeczytane na przeczytane
+        ALREADY_READ, // Było już przeczytane - nic nie zmieniono
+        NOT_FOUND,    // Powiadomienie nie istnieje
+        FORBIDDEN     // Powiadomienie należy do innego użytkownika
+    }
+
+    public static MarkAsReadResult of(Outcome outcome) {
+        return new MarkAsReadResult(outcome, null);
+    }
+
+    public boolean isRead() {
+        return outcome == Outcome.MARKED || outcome == Outcome.ALREADY_READ;
+    }
+}
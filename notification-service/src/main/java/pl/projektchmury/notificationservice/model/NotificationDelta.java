@@ -0,0 +1,27 @@
+package pl.projektchmury.notificationservice.model;
+
+import java.util.List;
+
+// Zmiany w historii powiadomień od podanej chwili (GET /history?since=).
+// items - nowe powiadomienia (od najstarszego), readIds - powiadomienia oznaczone w tym czasie jako przeczytane
+// (stan przeczytania zmienia się tylko w jedną stronę, więc wystarczą same identyfikatory).
+// syncedAt - czas serwera, od którego klient pyta następnym razem (parametr "since").
+// truncated = true: zmian było więcej niż limit - klient powinien pobrać pierwszą stronę historii od nowa.
+// Okno zapytania zaczyna się nieco przed "since", więc elementy mogą się powtarzać - klient odrzuca je po notificationId.
+public record NotificationDelta(
+        List<NotificationRecord> items,
+        List<String> readIds,
+        long syncedAt,
+        boolean truncated
+) {
+
+    // Repozytorium zwraca do limit + 1 elementów - nadmiarowy oznacza, że zmian było więcej niż limit.
+    public static NotificationDelta of(List<NotificationRecord> items, List<String> readIds, int limit, long syncedAt) {
+        boolean truncated = items.size() > limit || readIds.size() > limit;
+        return new NotificationDelta(
+                items.size() > limit ? items.subList(0, limit) : items,
+                readIds.size() > limit ? readIds.subList(0, limit) : readIds,
+                syncedAt,
+                truncated);
+    }
+}
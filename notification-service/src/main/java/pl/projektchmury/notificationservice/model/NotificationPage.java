@@ -0,0 +1,12 @@
+package pl.projektchmury.notificationservice.model;
+
+import java.util.List;
+
+// Jedna strona historii powiadomień (GET /history).
+// nextCursor to nieprzezroczysty znacznik następnej strony - klient odsyła go w parametrze "cursor";
+// null oznacza, że starszych powiadomień już nie ma.
+public record NotificationPage(
+        List<NotificationRecord> items,
+        String nextCursor
+) {
+}
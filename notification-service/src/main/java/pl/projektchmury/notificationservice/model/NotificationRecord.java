@@ -1,9 +1,17 @@
 package pl.projektchmury.notificationservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore; // Pole techniczne - nie pokazujemy go w odpowiedziach API
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean; // Oznacza, że ta klasa Java mapuje się na tabelę/elementy DynamoDB
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey; // Oznacza pole jako klucz partycji tabeli DynamoDB
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey; // Oznacza pole jako klucz partycji dla Globalnego Indeksu Wtórnego (GSI)
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;     // Oznacza pole jako klucz sortowania dla GSI
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema; // Schemat tabeli zbudowany z jawnych getterów/setterów (bez refleksji)
+
+import java.util.List;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.secondaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.secondarySortKey;
 
 // Ta klasa to nasz "model" danych dla pojedynczego rekordu powiadomienia.
 // Adnotacja @DynamoDbBean mówi klientowi DynamoDB Enhanced, jak mapować
@@ -11,15 +19,112 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecon
 @DynamoDbBean
 public class NotificationRecord {
 
+    // Możliwe wartości pola status. PENDING - rekord zapisany, publikacja w SNS jeszcze trwa (NotificationPublisher).
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+    // Odbiorca nie ma żadnej subskrypcji SNS (SubscriptionRegistry) - powiadomienie jest tylko w historii, bez publikacji.
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    // Nazwy indeksów GSI tabeli (muszą zgadzać się z terraform/main.tf).
+    public static final String USER_ID_TIMESTAMP_INDEX = "userId-timestamp-index";
+    // Indeks "rzadki" (sparse): trafiają do niego tylko elementy z atrybutem unreadUserId, czyli nieprzeczytane.
+    public static final String UNREAD_USER_ID_TIMESTAMP_INDEX = "unread-userId-timestamp-index";
+    // Indeks rzadki zmian stanu przeczytania: tylko elementy z atrybutem updatedAt (ustawianym przy oznaczeniu
+    // jako przeczytane), posortowane po czasie zmiany - synchronizacja przyrostowa /history?since=.
+    public static final String USER_ID_UPDATED_AT_INDEX = "userId-updatedAt-index";
+    // Indeks rzadki rekordów czekających na publikację (PENDING) - tylko elementy z atrybutem pendingShard.
+    // Po nim PendingNotificationRetrier znajduje rekordy porzucone przez zamknięty albo awaryjnie zatrzymany węzeł.
+    public static final String PENDING_INDEX = "pendingShard-pendingSince-index";
+    // Liczba partycji indeksu PENDING - żeby przy dużym ruchu wszystkie nowe rekordy nie trafiały do jednej partycji.
+    public static final int PENDING_SHARDS = 4;
+
+    // Schemat tabeli używany przez repozytorium, budowany raz przy ładowaniu klasy.
+    // TableSchema.fromBean(NotificationRecord.class) buduje to samo przez refleksję (java.beans.Introspector
+    // i LambdaMetafactory dla każdego gettera/settera) przy pierwszym wywołaniu, czyli przy starcie serwisu.
+    // Tu gettery/settery są zwykłymi referencjami do metod, bez introspekcji. Adnotacje @DynamoDb* zostają jako opis
+    // modelu - NotificationRecordSchemaTest pilnuje, żeby oba schematy miały te same atrybuty i klucze.
+    // Pomiary: notification-service/benchmarks (TableSchemaStartupBenchmark, TableSchemaMappingBenchmark).
+    public static final StaticTableSchema<NotificationRecord> TABLE_SCHEMA = buildTableSchema();
+
+    private static StaticTableSchema<NotificationRecord> buildTableSchema() {
+        return StaticTableSchema.builder(NotificationRecord.class)
+                .newItemSupplier(NotificationRecord::new)
+                .addAttribute(String.class, a -> a.name("notificationId")
+                        .getter(NotificationRecord::getNotificationId)
+                        .setter(NotificationRecord::setNotificationId)
+                        .tags(primaryPartitionKey()))
+                .addAttribute(String.class, a -> a.name("userId")
+                        .getter(NotificationRecord::getUserId)
+                        .setter(NotificationRecord::setUserId)
+                        .tags(secondaryPartitionKey(List.of(USER_ID_TIMESTAMP_INDEX, USER_ID_UPDATED_AT_INDEX))))
+                .addAttribute(String.class, a -> a.name("type")
+                        .getter(NotificationRecord::getType)
+                        .setter(NotificationRecord::setType))
+                .addAttribute(String.class, a -> a.name("message")
+                        .getter(NotificationRecord::getMessage)
+                        .setter(NotificationRecord::setMessage))
+                .addAttribute(long.class, a -> a.name("timestamp")
+                        .getter(NotificationRecord::getTimestamp)
+                        .setter(NotificationRecord::setTimestamp)
+                        .tags(secondarySortKey(List.of(USER_ID_TIMESTAMP_INDEX, UNREAD_USER_ID_TIMESTAMP_INDEX))))
+                .addAttribute(String.class, a -> a.name("status")
+                        .getter(NotificationRecord::getStatus)
+                        .setter(NotificationRecord::setStatus))
+                .addAttribute(boolean.class, a -> a.name("readNotification")
+                        .getter(NotificationRecord::isReadNotification)
+                        .setter(NotificationRecord::setReadNotification))
+                .addAttribute(String.class, a -> a.name("relatedEntityId")
+                        .getter(NotificationRecord::getRelatedEntityId)
+                        .setter(NotificationRecord::setRelatedEntityId))
+                .addAttribute(String.class, a -> a.name("unreadUserId")
+                        .getter(NotificationRecord::getUnreadUserId)
+                        .setter(NotificationRecord::setUnreadUserId)
+                        .tags(secondaryPartitionKey(UNREAD_USER_ID_TIMESTAMP_INDEX)))
+                .addAttribute(Long.class, a -> a.name("version")
+                        .getter(NotificationRecord::getVersion)
+                        .setter(NotificationRecord::setVersion))
+                .addAttribute(Integer.class, a -> a.name("coalescedCount")
+                        .getter(NotificationRecord::getCoalescedCount)
+                        .setter(NotificationRecord::setCoalescedCount))
+                .addAttribute(Long.class, a -> a.name("expiresAt")
+                        .getter(NotificationRecord::getExpiresAt)
+                        .setter(NotificationRecord::setExpiresAt))
+                .addAttribute(Long.class, a -> a.name("updatedAt")
+                        .getter(NotificationRecord::getUpdatedAt)
+                        .setter(NotificationRecord::setUpdatedAt)
+                        .tags(secondarySortKey(USER_ID_UPDATED_AT_INDEX)))
+                .addAttribute(String.class, a -> a.name("pendingShard")
+                        .getter(NotificationRecord::getPendingShard)
+                        .setter(NotificationRecord::setPendingShard)
+                        .tags(secondaryPartitionKey(PENDING_INDEX)))
+                .addAttribute(Long.class, a -> a.name("pendingSince")
+                        .getter(NotificationRecord::getPendingSince)
+                        .setter(NotificationRecord::setPendingSince)
+                        .tags(secondarySortKey(PENDING_INDEX)))
+                .addAttribute(String.class, a -> a.name("subject")
+                        .getter(NotificationRecord::getSubject)
+                        .setter(NotificationRecord::setSubject))
+                .build();
+    }
+
     // Pola klasy odpowiadają atrybutom w tabeli DynamoDB.
     private String notificationId; // Unikalny identyfikator powiadomienia.
     private String userId;         // Identyfikator użytkownika (np. nick), do którego jest to powiadomienie.
     private String type;           // Typ powiadomienia (np. "NEW_MESSAGE", "SYSTEM_ALERT").
     private String message;        // Treść powiadomienia.
     private long timestamp;        // Czas utworzenia powiadomienia (jako liczba milisekund od epochy).
-    private String status;         // Status wysyłki (np. "SENT", "FAILED").
+    private String status;         // Status wysyłki ("PENDING", "SENT", "FAILED").
     private boolean readNotification = false; // Czy użytkownik przeczytał to powiadomienie? Domyślnie false.
     private String relatedEntityId; // Opcjonalny identyfikator powiązanego obiektu (np. ID wiadomości czatu, która wywołała to powiadomienie).
+    private String unreadUserId;   // Kopia userId, ustawiona tylko dopóki powiadomienie jest nieprzeczytane (klucz indeksu rzadkiego).
+    private Long version;          // Numer wersji rekordu (blokada optymistyczna), zwiększany przy każdej zmianie stanu.
+    private Integer coalescedCount; // Ile powiadomień scalono w to jedno (NotificationCoalescer); null = pojedyncze.
+    private Long expiresAt;        // Moment wygaśnięcia (sekundy od epochy) - atrybut TTL tabeli, zależny od typu powiadomienia.
+    private Long updatedAt;        // Czas ostatniej zmiany stanu przeczytania (ms od epochy); null = nigdy nie zmieniany.
+    private String pendingShard;   // Partycja indeksu PENDING; ustawiona tylko dopóki status = PENDING.
+    private Long pendingSince;     // Od kiedy (ms) rekord czeka na publikację - przy zapisie timestamp, przy przejęciu czas przejęcia.
+    private String subject;        // Temat wiadomości SNS - przechowywany tylko do czasu publikacji (potrzebny przy ponowieniu).
 
     // Getter dla notificationId.
     // @DynamoDbPartitionKey oznacza, że pole "notificationId" jest kluczem partycji (głównym kluczem)
@@ -38,7 +143,8 @@ public class NotificationRecord {
     // jest kluczem partycji dla Globalnego Indeksu Wtórnego (GSI) o nazwie "userId-timestamp-index".
     // GSI pozwala na efektywne wyszukiwanie elementów po innych atrybutach niż główny klucz partycji.
     // W tym przypadku, możemy szybko znaleźć wszystkie powiadomienia dla danego użytkownika.
-    @DynamoDbSecondaryPartitionKey(indexNames = "userId-timestamp-index")
+    // Ten sam atrybut jest kluczem partycji indeksu zmian "userId-updatedAt-index".
+    @DynamoDbSecondaryPartitionKey(indexNames = {USER_ID_TIMESTAMP_INDEX, USER_ID_UPDATED_AT_INDEX})
     public String getUserId() {
         return userId;
     }
@@ -63,11 +169,11 @@ public class NotificationRecord {
     }
 
     // Getter dla timestamp.
-    // @DynamoDbSecondarySortKey(indexNames = "userId-timestamp-index") oznacza, że pole "timestamp"
-    // jest kluczem sortowania dla GSI "userId-timestamp-index".
-    // W połączeniu z kluczem partycji GSI ("userId"), pozwala to na sortowanie powiadomień
+    // @DynamoDbSecondarySortKey(indexNames = ...) oznacza, że pole "timestamp"
+    // jest kluczem sortowania dla GSI "userId-timestamp-index" i "unread-userId-timestamp-index".
+    // W połączeniu z kluczem partycji GSI ("userId" / "unreadUserId"), pozwala to na sortowanie powiadomień
     // danego użytkownika po czasie ich utworzenia.
-    @DynamoDbSecondarySortKey(indexNames = "userId-timestamp-index")
+    @DynamoDbSecondarySortKey(indexNames = {USER_ID_TIMESTAMP_INDEX, UNREAD_USER_ID_TIMESTAMP_INDEX})
     public long getTimestamp() {
         return timestamp;
     }
@@ -96,4 +202,94 @@ public class NotificationRecord {
     public void setRelatedEntityId(String relatedEntityId) {
         this.relatedEntityId = relatedEntityId;
     }
+
+    // Klucz partycji indeksu rzadkiego nieprzeczytanych. Przy oznaczeniu jako przeczytane atrybut jest usuwany
+    // (REMOVE), więc element znika z indeksu - zapytanie o nieprzeczytane czyta tylko nieprzeczytane.
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = UNREAD_USER_ID_TIMESTAMP_INDEX)
+    public String getUnreadUserId() {
+        return unreadUserId;
+    }
+    public void setUnreadUserId(String unreadUserId) {
+        this.unreadUserId = unreadUserId;
+    }
+
+    // Wersja rekordu: 1 przy utworzeniu, +1 przy każdym UpdateItem (status wysyłki, przeczytanie, przejęcie PENDING).
+    // Celowo bez @DynamoDbVersionAttribute - rozszerzenie VersionedRecordExtension dodaje warunek do każdego PutItem,
+    // a BatchWriteItem (saveAll) nie obsługuje warunków.
+    // Warunek #version = :expectedVersion mają tylko zapisy typu odczyt-modyfikacja-zapis, które decydują na podstawie
+    // wcześniej odczytanego stanu: przejęcie porzuconego PENDING (claimPending) i oznaczenie starego rekordu bez
+    // unreadUserId jako przeczytanego. Pozostałe UpdateItem są przejściami stanu z warunkiem na sam zmieniany atrybut
+    // (status = :expectedStatus, unreadUserId = :userId) - nie nadpisują niczego, co ktoś zmienił od odczytu.
+    // null = rekord sprzed wprowadzenia wersji (if_not_exists w UpdateItem traktuje go jak wersję 0).
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getCoalescedCount() {
+        return coalescedCount;
+    }
+    public void setCoalescedCount(Integer coalescedCount) {
+        this.coalescedCount = coalescedCount;
+    }
+
+    // Atrybut TTL tabeli (terraform: ttl { attribute_name = "expiresAt" }). DynamoDB usuwa element w ciągu
+    // kilku dni po tym czasie, bez zużycia WCU. Wartość w SEKUNDACH od epochy (wymóg TTL), w odróżnieniu od timestamp.
+    // Przed usunięciem rekord trafia do archiwum (NotificationArchiver). null = rekord nie wygasa (sprzed retencji).
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+    public void setExpiresAt(Long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    // Klucz sortowania indeksu rzadkiego userId-updatedAt-index. Ustawiany przez UpdateItem przy oznaczeniu jako
+    // przeczytane (nie przy zapisie rekordu), więc w indeksie są tylko rekordy ze zmienionym stanem - zapytanie
+    // "co zmieniło się od X" czyta same zmiany. Czas w MILISEKUNDACH, jak timestamp.
+    @JsonIgnore
+    @DynamoDbSecondarySortKey(indexNames = USER_ID_UPDATED_AT_INDEX)
+    public Long getUpdatedAt() {
+        return updatedAt;
+    }
+    public void setUpdatedAt(Long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    // Partycja indeksu rzadkiego PENDING. UpdateItem zmieniający status z PENDING usuwa ten atrybut (REMOVE),
+    // więc w indeksie zostają tylko rekordy, które wciąż czekają na publikację.
+    @JsonIgnore
+    @DynamoDbSecondaryPartitionKey(indexNames = PENDING_INDEX)
+    public String getPendingShard() {
+        return pendingShard;
+    }
+    public void setPendingShard(String pendingShard) {
+        this.pendingShard = pendingShard;
+    }
+
+    @JsonIgnore
+    @DynamoDbSecondarySortKey(indexNames = PENDING_INDEX)
+    public Long getPendingSince() {
+        return pendingSince;
+    }
+    public void setPendingSince(Long pendingSince) {
+        this.pendingSince = pendingSince;
+    }
+
+    @JsonIgnore
+    public String getSubject() {
+        return subject;
+    }
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    // Oznacza rekord jako czekający na publikację: trafia do indeksu PENDING (partycja wg notificationId).
+    public void markPending(String subject) {
+        this.pendingShard = Integer.toString(Math.floorMod(notificationId.hashCode(), PENDING_SHARDS));
+        this.pendingSince = timestamp;
+        this.subject = subject;
+    }
 }
@@ -0,0 +1,35 @@
+package pl.projektchmury.notificationservice.model;
+
+import java.util.Map;
+
+// Pojedyncze żądanie utworzenia powiadomienia - to samo, co przychodzi w ciele POST /send,
+// ale jako niezmienny obiekt, żeby można było przekazać całą listę do wysyłki wsadowej (POST /send-batch).
+public record NotificationRequest(
+        String targetUserId,    // Użytkownik (nick), do którego jest powiadomienie.
+        String type,            // Typ powiadomienia (np. "NEW_MESSAGE").
+        String subject,         // Temat (używany przez SNS).
+        String message,         // Treść powiadomienia.
+        String relatedEntityId, // Opcjonalny identyfikator powiązanego obiektu (np. ID wiadomości czatu).
+        String senderId,        // Opcjonalny nadawca (nick) - klucz scalania serii powiadomień (NotificationCoalescer).
+        Integer coalescedCount  // Liczba scalonych powiadomień; null dla zwykłego powiadomienia.
+) {
+
+    // Tworzy żądanie z mapy w takim samym formacie jak payload endpointu /send.
+    public static NotificationRequest fromPayload(Map<String, String> payload) {
+        return new NotificationRequest(
+                payload.get("targetUserId"),
+                payload.getOrDefault("type", "UNDEFINED"),
+                payload.get("subject"),
+                payload.get("message"),
+                payload.get("relatedEntityId"),
+                payload.get("senderId"),
+                null
+        );
+    }
+
+    // Te same reguły co w /send: odbiorca i treść są wymagane.
+    public boolean isValid() {
+        return targetUserId != null && !targetUserId.isEmpty() &&
+                message != null && !message.isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package pl.projektchmury.notificationservice.model;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey; // Klucz sortowania tabeli (ARN subskrypcji)
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primarySortKey;
+
+// Subskrypcja SNS jednego użytkownika (np. adres e-mail), z FilterPolicy na jego nick.
+// Tabela notification-subscriptions: klucz partycji userId, klucz sortowania subscriptionArn -
+// jedno Query zwraca wszystkie subskrypcje użytkownika.
+@DynamoDbBean
+public class NotificationSubscription {
+
+    // Schemat statyczny budowany raz (bez refleksji TableSchema.fromBean) - jak NotificationRecord.TABLE_SCHEMA.
+    public static final StaticTableSchema<NotificationSubscription> TABLE_SCHEMA = buildTableSchema();
+
+    private static StaticTableSchema<NotificationSubscription> buildTableSchema() {
+        return StaticTableSchema.builder(NotificationSubscription.class)
+                .newItemSupplier(NotificationSubscription::new)
+                .addAttribute(String.class, a -> a.name("userId")
+                        .getter(NotificationSubscription::getUserId)
+                        .setter(NotificationSubscription::setUserId)
+                        .tags(primaryPartitionKey()))
+                .addAttribute(String.class, a -> a.name("subscriptionArn")
+                        .getter(NotificationSubscription::getSubscriptionArn)
+                        .setter(NotificationSubscription::setSubscriptionArn)
+                        .tags(primarySortKey()))
+                .addAttribute(String.class, a -> a.name("protocol")
+                        .getter(NotificationSubscription::getProtocol)
+                        .setter(NotificationSubscription::setProtocol))
+                .addAttribute(String.class, a -> a.name("endpoint")
+                        .getter(NotificationSubscription::getEndpoint)
+                        .setter(NotificationSubscription::setEndpoint))
+                .addAttribute(long.class, a -> a.name("createdAt")
+                        .getter(NotificationSubscription::getCreatedAt)
+                        .setter(NotificationSubscription::setCreatedAt))
+                .build();
+    }
+
+    private String userId;          // Nick użytkownika, którego powiadomienia dostaje endpoint.
+    private String subscriptionArn; // ARN subskrypcji SNS (dla e-mail do potwierdzenia: "pending confirmation" ARN).
+    private String protocol;        // Protokół SNS ("email", "sms", "https", ...).
+    private String endpoint;        // Adres endpointu (e-mail, numer, URL).
+    private long createdAt;         // Czas utworzenia (milisekundy od epochy).
+
+    @DynamoDbPartitionKey
+    public String getUserId() {
+        return userId;
+    }
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    @DynamoDbSortKey
+    public String getSubscriptionArn() {
+        return subscriptionArn;
+    }
+    public void setSubscriptionArn(String subscriptionArn) {
+        this.subscriptionArn = subscriptionArn;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+    public void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+}
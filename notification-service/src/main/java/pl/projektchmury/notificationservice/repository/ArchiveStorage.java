@@ -0,0 +1,23 @@
+package pl.projektchmury.notificationservice.repository;
+
+import java.io.IOException; // Błędy zapisu/odczytu obiektów archiwum
+import java.io.InputStream; // Strumień do czytania zapisanego obiektu
+import java.nio.file.Path; // Plik tymczasowy z gotowym segmentem
+
+// Magazyn archiwum powiadomień - obiekty identyfikowane kluczem w stylu S3 ("notifications/expires=2025-01-31/user-bucket=07/part-00000.ndjson.gz").
+// Implementacje: S3ArchiveStorage (AWS) i LocalArchiveStorage (katalog na dysku - lokalnie i w docker-compose),
+// wybierane właściwością app.notifications.archive.storage.
+public interface ArchiveStorage {
+
+    // Zapisuje (albo nadpisuje) obiekt zawartością pliku.
+    void put(String key, Path file) throws IOException;
+
+    // Zapisuje (albo nadpisuje) mały obiekt tekstowy (np. manifest).
+    void putText(String key, String content) throws IOException;
+
+    // Czy obiekt o tym kluczu istnieje.
+    boolean exists(String key) throws IOException;
+
+    // Otwiera obiekt do odczytu. Wywołujący zamyka strumień.
+    InputStream open(String key) throws IOException;
+}
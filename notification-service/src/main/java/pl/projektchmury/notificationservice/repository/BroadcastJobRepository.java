@@ -0,0 +1,22 @@
+package pl.projektchmury.notificationservice.repository;
+
+import pl.projektchmury.notificationservice.model.BroadcastJob;
+
+import java.util.List;
+import java.util.Optional;
+
+// Zadania wysyłki do wszystkich użytkowników (BroadcastService) - stan, postęp i punkt wznowienia.
+public interface BroadcastJobRepository {
+
+    // Zapisuje nowe zadanie (version = 0). Rzuca IllegalStateException, jeśli zadanie o tym ID już istnieje.
+    void create(BroadcastJob job);
+
+    Optional<BroadcastJob> findById(String broadcastId);
+
+    // Wszystkie zadania (tabela ma pojedyncze elementy na wysyłkę - czytana w całości).
+    List<BroadcastJob> findAll();
+
+    // Zapisuje zadanie, tylko jeśli w bazie nadal jest wersja expectedVersion, i ustawia version = expectedVersion + 1.
+    // false = ktoś zmienił zadanie w międzyczasie (anulowanie, inna instancja) - wywołujący czyta je ponownie.
+    boolean replace(BroadcastJob job, long expectedVersion);
+}
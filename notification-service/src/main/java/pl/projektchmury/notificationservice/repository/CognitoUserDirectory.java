@@ -0,0 +1,66 @@
+package pl.projektchmury.notificationservice.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.InvalidParameterException;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.ListUsersResponse;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserType;
+
+import java.util.List;
+
+// ListUsers w puli Cognito - tylko aktywni użytkownicy (status "Enabled"), bez atrybutów profilu.
+// ListUsers ma własny limit wywołań na sekundę dla całej puli (wspólny z logowaniem i auth-service),
+// dlatego wywołujący (BroadcastService) odpytuje go w stałym tempie.
+@Repository
+public class CognitoUserDirectory implements UserDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(CognitoUserDirectory.class);
+
+    // Maksymalny rozmiar strony ListUsers.
+    static final int MAX_PAGE_SIZE = 60;
+
+    private final CognitoIdentityProviderClient cognitoClient;
+    private final String userPoolId;
+
+    public CognitoUserDirectory(CognitoIdentityProviderClient cognitoClient,
+                                @Value("${aws.cognito.userPoolId}") String userPoolId) {
+        this.cognitoClient = cognitoClient;
+        this.userPoolId = userPoolId;
+    }
+
+    @Override
+    public UserPage listUsers(String pageToken, int limit) {
+        try {
+            ListUsersResponse response = cognitoClient.listUsers(request -> request
+                    .userPoolId(userPoolId)
+                    .limit(Math.min(limit, MAX_PAGE_SIZE))
+                    .paginationToken(pageToken)
+                    .filter("status = \"Enabled\"")
+                    .attributesToGet("sub")); // Potrzebujemy tylko nazwy użytkownika - "sub" zamiast wszystkich atrybutów
+            List<String> userIds = response.users().stream().map(UserType::username).toList();
+            String next = response.paginationToken();
+            return new UserPage(userIds, (next == null || next.isEmpty()) ? null : next);
+        } catch (InvalidParameterException e) {
+            throw new IllegalArgumentException("Invalid or expired user directory page token", e);
+        } catch (SdkException e) {
+            logger.error("Error listing users of pool {}: {}", userPoolId, e.getMessage(), e);
+            throw new RuntimeException("Error reading user directory from Cognito", e);
+        }
+    }
+
+    @Override
+    public long estimatedSize() {
+        try {
+            Integer estimated = cognitoClient.describeUserPool(request -> request.userPoolId(userPoolId))
+                    .userPool().estimatedNumberOfUsers();
+            return (estimated != null) ? estimated : -1;
+        } catch (SdkException e) {
+            logger.warn("Could not read estimated size of pool {}: {}", userPoolId, e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pl.projektchmury.notificationservice.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import pl.projektchmury.notificationservice.model.BroadcastJob;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Repository
+public class DynamoDbBroadcastJobRepository implements BroadcastJobRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDbBroadcastJobRepository.class);
+
+    private final DynamoDbTable<BroadcastJob> broadcastTable;
+
+    public DynamoDbBroadcastJobRepository(DynamoDbEnhancedClient enhancedClient,
+                                          @Value("${aws.dynamodb.table-name.notification-broadcasts}") String tableName) {
+        this.broadcastTable = enhancedClient.table(tableName, BroadcastJob.TABLE_SCHEMA);
+    }
+
+    @Override
+    public void create(BroadcastJob job) {
+        job.setVersion(0L);
+        try {
+            broadcastTable.putItem(PutItemEnhancedRequest.builder(BroadcastJob.class)
+                    .item(job)
+                    .conditionExpression(Expression.builder().expression("attribute_not_exists(broadcastId)").build())
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            throw new IllegalStateException("Broadcast " + job.getBroadcastId() + " already exists", e);
+        } catch (DynamoDbException e) {
+            logger.error("Error saving broadcast {}: {}", job.getBroadcastId(), e.getMessage(), e);
+            throw new RuntimeException("Error saving broadcast job to DynamoDB", e);
+        }
+    }
+
+    @Override
+    public Optional<BroadcastJob> findById(String broadcastId) {
+        try {
+            return Optional.ofNullable(broadcastTable.getItem(Key.builder().partitionValue(broadcastId).build()));
+        } catch (DynamoDbException e) {
+            logger.error("Error finding broadcast {}: {}", broadcastId, e.getMessage(), e);
+            throw new RuntimeException("Error reading broadcast job from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public List<BroadcastJob> findAll() {
+        try {
+            return broadcastTable.scan().items().stream().toList();
+        } catch (DynamoDbException e) {
+            logger.error("Error listing broadcasts: {}", e.getMessage(), e);
+            throw new RuntimeException("Error reading broadcast jobs from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public boolean replace(BroadcastJob job, long expectedVersion) {
+        job.setVersion(expectedVersion + 1);
+        try {
+            broadcastTable.putItem(PutItemEnhancedRequest.builder(BroadcastJob.class)
+                    .item(job)
+                    .conditionExpression(Expression.builder()
+                            .expression("#version = :expected")
+                            .expressionNames(Map.of("#version", "version"))
+                            .expressionValues(Map.of(":expected", AttributeValue.fromN(Long.toString(expectedVersion))))
+                            .build())
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            job.setVersion(expectedVersion);
+            return false;
+        } catch (DynamoDbException e) {
+            job.setVersion(expectedVersion);
+            logger.error("Error updating broadcast {}: {}", job.getBroadcastId(), e.getMessage(), e);
+            throw new RuntimeException("Error updating broadcast job in DynamoDB", e);
+        }
+    }
+}
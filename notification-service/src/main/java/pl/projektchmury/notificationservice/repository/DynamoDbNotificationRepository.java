@@ -5,22 +5,53 @@ import org.slf4j.LoggerFactory; // Do tworzenia loggera
 import org.springframework.beans.factory.annotation.Autowired; // Do wstrzykiwania zależności przez Springa
 import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania wartości z konfiguracji
 import org.springframework.stereotype.Repository; // Oznacza, że ta klasa jest komponentem repozytorium (dostęp do danych)
+import pl.projektchmury.notificationservice.model.MarkAsReadResult; // Wynik oznaczenia jako przeczytane
+import pl.projektchmury.notificationservice.model.NotificationPage; // Strona historii z kursorem
 import pl.projektchmury.notificationservice.model.NotificationRecord; // Nasz model danych
-import software.amazon.awssdk.core.pagination.sync.SdkIterable; // Do obsługi paginowanych wyników z DynamoDB
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex; // Indeks GSI w kliencie asynchronicznym
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable; // Tabela w kliencie asynchronicznym
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient; // Asynchroniczny klient Enhanced
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient; // "Ulepszony" klient DynamoDB
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex; // Reprezentuje indeks (GSI) tabeli DynamoDB
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable; // Reprezentuje tabelę DynamoDB, z którą pracujemy
+import software.amazon.awssdk.enhanced.dynamodb.Expression; // Wyrażenie filtra (FilterExpression) dla Scan
 import software.amazon.awssdk.enhanced.dynamodb.Key; // Do tworzenia kluczy (np. do wyszukiwania po ID)
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema; // Definiuje schemat tabeli dla mapowania obiektów Java
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest; // Żądanie zapisu wielu elementów naraz (BatchWriteItem)
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult; // Wynik BatchWriteItem (w tym elementy nieprzetworzone)
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch; // Paczka zapisów dla jednej tabeli w ramach BatchWriteItem
 import software.amazon.awssdk.enhanced.dynamodb.model.Page; // Strona wyników z zapytania DynamoDB
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest; // PutItem z warunkiem (saveAllIfAbsent)
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional; // Warunek dla zapytania DynamoDB (np. "klucz partycji równy X")
 import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest; // Obiekt reprezentujący zapytanie do DynamoDB
-// import software.amazon.awssdk.services.dynamodb.model.AttributeValue; // Nie jest tu bezpośrednio używany, ale jest częścią SDK
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest; // Przeszukanie całej tabeli (archiwizacja)
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient; // Asynchroniczny klient DynamoDB (równoległe UpdateItem bez wątku na żądanie)
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient; // Podstawowy klient DynamoDB (do UpdateItem na pojedynczym atrybucie)
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue; // Wartość atrybutu w żądaniach niskopoziomowego klienta
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException; // Warunek zapisu (ConditionExpression) nie został spełniony
 import software.amazon.awssdk.services.dynamodb.model.DynamoDbException; // Wyjątek specyficzny dla operacji DynamoDB
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest; // Odczyt pojedynczego elementu (licznik)
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse; // Odpowiedź GetItem (element licznika)
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue; // Co UpdateItem ma zwrócić (np. ALL_NEW - stan po zmianie)
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure; // Stan elementu zwracany przy niespełnionym warunku
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest; // Żądanie częściowej aktualizacji elementu
 
+import java.nio.charset.StandardCharsets; // Kodowanie tekstu kursora
+import java.util.ArrayList; // Lista modyfikowalna (do zbierania nieprzetworzonych elementów)
+import java.util.Base64; // Kodowanie kursora w formie bezpiecznej dla URL
 import java.util.Collections; // Do tworzenia pustych list
+import java.util.HashMap; // Wartości wyrażenia zależne od tego, czy rekord ma wersję
 import java.util.List; // Interfejs listy
+import java.util.Map; // Mapy atrybutów w żądaniach niskopoziomowych
 import java.util.Optional; // Do obsługi opcjonalnych wartości
-import java.util.stream.Collectors; // Do pracy ze strumieniami Java (np. do transformacji list)
+import java.util.concurrent.CompletableFuture; // Równoległe aktualizacje w markAllAsRead
+import java.util.concurrent.CompletionException; // Błąd zadania z CompletableFuture
+import java.util.concurrent.Semaphore; // Limit równoczesnych aktualizacji w toku
+import java.util.concurrent.TimeUnit; // Jednostki czasu
+import java.util.concurrent.atomic.AtomicLong; // Następny wolny "slot" zapisu przy dławieniu
+import java.util.concurrent.atomic.AtomicReference; // Pierwsza strona wyniku zapytania asynchronicznego
+import java.util.concurrent.locks.LockSupport; // Czekanie na slot zapisu
+import java.util.function.Consumer; // Odbiorca rekordów przy strumieniowym Scan
+import java.util.stream.Collectors; // Grupowanie nieprzeczytanych po użytkowniku
 
 @Repository // Mówi Springowi: "To jest komponent repozytorium, zarządzaj nim."
 // Odpowiada za bezpośrednią interakcję z bazą danych (w tym przypadku DynamoDB).
@@ -33,39 +64,627 @@ public class DynamoDbNotificationRepository implements NotificationRepository {
     // obiekty NotificationRecord na elementy tej tabeli.
     private final DynamoDbTable<NotificationRecord> notificationTable;
 
+    // Globalny indeks wtórny (GSI) userId-timestamp-index tej samej tabeli - do historii użytkownika.
+    // Nazwy indeksów są stałymi w NotificationRecord, żeby nie robić literówek w kodzie.
+    private final DynamoDbIndex<NotificationRecord> userIdTimestampIndex;
+
     // "Ulepszony" klient DynamoDB, wstrzyknięty przez Springa (z DynamoDbConfig).
     // Potrzebny do bardziej zaawansowanych operacji, jak zapytania na indeksach.
     private final DynamoDbEnhancedClient enhancedClient;
 
-    // Stała przechowująca nazwę naszego Globalnego Indeksu Wtórnego (GSI).
-    // Używamy jej, żeby nie robić literówek w kodzie.
-    private static final String USER_ID_TIMESTAMP_INDEX = "userId-timestamp-index";
+    // Niskopoziomowy klient - klient Enhanced przy updateItem zapisuje cały obiekt (łącznie z polami prymitywnymi),
+    // a do zmiany statusu potrzebujemy aktualizacji jednego atrybutu z warunkiem.
+    private final DynamoDbClient dynamoDbClient;
+
+    // Ta sama tabela i indeksy w kliencie asynchronicznym - zapytania strumienia SSE (NotificationStreamRegistry)
+    // i metody *Async wywoływane przez kontroler, gdy wątek żądania ma nie czekać na DynamoDB.
+    private final DynamoDbAsyncTable<NotificationRecord> notificationAsyncTable;
+    private final DynamoDbAsyncIndex<NotificationRecord> userIdTimestampAsyncIndex;
+    private final DynamoDbAsyncIndex<NotificationRecord> unreadAsyncIndex;
+    private final DynamoDbAsyncIndex<NotificationRecord> updatedAtAsyncIndex;
+
+    // Indeks rzadki z samymi nieprzeczytanymi powiadomieniami (klucz partycji: unreadUserId).
+    private final DynamoDbIndex<NotificationRecord> unreadIndex;
+
+    // Indeks rzadki rekordów PENDING (klucz partycji: pendingShard, sortowanie: pendingSince).
+    private final DynamoDbIndex<NotificationRecord> pendingIndex;
+
+    // Tabela liczników: jeden element na użytkownika {userId, unreadCount}, zmieniany przez UpdateItem ADD.
+    private final String countersTableName;
+
+    // Atrybuty zwracane w historii powiadomień (ProjectionExpression) - to, czego potrzebuje dzwonek na frontendzie.
+    private static final String[] HISTORY_ATTRIBUTES = {
+            "notificationId", "userId", "type", "message", "timestamp", "readNotification", "relatedEntityId", "coalescedCount"
+    };
+
+    // DynamoDB przyjmuje maksymalnie 25 elementów w jednym wywołaniu BatchWriteItem.
+    private static final int MAX_BATCH_WRITE_ITEMS = 25;
+
+    // Ile razy ponawiamy zapis elementów, których DynamoDB nie przetworzyło (np. przy dławieniu przepustowości).
+    private static final int MAX_UNPROCESSED_RETRIES = 5;
+
+    // Fragment UpdateExpression zwiększający wersję rekordu (rekordy sprzed wersjonowania zaczynają od 0).
+    private static final String INCREMENT_VERSION = "#version = if_not_exists(#version, :zero) + :one";
+
+    // Rekord, który przestaje być PENDING, wypada z indeksu PENDING; temat SNS nie jest już potrzebny.
+    private static final String REMOVE_PENDING = " REMOVE pendingShard, pendingSince, subject";
+
+    // Atrybuty potrzebne do ponownej publikacji porzuconego rekordu (projekcja indeksu PENDING w terraform/main.tf).
+    private static final String[] PENDING_ATTRIBUTES = {
+            "notificationId", "userId", "type", "message", "subject", "version", "pendingSince"
+    };
+
+    // Fragment UpdateExpression przy zmianie stanu przeczytania - rekord trafia do indeksu zmian (userId-updatedAt-index).
+    private static final String SET_UPDATED_AT = "updatedAt = :now";
+
+    // Ile razy ponawiamy oznaczenie starego rekordu (bez unreadUserId), gdy jego wersja zmienia się między próbami.
+    private static final int MAX_LEGACY_MARK_ATTEMPTS = 3;
+
+    // Rozmiar strony indeksu nieprzeczytanych przy markAllAsRead.
+    private static final int MARK_ALL_PAGE_SIZE = 100;
+
+    // Klient asynchroniczny dla równoległych UpdateItem w markAllAsRead: żądanie w toku nie zajmuje wątku,
+    // a liczbę żądań w toku ogranicza semafor (wspólny dla całej instancji). Dodatkowo dławienie zapisów
+    // (odstęp między kolejnymi zapisami).
+    private final DynamoDbAsyncClient dynamoDbAsyncClient;
+    private final Semaphore bulkWritePermits;
+    private final long bulkWriteIntervalNanos;
+    private final AtomicLong nextBulkWriteSlot = new AtomicLong(System.nanoTime());
 
     @Autowired // Spring wstrzyknie tutaj zależności: enhancedClient i tableName.
     public DynamoDbNotificationRepository(DynamoDbEnhancedClient enhancedClient,
+                                          DynamoDbClient dynamoDbClient,
+                                          DynamoDbAsyncClient dynamoDbAsyncClient,
+                                          DynamoDbEnhancedAsyncClient enhancedAsyncClient,
                                           // Wstrzyknij nazwę tabeli DynamoDB z pliku application.properties.
-                                          @Value("${aws.dynamodb.table-name.notification-history}") String tableName) {
+                                          @Value("${aws.dynamodb.table-name.notification-history}") String tableName,
+                                          @Value("${aws.dynamodb.table-name.notification-counters}") String countersTableName,
+                                          @Value("${app.notifications.mark-all-read.concurrency:8}") int bulkWriteConcurrency,
+                                          @Value("${app.notifications.mark-all-read.max-writes-per-second:200}") int maxBulkWritesPerSecond) {
         this.enhancedClient = enhancedClient; // Przypisz wstrzykniętego klienta.
+        this.dynamoDbClient = dynamoDbClient;
         // Utwórz obiekt DynamoDbTable, który będzie reprezentował naszą tabelę.
         // enhancedClient.table(...) bierze nazwę tabeli i schemat (jak mapować obiekty Java na tabelę).
-        // TableSchema.fromBean(NotificationRecord.class) automatycznie tworzy schemat na podstawie adnotacji
-        // w klasie NotificationRecord (np. @DynamoDbPartitionKey).
-        this.notificationTable = enhancedClient.table(tableName, TableSchema.fromBean(NotificationRecord.class));
+        // NotificationRecord.TABLE_SCHEMA to gotowy, niezmienny schemat statyczny (bez refleksji) - tabela i oba indeksy
+        // są tworzone raz tutaj i współdzielone przez wszystkie zapytania.
+        this.notificationTable = enhancedClient.table(tableName, NotificationRecord.TABLE_SCHEMA);
+        this.userIdTimestampIndex = notificationTable.index(NotificationRecord.USER_ID_TIMESTAMP_INDEX);
+        this.unreadIndex = notificationTable.index(NotificationRecord.UNREAD_USER_ID_TIMESTAMP_INDEX);
+        this.pendingIndex = notificationTable.index(NotificationRecord.PENDING_INDEX);
+        this.notificationAsyncTable = enhancedAsyncClient.table(tableName, NotificationRecord.TABLE_SCHEMA);
+        this.userIdTimestampAsyncIndex = notificationAsyncTable.index(NotificationRecord.USER_ID_TIMESTAMP_INDEX);
+        this.unreadAsyncIndex = notificationAsyncTable.index(NotificationRecord.UNREAD_USER_ID_TIMESTAMP_INDEX);
+        this.updatedAtAsyncIndex = notificationAsyncTable.index(NotificationRecord.USER_ID_UPDATED_AT_INDEX);
+        this.countersTableName = countersTableName;
+        this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+        this.bulkWritePermits = new Semaphore(bulkWriteConcurrency);
+        this.bulkWriteIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxBulkWritesPerSecond;
     }
 
     @Override // Implementacja metody save z interfejsu NotificationRepository.
     public NotificationRecord save(NotificationRecord record) {
         try {
-            // Zapisz (lub zaktualizuj, jeśli element o tym samym kluczu głównym istnieje)
-            // obiekt 'record' jako element w tabeli DynamoDB.
+            // Zapisz obiekt 'record' jako element w tabeli DynamoDB.
             notificationTable.putItem(record);
             logger.info("Successfully saved notification record: {}", record.getNotificationId());
-            return record; // Zwróć zapisany obiekt.
         } catch (DynamoDbException e) { // Złap błąd, jeśli coś poszło nie tak z DynamoDB.
             logger.error("Error saving notification record {}: {}", record.getNotificationId(), e.getMessage(), e);
             // Rzuć wyjątek RuntimeException, żeby zasygnalizować problem wyżej.
             throw new RuntimeException("Error saving notification record to DynamoDB", e);
         }
+        if (record.getUnreadUserId() != null) {
+            addToUnreadCount(record.getUnreadUserId(), 1); // Nowe nieprzeczytane powiadomienie
+        }
+        return record; // Zwróć zapisany obiekt.
+    }
+
+    @Override // To samo co save(): PutItem, a po nim ADD na liczniku - bez blokowania wątku.
+    public CompletableFuture<NotificationRecord> saveAsync(NotificationRecord record) {
+        return notificationAsyncTable.putItem(record)
+                .exceptionally(error -> {
+                    Throwable cause = unwrap(error);
+                    logger.error("Error saving notification record {}: {}", record.getNotificationId(), cause.getMessage(), cause);
+                    throw new RuntimeException("Error saving notification record to DynamoDB", cause);
+                })
+                .thenCompose(ignored -> record.getUnreadUserId() != null
+                        ? addToUnreadCountAsync(record.getUnreadUserId(), 1)
+                        : CompletableFuture.<Void>completedFuture(null))
+                .thenApply(ignored -> {
+                    logger.info("Successfully saved notification record: {}", record.getNotificationId());
+                    return record;
+                });
+    }
+
+    @Override // Implementacja metody saveAll - zapis wsadowy przez BatchWriteItem.
+    public List<NotificationRecord> saveAll(List<NotificationRecord> records) {
+        // Dzielimy listę na paczki po 25 elementów (limit BatchWriteItem).
+        for (int from = 0; from < records.size(); from += MAX_BATCH_WRITE_ITEMS) {
+            List<NotificationRecord> chunk = records.subList(from, Math.min(from + MAX_BATCH_WRITE_ITEMS, records.size()));
+            writeChunk(chunk);
+        }
+        logger.info("Successfully batch-saved {} notification records", records.size());
+
+        // Jeden UpdateItem ADD na użytkownika zamiast jednego na powiadomienie.
+        Map<String, Long> unreadPerUser = records.stream()
+                .filter(record -> record.getUnreadUserId() != null)
+                .collect(Collectors.groupingBy(NotificationRecord::getUnreadUserId, Collectors.counting()));
+        unreadPerUser.forEach(this::addToUnreadCount);
+        return records;
+    }
+
+    @Override // BatchWriteItem nie obsługuje warunków - równoległe PutItem z attribute_not_exists przez klienta asynchronicznego.
+    public List<NotificationRecord> saveAllIfAbsent(List<NotificationRecord> records) {
+        Expression absent = Expression.builder().expression("attribute_not_exists(notificationId)").build();
+        List<CompletableFuture<Boolean>> puts = new ArrayList<>(records.size());
+        for (NotificationRecord record : records) {
+            puts.add(notificationAsyncTable.putItem(PutItemEnhancedRequest.builder(NotificationRecord.class)
+                            .item(record)
+                            .conditionExpression(absent)
+                            .build())
+                    .handle((response, error) -> {
+                        if (error == null) {
+                            return true;
+                        }
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof ConditionalCheckFailedException) {
+                            return false; // Rekord już jest - zostawiamy go bez zmian
+                        }
+                        throw new RuntimeException("Error saving notification record to DynamoDB", cause);
+                    }));
+        }
+        // Liczniki zwiększamy także wtedy, gdy część zapisów się nie udała - przy ponowieniu zapisane rekordy
+        // nie przejdą już warunku, więc nie zostaną policzone drugi raz.
+        List<NotificationRecord> saved = new ArrayList<>(records.size());
+        RuntimeException failure = null;
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                if (puts.get(i).join()) {
+                    saved.add(records.get(i));
+                }
+            } catch (CompletionException e) {
+                Throwable cause = unwrap(e);
+                logger.error("Error saving notification record {}: {}", records.get(i).getNotificationId(), cause.getMessage(), cause);
+                if (failure == null) {
+                    failure = (cause instanceof RuntimeException runtime) ? runtime : new RuntimeException(cause);
+                }
+            }
+        }
+        saved.stream()
+                .filter(record -> record.getUnreadUserId() != null)
+                .collect(Collectors.groupingBy(NotificationRecord::getUnreadUserId, Collectors.counting()))
+                .forEach(this::addToUnreadCount);
+        if (failure != null) {
+            throw failure;
+        }
+        logger.info("Saved {} of {} notification records (existing ones skipped)", saved.size(), records.size());
+        return saved;
+    }
+
+    // Zapisuje jedną paczkę (max 25 elementów). DynamoDB może zwrócić część elementów jako "unprocessed"
+    // (np. przy przekroczeniu przepustowości) - te ponawiamy z rosnącym odstępem czasu (exponential backoff).
+    private void writeChunk(List<NotificationRecord> chunk) {
+        List<NotificationRecord> pending = chunk;
+        for (int attempt = 0; !pending.isEmpty(); attempt++) {
+            if (attempt > MAX_UNPROCESSED_RETRIES) {
+                logger.error("Giving up on {} unprocessed notification records after {} retries", pending.size(), MAX_UNPROCESSED_RETRIES);
+                throw new RuntimeException("Error batch-saving notification records to DynamoDB: unprocessed items left");
+            }
+            if (attempt > 0) {
+                sleepBeforeRetry(attempt);
+            }
+            try {
+                WriteBatch.Builder<NotificationRecord> writeBatch = WriteBatch.builder(NotificationRecord.class)
+                        .mappedTableResource(notificationTable); // Wszystkie zapisy idą do tabeli historii powiadomień.
+                pending.forEach(writeBatch::addPutItem);
+
+                BatchWriteResult result = enhancedClient.batchWriteItem(BatchWriteItemEnhancedRequest.builder()
+                        .writeBatches(writeBatch.build())
+                        .build());
+                pending = new ArrayList<>(result.unprocessedPutItemsForTable(notificationTable));
+                if (!pending.isEmpty()) {
+                    logger.warn("BatchWriteItem left {} unprocessed notification records (attempt {})", pending.size(), attempt + 1);
+                }
+            } catch (DynamoDbException e) {
+                logger.error("Error batch-saving {} notification records: {}", pending.size(), e.getMessage(), e);
+                throw new RuntimeException("Error batch-saving notification records to DynamoDB", e);
+            }
+        }
+    }
+
+    private void sleepBeforeRetry(int attempt) {
+        try {
+            Thread.sleep(50L * (1L << (attempt - 1))); // 50, 100, 200, 400, 800 ms
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying unprocessed DynamoDB items", e);
+        }
+    }
+
+    @Override // Implementacja metody updateStatus - UpdateItem z warunkiem na obecny status.
+    public boolean updateStatus(String notificationId, String expectedStatus, String newStatus) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(notificationTable.tableName())
+                    .key(Map.of("notificationId", AttributeValue.fromS(notificationId)))
+                    // "status" jest słowem zarezerwowanym w DynamoDB - stąd alias #status.
+                    .updateExpression("SET #status = :newStatus, " + INCREMENT_VERSION
+                            + (NotificationRecord.STATUS_PENDING.equals(newStatus) ? "" : REMOVE_PENDING))
+                    .conditionExpression("#status = :expectedStatus")
+                    .expressionAttributeNames(Map.of("#status", "status", "#version", "version"))
+                    .expressionAttributeValues(Map.of(
+                            ":newStatus", AttributeValue.fromS(newStatus),
+                            ":expectedStatus", AttributeValue.fromS(expectedStatus),
+                            ":zero", AttributeValue.fromN("0"),
+                            ":one", AttributeValue.fromN("1")))
+                    .build());
+            logger.debug("Notification {} status changed {} -> {}", notificationId, expectedStatus, newStatus);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            // Rekord nie istnieje albo ktoś już zmienił status - nic nie nadpisujemy.
+            logger.warn("Notification {} status not changed to {}: current status is not {}", notificationId, newStatus, expectedStatus);
+            return false;
+        } catch (DynamoDbException e) {
+            logger.error("Error updating status of notification {}: {}", notificationId, e.getMessage(), e);
+            throw new RuntimeException("Error updating notification status in DynamoDB", e);
+        }
+    }
+
+    @Override // Jedno Query na partycję indeksu PENDING (sortLessThan po pendingSince) - czyta tylko rekordy PENDING.
+    public List<NotificationRecord> findPendingSince(long pendingBefore, int limit) {
+        List<NotificationRecord> result = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < NotificationRecord.PENDING_SHARDS; shard++) {
+                QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                        .queryConditional(QueryConditional.sortLessThan(
+                                Key.builder().partitionValue(Integer.toString(shard)).sortValue(pendingBefore).build()))
+                        .scanIndexForward(true) // Najdłużej czekające pierwsze
+                        .limit(limit)
+                        .attributesToProject(PENDING_ATTRIBUTES)
+                        .build();
+                result.addAll(pendingIndex.query(request).iterator().next().items());
+            }
+        } catch (DynamoDbException e) {
+            logger.error("Error finding notifications pending since before {}: {}", pendingBefore, e.getMessage(), e);
+            throw new RuntimeException("Error finding pending notifications in DynamoDB", e);
+        }
+        return result;
+    }
+
+    @Override // UpdateItem z warunkiem na status i wersję odczytaną z indeksu (blokada optymistyczna).
+    public boolean claimPending(NotificationRecord record, long now) {
+        long expectedVersion = record.getVersion() != null ? record.getVersion() : 0L;
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(notificationTable.tableName())
+                    .key(Map.of("notificationId", AttributeValue.fromS(record.getNotificationId())))
+                    .updateExpression("SET pendingSince = :now, " + INCREMENT_VERSION)
+                    .conditionExpression("#status = :pending AND #version = :expectedVersion")
+                    .expressionAttributeNames(Map.of("#status", "status", "#version", "version"))
+                    .expressionAttributeValues(Map.of(
+                            ":now", AttributeValue.fromN(Long.toString(now)),
+                            ":pending", AttributeValue.fromS(NotificationRecord.STATUS_PENDING),
+                            ":expectedVersion", AttributeValue.fromN(Long.toString(expectedVersion)),
+                            ":zero", AttributeValue.fromN("0"),
+                            ":one", AttributeValue.fromN("1")))
+                    .build());
+            record.setVersion(expectedVersion + 1);
+            record.setPendingSince(now);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            // Opublikowany w międzyczasie albo przejęty przez inną instancję - nic nie robimy.
+            logger.debug("Pending notification {} changed since it was read, not claiming", record.getNotificationId());
+            return false;
+        } catch (DynamoDbException e) {
+            logger.error("Error claiming pending notification {}: {}", record.getNotificationId(), e.getMessage(), e);
+            throw new RuntimeException("Error claiming pending notification in DynamoDB", e);
+        }
+    }
+
+    @Override // Oznaczenie jako przeczytane: jeden warunkowy UpdateItem z ReturnValues=ALL_NEW, potem ADD -1 na liczniku.
+    public MarkAsReadResult markAsRead(String notificationId, String userId) {
+        try {
+            Map<String, AttributeValue> updated = markUnreadAsRead(notificationId, userId, ReturnValue.ALL_NEW);
+            // Licznik zmniejszamy tylko po udanej zmianie warunkowej, więc każde powiadomienie odejmuje co najwyżej 1.
+            addToUnreadCount(userId, -1);
+            return new MarkAsReadResult(MarkAsReadResult.Outcome.MARKED, toRecord(updated));
+        } catch (ConditionalCheckFailedException e) {
+            // Warunek niespełniony - przyczynę odczytujemy ze stanu zwróconego razem z błędem (ALL_OLD), bez GetItem.
+            MarkAsReadResult result = classify(e.item(), userId);
+            if (result != null) {
+                return result;
+            }
+            // Nieprzeczytany rekord sprzed indeksu rzadkiego (bez unreadUserId).
+            return markLegacyAsRead(notificationId, userId, toRecord(e.item()).getVersion());
+        }
+    }
+
+    // Warunek unreadUserId = :userId sprawdza naraz: rekord istnieje, należy do użytkownika i jest nieprzeczytany
+    // (unreadUserId jest kopią userId istniejącą tylko, dopóki readNotification = false).
+    // REMOVE unreadUserId usuwa element z indeksu rzadkiego. Przy niespełnionym warunku rzuca
+    // ConditionalCheckFailedException z zastanym stanem rekordu (ALL_OLD).
+    private Map<String, AttributeValue> markUnreadAsRead(String notificationId, String userId, ReturnValue returnValue) {
+        try {
+            return dynamoDbClient.updateItem(markUnreadAsReadRequest(notificationId, userId, returnValue)).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            throw e; // To też DynamoDbException, ale obsługuje je wywołujący
+        } catch (DynamoDbException e) {
+            logger.error("Error marking notification {} as read: {}", notificationId, e.getMessage(), e);
+            throw new RuntimeException("Error marking notification as read in DynamoDB", e);
+        }
+    }
+
+    private UpdateItemRequest markUnreadAsReadRequest(String notificationId, String userId, ReturnValue returnValue) {
+        return UpdateItemRequest.builder()
+                .tableName(notificationTable.tableName())
+                .key(Map.of("notificationId", AttributeValue.fromS(notificationId)))
+                .updateExpression("SET readNotification = :true, " + SET_UPDATED_AT + ", " + INCREMENT_VERSION + " REMOVE unreadUserId")
+                .conditionExpression("unreadUserId = :userId")
+                .expressionAttributeNames(Map.of("#version", "version"))
+                .expressionAttributeValues(Map.of(
+                        ":true", AttributeValue.fromBool(true),
+                        ":userId", AttributeValue.fromS(userId),
+                        ":now", AttributeValue.fromN(Long.toString(System.currentTimeMillis())),
+                        ":zero", AttributeValue.fromN("0"),
+                        ":one", AttributeValue.fromN("1")))
+                .returnValues(returnValue)
+                .returnValuesOnConditionCheckFailure(returnValue == ReturnValue.NONE
+                        ? ReturnValuesOnConditionCheckFailure.NONE
+                        : ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+    }
+
+    // Wynik dla rekordu, którego nie udało się zmienić, na podstawie jego stanu sprzed próby.
+    // null = rekord jest nieprzeczytany, ale bez unreadUserId (zapisany przed indeksem rzadkim).
+    private MarkAsReadResult classify(Map<String, AttributeValue> current, String userId) {
+        if (current == null || current.isEmpty()) {
+            return MarkAsReadResult.of(MarkAsReadResult.Outcome.NOT_FOUND);
+        }
+        NotificationRecord record = toRecord(current);
+        if (!userId.equals(record.getUserId())) {
+            return MarkAsReadResult.of(MarkAsReadResult.Outcome.FORBIDDEN);
+        }
+        if (record.isReadNotification()) {
+            return new MarkAsReadResult(MarkAsReadResult.Outcome.ALREADY_READ, record);
+        }
+        return null;
+    }
+
+    private NotificationRecord toRecord(Map<String, AttributeValue> attributes) {
+        return notificationTable.tableSchema().mapToItem(attributes);
+    }
+
+    @Override // Masowe oznaczenie: stronicowanie indeksu rzadkiego + równoległe, dławione UpdateItem.
+    public int markAllAsRead(String userId, long upToTimestamp) {
+        int changed = 0;
+        Map<String, AttributeValue> exclusiveStartKey = null;
+        try {
+            do {
+                // Tylko nieprzeczytane (indeks rzadki) i tylko klucze - nie potrzebujemy treści powiadomień.
+                QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                        .queryConditional(QueryConditional.sortLessThanOrEqualTo(
+                                Key.builder().partitionValue(userId).sortValue(upToTimestamp).build()))
+                        .limit(MARK_ALL_PAGE_SIZE)
+                        .exclusiveStartKey(exclusiveStartKey)
+                        .attributesToProject("notificationId")
+                        .build();
+                Page<NotificationRecord> page = unreadIndex.query(request).iterator().next();
+                changed += markPageAsRead(userId, page.items());
+                exclusiveStartKey = page.lastEvaluatedKey();
+            } while (exclusiveStartKey != null && !exclusiveStartKey.isEmpty());
+        } finally {
+            // Nawet po błędzie w połowie licznik musi uwzględnić to, co już zmieniono.
+            if (changed > 0) {
+                addToUnreadCount(userId, -changed);
+            }
+        }
+        logger.info("Marked {} notifications as read for userId: {} (up to {})", changed, userId, upToTimestamp);
+        return changed;
+    }
+
+    // BatchWriteItem nie obsługuje UpdateItem ani warunków, więc strona jest aktualizowana równoległymi
+    // warunkowymi UpdateItem przez klienta asynchronicznego - wątek puli mark-all-read (nie wątek żądania) tylko je wysyła
+    // (w tempie limitu zapisów na sekundę i najwyżej bulkWritePermits naraz), a odpowiedzi przychodzą bez blokowania dodatkowych wątków.
+    private int markPageAsRead(String userId, List<NotificationRecord> items) {
+        List<CompletableFuture<Boolean>> updates = new ArrayList<>(items.size());
+        for (NotificationRecord item : items) {
+            acquireBulkWriteSlot();
+            bulkWritePermits.acquireUninterruptibly();
+            String notificationId = item.getNotificationId();
+            CompletableFuture<?> sent;
+            try {
+                sent = dynamoDbAsyncClient.updateItem(markUnreadAsReadRequest(notificationId, userId, ReturnValue.NONE));
+            } catch (RuntimeException e) {
+                // Błąd przed utworzeniem future (np. walidacja żądania w SDK) - handle poniżej by się nie wykonał,
+                // więc zwalniamy miejsce tutaj. Dalszych zapisów nie wysyłamy; wysłane rozliczamy jak zwykle.
+                bulkWritePermits.release();
+                logger.error("Error sending mark-as-read for notification {}: {}", notificationId, e.getMessage(), e);
+                updates.add(CompletableFuture.failedFuture(new RuntimeException("Error marking notification as read in DynamoDB", e)));
+                break;
+            }
+            updates.add(sent
+                    .handle((response, error) -> {
+                        bulkWritePermits.release();
+                        if (error == null) {
+                            return true;
+                        }
+                        Throwable cause = unwrap(error);
+                        if (cause instanceof ConditionalCheckFailedException) {
+                            return false; // Przeczytane w międzyczasie
+                        }
+                        logger.error("Error marking notification {} as read: {}", notificationId, cause.getMessage(), cause);
+                        throw new RuntimeException("Error marking notification as read in DynamoDB", cause);
+                    }));
+        }
+        int changed = 0;
+        RuntimeException failure = null;
+        for (CompletableFuture<Boolean> update : updates) {
+            try {
+                if (update.join()) {
+                    changed++;
+                }
+            } catch (CompletionException e) {
+                failure = (e.getCause() instanceof RuntimeException cause) ? cause : e;
+            }
+        }
+        if (failure != null) {
+            addToUnreadCount(userId, -changed); // Ta strona nie wróci do markAllAsRead - rozliczamy ją tutaj
+            throw failure;
+        }
+        return changed;
+    }
+
+    // Równomierne rozłożenie zapisów: każdy zapis rezerwuje kolejny "slot" co bulkWriteIntervalNanos i czeka na niego.
+    private void acquireBulkWriteSlot() {
+        long now = System.nanoTime();
+        long previous = nextBulkWriteSlot.getAndAccumulate(now, (next, current) -> Math.max(next, current) + bulkWriteIntervalNanos);
+        long waitNanos = Math.max(previous, now) - now;
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    // Rekordy zapisane przed wprowadzeniem indeksu rzadkiego nie mają unreadUserId i nie były liczone w liczniku.
+    // Odczyt-modyfikacja-zapis: decyzja zapada na podstawie stanu z nieudanej próby (ALL_OLD), więc zapis jest warunkowy
+    // na wersji z tego stanu. Jeśli rekord zmienił się w międzyczasie, klasyfikujemy nowy stan i próbujemy jeszcze raz.
+    private MarkAsReadResult markLegacyAsRead(String notificationId, String userId, Long observedVersion) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Map<String, AttributeValue> updated = dynamoDbClient.updateItem(
+                        markLegacyAsReadRequest(notificationId, userId, observedVersion)).attributes();
+                return new MarkAsReadResult(MarkAsReadResult.Outcome.MARKED, toRecord(updated));
+            } catch (ConditionalCheckFailedException e) {
+                // Zmieniony między próbami (np. przeczytany z innej karty) - klasyfikujemy nowy stan.
+                MarkAsReadResult result = classify(e.item(), userId);
+                if (result != null) {
+                    return result;
+                }
+                if (attempt >= MAX_LEGACY_MARK_ATTEMPTS) {
+                    logger.warn("Notification {} kept changing while being marked as read, giving up", notificationId);
+                    throw new RuntimeException("Notification changed concurrently while marking as read");
+                }
+                observedVersion = toRecord(e.item()).getVersion(); // Wciąż nieprzeczytany - nowa wersja, kolejna próba
+            } catch (DynamoDbException e) {
+                logger.error("Error marking notification {} as read: {}", notificationId, e.getMessage(), e);
+                throw new RuntimeException("Error marking notification as read in DynamoDB", e);
+            }
+        }
+    }
+
+    private UpdateItemRequest markLegacyAsReadRequest(String notificationId, String userId, Long observedVersion) {
+        Map<String, AttributeValue> values = new HashMap<>(Map.of(
+                ":true", AttributeValue.fromBool(true),
+                ":false", AttributeValue.fromBool(false),
+                ":userId", AttributeValue.fromS(userId),
+                ":now", AttributeValue.fromN(Long.toString(System.currentTimeMillis())),
+                ":zero", AttributeValue.fromN("0"),
+                ":one", AttributeValue.fromN("1")));
+        String versionCondition;
+        if (observedVersion == null) {
+            versionCondition = "attribute_not_exists(#version)"; // Rekord sprzed wprowadzenia wersji
+        } else {
+            versionCondition = "#version = :expectedVersion";
+            values.put(":expectedVersion", AttributeValue.fromN(Long.toString(observedVersion)));
+        }
+        return UpdateItemRequest.builder()
+                .tableName(notificationTable.tableName())
+                .key(Map.of("notificationId", AttributeValue.fromS(notificationId)))
+                .updateExpression("SET readNotification = :true, " + SET_UPDATED_AT + ", " + INCREMENT_VERSION)
+                .conditionExpression("userId = :userId AND readNotification = :false AND attribute_not_exists(unreadUserId) AND "
+                        + versionCondition)
+                .expressionAttributeNames(Map.of("#version", "version"))
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_NEW)
+                .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                .build();
+    }
+
+    @Override // Scan z filtrem na expiresAt - tabela nie ma indeksu po czasie wygaśnięcia, a archiwizacja idzie raz na dobę.
+    public void forEachExpiringBetween(long fromEpochSecond, long toEpochSecond, Consumer<NotificationRecord> consumer) {
+        ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+                .filterExpression(Expression.builder()
+                        .expression("expiresAt >= :from AND expiresAt < :to")
+                        .expressionValues(Map.of(
+                                ":from", AttributeValue.fromN(Long.toString(fromEpochSecond)),
+                                ":to", AttributeValue.fromN(Long.toString(toEpochSecond))))
+                        .build())
+                .build();
+        try {
+            // items() pobiera kolejne strony Scan dopiero, gdy poprzednia zostanie przetworzona.
+            notificationTable.scan(request).items().forEach(consumer);
+        } catch (DynamoDbException e) {
+            logger.error("Error scanning notifications expiring in [{}, {}): {}", fromEpochSecond, toEpochSecond, e.getMessage(), e);
+            throw new RuntimeException("Error scanning expiring notifications in DynamoDB", e);
+        }
+    }
+
+    @Override // Jeden GetItem na małym elemencie licznika (0.5 RCU przy odczycie ostatecznie spójnym).
+    public long countUnread(String userId) {
+        try {
+            return unreadCountOf(dynamoDbClient.getItem(unreadCountRequest(userId)));
+        } catch (DynamoDbException e) {
+            logger.error("Error reading unread count for userId {}: {}", userId, e.getMessage(), e);
+            throw new RuntimeException("Error reading unread count from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Long> countUnreadAsync(String userId) {
+        return dynamoDbAsyncClient.getItem(unreadCountRequest(userId))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        logger.error("Error reading unread count for userId {}: {}", userId, cause.getMessage(), cause);
+                        throw new RuntimeException("Error reading unread count from DynamoDB", cause);
+                    }
+                    return unreadCountOf(response);
+                });
+    }
+
+    private GetItemRequest unreadCountRequest(String userId) {
+        return GetItemRequest.builder()
+                .tableName(countersTableName)
+                .key(Map.of("userId", AttributeValue.fromS(userId)))
+                .projectionExpression("unreadCount")
+                .build();
+    }
+
+    private static long unreadCountOf(GetItemResponse response) {
+        Map<String, AttributeValue> item = response.item();
+        if (item == null || !item.containsKey("unreadCount")) {
+            return 0; // Użytkownik nie dostał jeszcze żadnego powiadomienia
+        }
+        // Licznik i rekordy nie są zapisywane w jednej transakcji - po awarii między zapisami mógłby zejść poniżej zera.
+        return Math.max(0, Long.parseLong(item.get("unreadCount").n()));
+    }
+
+    // Atomowa zmiana licznika nieprzeczytanych (ADD tworzy element z wartością delta, jeśli go nie ma).
+    // Błąd licznika nie cofa zapisu powiadomienia - jest tylko logowany.
+    private void addToUnreadCount(String userId, long delta) {
+        try {
+            dynamoDbClient.updateItem(unreadCountUpdate(userId, delta));
+        } catch (DynamoDbException e) {
+            logger.error("Error updating unread count for userId {} by {}: {}", userId, delta, e.getMessage(), e);
+        }
+    }
+
+    private CompletableFuture<Void> addToUnreadCountAsync(String userId, long delta) {
+        return dynamoDbAsyncClient.updateItem(unreadCountUpdate(userId, delta))
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        logger.error("Error updating unread count for userId {} by {}: {}", userId, delta, cause.getMessage(), cause);
+                    }
+                    return null;
+                });
+    }
+
+    private UpdateItemRequest unreadCountUpdate(String userId, long delta) {
+        return UpdateItemRequest.builder()
+                .tableName(countersTableName)
+                .key(Map.of("userId", AttributeValue.fromS(userId)))
+                .updateExpression("ADD unreadCount :delta")
+                .expressionAttributeValues(Map.of(":delta", AttributeValue.fromN(Long.toString(delta))))
+                .build();
     }
 
     @Override // Implementacja metody findById.
@@ -83,44 +702,159 @@ public class DynamoDbNotificationRepository implements NotificationRepository {
         }
     }
 
-    @Override // Implementacja metody findByUserIdOrderByTimestampDesc.
-    public List<NotificationRecord> findByUserIdOrderByTimestampDesc(String userId) {
-        try {
-            // Stwórz warunek zapytania dla naszego GSI: "userId" (klucz partycji GSI) musi być równy podanemu 'userId'.
-            QueryConditional queryConditional = QueryConditional
-                    .keyEqualTo(Key.builder().partitionValue(userId).build());
-
-            // Stwórz obiekt żądania zapytania (QueryEnhancedRequest).
-            QueryEnhancedRequest request = QueryEnhancedRequest.builder()
-                    .queryConditional(queryConditional) // Ustaw warunek zapytania.
-                    // scanIndexForward(false) oznacza, że wyniki mają być sortowane MALEJĄCO
-                    // według klucza sortowania indeksu (w naszym GSI jest to "timestamp").
-                    // Czyli najnowsze powiadomienia będą pierwsze.
-                    .scanIndexForward(false)
-                    .build();
-
-            // Wykonaj zapytanie na naszym Globalnym Indeksie Wtórnym (GSI).
-            // Musimy jawnie wskazać nazwę indeksu (USER_ID_TIMESTAMP_INDEX).
-            SdkIterable<Page<NotificationRecord>> queryResult = enhancedClient // Używamy enhancedClient
-                    .table(notificationTable.tableName(), TableSchema.fromBean(NotificationRecord.class)) // Wskazujemy tabelę i schemat
-                    .index(USER_ID_TIMESTAMP_INDEX) // WAŻNE: Mówimy, żeby użyć tego konkretnego indeksu
-                    .query(request); // Wykonaj zapytanie.
-
-            // Wyniki z DynamoDB mogą być podzielone na strony (jeśli jest ich dużo).
-            // Musimy przejść przez wszystkie strony i zebrać wszystkie elementy.
-            List<NotificationRecord> results = queryResult.stream() // Stwórz strumień ze stron wyników.
-                    .flatMap(page -> page.items().stream()) // Dla każdej strony, weź jej elementy i "spłaszcz" je w jeden strumień.
-                    .collect(Collectors.toList()); // Zbierz wszystkie elementy do listy.
-
-            logger.info("Found {} notification records for userId: {}", results.size(), userId);
-            return results; // Zwróć listę znalezionych powiadomień.
+    @Override // Implementacja metody findPageByUserId - jedno zapytanie Query z Limit zamiast czytania całej historii.
+    public NotificationPage findPageByUserId(String userId, int limit, String cursor) {
+        return queryPage(userIdTimestampIndex, "userId", userId, limit, cursor);
+    }
+
+    @Override // Nieprzeczytane - to samo zapytanie, ale na indeksie rzadkim, więc przeczytane nie zużywają RCU.
+    public NotificationPage findUnreadPageByUserId(String userId, int limit, String cursor) {
+        return queryPage(unreadIndex, "unreadUserId", userId, limit, cursor);
+    }
 
+    @Override
+    public CompletableFuture<NotificationPage> findPageByUserIdAsync(String userId, int limit, String cursor) {
+        return queryPageAsync(userIdTimestampAsyncIndex, "userId", userId, limit, cursor);
+    }
+
+    @Override
+    public CompletableFuture<NotificationPage> findUnreadPageByUserIdAsync(String userId, int limit, String cursor) {
+        return queryPageAsync(unreadAsyncIndex, "unreadUserId", userId, limit, cursor);
+    }
+
+    @Override // Rosnąco od fromTimestamp (włącznie) - jedna strona Query na indeksie userId-timestamp-index.
+    public CompletableFuture<List<NotificationRecord>> findByUserIdSince(String userId, long fromTimestamp, int limit) {
+        QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.sortGreaterThanOrEqualTo(
+                        Key.builder().partitionValue(userId).sortValue(fromTimestamp).build()))
+                .scanIndexForward(true) // Najstarsze pierwsze - w kolejności, w jakiej klient powinien je dostać
+                .limit(limit)
+                .attributesToProject(HISTORY_ATTRIBUTES)
+                .build();
+        List<NotificationRecord> items = new ArrayList<>();
+        return userIdTimestampAsyncIndex.query(request)
+                .limit(1) // Tylko pierwsza strona (najwyżej limit elementów)
+                .subscribe(page -> items.addAll(page.items()))
+                .thenApply(ignored -> items)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.error("Error finding notifications since {} for userId {}: {}", fromTimestamp, userId, error.getMessage());
+                    }
+                });
+    }
+
+    @Override // Rosnąco od fromUpdatedAt (włącznie) - jedna strona Query na indeksie rzadkim userId-updatedAt-index.
+    public CompletableFuture<List<String>> findReadIdsSince(String userId, long fromUpdatedAt, int limit) {
+        QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.sortGreaterThanOrEqualTo(
+                        Key.builder().partitionValue(userId).sortValue(fromUpdatedAt).build()))
+                .scanIndexForward(true)
+                .limit(limit)
+                .attributesToProject("notificationId", "readNotification")
+                .build();
+        List<String> readIds = new ArrayList<>();
+        return updatedAtAsyncIndex.query(request)
+                .limit(1)
+                .subscribe(page -> page.items().stream()
+                        .filter(NotificationRecord::isReadNotification)
+                        .forEach(item -> readIds.add(item.getNotificationId())))
+                .thenApply(ignored -> readIds)
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.error("Error finding read-state changes since {} for userId {}: {}", fromUpdatedAt, userId, error.getMessage());
+                    }
+                });
+    }
+
+    private NotificationPage queryPage(DynamoDbIndex<NotificationRecord> index, String partitionAttribute,
+                                       String userId, int limit, String cursor) {
+        QueryEnhancedRequest request = pageRequest(partitionAttribute, userId, limit, cursor);
+        try {
+            // Bierzemy tylko pierwszą stronę odpowiedzi - kolejne klient pobiera sam, odsyłając kursor.
+            Page<NotificationRecord> page = index.query(request).iterator().next();
+            logger.debug("Found {} notification records for userId: {} (cursor: {})", page.items().size(), userId, cursor != null);
+            return toNotificationPage(page);
         } catch (DynamoDbException e) { // Obsługa błędów DynamoDB.
             logger.error("Error finding notifications for userId {}: {}", userId, e.getMessage(), e);
-            return Collections.emptyList(); // Zwróć pustą listę w przypadku błędu.
-        } catch (NullPointerException e) { // Dodatkowa obsługa błędu, jeśli np. indeks nie istnieje.
-            logger.error("Error querying index '{}'. Does it exist?", USER_ID_TIMESTAMP_INDEX, e);
-            return Collections.emptyList();
+            // Wyjątek, a nie pusta strona - pustą stronę pamięć podręczna zapamiętałaby jako historię użytkownika.
+            throw new RuntimeException("Error reading notifications from DynamoDB", e);
+        }
+    }
+
+    // Jak queryPage, ale na indeksie klienta asynchronicznego. Nieprawidłowy kursor - IllegalArgumentException od razu
+    // (przed wysłaniem zapytania), błąd DynamoDB - future kończy się RuntimeException, tak jak w wersji synchronicznej.
+    private CompletableFuture<NotificationPage> queryPageAsync(DynamoDbAsyncIndex<NotificationRecord> index, String partitionAttribute,
+                                                               String userId, int limit, String cursor) {
+        QueryEnhancedRequest request = pageRequest(partitionAttribute, userId, limit, cursor);
+        AtomicReference<Page<NotificationRecord>> firstPage = new AtomicReference<>();
+        return index.query(request)
+                .limit(1)
+                .subscribe(firstPage::set)
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = unwrap(error);
+                        logger.error("Error finding notifications for userId {}: {}", userId, cause.getMessage(), cause);
+                        throw new RuntimeException("Error reading notifications from DynamoDB", cause);
+                    }
+                    Page<NotificationRecord> page = firstPage.get();
+                    return (page != null) ? toNotificationPage(page) : new NotificationPage(Collections.emptyList(), null);
+                });
+    }
+
+    private static NotificationPage toNotificationPage(Page<NotificationRecord> page) {
+        return new NotificationPage(page.items(), encodeCursor(page.lastEvaluatedKey()));
+    }
+
+    private static QueryEnhancedRequest pageRequest(String partitionAttribute, String userId, int limit, String cursor) {
+        Map<String, AttributeValue> exclusiveStartKey = decodeCursor(partitionAttribute, userId, cursor); // null dla pierwszej strony
+
+        // Warunek zapytania dla GSI: klucz partycji indeksu musi być równy podanemu 'userId'.
+        return QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build()))
+                // scanIndexForward(false) - najnowsze powiadomienia pierwsze (malejąco po "timestamp").
+                .scanIndexForward(false)
+                // Limit ogranicza liczbę elementów odczytanych przez DynamoDB, a więc i zużycie RCU na jedno wywołanie.
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey) // Od którego miejsca indeksu zacząć (koniec poprzedniej strony).
+                // Zwracamy tylko atrybuty potrzebne listom - mniej danych do przesłania i zmapowania.
+                .attributesToProject(HISTORY_ATTRIBUTES)
+                .build();
+    }
+
+    // Błędy z CompletableFuture przychodzą opakowane w CompletionException.
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    // Kursor = lastEvaluatedKey zapytania na GSI (notificationId, klucz partycji indeksu, timestamp) zakodowany
+    // jako Base64 (URL-safe) tekstu "timestamp:notificationId". userId nie jest w kursorze - to zawsze użytkownik
+    // z tokenu, więc kursorem nie da się przeglądać cudzej historii.
+    private static String encodeCursor(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null; // Koniec wyników
+        }
+        String raw = lastEvaluatedKey.get("timestamp").n() + ":" + lastEvaluatedKey.get("notificationId").s();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, AttributeValue> decodeCursor(String partitionAttribute, String userId, String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long timestamp = Long.parseLong(raw.substring(0, separator));
+            String notificationId = raw.substring(separator + 1);
+            if (notificationId.isEmpty()) {
+                throw new IllegalArgumentException("Empty notificationId in cursor");
+            }
+            return Map.of(
+                    "notificationId", AttributeValue.fromS(notificationId),
+                    partitionAttribute, AttributeValue.fromS(userId),
+                    "timestamp", AttributeValue.fromN(Long.toString(timestamp)));
+        } catch (RuntimeException e) { // Zły Base64, brak separatora, zły timestamp
+            throw new IllegalArgumentException("Invalid notification history cursor", e);
         }
     }
 }
@@ -0,0 +1,87 @@
+package pl.projektchmury.notificationservice.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import pl.projektchmury.notificationservice.model.NotificationSubscription;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class DynamoDbSubscriptionRepository implements SubscriptionRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(DynamoDbSubscriptionRepository.class);
+
+    private final DynamoDbTable<NotificationSubscription> subscriptionTable;
+
+    public DynamoDbSubscriptionRepository(DynamoDbEnhancedClient enhancedClient,
+                                          @Value("${aws.dynamodb.table-name.notification-subscriptions}") String tableName) {
+        this.subscriptionTable = enhancedClient.table(tableName, NotificationSubscription.TABLE_SCHEMA);
+    }
+
+    @Override
+    public NotificationSubscription save(NotificationSubscription subscription) {
+        try {
+            subscriptionTable.putItem(subscription);
+            return subscription;
+        } catch (DynamoDbException e) {
+            logger.error("Error saving subscription {} for userId {}: {}", subscription.getSubscriptionArn(), subscription.getUserId(), e.getMessage(), e);
+            throw new RuntimeException("Error saving notification subscription to DynamoDB", e);
+        }
+    }
+
+    @Override
+    public List<NotificationSubscription> findByUserId(String userId) {
+        try {
+            return subscriptionTable.query(QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build()))
+                    .items().stream().toList();
+        } catch (DynamoDbException e) {
+            logger.error("Error finding subscriptions for userId {}: {}", userId, e.getMessage(), e);
+            throw new RuntimeException("Error reading notification subscriptions from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public Optional<NotificationSubscription> find(String userId, String subscriptionArn) {
+        try {
+            return Optional.ofNullable(subscriptionTable.getItem(
+                    Key.builder().partitionValue(userId).sortValue(subscriptionArn).build()));
+        } catch (DynamoDbException e) {
+            logger.error("Error finding subscription {} for userId {}: {}", subscriptionArn, userId, e.getMessage(), e);
+            throw new RuntimeException("Error reading notification subscription from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public boolean existsForUser(String userId) {
+        try {
+            QueryEnhancedRequest request = QueryEnhancedRequest.builder()
+                    .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(userId).build()))
+                    .limit(1)
+                    .attributesToProject("userId")
+                    .build();
+            return !subscriptionTable.query(request).iterator().next().items().isEmpty();
+        } catch (DynamoDbException e) {
+            logger.error("Error checking subscriptions for userId {}: {}", userId, e.getMessage(), e);
+            throw new RuntimeException("Error reading notification subscriptions from DynamoDB", e);
+        }
+    }
+
+    @Override
+    public void delete(String userId, String subscriptionArn) {
+        try {
+            subscriptionTable.deleteItem(Key.builder().partitionValue(userId).sortValue(subscriptionArn).build());
+        } catch (DynamoDbException e) {
+            logger.error("Error deleting subscription {} for userId {}: {}", subscriptionArn, userId, e.getMessage(), e);
+            throw new RuntimeException("Error deleting notification subscription from DynamoDB", e);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package pl.projektchmury.notificationservice.repository;
+
+import org.springframework.beans.factory.annotation.Value; // Katalog archiwum z konfiguracji
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty; // Bean tworzony tylko dla storage=local
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Archiwum w katalogu lokalnym - zastępuje S3 przy uruchomieniu lokalnym i w docker-compose.
+// Klucz obiektu to ścieżka względna w katalogu app.notifications.archive.local-dir.
+@Repository
+@ConditionalOnProperty(name = "app.notifications.archive.storage", havingValue = "local", matchIfMissing = true)
+public class LocalArchiveStorage implements ArchiveStorage {
+
+    private final Path baseDir;
+
+    public LocalArchiveStorage(@Value("${app.notifications.archive.local-dir:./notification-archive}") String baseDir) {
+        this.baseDir = Path.of(baseDir).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void putText(String key, String content) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.writeString(target, content, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.isRegularFile(resolve(key));
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    // Klucze budujemy sami, ale i tak pilnujemy, żeby nie wyszły poza katalog archiwum.
+    private Path resolve(String key) {
+        Path path = baseDir.resolve(key).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IllegalArgumentException("Archive key outside of archive directory: " + key);
+        }
+        return path;
+    }
+}
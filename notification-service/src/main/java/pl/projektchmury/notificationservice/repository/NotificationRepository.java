@@ -1,8 +1,12 @@
 package pl.projektchmury.notificationservice.repository;
 
+import pl.projektchmury.notificationservice.model.MarkAsReadResult; // Wynik oznaczenia jako przeczytane
+import pl.projektchmury.notificationservice.model.NotificationPage; // Strona wyników z kursorem
 import pl.projektchmury.notificationservice.model.NotificationRecord; // Importujemy nasz model danych
 import java.util.List; // Do pracy z listami
 import java.util.Optional; // Do reprezentowania wartości, która może być nullem (bezpieczniejsze niż bezpośrednie nulle)
+import java.util.concurrent.CompletableFuture; // Wynik zapytań asynchronicznych
+import java.util.function.Consumer; // Odbiorca kolejnych rekordów (przetwarzanie strumieniowe)
 
 // To jest interfejs repozytorium. Definiuje "kontrakt" - jakie operacje na danych
 // (w tym przypadku na NotificationRecord) chcemy wykonywać.
@@ -10,17 +14,82 @@ import java.util.Optional; // Do reprezentowania wartości, która może być nu
 // Użycie interfejsu ułatwia testowanie i zmianę implementacji w przyszłości (np. na inną bazę danych).
 public interface NotificationRepository {
 
-    // Metoda do zapisywania (lub aktualizowania) rekordu powiadomienia w bazie.
+    // Metoda do zapisywania nowego rekordu powiadomienia w bazie.
     // Przyjmuje obiekt NotificationRecord i zwraca zapisany obiekt (może mieć np. wygenerowane ID).
+    // Nieprzeczytany rekord (z unreadUserId) zwiększa licznik nieprzeczytanych użytkownika.
     NotificationRecord save(NotificationRecord record);
 
+    // Wersje *Async: te same operacje co ich odpowiedniki synchroniczne (te same błędy i wyniki), ale wynik przychodzi
+    // w CompletableFuture, a wątek wywołujący nie czeka na DynamoDB. Używane przez kontroler przy
+    // app.notifications.async-io.enabled=true. Błąd zapisu kończy future wyjątkiem RuntimeException.
+    CompletableFuture<NotificationRecord> saveAsync(NotificationRecord record);
+
+    // Metoda do zapisywania wielu rekordów naraz (wysyłka wsadowa).
+    // Implementacja powinna zapisywać je możliwie małą liczbą wywołań bazy (np. BatchWriteItem w DynamoDB).
+    List<NotificationRecord> saveAll(List<NotificationRecord> records);
+
+    // Zapis tylko tych rekordów, których jeszcze nie ma (warunek na notificationId) - istniejące, np. już przeczytane,
+    // zostają bez zmian i nie zwiększają licznika nieprzeczytanych. Zwraca rekordy faktycznie zapisane.
+    // Wolniejsze niż saveAll (osobne wywołanie na rekord) - do powtórnego zapisu po wznowieniu wysyłki.
+    List<NotificationRecord> saveAllIfAbsent(List<NotificationRecord> records);
+
+    // Zmiana samego statusu wysyłki, tylko jeśli rekord ma obecnie status expectedStatus.
+    // Nie nadpisuje pozostałych pól (np. readNotification ustawionego w międzyczasie przez użytkownika).
+    // Zwraca false, jeśli rekord nie istnieje albo jego status jest już inny.
+    boolean updateStatus(String notificationId, String expectedStatus, String newStatus);
+
+    // Rekordy ze statusem PENDING czekające na publikację od przed pendingBefore (ms) - najwyżej limit
+    // z każdej partycji indeksu PENDING. Zwracają userId, type, message, subject i version (bez treści historii).
+    List<NotificationRecord> findPendingSince(long pendingBefore, int limit);
+
+    // Przejęcie porzuconego rekordu PENDING do ponownej publikacji: przesuwa pendingSince na now i zwiększa wersję,
+    // tylko jeśli rekord wciąż jest PENDING i ma wersję z chwili odczytu (record.getVersion()).
+    // Zwraca false, jeśli w międzyczasie zmienił go ktoś inny (np. inna instancja przejęła go pierwsza).
+    boolean claimPending(NotificationRecord record, long now);
+
     // Metoda do znajdowania rekordu powiadomienia po jego unikalnym ID.
     // Zwraca Optional<NotificationRecord>, co oznacza, że rekord może istnieć (wtedy będzie w Optional)
     // lub nie (wtedy Optional będzie pusty). To pomaga unikać NullPointerException.
     Optional<NotificationRecord> findById(String notificationId);
 
-    // Metoda do znajdowania wszystkich rekordów powiadomień dla danego użytkownika (userId),
-    // posortowanych malejąco według czasu utworzenia (timestamp).
-    // Zwraca listę znalezionych rekordów.
-    List<NotificationRecord> findByUserIdOrderByTimestampDesc(String userId);
+    // Metoda do pobierania jednej strony powiadomień danego użytkownika (userId),
+    // posortowanych malejąco według czasu utworzenia (timestamp) - najwyżej limit rekordów.
+    // cursor to nextCursor z poprzedniej strony (null = pierwsza strona).
+    // Rekordy zawierają tylko atrybuty potrzebne listom powiadomień (bez statusu wysyłki).
+    // Rzuca IllegalArgumentException, jeśli kursor jest nieprawidłowy, i RuntimeException przy błędzie DynamoDB.
+    NotificationPage findPageByUserId(String userId, int limit, String cursor);
+
+    // Nieprawidłowy kursor: IllegalArgumentException rzucany od razu, nie przez future. Błąd DynamoDB kończy future wyjątkiem.
+    CompletableFuture<NotificationPage> findPageByUserIdAsync(String userId, int limit, String cursor);
+
+    // Powiadomienia użytkownika z timestamp >= fromTimestamp, od najstarszego, najwyżej limit (projekcja jak w historii).
+    // Asynchronicznie - używane przez strumień SSE dla wielu połączonych użytkowników naraz.
+    CompletableFuture<List<NotificationRecord>> findByUserIdSince(String userId, long fromTimestamp, int limit);
+
+    // Identyfikatory powiadomień użytkownika oznaczonych jako przeczytane od fromUpdatedAt (włącznie), od najstarszej
+    // zmiany, najwyżej limit. Błąd DynamoDB kończy future wyjątkiem (jak findByUserIdSince).
+    CompletableFuture<List<String>> findReadIdsSince(String userId, long fromUpdatedAt, int limit);
+
+    // To samo co findPageByUserId, ale tylko nieprzeczytane powiadomienia (indeks rzadki).
+    NotificationPage findUnreadPageByUserId(String userId, int limit, String cursor);
+
+    CompletableFuture<NotificationPage> findUnreadPageByUserIdAsync(String userId, int limit, String cursor);
+
+    // Liczba nieprzeczytanych powiadomień użytkownika - z licznika, bez czytania powiadomień.
+    long countUnread(String userId);
+
+    CompletableFuture<Long> countUnreadAsync(String userId);
+
+    // Oznacza powiadomienie jako przeczytane, jeśli należy do userId i jest nieprzeczytane, i zmniejsza licznik.
+    // Jedna warunkowa operacja zapisu - wynik zawiera stan rekordu po zmianie albo powód, dla którego nic nie zmieniono
+    // (nie istnieje, cudze albo już przeczytane), więc wywołujący nie musi czytać rekordu ponownie.
+    MarkAsReadResult markAsRead(String notificationId, String userId);
+
+    // Oznacza jako przeczytane wszystkie nieprzeczytane powiadomienia użytkownika z timestamp <= upToTimestamp
+    // i zmniejsza licznik o liczbę zmienionych. Zwraca liczbę zmienionych powiadomień.
+    int markAllAsRead(String userId, long upToTimestamp);
+
+    // Przekazuje do consumer wszystkie rekordy z expiresAt (sekundy) w przedziale [fromEpochSecond, toEpochSecond).
+    // Rekordy są czytane stronami i nie są zbierane w pamięci - do archiwizacji przed usunięciem przez TTL.
+    void forEachExpiringBetween(long fromEpochSecond, long toEpochSecond, Consumer<NotificationRecord> consumer);
 }
@@ -0,0 +1,81 @@
+package pl.projektchmury.notificationservice.repository;
+
+import org.springframework.beans.factory.annotation.Value; // Nazwa bucketu z konfiguracji
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty; // Bean tworzony tylko dla storage=s3
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.core.sync.RequestBody; // Treść obiektu wysyłanego do S3
+import software.amazon.awssdk.services.s3.S3Client; // Klient S3 (z S3Config)
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException; // HeadObject/GetObject na nieistniejącym kluczu
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+// Archiwum w buckecie S3 (app.notifications.archive.bucket). Segmenty są już skompresowane (gzip),
+// więc wysyłamy je jako application/gzip - bez Content-Encoding, żeby klienci HTTP nie rozpakowywali ich w locie.
+@Repository
+@ConditionalOnProperty(name = "app.notifications.archive.storage", havingValue = "s3")
+public class S3ArchiveStorage implements ArchiveStorage {
+
+    private final S3Client s3Client;
+    private final String bucket;
+
+    public S3ArchiveStorage(S3Client s3Client, @Value("${app.notifications.archive.bucket}") String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        try {
+            s3Client.putObject(PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(key.endsWith(".gz") ? "application/gzip" : "application/octet-stream")
+                    .build(), RequestBody.fromFile(file));
+        } catch (S3Exception e) {
+            throw new IOException("Error writing archive object " + key + " to S3", e);
+        }
+    }
+
+    @Override
+    public void putText(String key, String content) throws IOException {
+        try {
+            s3Client.putObject(PutObjectRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType("text/plain; charset=utf-8")
+                    .build(), RequestBody.fromString(content));
+        } catch (S3Exception e) {
+            throw new IOException("Error writing archive object " + key + " to S3", e);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return true;
+        } catch (NoSuchKeyException e) {
+            return false;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return false; // HeadObject nie ma treści odpowiedzi, więc czasem przychodzi jako zwykły S3Exception 404
+            }
+            throw new IOException("Error checking archive object " + key + " in S3", e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        try {
+            return s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (S3Exception e) {
+            throw new IOException("Error reading archive object " + key + " from S3", e);
+        }
+    }
+}
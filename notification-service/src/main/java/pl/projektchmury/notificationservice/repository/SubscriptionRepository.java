@@ -0,0 +1,22 @@
+package pl.projektchmury.notificationservice.repository;
+
+import pl.projektchmury.notificationservice.model.NotificationSubscription;
+
+import java.util.List;
+import java.util.Optional;
+
+// Rejestr subskrypcji SNS użytkowników (źródło prawdy dla SubscriptionRegistry).
+public interface SubscriptionRepository {
+
+    NotificationSubscription save(NotificationSubscription subscription);
+
+    // Wszystkie subskrypcje użytkownika (jedno zapytanie po kluczu partycji).
+    List<NotificationSubscription> findByUserId(String userId);
+
+    Optional<NotificationSubscription> find(String userId, String subscriptionArn);
+
+    // Czy użytkownik ma choć jedną subskrypcję - czyta najwyżej jeden element.
+    boolean existsForUser(String userId);
+
+    void delete(String userId, String subscriptionArn);
+}
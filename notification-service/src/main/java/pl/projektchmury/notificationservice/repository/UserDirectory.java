@@ -0,0 +1,19 @@
+package pl.projektchmury.notificationservice.repository;
+
+import java.util.List;
+
+// Katalog użytkowników czytany stronami - źródło odbiorców powiadomień do wszystkich (BroadcastService).
+// Implementacja: CognitoUserDirectory (pula użytkowników Cognito; userId = nazwa użytkownika, jak nick w tokenie).
+public interface UserDirectory {
+
+    // Jedna strona użytkowników i token następnej (null = ostatnia strona).
+    record UserPage(List<String> userIds, String nextPageToken) {
+    }
+
+    // pageToken = nextPageToken z poprzedniej strony albo null (pierwsza strona). Token może służyć za punkt wznowienia.
+    // Rzuca IllegalArgumentException, jeśli token jest nieprawidłowy albo wygasł.
+    UserPage listUsers(String pageToken, int limit);
+
+    // Przybliżona liczba użytkowników (do pokazania postępu) albo -1, jeśli nieznana.
+    long estimatedSize();
+}
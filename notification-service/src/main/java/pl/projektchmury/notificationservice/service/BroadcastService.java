@@ -0,0 +1,470 @@
+// Powiadomienia do wszystkich użytkowników (ogłoszenia, przerwy techniczne)
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.BroadcastJob;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.BroadcastJobRepository;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+import pl.projektchmury.notificationservice.repository.UserDirectory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+// Wysyłka jednego powiadomienia do każdego aktywnego użytkownika z katalogu (UserDirectory - pula Cognito).
+// Wątek zadania czyta katalog stronami (w stałym tempie, bo ListUsers ma limit wywołań dla całej puli), a strony
+// zapisują równolegle wątki piszące: paczki po 25 rekordów przez NotificationRepository.saveAll (BatchWriteItem
+// z ponawianiem elementów "unprocessed"). Wszystkie zapisy wysyłek na instancji dzielą jeden budżet jednostek zapisu
+// na sekundę (max-write-units-per-second), żeby wysyłka nie dławiła ruchu /send i mark-as-read na tych samych tabelach.
+// Rekordy mają status SKIPPED - ogłoszenie jest w dzwonku i w strumieniu SSE, bez publikacji w SNS.
+// Postęp i punkt wznowienia (token strony katalogu) są zapisywane w tabeli notification-broadcasts co
+// checkpoint-interval-ms razem z dzierżawą zadania. Zadanie RUNNING z wygasłą dzierżawą (np. po awarii instancji)
+// przejmuje resumeAbandoned na dowolnej instancji i kontynuuje od punktu wznowienia.
+// Strony po punkcie wznowienia mogły zostać zapisane już przez poprzednie wykonanie, a użytkownik mógł w międzyczasie
+// oznaczyć powiadomienie jako przeczytane. Dlatego wznowione zadanie (resume, resumeAbandoned) zapisuje rekordy
+// warunkowo (NotificationRepository.saveAllIfAbsent): istniejące zostają bez zmian i nie zwiększają licznika
+// nieprzeczytanych. Dokładnego końca okna powtórki nie znamy (strony pisze kilku piszących, a postęp po ostatnim
+// zapisie punktu wznowienia przepadł), więc warunkowo pisze całe wznowione wykonanie - te same jednostki zapisu,
+// ale jedno wywołanie na rekord zamiast BatchWriteItem. Pierwsze wykonanie (start) pisze paczkami.
+@Service
+public class BroadcastService {
+    private static final Logger logger = LoggerFactory.getLogger(BroadcastService.class);
+
+    public static final String DEFAULT_TYPE = "BROADCAST";
+
+    // DynamoDB przyjmuje maksymalnie 25 elementów w jednym wywołaniu BatchWriteItem.
+    private static final int WRITE_CHUNK_SIZE = 25;
+
+    private final UserDirectory userDirectory;
+    private final BroadcastJobRepository jobRepository;
+    private final NotificationRepository notificationRepository;
+    private final NotificationRetentionPolicy retentionPolicy;
+    private final NotificationReadCache readCache;
+    private final NotificationStreamRegistry streamRegistry;
+
+    private final int pageSize;
+    private final int maxPagesInFlight;
+    private final int writeUnitsPerRecipient;
+    private final long checkpointIntervalMillis;
+    private final long leaseMillis;
+    private final long shutdownTimeoutMillis;
+
+    // Budżet zapisów (wspólny dla wszystkich wysyłek instancji) i tempo odpytywania katalogu.
+    private final long writeUnitIntervalNanos;
+    private final AtomicLong nextWriteSlot = new AtomicLong(System.nanoTime());
+    private final long directoryIntervalNanos;
+    private final AtomicLong nextDirectorySlot = new AtomicLong(System.nanoTime());
+
+    // Identyfikator tej instancji w dzierżawie zadań.
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ThreadPoolExecutor jobRunners;
+    private final ExecutorService pageWriters;
+    private final Set<String> activeJobs = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Counter existingCounter;
+
+    public BroadcastService(UserDirectory userDirectory,
+                            BroadcastJobRepository jobRepository,
+                            NotificationRepository notificationRepository,
+                            NotificationRetentionPolicy retentionPolicy,
+                            NotificationReadCache readCache,
+                            NotificationStreamRegistry streamRegistry,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.notifications.broadcast.page-size:60}") int pageSize,
+                            @Value("${app.notifications.broadcast.writers:4}") int writerCount,
+                            @Value("${app.notifications.broadcast.max-concurrent-jobs:1}") int maxConcurrentJobs,
+                            @Value("${app.notifications.broadcast.max-write-units-per-second:400}") int maxWriteUnitsPerSecond,
+                            @Value("${app.notifications.broadcast.write-units-per-recipient:4}") int writeUnitsPerRecipient,
+                            @Value("${app.notifications.broadcast.directory-requests-per-second:5}") int directoryRequestsPerSecond,
+                            @Value("${app.notifications.broadcast.checkpoint-interval-ms:5000}") long checkpointIntervalMillis,
+                            @Value("${app.notifications.broadcast.lease-ms:60000}") long leaseMillis,
+                            @Value("${app.notifications.broadcast.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.userDirectory = userDirectory;
+        this.jobRepository = jobRepository;
+        this.notificationRepository = notificationRepository;
+        this.retentionPolicy = retentionPolicy;
+        this.readCache = readCache;
+        this.streamRegistry = streamRegistry;
+        this.pageSize = pageSize;
+        this.maxPagesInFlight = 2 * writerCount; // Strona w zapisie i jedna w zapasie na każdego piszącego
+        this.writeUnitsPerRecipient = writeUnitsPerRecipient;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        this.leaseMillis = leaseMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.writeUnitIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxWriteUnitsPerSecond;
+        this.directoryIntervalNanos = TimeUnit.SECONDS.toNanos(1) / directoryRequestsPerSecond;
+        this.jobRunners = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("broadcast-job-"));
+        this.pageWriters = Executors.newFixedThreadPool(writerCount, new CustomizableThreadFactory("broadcast-writer-"));
+
+        this.writtenCounter = Counter.builder("notifications.broadcast.recipients").tag("outcome", "written").register(meterRegistry);
+        this.failedCounter = Counter.builder("notifications.broadcast.recipients").tag("outcome", "failed").register(meterRegistry);
+        this.existingCounter = Counter.builder("notifications.broadcast.recipients").tag("outcome", "existing").register(meterRegistry);
+    }
+
+    // Tworzy zadanie i od razu je uruchamia na tej instancji.
+    public BroadcastJob start(String createdBy, String type, String message) {
+        if (message == null || message.isBlank()) {
+            throw new IllegalArgumentException("Treść powiadomienia jest wymagana.");
+        }
+        long now = System.currentTimeMillis();
+        BroadcastJob job = new BroadcastJob();
+        job.setBroadcastId(UUID.randomUUID().toString());
+        job.setType((type == null || type.isBlank()) ? DEFAULT_TYPE : type);
+        job.setMessage(message);
+        job.setStatus(BroadcastJob.STATUS_RUNNING);
+        job.setCreatedBy(createdBy);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+        job.setEstimatedUsers(userDirectory.estimatedSize());
+        job.setOwner(instanceId);
+        job.setLeaseExpiresAt(now + leaseMillis);
+        jobRepository.create(job);
+        logger.info("Broadcast {} started by {} (~{} users)", job.getBroadcastId(), createdBy, job.getEstimatedUsers());
+        launch(job, false);
+        return job;
+    }
+
+    public Optional<BroadcastJob> find(String broadcastId) {
+        return jobRepository.findById(broadcastId);
+    }
+
+    // Najnowsze pierwsze.
+    public List<BroadcastJob> list() {
+        List<BroadcastJob> jobs = new ArrayList<>(jobRepository.findAll());
+        jobs.sort(Comparator.comparingLong(BroadcastJob::getCreatedAt).reversed());
+        return jobs;
+    }
+
+    // Zadanie wykonywane na dowolnej instancji zatrzyma się przy najbliższym zapisie postępu.
+    // Zadanie, które już się zakończyło, jest zwracane bez zmian.
+    public Optional<BroadcastJob> cancel(String broadcastId) {
+        while (true) {
+            Optional<BroadcastJob> found = jobRepository.findById(broadcastId);
+            if (found.isEmpty() || !BroadcastJob.STATUS_RUNNING.equals(found.get().getStatus())) {
+                return found;
+            }
+            BroadcastJob job = found.get();
+            job.setStatus(BroadcastJob.STATUS_CANCELLED);
+            job.setUpdatedAt(System.currentTimeMillis());
+            if (jobRepository.replace(job, job.getVersion())) {
+                logger.info("Broadcast {} cancelled after {} users", broadcastId, job.getUsersProcessed());
+                return found;
+            }
+        }
+    }
+
+    // Wznawia zadanie FAILED albo CANCELLED od punktu wznowienia. Zadanie RUNNING jest zwracane bez zmian.
+    // Rzuca IllegalStateException dla zadania zakończonego (COMPLETED).
+    public Optional<BroadcastJob> resume(String broadcastId) {
+        while (true) {
+            Optional<BroadcastJob> found = jobRepository.findById(broadcastId);
+            if (found.isEmpty() || BroadcastJob.STATUS_RUNNING.equals(found.get().getStatus())) {
+                return found;
+            }
+            BroadcastJob job = found.get();
+            if (BroadcastJob.STATUS_COMPLETED.equals(job.getStatus())) {
+                throw new IllegalStateException("Wysyłka jest już zakończona.");
+            }
+            job.setStatus(BroadcastJob.STATUS_RUNNING);
+            job.setLastError(null);
+            if (claim(job)) {
+                logger.info("Broadcast {} resumed after {} users", broadcastId, job.getUsersProcessed());
+                launch(job, true);
+                return found;
+            }
+        }
+    }
+
+    // Przejmuje zadania RUNNING, których dzierżawa wygasła (instancja padła albo została zamknięta w trakcie).
+    @Scheduled(fixedDelayString = "${app.notifications.broadcast.resume-check-interval-ms:60000}",
+            initialDelayString = "${app.notifications.broadcast.resume-check-interval-ms:60000}")
+    public void resumeAbandoned() {
+        long now = System.currentTimeMillis();
+        try {
+            for (BroadcastJob job : jobRepository.findAll()) {
+                if (BroadcastJob.STATUS_RUNNING.equals(job.getStatus()) && job.getLeaseExpiresAt() < now
+                        && !activeJobs.contains(job.getBroadcastId()) && claim(job)) {
+                    logger.info("Taking over broadcast {} at {} users", job.getBroadcastId(), job.getUsersProcessed());
+                    launch(job, true);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not check for abandoned broadcasts: {}", e.getMessage());
+        }
+    }
+
+    private boolean claim(BroadcastJob job) {
+        job.setOwner(instanceId);
+        job.setLeaseExpiresAt(System.currentTimeMillis() + leaseMillis);
+        job.setUpdatedAt(System.currentTimeMillis());
+        return jobRepository.replace(job, job.getVersion());
+    }
+
+    // replay = zadanie było już wykonywane, więc część rekordów po punkcie wznowienia może istnieć.
+    private void launch(BroadcastJob job, boolean replay) {
+        if (!activeJobs.add(job.getBroadcastId())) {
+            return;
+        }
+        try {
+            jobRunners.execute(() -> {
+                try {
+                    run(job, replay);
+                } finally {
+                    activeJobs.remove(job.getBroadcastId());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Instancja wykonuje już max-concurrent-jobs wysyłek (albo jest zamykana) - zadanie czeka w tabeli
+            // i po wygaśnięciu dzierżawy przejmie je resumeAbandoned tej albo innej instancji.
+            logger.info("Broadcast {} queued until a job slot is free", job.getBroadcastId());
+            activeJobs.remove(job.getBroadcastId());
+        }
+    }
+
+    // Wykonuje zadanie od punktu wznowienia do końca katalogu (albo do anulowania, błędu lub zamknięcia instancji).
+    void run(BroadcastJob job, boolean replay) {
+        Checkpoint checkpoint = new Checkpoint(job.getPageToken(), job.getUsersProcessed());
+        Semaphore pageSlots = new Semaphore(maxPagesInFlight);
+        AtomicReference<RuntimeException> writeFailure = new AtomicReference<>();
+        String failure = null;
+        boolean owned = true;
+        long nextCheckpointAt = System.currentTimeMillis() + checkpointIntervalMillis;
+        String pageToken = job.getPageToken();
+        long pageSeq = 0;
+        try {
+            do {
+                if (!awaitPageSlot(pageSlots)) {
+                    break;
+                }
+                UserDirectory.UserPage page;
+                try {
+                    throttle(nextDirectorySlot, directoryIntervalNanos);
+                    page = userDirectory.listUsers(pageToken, pageSize);
+                } catch (RuntimeException e) {
+                    pageSlots.release();
+                    throw e;
+                }
+                long seq = pageSeq++;
+                pageWriters.execute(() -> {
+                    try {
+                        if (writeFailure.get() == null) {
+                            writePage(job, page.userIds(), replay);
+                            checkpoint.pageWritten(seq, page.nextPageToken(), page.userIds().size());
+                        }
+                    } catch (RuntimeException e) {
+                        failedCounter.increment(page.userIds().size());
+                        writeFailure.compareAndSet(null, e);
+                    } finally {
+                        pageSlots.release();
+                    }
+                });
+                pageToken = page.nextPageToken();
+                if (System.currentTimeMillis() >= nextCheckpointAt) {
+                    owned = saveProgress(job, checkpoint, null, null);
+                    nextCheckpointAt = System.currentTimeMillis() + checkpointIntervalMillis;
+                }
+            } while (owned && running && pageToken != null && writeFailure.get() == null);
+        } catch (RuntimeException e) {
+            failure = "Odczyt katalogu użytkowników: " + e.getMessage();
+            logger.error("Broadcast {} stopped reading user directory: {}", job.getBroadcastId(), e.getMessage(), e);
+        }
+
+        // Czekamy na strony w zapisie - punkt wznowienia obejmuje tylko strony zapisane w całości.
+        pageSlots.acquireUninterruptibly(maxPagesInFlight);
+        if (failure == null && writeFailure.get() != null) {
+            failure = "Zapis powiadomień: " + writeFailure.get().getMessage();
+            logger.error("Broadcast {} stopped writing notifications: {}", job.getBroadcastId(), writeFailure.get().getMessage());
+        }
+        if (!owned) {
+            saveProgress(job, checkpoint, null, null); // Anulowane - zapisujemy jeszcze postęp, status zostaje
+            return;
+        }
+        String finalStatus = null;
+        if (failure != null) {
+            finalStatus = BroadcastJob.STATUS_FAILED;
+        } else if (checkpoint.complete()) {
+            finalStatus = BroadcastJob.STATUS_COMPLETED;
+        }
+        saveProgress(job, checkpoint, finalStatus, failure);
+        logger.info("Broadcast {} {} after {} users", job.getBroadcastId(),
+                (finalStatus != null) ? finalStatus : "paused for shutdown", job.getUsersProcessed());
+    }
+
+    // Miejsce na kolejną stronę w zapisie. W trakcie czekania odnawia dzierżawę, żeby długie dławienie zapisów
+    // nie oddało zadania innej instancji. false = zamykanie instancji.
+    private boolean awaitPageSlot(Semaphore pageSlots) {
+        try {
+            while (running) {
+                if (pageSlots.tryAcquire(checkpointIntervalMillis, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private void writePage(BroadcastJob job, List<String> userIds, boolean replay) {
+        List<NotificationRecord> records = userIds.stream().map(userId -> buildRecord(job, userId)).toList();
+        for (int from = 0; from < records.size(); from += WRITE_CHUNK_SIZE) {
+            List<NotificationRecord> chunk = records.subList(from, Math.min(from + WRITE_CHUNK_SIZE, records.size()));
+            throttle(nextWriteSlot, writeUnitIntervalNanos * chunk.size() * writeUnitsPerRecipient);
+            List<NotificationRecord> written = replay
+                    ? notificationRepository.saveAllIfAbsent(chunk)
+                    : notificationRepository.saveAll(chunk);
+            writtenCounter.increment(written.size());
+            existingCounter.increment(chunk.size() - written.size());
+            for (NotificationRecord record : written) { // Istniejące rekordy były już w dzwonku i w SSE
+                readCache.onCreated(record.getUserId(), 1);
+                streamRegistry.publish(record);
+            }
+        }
+    }
+
+    private NotificationRecord buildRecord(BroadcastJob job, String userId) {
+        long now = System.currentTimeMillis();
+        NotificationRecord record = new NotificationRecord();
+        // To samo ID przy powtórnym zapisie strony po wznowieniu - zapis warunkowy rozpoznaje istniejący rekord.
+        record.setNotificationId(UUID.nameUUIDFromBytes((job.getBroadcastId() + "/" + userId).getBytes(StandardCharsets.UTF_8)).toString());
+        record.setUserId(userId);
+        record.setType(job.getType());
+        record.setMessage(job.getMessage());
+        record.setTimestamp(now);
+        record.setExpiresAt(retentionPolicy.expiresAt(job.getType(), now));
+        record.setStatus(NotificationRecord.STATUS_SKIPPED);
+        record.setReadNotification(false);
+        record.setUnreadUserId(userId);
+        record.setVersion(1L);
+        record.setRelatedEntityId(job.getBroadcastId());
+        return record;
+    }
+
+    // Zapisuje postęp i odnawia dzierżawę (przy zamykaniu instancji - zwalnia ją). finalStatus kończy zadanie RUNNING.
+    // Zwraca false, jeśli zadanie nie jest już RUNNING tej instancji (anulowane albo przejęte) - trzeba przerwać.
+    private boolean saveProgress(BroadcastJob job, Checkpoint checkpoint, String finalStatus, String error) {
+        while (true) {
+            if (!instanceId.equals(job.getOwner())) {
+                return false;
+            }
+            boolean stillRunning = BroadcastJob.STATUS_RUNNING.equals(job.getStatus());
+            long now = System.currentTimeMillis();
+            Checkpoint.Position position = checkpoint.position();
+            job.setPageToken(position.pageToken());
+            job.setUsersProcessed(position.usersProcessed());
+            job.setUpdatedAt(now);
+            if (stillRunning && finalStatus != null) {
+                job.setStatus(finalStatus);
+                job.setLastError(error);
+            }
+            job.setLeaseExpiresAt(BroadcastJob.STATUS_RUNNING.equals(job.getStatus()) && running ? now + leaseMillis : 0);
+            try {
+                if (jobRepository.replace(job, job.getVersion())) {
+                    return stillRunning;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Could not save progress of broadcast {}: {}", job.getBroadcastId(), e.getMessage());
+                return true; // Spróbujemy przy następnym zapisie postępu - do wygaśnięcia dzierżawy zadanie jest nasze
+            }
+            // Ktoś zmienił zadanie (anulowanie, przejęcie) - bierzemy jego stan i próbujemy jeszcze raz.
+            Optional<BroadcastJob> current = jobRepository.findById(job.getBroadcastId());
+            if (current.isEmpty()) {
+                return false;
+            }
+            job.setStatus(current.get().getStatus());
+            job.setLastError(current.get().getLastError());
+            job.setOwner(current.get().getOwner());
+            job.setVersion(current.get().getVersion());
+        }
+    }
+
+    // Wywołanie zajmuje "slot" długości costNanos - kolejne czekają na swoją kolej (jak przy dławieniu w markAllAsRead).
+    private static void throttle(AtomicLong nextSlot, long costNanos) {
+        long now = System.nanoTime();
+        long previous = nextSlot.getAndAccumulate(now, (next, current) -> Math.max(next, current) + costNanos);
+        long waitNanos = Math.max(previous, now) - now;
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+
+    // Przy zamykaniu zadania zapisują postęp i zwalniają dzierżawę - inna instancja przejmie je od razu.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        jobRunners.shutdown();
+        if (!jobRunners.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            logger.warn("Broadcast jobs did not stop within {} ms, they will be resumed after lease expiry", shutdownTimeoutMillis);
+        }
+        pageWriters.shutdownNow();
+    }
+
+    // Strony kończą się w dowolnej kolejności (kilku piszących), a punkt wznowienia przesuwa się dopiero,
+    // gdy wszystkie wcześniejsze strony są zapisane.
+    static final class Checkpoint {
+        record Position(String pageToken, long usersProcessed) {
+        }
+
+        private record WrittenPage(String nextPageToken, int users) {
+        }
+
+        private final TreeMap<Long, WrittenPage> writtenAhead = new TreeMap<>();
+        private long nextSeq;
+        private String pageToken;
+        private long usersProcessed;
+        private boolean complete;
+
+        Checkpoint(String pageToken, long usersProcessed) {
+            this.pageToken = pageToken;
+            this.usersProcessed = usersProcessed;
+        }
+
+        synchronized void pageWritten(long seq, String nextPageToken, int users) {
+            writtenAhead.put(seq, new WrittenPage(nextPageToken, users));
+            WrittenPage page;
+            while ((page = writtenAhead.remove(nextSeq)) != null) {
+                nextSeq++;
+                pageToken = page.nextPageToken();
+                usersProcessed += page.users();
+                complete = (pageToken == null); // Ostatnia strona katalogu zapisana razem ze wszystkimi wcześniejszymi
+            }
+        }
+
+        synchronized Position position() {
+            return new Position(pageToken, usersProcessed);
+        }
+
+        synchronized boolean complete() {
+            return complete;
+        }
+    }
+}
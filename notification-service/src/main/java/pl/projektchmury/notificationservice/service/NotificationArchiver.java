@@ -0,0 +1,330 @@
+// Archiwizator Powiadomień
+package pl.projektchmury.notificationservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper; // Serializacja rekordów do NDJSON (jeden JSON w linii)
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.ArchiveStorage;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Archiwizacja rekordów historii przed usunięciem przez TTL DynamoDB (atrybut expiresAt).
+// Rekordy są grupowane po dniu wygaśnięcia (UTC) i kubełku użytkownika (hash userId) i zapisywane jako segmenty NDJSON
+// skompresowane gzipem - odczyt historii jednego użytkownika czyta tylko jego kubełek, a nie segmenty wszystkich:
+//   {prefix}expires=2025-01-31/user-bucket=07/part-00000.ndjson.gz, part-00001.ndjson.gz, ...
+//   {prefix}expires=2025-01-31/_SUCCESS - manifest: lista kluczy segmentów wszystkich kubełków, po jednym w linii
+// Dzień D jest archiwizowany, gdy nie mogą już powstać rekordy wygasające w D (D <= dziś + minimalna retencja - 1)
+// i zanim D nadejdzie (D > dziś). Dzień z manifestem jest pomijany, więc ponowne uruchomienie (albo kilka instancji
+// naraz) tylko nadpisuje te same klucze. Zmiany rekordu po archiwizacji (np. przeczytanie) nie trafiają do archiwum.
+@Service
+public class NotificationArchiver {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationArchiver.class);
+
+    private static final String MANIFEST = "_SUCCESS";
+
+    // Liczba kubełków użytkowników w dniu archiwum. Stała w kodzie, a nie w konfiguracji: odczyt wylicza kubełek
+    // tak samo jak zapis, więc zmiana tej liczby wymagałaby przepisania zarchiwizowanych dni.
+    static final int USER_BUCKETS = 32;
+    private static final String USER_BUCKET_SEGMENT = "/user-bucket=";
+
+    private final NotificationRepository notificationRepository;
+    private final ArchiveStorage archiveStorage;
+    private final NotificationRetentionPolicy retentionPolicy;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final String prefix;
+    private final int segmentMaxRecords;
+    private final int maxReadRangeDays;
+    private final int daysPerScan;
+    private final Semaphore readPermits;
+
+    // Za dużo równoczesnych odczytów archiwum - klient powinien spróbować później (HTTP 429).
+    public static class ArchiveBusyException extends RuntimeException {
+        ArchiveBusyException(String message) {
+            super(message);
+        }
+    }
+
+    public NotificationArchiver(NotificationRepository notificationRepository,
+                                ArchiveStorage archiveStorage,
+                                NotificationRetentionPolicy retentionPolicy,
+                                ObjectMapper objectMapper,
+                                @Value("${app.notifications.archive.enabled:true}") boolean enabled,
+                                @Value("${app.notifications.archive.prefix:notifications/}") String prefix,
+                                @Value("${app.notifications.archive.segment-max-records:50000}") int segmentMaxRecords,
+                                @Value("${app.notifications.archive.max-read-range-days:31}") int maxReadRangeDays,
+                                @Value("${app.notifications.archive.max-open-segments:256}") int maxOpenSegments,
+                                @Value("${app.notifications.archive.max-concurrent-reads:4}") int maxConcurrentReads) {
+        this.notificationRepository = notificationRepository;
+        this.archiveStorage = archiveStorage;
+        this.retentionPolicy = retentionPolicy;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.prefix = prefix;
+        this.segmentMaxRecords = segmentMaxRecords;
+        this.maxReadRangeDays = maxReadRangeDays;
+        // Każdy dzień ma do USER_BUCKETS otwartych segmentów (plik tymczasowy + bufor gzip) - przy nadrabianiu wielu dni
+        // naraz (np. pierwsze uruchomienie) dni są dzielone na kilka przejść Scan, żeby nie przekroczyć maxOpenSegments.
+        this.daysPerScan = Math.max(1, maxOpenSegments / USER_BUCKETS);
+        this.readPermits = new Semaphore(maxConcurrentReads);
+    }
+
+    @Scheduled(cron = "${app.notifications.archive.cron:0 15 3 * * *}", zone = "UTC")
+    public void archiveScheduled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExpiringSoon();
+        } catch (IOException | RuntimeException e) {
+            // Następne uruchomienie powtórzy dni bez manifestu - o ile zdąży przed ich wygaśnięciem.
+            logger.error("Notification archival failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Archiwizuje wszystkie gotowe, jeszcze niezarchiwizowane dni - jednym przejściem Scan na daysPerScan dni
+    // (zwykle jeden dzień, więc jeden Scan). Zwraca liczbę rekordów.
+    public long archiveExpiringSoon() throws IOException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<LocalDate> pendingDays = new ArrayList<>();
+        for (LocalDate day = today.plusDays(1); !day.isAfter(today.plusDays(retentionPolicy.minDays() - 1)); day = day.plusDays(1)) {
+            if (!archiveStorage.exists(manifestKey(day))) {
+                pendingDays.add(day);
+            }
+        }
+        if (pendingDays.isEmpty()) {
+            logger.debug("No notification expiry days to archive");
+            return 0;
+        }
+        long archived = 0;
+        for (int from = 0; from < pendingDays.size(); from += daysPerScan) {
+            archived += archiveDays(new LinkedHashSet<>(pendingDays.subList(from, Math.min(from + daysPerScan, pendingDays.size()))));
+        }
+        return archived;
+    }
+
+    private long archiveDays(Set<LocalDate> days) throws IOException {
+        LocalDate first = days.iterator().next();
+        LocalDate last = days.stream().max(Comparator.naturalOrder()).orElseThrow();
+        Map<LocalDate, Map<Integer, SegmentWriter>> writers = new HashMap<>();
+        long archived = 0;
+        try {
+            notificationRepository.forEachExpiringBetween(startOf(first), startOf(last.plusDays(1)), record -> {
+                LocalDate day = dayOf(record.getExpiresAt());
+                if (days.contains(day)) { // W przedziale mogą być dni zarchiwizowane wcześniej
+                    writers.computeIfAbsent(day, ignored -> new HashMap<>())
+                            .computeIfAbsent(userBucket(record.getUserId()), bucket -> new SegmentWriter(day, bucket))
+                            .write(record);
+                }
+            });
+            // Manifest zapisujemy na końcu, także dla dni bez rekordów - jego brak oznacza "do zrobienia".
+            for (LocalDate day : days) {
+                List<String> parts = new ArrayList<>();
+                long count = 0;
+                for (SegmentWriter writer : writers.getOrDefault(day, Map.of()).values()) {
+                    parts.addAll(writer.finish());
+                    count += writer.totalRecords;
+                }
+                parts.sort(Comparator.naturalOrder());
+                archiveStorage.putText(manifestKey(day), String.join("\n", parts));
+                archived += count;
+                logger.info("Archived {} notifications expiring on {} in {} segments", count, day, parts.size());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writers.values().forEach(dayWriters -> dayWriters.values().forEach(SegmentWriter::discard));
+        }
+        return archived;
+    }
+
+    // Wolna ścieżka odczytu historii, która wypadła już z DynamoDB: powiadomienia użytkownika utworzone w dniach
+    // [from, to] (UTC), najnowsze pierwsze. Segmenty są pogrupowane po dniu wygaśnięcia, więc sprawdzamy wszystkie dni,
+    // w których mogły wygasnąć (from + min. retencja ... to + maks. retencja), ale w każdym czytamy tylko kubełek
+    // tego użytkownika. Najwyżej max-concurrent-reads odczytów naraz na instancję - kolejne dostają ArchiveBusyException.
+    public List<NotificationRecord> readArchivedHistory(String userId, LocalDate from, LocalDate to) throws IOException {
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) >= maxReadRangeDays) {
+            throw new IllegalArgumentException("Archive range must span 1-" + maxReadRangeDays + " days");
+        }
+        if (!readPermits.tryAcquire()) {
+            throw new ArchiveBusyException("Too many concurrent archive reads");
+        }
+        try {
+            long fromMillis = startOf(from) * 1000;
+            long toMillis = startOf(to.plusDays(1)) * 1000;
+            String bucketSegment = USER_BUCKET_SEGMENT + bucketName(userBucket(userId)) + "/";
+            List<NotificationRecord> result = new ArrayList<>();
+            LocalDate lastExpiryDay = to.plusDays(retentionPolicy.maxDays() + 1);
+            for (LocalDate day = from.plusDays(retentionPolicy.minDays()); !day.isAfter(lastExpiryDay); day = day.plusDays(1)) {
+                String manifestKey = manifestKey(day);
+                if (!archiveStorage.exists(manifestKey)) {
+                    continue; // Dzień jeszcze niezarchiwizowany (rekordy są wciąż w DynamoDB) albo sprzed archiwizacji
+                }
+                for (String partKey : readManifest(manifestKey)) {
+                    // Segmenty sprzed podziału na kubełki (bez "user-bucket=") zawierają wszystkich użytkowników.
+                    if (partKey.contains(USER_BUCKET_SEGMENT) && !partKey.contains(bucketSegment)) {
+                        continue;
+                    }
+                    readSegment(partKey, record -> {
+                        if (userId.equals(record.getUserId()) && record.getTimestamp() >= fromMillis && record.getTimestamp() < toMillis) {
+                            result.add(record);
+                        }
+                    });
+                }
+            }
+            result.sort(Comparator.comparingLong(NotificationRecord::getTimestamp).reversed());
+            return result;
+        } finally {
+            readPermits.release();
+        }
+    }
+
+    // Kubełek użytkownika - String.hashCode jest określony w specyfikacji Javy, więc stały między uruchomieniami.
+    static int userBucket(String userId) {
+        return Math.floorMod(userId.hashCode(), USER_BUCKETS);
+    }
+
+    private static String bucketName(int bucket) {
+        return String.format("%02d", bucket);
+    }
+
+    private List<String> readManifest(String manifestKey) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(archiveStorage.open(manifestKey), StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isBlank()).toList();
+        }
+    }
+
+    private void readSegment(String key, Consumer<NotificationRecord> consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(archiveStorage.open(key)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    consumer.accept(objectMapper.readValue(line, NotificationRecord.class));
+                }
+            }
+        }
+    }
+
+    private String dayPrefix(LocalDate day) {
+        return prefix + "expires=" + day + "/";
+    }
+
+    private String manifestKey(LocalDate day) {
+        return dayPrefix(day) + MANIFEST;
+    }
+
+    private static long startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+    }
+
+    private static LocalDate dayOf(long epochSecond) {
+        return LocalDate.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+
+    // Segmenty jednego kubełka w jednym dniu: rekordy są dopisywane do pliku tymczasowego przez gzip, a po segmentMaxRecords
+    // plik trafia do magazynu i zaczyna się następny segment. W pamięci jest tylko bufor strumienia.
+    private final class SegmentWriter {
+        private final LocalDate day;
+        private final int bucket;
+        private final List<String> partKeys = new ArrayList<>();
+        private Path currentFile;
+        private Writer currentWriter;
+        private int currentRecords;
+        private long totalRecords;
+
+        SegmentWriter(LocalDate day, int bucket) {
+            this.day = day;
+            this.bucket = bucket;
+        }
+
+        void write(NotificationRecord record) {
+            try {
+                if (currentWriter == null) {
+                    currentFile = Files.createTempFile("notifications-" + day + "-" + bucketName(bucket) + "-", ".ndjson.gz");
+                    currentWriter = new BufferedWriter(new OutputStreamWriter(
+                            new GZIPOutputStream(Files.newOutputStream(currentFile)), StandardCharsets.UTF_8));
+                }
+                currentWriter.write(toJson(record));
+                currentWriter.write('\n');
+                currentRecords++;
+                totalRecords++;
+                if (currentRecords >= segmentMaxRecords) {
+                    flushPart();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<String> finish() throws IOException {
+            if (currentWriter != null) {
+                flushPart();
+            }
+            return partKeys;
+        }
+
+        private void flushPart() throws IOException {
+            currentWriter.close(); // Zamyka też GZIPOutputStream (zapisuje stopkę gzip)
+            currentWriter = null;
+            String key = dayPrefix(day) + "user-bucket=" + bucketName(bucket) + "/" + String.format("part-%05d.ndjson.gz", partKeys.size());
+            archiveStorage.put(key, currentFile);
+            Files.deleteIfExists(currentFile);
+            currentFile = null;
+            currentRecords = 0;
+            partKeys.add(key);
+        }
+
+        // Sprzątanie po błędzie: porzucony segment nie trafia do manifestu.
+        void discard() {
+            try {
+                if (currentWriter != null) {
+                    currentWriter.close();
+                }
+                if (currentFile != null) {
+                    Files.deleteIfExists(currentFile);
+                }
+            } catch (IOException e) {
+                logger.warn("Could not remove temporary archive segment {}: {}", currentFile, e.getMessage());
+            }
+        }
+
+        private String toJson(NotificationRecord record) {
+            try {
+                return objectMapper.writeValueAsString(record);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot serialize notification " + record.getNotificationId(), e);
+            }
+        }
+    }
+}
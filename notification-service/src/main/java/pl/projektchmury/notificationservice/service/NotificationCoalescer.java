@@ -0,0 +1,133 @@
+// Scalacz Powiadomień
+package pl.projektchmury.notificationservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Scalanie serii powiadomień od jednego nadawcy w jedno ("X wysłał Ci 5 wiadomości").
+// Powiadomienia typów z app.notifications.coalescing.types, które mają senderId, trafiają do okna
+// kluczowanego (odbiorca, typ, nadawca). Okno zamyka się window-ms po PIERWSZYM powiadomieniu w nim
+// (więc opóźnienie jest ograniczone także przy ciągłej rozmowie), a timer co flush-interval-ms wysyła zamknięte okna:
+// - jedno powiadomienie w oknie - wysyłane bez zmian,
+// - więcej - jedno zbiorcze z liczbą (coalescedCount), tematem i relatedEntityId najnowszego.
+// Wszystkie zamknięte okna idą jednym sendAndStoreNotificationBatch (BatchWriteItem + PublishBatch).
+// Gdy zapis się nie uda, okna wracają do mapy (scalone z oknem otwartym w międzyczasie) i idą przy następnym ticku
+// - /send odpowiedział już klientowi, więc nie możemy ich po prostu porzucić.
+// Okna są w pamięci instancji - przy kilku instancjach seria może zostać scalona w kilka powiadomień.
+@Service
+public class NotificationCoalescer {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationCoalescer.class);
+
+    private record Key(String targetUserId, String type, String senderId) {
+    }
+
+    // Zawartość okna. Zmieniana tylko wewnątrz ConcurrentHashMap.compute, więc bez dodatkowej synchronizacji.
+    private record Window(long openedAt, int count, NotificationRequest latest) {
+    }
+
+    private final NotificationStorageService notificationService;
+    private final boolean enabled;
+    private final Set<String> types;
+    private final long windowMillis;
+    private final int maxOpenWindows;
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+
+    public NotificationCoalescer(NotificationStorageService notificationService,
+                                 @Value("${app.notifications.coalescing.enabled:true}") boolean enabled,
+                                 @Value("${app.notifications.coalescing.types:NEW_MESSAGE,NEW_MESSAGE_WITH_FILE}") Set<String> types,
+                                 @Value("${app.notifications.coalescing.window-ms:3000}") long windowMillis,
+                                 @Value("${app.notifications.coalescing.max-open-windows:10000}") int maxOpenWindows) {
+        this.notificationService = notificationService;
+        this.enabled = enabled;
+        this.types = Set.copyOf(types);
+        this.windowMillis = windowMillis;
+        this.maxOpenWindows = maxOpenWindows;
+    }
+
+    // Zwraca true, jeśli powiadomienie zostało przyjęte do okna (zostanie wysłane przy flush),
+    // false - jeśli wywołujący ma je wysłać od razu (typ bez scalania, brak nadawcy, za dużo otwartych okien).
+    public boolean offer(NotificationRequest request) {
+        if (!enabled || request.senderId() == null || request.senderId().isEmpty() || !types.contains(request.type())) {
+            return false;
+        }
+        Key key = new Key(request.targetUserId(), request.type(), request.senderId());
+        if (windows.size() >= maxOpenWindows && !windows.containsKey(key)) {
+            return false; // Ograniczenie pamięci - przy zalewie różnych par nadawca/odbiorca wysyłamy bez scalania
+        }
+        windows.compute(key, (k, window) -> window == null
+                ? new Window(System.currentTimeMillis(), 1, request)
+                : new Window(window.openedAt(), window.count() + 1, request));
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.coalescing.flush-interval-ms:500}")
+    public void flushExpired() {
+        flush(System.currentTimeMillis() - windowMillis);
+    }
+
+    // Przy zamykaniu aplikacji wysyłamy wszystkie otwarte okna, żeby powiadomienia nie przepadły.
+    @PreDestroy
+    public void flushAll() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private void flush(long openedBefore) {
+        Map<Key, Window> closed = new HashMap<>();
+        for (Map.Entry<Key, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            // remove(key, window) usuwa tylko tę wersję okna - powiadomienie dopisane w międzyczasie
+            // podmienia obiekt Window, więc zostanie wysłane przy następnym ticku.
+            if (window.openedAt() <= openedBefore && windows.remove(entry.getKey(), window)) {
+                closed.put(entry.getKey(), window);
+            }
+        }
+        if (closed.isEmpty()) {
+            return;
+        }
+        List<NotificationRequest> ready = closed.values().stream().map(NotificationCoalescer::toNotification).toList();
+        try {
+            notificationService.sendAndStoreNotificationBatch(ready);
+            logger.debug("Flushed {} coalesced notification windows", ready.size());
+        } catch (RuntimeException e) {
+            closed.forEach(this::restore);
+            if (openedBefore == Long.MAX_VALUE) {
+                logger.error("Could not store {} coalesced notifications on shutdown, they are lost: {}", ready.size(), e.getMessage(), e);
+            } else {
+                logger.error("Could not store {} coalesced notifications, retrying on the next flush: {}", ready.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    // Przywraca niewysłane okno. Jeśli w międzyczasie otwarto nowe okno dla tego klucza, łączymy je:
+    // liczba się sumuje, czas otwarcia zostaje starszy (okno pójdzie przy najbliższym ticku), a treść - najnowsza.
+    private void restore(Key key, Window unsent) {
+        windows.merge(key, unsent, (reopened, restored) ->
+                new Window(restored.openedAt(), restored.count() + reopened.count(), reopened.latest()));
+    }
+
+    private static NotificationRequest toNotification(Window window) {
+        NotificationRequest latest = window.latest();
+        if (window.count() == 1) {
+            return latest;
+        }
+        return new NotificationRequest(
+                latest.targetUserId(),
+                latest.type(),
+                latest.subject(),
+                latest.senderId() + " wysłał Ci " + window.count() + " wiadomości",
+                latest.relatedEntityId(),
+                latest.senderId(),
+                window.count());
+    }
+}
@@ -0,0 +1,231 @@
+// Asynchroniczny Wysyłacz Powiadomień
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter; // Licznik metryk (Micrometer, dostępny przez actuator)
+import io.micrometer.core.instrument.Gauge; // Metryka bieżącej wartości (np. długość kolejki)
+import io.micrometer.core.instrument.MeterRegistry; // Rejestr metryk aplikacji
+import jakarta.annotation.PreDestroy; // Metoda wywoływana przez Springa przy zamykaniu aplikacji
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory; // Fabryka wątków z czytelnymi nazwami
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Publikacja powiadomień w SNS poza wątkiem żądania HTTP.
+// Rekord jest już zapisany w DynamoDB ze statusem PENDING - tutaj wysyłamy go przez SnsAsyncClient
+// i po odpowiedzi zmieniamy status na SENT albo FAILED. Błędy przejściowe (dławienie, 5xx, sieć) są ponawiane
+// z wykładniczo rosnącym odstępem (z losowym rozrzutem), do maxAttempts prób; błędy trwałe od razu kończą się FAILED.
+// Ograniczenia zasobów:
+// - workers wątków pobiera zadania z kolejki o pojemności queueCapacity (zadanie = 1 wiadomość albo paczka do 10),
+// - naraz w locie jest najwyżej maxInFlight wywołań SNS (semafor zwalniany po odpowiedzi).
+// Zadanie odrzucone przez pełną kolejkę jest traktowane jak błąd przejściowy i ponawiane później.
+@Service
+public class NotificationPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPublisher.class);
+
+    // Powiadomienie do opublikowania: zapisany rekord i temat wiadomości SNS (temat nie jest przechowywany w rekordzie).
+    public record PublishTask(NotificationRecord record, String subject) {
+    }
+
+    // Jedno wywołanie SNS (Publish albo PublishBatch) i numer próby.
+    private record Job(List<PublishTask> tasks, int attempt) {
+    }
+
+    private final SnsService snsService;
+    private final NotificationRepository notificationRepository;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService retryScheduler;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long shutdownTimeoutMillis;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter retriedCounter;
+
+    public NotificationPublisher(SnsService snsService,
+                                 NotificationRepository notificationRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.notifications.publish.workers:2}") int workerCount,
+                                 @Value("${app.notifications.publish.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${app.notifications.publish.max-in-flight:50}") int maxInFlight,
+                                 @Value("${app.notifications.publish.max-attempts:6}") int maxAttempts,
+                                 @Value("${app.notifications.publish.initial-backoff-ms:500}") long initialBackoffMillis,
+                                 @Value("${app.notifications.publish.max-backoff-ms:30000}") long maxBackoffMillis,
+                                 @Value("${app.notifications.publish.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.snsService = snsService;
+        this.notificationRepository = notificationRepository;
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("sns-publish-"));
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sns-publish-retry-"));
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxInFlight = maxInFlight;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+
+        this.sentCounter = Counter.builder("notifications.publish").tag("outcome", "sent").register(meterRegistry);
+        this.failedCounter = Counter.builder("notifications.publish").tag("outcome", "failed").register(meterRegistry);
+        this.retriedCounter = Counter.builder("notifications.publish").tag("outcome", "retried").register(meterRegistry);
+        Gauge.builder("notifications.publish.queue", workers, executor -> executor.getQueue().size())
+                .description("Zadania publikacji SNS czekające na wolny wątek")
+                .register(meterRegistry);
+        Gauge.builder("notifications.publish.in-flight", inFlight, semaphore -> maxInFlight - semaphore.availablePermits())
+                .description("Wywołania SNS w toku")
+                .register(meterRegistry);
+    }
+
+    // Kolejkuje publikację jednego powiadomienia. Nie blokuje wywołującego.
+    public void publish(NotificationRecord record, String subject) {
+        submit(new Job(List.of(new PublishTask(record, subject)), 1));
+    }
+
+    // Kolejkuje publikację wielu powiadomień - po 10 na jedno wywołanie PublishBatch.
+    public void publishAll(List<PublishTask> tasks) {
+        for (int from = 0; from < tasks.size(); from += SnsService.MAX_PUBLISH_BATCH_ENTRIES) {
+            int to = Math.min(from + SnsService.MAX_PUBLISH_BATCH_ENTRIES, tasks.size());
+            submit(new Job(List.copyOf(tasks.subList(from, to)), 1));
+        }
+    }
+
+    private void submit(Job job) {
+        try {
+            workers.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            retryOrFail(job.tasks(), job.attempt(), "publish queue full");
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            inFlight.acquire(); // Czekamy, aż liczba wywołań SNS w toku spadnie poniżej maxInFlight
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            retryOrFail(job.tasks(), job.attempt(), "interrupted");
+            return;
+        }
+
+        List<SnsService.OutgoingMessage> messages = job.tasks().stream()
+                .map(task -> new SnsService.OutgoingMessage(task.record().getUserId(), task.record().getType(),
+                        task.subject(), task.record().getMessage()))
+                .toList();
+        CompletableFuture<List<SnsService.PublishResult>> results;
+        try {
+            results = messages.size() == 1
+                    ? snsService.publishAsync(messages.get(0)).thenApply(List::of)
+                    : snsService.publishBatchAsync(messages);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            retryOrFail(job.tasks(), job.attempt(), e.getMessage());
+            return;
+        }
+
+        // Wykonuje się na puli "future completion" klienta SDK, nie na wątku Netty (patrz SnsService.publishAsync).
+        results.whenComplete((publishResults, error) -> {
+            inFlight.release();
+            if (error != null) {
+                retryOrFail(job.tasks(), job.attempt(), error.getMessage());
+            } else {
+                handleResults(job, publishResults);
+            }
+        });
+    }
+
+    private void handleResults(Job job, List<SnsService.PublishResult> results) {
+        List<PublishTask> toRetry = new ArrayList<>();
+        String lastError = null;
+        for (int i = 0; i < results.size(); i++) {
+            PublishTask task = job.tasks().get(i);
+            SnsService.PublishResult result = results.get(i);
+            if (result.isSent()) {
+                complete(task, NotificationRecord.STATUS_SENT);
+            } else if (result.retryable()) {
+                toRetry.add(task);
+                lastError = result.error();
+            } else {
+                logger.error("Notification {} rejected by SNS, not retrying: {}", task.record().getNotificationId(), result.error());
+                complete(task, NotificationRecord.STATUS_FAILED);
+            }
+        }
+        if (!toRetry.isEmpty()) {
+            retryOrFail(toRetry, job.attempt(), lastError);
+        }
+    }
+
+    private void retryOrFail(List<PublishTask> tasks, int attempt, String reason) {
+        if (attempt >= maxAttempts) {
+            logger.error("Giving up on {} notifications after {} attempts: {}", tasks.size(), attempt, reason);
+            tasks.forEach(task -> complete(task, NotificationRecord.STATUS_FAILED));
+            return;
+        }
+        long delayMillis = backoffMillis(attempt);
+        logger.warn("Publishing {} notifications failed (attempt {}/{}): {}. Retrying in {} ms",
+                tasks.size(), attempt, maxAttempts, reason, delayMillis);
+        try {
+            retryScheduler.schedule(() -> submit(new Job(tasks, attempt + 1)), delayMillis, TimeUnit.MILLISECONDS);
+            retriedCounter.increment(tasks.size());
+        } catch (RejectedExecutionException e) {
+            // Aplikacja się zamyka - rekordy zostają w DynamoDB ze statusem PENDING (dokończy je PendingNotificationRetrier).
+            logger.warn("Publisher is shutting down, {} notifications left as PENDING", tasks.size());
+        }
+    }
+
+    // Wykładniczy odstęp (initialBackoff * 2^(attempt-1), max maxBackoff) z rozrzutem w zakresie [połowa, całość],
+    // żeby ponowienia wielu powiadomień po tej samej awarii nie uderzały w SNS jednocześnie.
+    private long backoffMillis(int attempt) {
+        long exponential = initialBackoffMillis << Math.min(attempt - 1, 20);
+        long capped = Math.min(maxBackoffMillis, exponential);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private void complete(PublishTask task, String status) {
+        String notificationId = task.record().getNotificationId();
+        try {
+            if (notificationRepository.updateStatus(notificationId, NotificationRecord.STATUS_PENDING, status)) {
+                task.record().setStatus(status);
+            }
+        } catch (RuntimeException e) {
+            // Wiadomość mogła już zostać wysłana - status zostaje PENDING, błąd jest w logach repozytorium.
+            logger.error("Could not store status {} for notification {}", status, notificationId);
+        }
+        (NotificationRecord.STATUS_SENT.equals(status) ? sentCounter : failedCounter).increment();
+    }
+
+    // Przy zamykaniu: porzucamy zaplanowane ponowienia (te rekordy zostają PENDING i po min-age-ms publikuje je
+    // ponownie PendingNotificationRetrier tej albo innej instancji), dajemy wątkom dokończyć
+    // zadania z kolejki i czekamy na odpowiedzi SNS w toku - najwyżej shutdownTimeoutMillis łącznie.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        int droppedRetries = retryScheduler.shutdownNow().size();
+        if (droppedRetries > 0) {
+            logger.warn("Dropped {} scheduled publish retries on shutdown, their notifications stay PENDING", droppedRetries);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        workers.shutdown();
+        if (!workers.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            logger.warn("Publish queue not drained on shutdown, {} jobs left", workers.shutdownNow().size());
+        }
+        long remainingNanos = Math.max(0, deadline - System.nanoTime());
+        if (!inFlight.tryAcquire(maxInFlight, remainingNanos, TimeUnit.NANOSECONDS)) {
+            logger.warn("{} SNS publish calls still in flight on shutdown", maxInFlight - inFlight.availablePermits());
+        }
+    }
+}
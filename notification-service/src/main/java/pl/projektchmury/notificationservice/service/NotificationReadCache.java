@@ -0,0 +1,212 @@
+// Pamięć podręczna odczytów powiadomień
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import pl.projektchmury.notificationservice.model.NotificationPage;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through cache pierwszych stron historii (/history i /unread bez kursora) i licznika nieprzeczytanych per użytkownik.
+// Dzwonek w każdej otwartej karcie odpytuje te same dane co 30 s - z pamięci podręcznej kolejne karty (i /unread-count
+// po odświeżeniu listy) nie czytają DynamoDB ponownie. Starsze strony (z kursorem) zawsze idą do bazy.
+// Zapisy z tej instancji aktualizują wpis od razu: nowe powiadomienie zwiększa licznik i unieważnia pierwsze strony
+// (następny odczyt zbuduje je od nowa - dopisanie na początek zepsułoby nextCursor), oznaczenie jako przeczytane
+// zmienia rekord w pierwszej stronie historii, usuwa go z pierwszej strony nieprzeczytanych i zmniejsza licznik.
+// Zapisy obsłużone przez inną instancję serwisu są widoczne najpóźniej po ttl-ms.
+@Component
+public class NotificationReadCache {
+
+    // Stan jednego użytkownika. Dostęp tylko pod synchronized(entry). generation rośnie przy każdym zapisie -
+    // odczyt z bazy, który zaczął się przed zapisem, nie nadpisze nowszego stanu (porównanie generation przy wstawianiu).
+    private static final class UserEntry {
+        final long expiresAtNanos;
+        final Map<Integer, NotificationPage> historyHeads = new HashMap<>(); // Klucz: limit strony
+        final Map<Integer, NotificationPage> unreadHeads = new HashMap<>();
+        Long unreadCount;
+        long generation;
+
+        UserEntry(long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxUsers;
+    private final Map<String, UserEntry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> hits = new ConcurrentHashMap<>();
+    private final Map<String, Counter> misses = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public NotificationReadCache(MeterRegistry meterRegistry,
+                                 @Value("${app.notifications.read-cache.enabled:true}") boolean enabled,
+                                 @Value("${app.notifications.read-cache.ttl-ms:30000}") long ttlMillis,
+                                 @Value("${app.notifications.read-cache.max-users:50000}") int maxUsers) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxUsers = maxUsers;
+        Gauge.builder("notifications.read-cache.users", entries, Map::size).register(meterRegistry);
+    }
+
+    public NotificationPage historyHead(String userId, int limit, Supplier<NotificationPage> loader) {
+        return read("history", userId, entry -> entry.historyHeads.get(limit), loader,
+                (entry, page) -> entry.historyHeads.put(limit, page));
+    }
+
+    public NotificationPage unreadHead(String userId, int limit, Supplier<NotificationPage> loader) {
+        return read("unread", userId, entry -> entry.unreadHeads.get(limit), loader,
+                (entry, page) -> entry.unreadHeads.put(limit, page));
+    }
+
+    public long unreadCount(String userId, Supplier<Long> loader) {
+        return read("unread-count", userId, entry -> entry.unreadCount, loader, (entry, count) -> entry.unreadCount = count);
+    }
+
+    // Wersje dla loaderów asynchronicznych (repozytorium *Async) - trafienie zwraca gotowy future,
+    // a wynik z bazy trafia do wpisu, gdy future się zakończy (z tą samą kontrolą generation).
+    public CompletableFuture<NotificationPage> historyHeadAsync(String userId, int limit,
+                                                                Supplier<CompletableFuture<NotificationPage>> loader) {
+        return readAsync("history", userId, entry -> entry.historyHeads.get(limit), loader,
+                (entry, page) -> entry.historyHeads.put(limit, page));
+    }
+
+    public CompletableFuture<NotificationPage> unreadHeadAsync(String userId, int limit,
+                                                               Supplier<CompletableFuture<NotificationPage>> loader) {
+        return readAsync("unread", userId, entry -> entry.unreadHeads.get(limit), loader,
+                (entry, page) -> entry.unreadHeads.put(limit, page));
+    }
+
+    public CompletableFuture<Long> unreadCountAsync(String userId, Supplier<CompletableFuture<Long>> loader) {
+        return readAsync("unread-count", userId, entry -> entry.unreadCount, loader,
+                (entry, count) -> entry.unreadCount = count);
+    }
+
+    // Nowe (nieprzeczytane) powiadomienie użytkownika zapisane w bazie.
+    public void onCreated(String userId, int count) {
+        update(userId, entry -> {
+            entry.historyHeads.clear();
+            entry.unreadHeads.clear();
+            if (entry.unreadCount != null) {
+                entry.unreadCount += count;
+            }
+        });
+    }
+
+    // Powiadomienie oznaczone jako przeczytane przez markAsRead (wynik MARKED).
+    public void onMarkedAsRead(String userId, String notificationId) {
+        update(userId, entry -> {
+            entry.historyHeads.replaceAll((limit, page) -> replaceItems(page, page.items().stream()
+                    .map(item -> notificationId.equals(item.getNotificationId()) ? readCopy(item) : item)
+                    .toList()));
+            entry.unreadHeads.replaceAll((limit, page) -> replaceItems(page, page.items().stream()
+                    .filter(item -> !notificationId.equals(item.getNotificationId()))
+                    .toList()));
+            if (entry.unreadCount != null) {
+                entry.unreadCount = Math.max(0, entry.unreadCount - 1);
+            }
+        });
+    }
+
+    // Zmiana wielu rekordów naraz (mark-all-read) - taniej zbudować wpis od nowa niż poprawiać.
+    public void invalidate(String userId) {
+        UserEntry entry = entries.remove(userId);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.generation++; // Odczyt w toku nie wstawi już wyniku do usuniętego wpisu
+            }
+        }
+    }
+
+    // Loader synchroniczny działa w wątku wywołującym, więc future jest już zakończony - join() nie czeka.
+    private <T> T read(String cache, String userId, Function<UserEntry, T> lookup, Supplier<T> loader,
+                       BiConsumer<UserEntry, T> store) {
+        return readAsync(cache, userId, lookup, () -> CompletableFuture.completedFuture(loader.get()), store).join();
+    }
+
+    private <T> CompletableFuture<T> readAsync(String cache, String userId, Function<UserEntry, T> lookup,
+                                               Supplier<CompletableFuture<T>> loader, BiConsumer<UserEntry, T> store) {
+        if (!enabled) {
+            return loader.get();
+        }
+        UserEntry entry = liveEntry(userId);
+        long generation;
+        synchronized (entry) {
+            T cached = lookup.apply(entry);
+            if (cached != null) {
+                counter(hits, cache, "hit").increment();
+                return CompletableFuture.completedFuture(cached);
+            }
+            generation = entry.generation;
+        }
+        counter(misses, cache, "miss").increment();
+        return loader.get().thenApply(loaded -> {
+            synchronized (entry) {
+                if (entry.generation == generation && entries.get(userId) == entry) {
+                    store.accept(entry, loaded);
+                }
+            }
+            return loaded;
+        });
+    }
+
+    private void update(String userId, Consumer<UserEntry> change) {
+        UserEntry entry = entries.get(userId);
+        if (entry == null) {
+            return; // Nic nie jest zapamiętane - następny odczyt i tak pójdzie do bazy
+        }
+        synchronized (entry) {
+            entry.generation++;
+            change.accept(entry);
+        }
+    }
+
+    // Wpis użytkownika ważny jeszcze przez ttl - wygasły jest zastępowany pustym.
+    private UserEntry liveEntry(String userId) {
+        long now = System.nanoTime();
+        UserEntry entry = entries.get(userId);
+        if (entry != null && entry.expiresAtNanos - now > 0) {
+            return entry;
+        }
+        if (entry == null && entries.size() >= maxUsers) {
+            entries.values().removeIf(existing -> existing.expiresAtNanos - now <= 0);
+            if (entries.size() >= maxUsers) {
+                entries.clear(); // Prosta granica pamięci - wpisy i tak są tanie do odtworzenia
+            }
+        }
+        return entries.compute(userId, (key, existing) ->
+                (existing != null && existing.expiresAtNanos - now > 0) ? existing : new UserEntry(now + ttlNanos));
+    }
+
+    private Counter counter(Map<String, Counter> counters, String cache, String result) {
+        return counters.computeIfAbsent(cache, name -> Counter.builder("notifications.read-cache")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry));
+    }
+
+    private static NotificationPage replaceItems(NotificationPage page, List<NotificationRecord> items) {
+        return new NotificationPage(items, page.nextCursor());
+    }
+
+    // Strony z pamięci podręcznej mogą być właśnie serializowane do odpowiedzi - zmieniamy kopię, nie rekord.
+    private static NotificationRecord readCopy(NotificationRecord item) {
+        NotificationRecord copy = NotificationRecord.TABLE_SCHEMA.mapToItem(NotificationRecord.TABLE_SCHEMA.itemToMap(item, true));
+        copy.setReadNotification(true);
+        return copy;
+    }
+}
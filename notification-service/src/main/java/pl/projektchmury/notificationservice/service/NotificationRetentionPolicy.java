@@ -0,0 +1,46 @@
+// Czas Życia Powiadomień
+package pl.projektchmury.notificationservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+// Ile dni powiadomienie danego typu zostaje w tabeli historii, zanim usunie je TTL DynamoDB.
+// Typy bez wpisu w app.notifications.retention.days-by-type dostają default-days.
+@Component
+public class NotificationRetentionPolicy {
+
+    private final int defaultDays;
+    private final Map<String, Integer> daysByType;
+
+    public NotificationRetentionPolicy(@Value("${app.notifications.retention.default-days:90}") int defaultDays,
+                                       @Value("#{${app.notifications.retention.days-by-type:{:}}}") Map<String, Integer> daysByType) {
+        this.defaultDays = defaultDays;
+        this.daysByType = (daysByType != null) ? Map.copyOf(daysByType) : Collections.emptyMap();
+        if (minDays() < 2) {
+            // NotificationArchiver archiwizuje dzień wygaśnięcia D dopiero, gdy nie mogą już powstać rekordy wygasające w D,
+            // i przed samym D - przy retencji krótszej niż 2 dni takiego okna nie ma.
+            throw new IllegalStateException("Notification retention must be at least 2 days for every type");
+        }
+    }
+
+    public int daysFor(String type) {
+        return daysByType.getOrDefault(type, defaultDays);
+    }
+
+    // Wartość atrybutu TTL (sekundy od epochy) dla powiadomienia utworzonego w createdAtMillis.
+    public long expiresAt(String type, long createdAtMillis) {
+        return (createdAtMillis + Duration.ofDays(daysFor(type)).toMillis()) / 1000;
+    }
+
+    public int minDays() {
+        return daysByType.values().stream().mapToInt(Integer::intValue).reduce(defaultDays, Math::min);
+    }
+
+    public int maxDays() {
+        return daysByType.values().stream().mapToInt(Integer::intValue).reduce(defaultDays, Math::max);
+    }
+}
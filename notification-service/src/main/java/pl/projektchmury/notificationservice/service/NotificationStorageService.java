@@ -1,87 +1,283 @@
 // Orkiestrator Powiadomień
 package pl.projektchmury.notificationservice.service;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.MarkAsReadResult;
+import pl.projektchmury.notificationservice.model.NotificationDelta;
+import pl.projektchmury.notificationservice.model.NotificationPage;
 import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.model.NotificationRequest;
 import pl.projektchmury.notificationservice.repository.NotificationRepository;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Service
 public class NotificationStorageService {
     private static final Logger logger = LoggerFactory.getLogger(NotificationStorageService.class);
     private final NotificationRepository notificationRepository;
-    private final SnsService snsService; // Pole przechowujące wstrzykniętą instancję SnsService
-    @Autowired // Mówi Springowi, żeby automatycznie wstrzyknął zależności (NotificationRepository i SnsService) do tego konstruktora.
-    public NotificationStorageService(NotificationRepository notificationRepository, SnsService snsService) {
+    private final NotificationPublisher notificationPublisher; // Publikacja w SNS w tle (status PENDING -> SENT/FAILED)
+    private final NotificationRetentionPolicy retentionPolicy; // Czas życia rekordu (TTL) zależny od typu
+    private final SubscriptionRegistry subscriptionRegistry; // Czy odbiorca ma subskrypcje SNS (z pamięci podręcznej)
+    private final NotificationReadCache readCache; // Pierwsze strony historii i licznik nieprzeczytanych per użytkownik
+    private final NotificationStreamRegistry streamRegistry; // Otwarte strumienie SSE (/stream) odbiorców
+    private final NotificationWriteBehind writeBehind; // Opcjonalny zapis paczkami (BatchWriteItem) zamiast PutItem na rekord
+    private final boolean skipWithoutSubscribers;
+    private final long deltaLagMillis; // Zakładka okna /history?since= (zapisy w toku, opóźnienie GSI, różnice zegarów)
+    private final ThreadPoolExecutor markAllReadWorkers; // mark-all-read poza wątkiem żądania (repozytorium usypia wątek w tempie limitu zapisów)
+    @Autowired // Mówi Springowi, żeby automatycznie wstrzyknął zależności do tego konstruktora.
+    public NotificationStorageService(NotificationRepository notificationRepository, NotificationPublisher notificationPublisher,
+                                      NotificationRetentionPolicy retentionPolicy, SubscriptionRegistry subscriptionRegistry,
+                                      NotificationReadCache readCache, NotificationStreamRegistry streamRegistry,
+                                      NotificationWriteBehind writeBehind,
+                                      @Value("${app.notifications.routing.skip-without-subscribers:true}") boolean skipWithoutSubscribers,
+                                      @Value("${app.notifications.history.delta-lag-ms:5000}") long deltaLagMillis,
+                                      @Value("${app.notifications.mark-all-read.workers:2}") int markAllReadThreads,
+                                      @Value("${app.notifications.mark-all-read.queue-capacity:100}") int markAllReadQueueCapacity) {
         this.notificationRepository = notificationRepository;
-        this.snsService = snsService; // Przypisanie wstrzykniętego SnsService.
+        this.notificationPublisher = notificationPublisher;
+        this.retentionPolicy = retentionPolicy;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.readCache = readCache;
+        this.streamRegistry = streamRegistry;
+        this.writeBehind = writeBehind;
+        this.skipWithoutSubscribers = skipWithoutSubscribers;
+        this.deltaLagMillis = deltaLagMillis;
+        // Pełna kolejka = RejectedExecutionException, kontroler odpowiada 503 zamiast czekać.
+        this.markAllReadWorkers = new ThreadPoolExecutor(markAllReadThreads, markAllReadThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(markAllReadQueueCapacity), new CustomizableThreadFactory("mark-all-read-"),
+                (task, executor) -> {
+                    throw new RejectedExecutionException("mark-all-read queue full");
+                });
     }
 
+    // Zapisuje rekord ze statusem PENDING i zleca publikację w SNS w tle (NotificationPublisher).
+    // Czas odpowiedzi /send to więc jeden zapis do DynamoDB, a nie zapis + wywołanie SNS.
+    // Status zmieni się na SENT albo FAILED, gdy SNS odpowie (po ewentualnych ponowieniach).
+    // Odbiorca bez subskrypcji SNS dostaje od razu status SKIPPED - bez publikacji i bez późniejszej zmiany statusu.
+    // Przy włączonym write-behind rekord jest tylko kolejkowany, a kroki po zapisie wykonują się po zapisie paczki.
     public NotificationRecord sendAndStoreNotification(String userId, String type, String subject, String message, String relatedEntityId) {
-        // KROK 1: Wyślij powiadomienie przez SNS.
-        // Wywołujemy metodę z naszego SnsService, przekazując temat i treść wiadomości.
-        // Metoda ta zwróci ID wiadomości SNS, jeśli wysyłka się powiodła, lub null w przypadku błędu.
-        String snsMessageId = snsService.sendSnsNotification(subject, message);
+        // KROK 1: Przygotuj i zapisz rekord powiadomienia w naszej bazie danych (DynamoDB) - jeszcze przed wysyłką,
+        // żeby wynik publikacji zawsze miał rekord, którego status można zaktualizować.
+        boolean publish = shouldPublish(userId);
+        NotificationRecord record = buildRecord(userId, type, subject, message, relatedEntityId, null, initialStatus(publish));
+        if (writeBehind.isEnabled()) {
+            saveBehind(record, subject, publish);
+            return record;
+        }
+        NotificationRecord saved = notificationRepository.save(record);
+        afterSave(saved, subject, publish);
+        return saved;
+    }
+
+    // sendAndStoreNotification bez czekania na DynamoDB - kroki po zapisie wykonują się, gdy zapis się zakończy.
+    // shouldPublish czyta rejestr subskrypcji z pamięci podręcznej (baza tylko przy chybieniu).
+    public CompletableFuture<NotificationRecord> sendAndStoreNotificationAsync(String userId, String type, String subject,
+                                                                               String message, String relatedEntityId) {
+        boolean publish = shouldPublish(userId);
+        NotificationRecord record = buildRecord(userId, type, subject, message, relatedEntityId, null, initialStatus(publish));
+        if (writeBehind.isEnabled()) {
+            saveBehind(record, subject, publish);
+            return CompletableFuture.completedFuture(record);
+        }
+        return notificationRepository.saveAsync(record).thenApply(saved -> {
+            afterSave(saved, subject, publish);
+            return saved;
+        });
+    }
+
+    // Write-behind: odpowiedź idzie od razu, kroki po zapisie wykonują się po zapisie paczki (albo zapisie pojedynczym,
+    // jeśli paczka się nie udała). Rekord, którego nie udało się zapisać wcale, nie jest publikowany ani wysyłany do SSE
+    // - klient dostał już odpowiedź, więc zostaje tylko log i metryka notifications.write-behind{outcome=failed}.
+    private void saveBehind(NotificationRecord record, String subject, boolean publish) {
+        writeBehind.submit(record).whenComplete((saved, error) -> {
+            if (error != null) {
+                logger.error("Notification {} for user {} was not saved by write-behind: {}",
+                        record.getNotificationId(), record.getUserId(), error.getMessage());
+                return;
+            }
+            afterSave(saved, subject, publish);
+        });
+    }
+
+    // Rekord jest już w DynamoDB: aktualizacja pamięci podręcznej, strumienie SSE i (w tle) wysyłka przez SNS.
+    private void afterSave(NotificationRecord saved, String subject, boolean publish) {
+        readCache.onCreated(saved.getUserId(), 1);
+        streamRegistry.publish(saved); // Połączone karty odbiorcy dostają rekord od razu (bez czekania na SNS)
+
+        // KROK 2: Zleć wysyłkę przez SNS. Metoda nie czeka na SNS.
+        if (publish) {
+            notificationPublisher.publish(saved, subject);
+        }
+    }
+
+    // Wersja wsadowa sendAndStoreNotification: jeden BatchWriteItem na 25 rekordów (status PENDING),
+    // potem publikacja w tle - jedno PublishBatch na 10 wiadomości.
+    public List<NotificationRecord> sendAndStoreNotificationBatch(List<NotificationRequest> requests) {
+        // KROK 1: Przygotuj rekordy i zapisz je wszystkie naraz (BatchWriteItem).
+        List<NotificationRecord> records = new ArrayList<>(requests.size());
+        for (NotificationRequest request : requests) {
+            records.add(buildRecord(request.targetUserId(), request.type(), request.subject(), request.message(), request.relatedEntityId(),
+                    request.coalescedCount(), initialStatus(shouldPublish(request.targetUserId()))));
+        }
+        List<NotificationRecord> saved = notificationRepository.saveAll(records);
+        saved.stream()
+                .collect(Collectors.groupingBy(NotificationRecord::getUserId, Collectors.counting()))
+                .forEach((userId, count) -> readCache.onCreated(userId, count.intValue()));
+        saved.forEach(streamRegistry::publish);
 
-        // KROK 2: Ustal status wysyłki na podstawie tego, czy dostaliśmy ID wiadomości SNS.
-        String status = (snsMessageId != null) ? "SENT" : "FAILED"; // Jeśli snsMessageId nie jest null, to status "SENT", inaczej "FAILED".
+        // KROK 2: Zleć wysyłkę przez SNS (PublishBatch) w tle - tylko rekordom, które na nią czekają.
+        List<NotificationPublisher.PublishTask> tasks = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            if (NotificationRecord.STATUS_PENDING.equals(saved.get(i).getStatus())) {
+                tasks.add(new NotificationPublisher.PublishTask(saved.get(i), requests.get(i).subject()));
+            }
+        }
+        notificationPublisher.publishAll(tasks);
+        return saved;
+    }
 
-        // KROK 3: Przygotuj i zapisz rekord powiadomienia w naszej bazie danych (DynamoDB).
+    private boolean shouldPublish(String userId) {
+        return !skipWithoutSubscribers || subscriptionRegistry.hasSubscribers(userId);
+    }
+
+    private static String initialStatus(boolean publish) {
+        return publish ? NotificationRecord.STATUS_PENDING : NotificationRecord.STATUS_SKIPPED;
+    }
+
+    private NotificationRecord buildRecord(String userId, String type, String subject, String message, String relatedEntityId,
+                                           Integer coalescedCount, String status) {
         NotificationRecord record = new NotificationRecord();
         record.setNotificationId(UUID.randomUUID().toString()); // Wygeneruj unikalne ID dla tego rekordu powiadomienia.
         record.setUserId(userId); // Użytkownik, do którego jest to powiadomienie.
         record.setType(type);     // Typ powiadomienia.
         record.setMessage(message); // Treść powiadomienia.
         record.setTimestamp(Instant.now().toEpochMilli()); // Aktualny czas jako liczba milisekund od epochy.
-        record.setStatus(status); // Ustaw status wysyłki ("SENT" lub "FAILED").
+        record.setExpiresAt(retentionPolicy.expiresAt(type, record.getTimestamp())); // Kiedy TTL usunie rekord (po archiwizacji).
+        record.setStatus(status); // Ustaw status wysyłki (na starcie "PENDING").
         record.setReadNotification(false); // Domyślnie powiadomienie jest nieprzeczytane.
+        record.setUnreadUserId(userId); // ...więc trafia do indeksu nieprzeczytanych.
+        record.setVersion(1L); // Pierwsza wersja - każda późniejsza zmiana stanu ją zwiększa.
         if (relatedEntityId != null) { // Jeśli jest powiązany identyfikator (np. ID wiadomości czatu)
             record.setRelatedEntityId(relatedEntityId); // Zapisz go.
         }
-        // Zapisz przygotowany rekord do repozytorium (które w naszym przypadku komunikuje się z DynamoDB).
-        return notificationRepository.save(record);
-    }
-
-    public List<NotificationRecord> getNotificationHistory(String userId) {
-        return notificationRepository.findByUserIdOrderByTimestampDesc(userId);
-    }
-
-    public boolean markNotificationAsRead(String notificationId, String requestingUserId) {
-        logger.info("[N_StorageSvc_MarkAsRead] Próba oznaczenia powiadomienia ID: {} jako przeczytane przez użytkownika: {}", notificationId, requestingUserId);
-        Optional<NotificationRecord> recordOptional = notificationRepository.findById(notificationId); // Użyj istniejącej metody
-        if (recordOptional.isPresent()) {
-            NotificationRecord record = recordOptional.get();
-            logger.info("[N_StorageSvc_MarkAsRead] Znaleziono powiadomienie ID: {}. Właściciel: {}, Aktualny status readNotification: {}",
-                    notificationId, record.getUserId(), record.isReadNotification());
-
-            if (record.getUserId().equals(requestingUserId)) {
-                if (!record.isReadNotification()) {
-                    record.setReadNotification(true);
-                    notificationRepository.save(record); // Zapisz zaktualizowany rekord
-                    logger.info("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} oznaczone jako przeczytane.", notificationId);
-                } else {
-                    logger.info("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} było już oznaczone jako przeczytane.", notificationId);
-                }
-                return true; // Sukces, nawet jeśli już było przeczytane
-            } else {
-                logger.warn("[N_StorageSvc_MarkAsRead] Użytkownik {} próbował oznaczyć powiadomienie {} należące do {}.",
-                        requestingUserId, notificationId, record.getUserId());
-                return false; // Brak uprawnień
-            }
+        record.setCoalescedCount(coalescedCount); // Liczba scalonych powiadomień (tylko dla zbiorczych).
+        if (NotificationRecord.STATUS_PENDING.equals(status)) {
+            record.markPending(subject); // Indeks PENDING - publikację dokończy PendingNotificationRetrier, jeśli ten węzeł padnie
+        }
+        return record;
+    }
+
+    // Jedna strona historii (najnowsze pierwsze). cursor = nextCursor z poprzedniej strony albo null.
+    // Pierwsza strona (odpytywana przez dzwonek) pochodzi z pamięci podręcznej, jeśli jest świeża.
+    public NotificationPage getNotificationHistory(String userId, int limit, String cursor) {
+        if (cursor == null) {
+            return readCache.historyHead(userId, limit, () -> notificationRepository.findPageByUserId(userId, limit, null));
         }
-        logger.warn("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} nie zostało znalezione.", notificationId);
-        return false; // Powiadomienie nie znalezione
+        return notificationRepository.findPageByUserId(userId, limit, cursor);
+    }
+
+    public CompletableFuture<NotificationPage> getNotificationHistoryAsync(String userId, int limit, String cursor) {
+        if (cursor == null) {
+            return readCache.historyHeadAsync(userId, limit, () -> notificationRepository.findPageByUserIdAsync(userId, limit, null));
+        }
+        return notificationRepository.findPageByUserIdAsync(userId, limit, cursor);
+    }
+
+    // Zmiany od "since" (czas syncedAt z poprzedniej odpowiedzi): dwa zapytania z warunkiem zakresu na kluczu sortowania,
+    // równolegle - nowe powiadomienia (timestamp na userId-timestamp-index) i zmiany przeczytania (updatedAt na indeksie
+    // rzadkim userId-updatedAt-index). Bez zmian obie odpowiedzi są puste, więc odpytywanie kosztuje minimum RCU.
+    // Okno zaczyna się deltaLagMillis przed "since": rekord zapisany z wcześniejszym timestamp (inna instancja,
+    // write-behind) albo jeszcze niewidoczny w GSI w chwili poprzedniego zapytania nie przepadnie.
+    // Bez pamięci podręcznej - odpowiedź zależy od "since". Błąd DynamoDB kończy future wyjątkiem: pusta odpowiedź
+    // przesunęłaby syncedAt klienta i zmiany zostałyby pominięte.
+    public CompletableFuture<NotificationDelta> getNotificationChangesAsync(String userId, long since, int limit) {
+        long syncedAt = Instant.now().toEpochMilli(); // Przed zapytaniami - zmiany w ich trakcie wrócą w następnym oknie
+        long from = Math.max(0, since - deltaLagMillis);
+        CompletableFuture<List<NotificationRecord>> items = notificationRepository.findByUserIdSince(userId, from, limit + 1);
+        CompletableFuture<List<String>> readIds = notificationRepository.findReadIdsSince(userId, from, limit + 1);
+        return items.thenCombine(readIds, (newItems, changedIds) -> NotificationDelta.of(newItems, changedIds, limit, syncedAt));
+    }
+
+    public NotificationDelta getNotificationChanges(String userId, long since, int limit) {
+        return getNotificationChangesAsync(userId, since, limit).join();
+    }
+
+    // Jeden warunkowy UpdateItem (+ ADD na liczniku) - bez odczytu rekordu przed ani po zmianie.
+    // Wynik MARKED/ALREADY_READ niesie aktualny rekord, NOT_FOUND/FORBIDDEN - powód odmowy.
+    public MarkAsReadResult markNotificationAsRead(String notificationId, String requestingUserId) {
+        logger.debug("[N_StorageSvc_MarkAsRead] Próba oznaczenia powiadomienia ID: {} jako przeczytane przez użytkownika: {}", notificationId, requestingUserId);
+        MarkAsReadResult result = notificationRepository.markAsRead(notificationId, requestingUserId);
+        if (result.outcome() == MarkAsReadResult.Outcome.MARKED) {
+            readCache.onMarkedAsRead(requestingUserId, notificationId);
+        }
+        switch (result.outcome()) {
+            case MARKED -> logger.info("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} oznaczone jako przeczytane.", notificationId);
+            case ALREADY_READ -> logger.info("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} było już oznaczone jako przeczytane.", notificationId);
+            case NOT_FOUND -> logger.warn("[N_StorageSvc_MarkAsRead] Powiadomienie ID: {} nie zostało znalezione.", notificationId);
+            case FORBIDDEN -> logger.warn("[N_StorageSvc_MarkAsRead] Użytkownik {} próbował oznaczyć cudze powiadomienie {}.",
+                    requestingUserId, notificationId);
+        }
+        return result;
+    }
+
+    // upToTimestamp = null oznacza "do teraz" - powiadomienia, które przyjdą w trakcie operacji, zostają nieprzeczytane.
+    public int markAllNotificationsAsRead(String userId, Long upToTimestamp) {
+        long bound = (upToTimestamp != null) ? upToTimestamp : Instant.now().toEpochMilli();
+        try {
+            return notificationRepository.markAllAsRead(userId, bound);
+        } finally {
+            readCache.invalidate(userId); // Także po błędzie w połowie - część rekordów mogła się zmienić
+        }
+    }
+
+    // To samo na osobnej puli: repozytorium wysyła UpdateItem w tempie max-writes-per-second (parkNanos),
+    // więc duża skrzynka zajęłaby wątek Tomcata na sekundy. Granica "do teraz" liczona jest już przy przyjęciu żądania.
+    // Przy pełnej kolejce rzuca RejectedExecutionException od razu, w wątku wywołującym.
+    public CompletableFuture<Integer> markAllNotificationsAsReadAsync(String userId, Long upToTimestamp) {
+        long bound = (upToTimestamp != null) ? upToTimestamp : Instant.now().toEpochMilli();
+        return CompletableFuture.supplyAsync(() -> markAllNotificationsAsRead(userId, bound), markAllReadWorkers);
+    }
+
+    public NotificationPage getUnreadNotifications(String userId, int limit, String cursor) {
+        if (cursor == null) {
+            return readCache.unreadHead(userId, limit, () -> notificationRepository.findUnreadPageByUserId(userId, limit, null));
+        }
+        return notificationRepository.findUnreadPageByUserId(userId, limit, cursor);
+    }
+
+    public CompletableFuture<NotificationPage> getUnreadNotificationsAsync(String userId, int limit, String cursor) {
+        if (cursor == null) {
+            return readCache.unreadHeadAsync(userId, limit, () -> notificationRepository.findUnreadPageByUserIdAsync(userId, limit, null));
+        }
+        return notificationRepository.findUnreadPageByUserIdAsync(userId, limit, cursor);
+    }
+
+    public long getUnreadCount(String userId) {
+        return readCache.unreadCount(userId, () -> notificationRepository.countUnread(userId));
+    }
+
+    public CompletableFuture<Long> getUnreadCountAsync(String userId) {
+        return readCache.unreadCountAsync(userId, () -> notificationRepository.countUnreadAsync(userId));
     }
 
-    // aby kontroler mógł pobrać zaktualizowany rekord
-    public Optional<NotificationRecord> getNotificationById(String notificationId) {
-        return notificationRepository.findById(notificationId);
+    // Rozpoczęte oznaczanie kończy się przy zamykaniu; przerwane w połowie klient może po prostu powtórzyć.
+    @PreDestroy
+    public void shutdown() {
+        markAllReadWorkers.shutdown();
     }
 }
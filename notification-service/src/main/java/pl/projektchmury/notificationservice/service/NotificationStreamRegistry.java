@@ -0,0 +1,241 @@
+// Rejestr strumieni SSE dzwonka
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Połączenia GET /api/notifications/stream (Server-Sent Events) pogrupowane po użytkowniku.
+// Połączenie bez zdarzeń nie zajmuje wątku: SseEmitter to asynchroniczne żądanie servletu, a wszystkie zapisy do klientów
+// (zdarzenia, heartbeat) robi kilka wątków "sse-dispatch-" - liczba połączeń jest ograniczona max-connections, nie pulą wątków.
+// Źródła zdarzeń:
+// - publish(): rekordy zapisane przez tę instancję (sendAndStoreNotification / wsadowo) - wysyłane od razu;
+// - resync co resync-interval-ms: jedno zapytanie na indeksie userId-timestamp-index na połączonego użytkownika (nie na kartę),
+//   które dostarcza powiadomienia zapisane przez inne instancje serwisu. Okno zapytania zaczyna się resync-lag-ms
+//   przed poprzednim, żeby nie zgubić zapisów w toku i różnic zegarów; duplikaty odsiewa zbiór wysłanych ID.
+// ID zdarzenia = timestamp powiadomienia. Klient wznawia z nagłówkiem Last-Event-ID (największy otrzymany timestamp),
+// a serwer odtwarza powiadomienia od tej chwili minus resync-lag-ms - klient odrzuca znane już notificationId.
+@Component
+public class NotificationStreamRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamRegistry.class);
+
+    static final String EVENT_NAME = "notification";
+
+    // Połączenia jednego użytkownika na tej instancji i stan deduplikacji (dostęp do pól pod synchronized(this)).
+    private static final class UserStreams {
+        final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+        final Map<String, Long> deliveredIds = new HashMap<>(); // notificationId -> timestamp, tylko z okna resync
+        long resyncFrom;
+
+        UserStreams(long resyncFrom) {
+            this.resyncFrom = resyncFrom;
+        }
+
+        synchronized boolean markDelivered(NotificationRecord record) {
+            return deliveredIds.putIfAbsent(record.getNotificationId(), record.getTimestamp()) == null;
+        }
+
+        // Przesuwa okno resync i zapomina ID starsze niż jego początek (te już nie wrócą z zapytania).
+        synchronized void advanceResyncWindow(long from) {
+            if (from > resyncFrom) {
+                resyncFrom = from;
+                deliveredIds.values().removeIf(timestamp -> timestamp < from);
+            }
+        }
+
+        synchronized long resyncFrom() {
+            return resyncFrom;
+        }
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final Map<String, UserStreams> streams = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService scheduler;
+    private final Semaphore resyncPermits;
+    private final int maxConnections;
+    private final long timeoutMillis;
+    private final long reconnectMillis;
+    private final long resyncLagMillis;
+    private final int replayLimit;
+    private final Counter sentCounter;
+    private final Counter droppedCounter;
+
+    public NotificationStreamRegistry(NotificationRepository notificationRepository,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.notifications.stream.max-connections:20000}") int maxConnections,
+                                      @Value("${app.notifications.stream.timeout-ms:1800000}") long timeoutMillis,
+                                      @Value("${app.notifications.stream.reconnect-ms:5000}") long reconnectMillis,
+                                      @Value("${app.notifications.stream.heartbeat-ms:20000}") long heartbeatMillis,
+                                      @Value("${app.notifications.stream.resync-interval-ms:30000}") long resyncIntervalMillis,
+                                      @Value("${app.notifications.stream.resync-concurrency:32}") int resyncConcurrency,
+                                      @Value("${app.notifications.stream.resync-lag-ms:5000}") long resyncLagMillis,
+                                      @Value("${app.notifications.stream.replay-limit:100}") int replayLimit,
+                                      @Value("${app.notifications.stream.dispatch-threads:2}") int dispatchThreads,
+                                      @Value("${app.notifications.stream.dispatch-queue-capacity:10000}") int dispatchQueueCapacity) {
+        this.notificationRepository = notificationRepository;
+        this.maxConnections = maxConnections;
+        this.timeoutMillis = timeoutMillis;
+        this.reconnectMillis = reconnectMillis;
+        this.resyncLagMillis = resyncLagMillis;
+        this.replayLimit = replayLimit;
+        this.resyncPermits = new Semaphore(resyncConcurrency);
+        // Pełna kolejka = zdarzenie porzucone (metryka "dropped"); połączony klient dostanie je z najbliższego resync.
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dispatchQueueCapacity), new CustomizableThreadFactory("sse-dispatch-"),
+                (task, executor) -> {
+                    throw new RejectedExecutionException("SSE dispatch queue full");
+                });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sse-scheduler-"));
+        this.scheduler.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        if (resyncIntervalMillis > 0) {
+            this.scheduler.scheduleWithFixedDelay(this::resyncAll, resyncIntervalMillis, resyncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        this.sentCounter = Counter.builder("notifications.stream.events").tag("outcome", "sent").register(meterRegistry);
+        this.droppedCounter = Counter.builder("notifications.stream.events").tag("outcome", "dropped").register(meterRegistry);
+        Gauge.builder("notifications.stream.connections", connections, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("notifications.stream.users", streams, Map::size).register(meterRegistry);
+    }
+
+    // Nowe połączenie użytkownika. lastEventId = nagłówek Last-Event-ID (timestamp) albo null.
+    // Zwraca null, jeśli instancja ma już max-connections połączeń.
+    public SseEmitter open(String userId, Long lastEventId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        // Dodanie w compute - remove() nie usunie wpisu między jego utworzeniem a rejestracją połączenia.
+        UserStreams userStreams = streams.compute(userId, (key, existing) -> {
+            UserStreams current = existing != null ? existing : new UserStreams(now - resyncLagMillis);
+            current.emitters.add(emitter);
+            return current;
+        });
+        emitter.onCompletion(() -> remove(userId, emitter));
+        emitter.onTimeout(emitter::complete); // Klient połączy się ponownie z Last-Event-ID
+        emitter.onError(error -> remove(userId, emitter));
+
+        // Pierwszy zapis wysyła nagłówki odpowiedzi od razu i ustawia czas ponownego połączenia przeglądarki.
+        dispatch(() -> send(userId, emitter, SseEmitter.event().comment("connected").reconnectTime(reconnectMillis)));
+        if (lastEventId != null) {
+            notificationRepository.findByUserIdSince(userId, lastEventId - resyncLagMillis, replayLimit)
+                    .thenAccept(records -> dispatch(() -> records.forEach(record -> send(userId, emitter, event(record)))));
+        }
+        logger.debug("SSE stream opened for {} (resume from: {}), {} connections", userId, lastEventId, connections.get());
+        return emitter;
+    }
+
+    // Powiadomienie zapisane przez tę instancję - do wszystkich połączeń odbiorcy na tej instancji.
+    public void publish(NotificationRecord record) {
+        UserStreams userStreams = streams.get(record.getUserId());
+        if (userStreams == null || !userStreams.markDelivered(record)) {
+            return;
+        }
+        dispatch(() -> userStreams.emitters.forEach(emitter -> send(record.getUserId(), emitter, event(record))));
+    }
+
+    private void resyncAll() {
+        for (Map.Entry<String, UserStreams> entry : streams.entrySet()) {
+            String userId = entry.getKey();
+            UserStreams userStreams = entry.getValue();
+            long from = userStreams.resyncFrom();
+            long nextFrom = System.currentTimeMillis() - resyncLagMillis;
+            try {
+                resyncPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            notificationRepository.findByUserIdSince(userId, from, replayLimit)
+                    .whenComplete((records, error) -> {
+                        resyncPermits.release();
+                        if (error != null) {
+                            return; // Spróbujemy z tym samym oknem przy następnym resync (błąd jest w logach repozytorium)
+                        }
+                        List<NotificationRecord> fresh = records.stream().filter(userStreams::markDelivered).toList();
+                        userStreams.advanceResyncWindow(nextFrom);
+                        if (!fresh.isEmpty()) {
+                            dispatch(() -> fresh.forEach(record ->
+                                    userStreams.emitters.forEach(emitter -> send(userId, emitter, event(record)))));
+                        }
+                    });
+        }
+    }
+
+    // Komentarz SSE co heartbeat-ms: utrzymuje połączenie przy idle timeout ALB (60 s) i wykrywa zamknięte połączenia.
+    private void sendHeartbeats() {
+        dispatch(() -> streams.forEach((userId, userStreams) ->
+                userStreams.emitters.forEach(emitter -> send(userId, emitter, SseEmitter.event().comment("hb")))));
+    }
+
+    private static SseEmitter.SseEventBuilder event(NotificationRecord record) {
+        return SseEmitter.event()
+                .id(Long.toString(record.getTimestamp()))
+                .name(EVENT_NAME)
+                .data(record, MediaType.APPLICATION_JSON);
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            droppedCounter.increment();
+            logger.warn("SSE dispatch queue full, event dropped (clients catch up on the next resync)");
+        }
+    }
+
+    private void send(String userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            sentCounter.increment();
+        } catch (IOException | IllegalStateException e) {
+            // Klient się rozłączył albo połączenie już zakończono - kontener i tak zgłosi zakończenie żądania.
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void remove(String userId, SseEmitter emitter) {
+        UserStreams userStreams = streams.get(userId);
+        if (userStreams != null && userStreams.emitters.remove(emitter)) {
+            connections.decrementAndGet();
+            // Ostatnie połączenie użytkownika - usuwamy wpis (ponowne połączenie zacznie od nowego okna).
+            streams.computeIfPresent(userId, (key, current) -> current.emitters.isEmpty() ? null : current);
+        }
+    }
+
+    // Przy zamykaniu kończymy wszystkie strumienie - przeglądarki połączą się ponownie z inną instancją.
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        streams.values().forEach(userStreams -> userStreams.emitters.forEach(SseEmitter::complete));
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,199 @@
+// Buforowany zapis powiadomień (write-behind)
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Zamiast jednego PutItem na powiadomienie (/send) rekordy trafiają do kolejki i są zapisywane paczkami
+// po 25 (BatchWriteItem przez NotificationRepository.saveAll - z ponawianiem elementów "unprocessed"
+// i jednym ADD licznika na użytkownika w paczce). Paczka jest wysyłana, gdy zbierze się 25 rekordów
+// albo najpóźniej po flush-interval-ms.
+// Kolejka: ConcurrentLinkedQueue (bez blokad) ograniczona semaforem wolnych miejsc - miejsce zwalnia się
+// dopiero po zapisie paczki, więc limit obejmuje też zapisy w toku. Pełna kolejka = backpressure: wywołujący czeka
+// najwyżej offer-timeout-ms, a potem zapisuje rekord sam (saveAsync), czyli zwalnia do tempa DynamoDB.
+// Domyślnie wyłączone: /send odpowiada, zanim rekord jest w bazie - rekordy w kolejce w chwili awarii procesu
+// (nie zwykłego zamknięcia - wtedy kolejka jest dopisywana) przepadają.
+@Service
+public class NotificationWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationWriteBehind.class);
+
+    // DynamoDB przyjmuje maksymalnie 25 elementów w jednym wywołaniu BatchWriteItem.
+    static final int BATCH_SIZE = 25;
+
+    // Rekord w kolejce i future kończony po zapisie jego paczki.
+    private record PendingWrite(NotificationRecord record, CompletableFuture<NotificationRecord> saved) {
+    }
+
+    private final NotificationRepository notificationRepository;
+    private final boolean enabled;
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Semaphore freeSlots;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final List<Thread> writers = new ArrayList<>();
+    private final AtomicInteger nextWriter = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+    private final Counter directCounter;
+
+    public NotificationWriteBehind(NotificationRepository notificationRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.notifications.write-behind.enabled:false}") boolean enabled,
+                                   @Value("${app.notifications.write-behind.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${app.notifications.write-behind.writers:2}") int writerCount,
+                                   @Value("${app.notifications.write-behind.flush-interval-ms:50}") long flushIntervalMillis,
+                                   @Value("${app.notifications.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                   @Value("${app.notifications.write-behind.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.notificationRepository = notificationRepository;
+        this.enabled = enabled;
+        this.freeSlots = new Semaphore(queueCapacity);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+
+        this.writtenCounter = Counter.builder("notifications.write-behind").tag("outcome", "written").register(meterRegistry);
+        this.failedCounter = Counter.builder("notifications.write-behind").tag("outcome", "failed").register(meterRegistry);
+        this.directCounter = Counter.builder("notifications.write-behind").tag("outcome", "direct").register(meterRegistry);
+        Gauge.builder("notifications.write-behind.queue", queued, AtomicInteger::get)
+                .description("Rekordy czekające na zapis paczką")
+                .register(meterRegistry);
+
+        if (enabled) {
+            ThreadFactory threadFactory = new CustomizableThreadFactory("notification-write-behind-");
+            for (int i = 0; i < Math.max(1, writerCount); i++) {
+                Thread writer = threadFactory.newThread(this::runWriter);
+                writers.add(writer);
+                writer.start();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Kolejkuje zapis rekordu. Future kończy się po zapisie paczki. Gdy paczka się nie zapisze, rekord jest zapisywany
+    // pojedynczo (saveAsync); wyjątkiem kończy się dopiero wtedy, gdy i to się nie uda (metryka outcome=failed).
+    // Przy pełnej kolejce (po offer-timeout-ms) albo po zamknięciu - zapis bezpośredni przez saveAsync.
+    public CompletableFuture<NotificationRecord> submit(NotificationRecord record) {
+        if (!running || !acquireSlot()) {
+            directCounter.increment();
+            return notificationRepository.saveAsync(record);
+        }
+        PendingWrite write = new PendingWrite(record, new CompletableFuture<>());
+        queue.add(write);
+        if (queued.incrementAndGet() % BATCH_SIZE == 0) {
+            // Pełna paczka - budzimy jednego z piszących, zamiast czekać do końca flush-interval-ms.
+            LockSupport.unpark(writers.get(Math.floorMod(nextWriter.getAndIncrement(), writers.size())));
+        }
+        return write.saved();
+    }
+
+    private boolean acquireSlot() {
+        try {
+            return freeSlots.tryAcquire(offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Pętla piszącego: czeka do flush-interval-ms (albo do pełnej paczki), potem zapisuje wszystko, co jest w kolejce.
+    // Po zamknięciu dopisuje resztę kolejki i kończy.
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            if (running && queued.get() < BATCH_SIZE) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            drain(batch);
+            if (!running && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void drain(List<PendingWrite> batch) {
+        while (true) {
+            batch.clear();
+            PendingWrite write;
+            while (batch.size() < BATCH_SIZE && (write = queue.poll()) != null) {
+                batch.add(write);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            queued.addAndGet(-batch.size());
+            write(batch);
+            if (batch.size() < BATCH_SIZE) {
+                return; // Kolejka opróżniona - następna paczka po flush-interval-ms
+            }
+        }
+    }
+
+    private void write(List<PendingWrite> batch) {
+        List<NotificationRecord> records = batch.stream().map(PendingWrite::record).toList();
+        try {
+            notificationRepository.saveAll(records);
+            writtenCounter.increment(batch.size());
+            batch.forEach(write -> write.saved().complete(write.record()));
+        } catch (RuntimeException e) {
+            // saveAll ponowiło już elementy "unprocessed" - błąd jest w logach repozytorium. Liczniki nieprzeczytanych
+            // są zwiększane dopiero po zapisie wszystkich paczek, więc każdy rekord można bezpiecznie zapisać jeszcze raz
+            // pojedynczo (PutItem nadpisuje ten sam rekord, a saveAsync doda go do licznika dokładnie raz).
+            logger.error("Write-behind batch of {} notification records failed, saving them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::saveDirectly);
+        } finally {
+            freeSlots.release(batch.size());
+        }
+    }
+
+    private void saveDirectly(PendingWrite write) {
+        directCounter.increment();
+        notificationRepository.saveAsync(write.record()).whenComplete((saved, error) -> {
+            if (error == null) {
+                write.saved().complete(saved);
+            } else {
+                failedCounter.increment();
+                write.saved().completeExceptionally(error);
+            }
+        });
+    }
+
+    // Przy zamykaniu nowe rekordy idą już bezpośrednio, a piszący dopisują kolejkę - najwyżej shutdownTimeoutMillis.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writers.forEach(LockSupport::unpark);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(shutdownTimeoutMillis);
+        for (Thread writer : writers) {
+            writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Write-behind queue not flushed on shutdown, {} notification records not saved", queued.get());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Ponowna publikacja rekordów, które zostały PENDING, bo węzeł zamknięto albo zatrzymano awaryjnie
+// w trakcie publikacji (NotificationPublisher trzyma kolejkę i ponowienia tylko w pamięci).
+// Co interval-ms czyta indeks rzadki PENDING i przekazuje publisherowi rekordy czekające dłużej niż min-age-ms.
+// min-age-ms musi być dłuższy niż wszystkie ponowienia publishera (max-attempts x max-backoff-ms z zapasem na kolejkę),
+// inaczej rekord wciąż obsługiwany przez żywy węzeł zostałby wysłany drugi raz.
+// Przejęcie jest warunkowe (status i wersja), więc przy kilku instancjach rekord republikuje tylko jedna z nich.
+// Gwarancja to "co najmniej raz": węzeł mógł paść po wysłaniu wiadomości, a przed zapisaniem statusu SENT.
+@Service
+public class PendingNotificationRetrier {
+    private static final Logger logger = LoggerFactory.getLogger(PendingNotificationRetrier.class);
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationPublisher notificationPublisher;
+    private final boolean enabled;
+    private final long minAgeMillis;
+    private final int batchSize;
+    private final Counter recoveredCounter;
+
+    public PendingNotificationRetrier(NotificationRepository notificationRepository,
+                                      NotificationPublisher notificationPublisher,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${app.notifications.pending-retry.enabled:true}") boolean enabled,
+                                      @Value("${app.notifications.pending-retry.min-age-ms:600000}") long minAgeMillis,
+                                      @Value("${app.notifications.pending-retry.batch-size:100}") int batchSize) {
+        this.notificationRepository = notificationRepository;
+        this.notificationPublisher = notificationPublisher;
+        this.enabled = enabled;
+        this.minAgeMillis = minAgeMillis;
+        this.batchSize = batchSize;
+        this.recoveredCounter = Counter.builder("notifications.publish").tag("outcome", "recovered").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.notifications.pending-retry.interval-ms:60000}",
+            initialDelayString = "${app.notifications.pending-retry.interval-ms:60000}")
+    public void republishAbandoned() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            List<NotificationPublisher.PublishTask> tasks = new ArrayList<>();
+            for (NotificationRecord record : notificationRepository.findPendingSince(now - minAgeMillis, batchSize)) {
+                if (notificationRepository.claimPending(record, now)) {
+                    record.setStatus(NotificationRecord.STATUS_PENDING);
+                    tasks.add(new NotificationPublisher.PublishTask(record, record.getSubject()));
+                }
+            }
+            if (!tasks.isEmpty()) {
+                logger.warn("Republishing {} notifications left PENDING for over {} ms", tasks.size(), minAgeMillis);
+                recoveredCounter.increment(tasks.size());
+                notificationPublisher.publishAll(tasks);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not check for abandoned PENDING notifications: {}", e.getMessage());
+        }
+    }
+}
@@ -5,11 +5,26 @@ import org.slf4j.Logger; // Do logowania zdarzeń i błędów
 import org.slf4j.LoggerFactory; // Do tworzenia instancji Loggera
 import org.springframework.beans.factory.annotation.Value; // Do wstrzykiwania wartości z plików konfiguracyjnych
 import org.springframework.stereotype.Service; // Oznacza, że ta klasa jest "serwisem" w logice biznesowej Springa
-import software.amazon.awssdk.regions.Region; // Nie jest tu bezpośrednio używane, ale SnsClient go potrzebuje
-import software.amazon.awssdk.services.sns.SnsClient; // Klient do interakcji z AWS SNS
+import software.amazon.awssdk.awscore.exception.AwsServiceException; // Błąd zwrócony przez usługę AWS (ma kod HTTP)
+import software.amazon.awssdk.core.exception.SdkClientException; // Błąd po stronie klienta (np. sieć, timeout) - warto ponowić
+import software.amazon.awssdk.services.sns.SnsAsyncClient; // Asynchroniczny klient do interakcji z AWS SNS
+import software.amazon.awssdk.services.sns.model.BatchResultErrorEntry; // Opis błędu pojedynczego wpisu w PublishBatch
+import software.amazon.awssdk.services.sns.model.PublishBatchRequest; // Żądanie publikacji wielu wiadomości naraz (max 10)
+import software.amazon.awssdk.services.sns.model.PublishBatchRequestEntry; // Pojedynczy wpis w PublishBatch
+import software.amazon.awssdk.services.sns.model.PublishBatchResultEntry; // Pomyślnie opublikowany wpis z PublishBatch
+import software.amazon.awssdk.services.sns.model.MessageAttributeValue; // Atrybut wiadomości (np. odbiorca) - podstawa filtrowania subskrypcji
 import software.amazon.awssdk.services.sns.model.PublishRequest; // Obiekt reprezentujący żądanie publikacji wiadomości do SNS
-import software.amazon.awssdk.services.sns.model.PublishResponse; // Obiekt reprezentujący odpowiedź od SNS po publikacji
-import software.amazon.awssdk.services.sns.model.SnsException; // Wyjątek specyficzny dla operacji SNS
+import software.amazon.awssdk.services.sns.model.SubscribeRequest; // Utworzenie subskrypcji z FilterPolicy
+import software.amazon.awssdk.services.sns.model.SubscribeResponse;
+import software.amazon.awssdk.services.sns.model.UnsubscribeRequest;
+
+import java.util.ArrayList; // Lista wyników
+import java.util.Collections; // Do wypełnienia listy wartościami początkowymi
+import java.util.HashMap; // Atrybuty wiadomości
+import java.util.List; // Interfejs listy
+import java.util.Map; // Atrybuty subskrypcji i wiadomości
+import java.util.concurrent.CompletableFuture; // Wynik operacji asynchronicznej
+import java.util.concurrent.CompletionException; // Opakowanie wyjątku w CompletableFuture
 
 @Service // Mówi Springowi: "To jest komponent serwisowy, zarządzaj nim i wstrzykuj tam, gdzie potrzeba."
 public class SnsService {
@@ -17,53 +32,173 @@ public class SnsService {
     // Tworzymy logger, żeby móc zapisywać informacje o działaniu tej klasy.
     private static final Logger logger = LoggerFactory.getLogger(SnsService.class);
 
+    // SNS przyjmuje maksymalnie 10 wiadomości w jednym wywołaniu PublishBatch.
+    public static final int MAX_PUBLISH_BATCH_ENTRIES = 10;
+
     // Prywatne, finalne pole na klienta SNS. `final` oznacza, że musi być zainicjowane w konstruktorze i nie może być później zmienione.
-    private final SnsClient snsClient;
+    private final SnsAsyncClient snsAsyncClient;
 
     // Wstrzyknij wartość właściwości "aws.sns.topic.arn" z pliku application.properties (lub zmiennej środowiskowej).
     // To jest unikalny adres (ARN) tematu SNS, do którego będziemy wysyłać wiadomości.
     @Value("${aws.sns.topic.arn}")
     private String snsTopicArn;
 
-    // Konstruktor. Spring użyje go do stworzenia instancji SnsService.
-    // `@Autowired` nie jest tu potrzebne, jeśli jest tylko jeden konstruktor, Spring sam sobie poradzi.
-    // Spring automatycznie wstrzyknie tutaj obiekt SnsClient, który został stworzony przez metodę snsClient() w klasie SnsConfig.
-    public SnsService(SnsClient snsClient) {
-        this.snsClient = snsClient; // Przypisz wstrzykniętego klienta SNS do pola w tej klasie.
+    // Konstruktor. Spring automatycznie wstrzyknie tutaj obiekt SnsAsyncClient stworzony w klasie SnsConfig.
+    public SnsService(SnsAsyncClient snsAsyncClient) {
+        this.snsAsyncClient = snsAsyncClient; // Przypisz wstrzykniętego klienta SNS do pola w tej klasie.
+    }
+
+    // Nazwa atrybutu wiadomości z odbiorcą. Subskrypcje użytkowników (SubscriptionRegistry) mają FilterPolicy
+    // na tym atrybucie, więc SNS dostarcza wiadomość tylko subskrypcjom odbiorcy, a nie wszystkim subskrybentom tematu.
+    public static final String TARGET_USER_ATTRIBUTE = "targetUserId";
+    public static final String TYPE_ATTRIBUTE = "type";
+
+    // Pojedyncza wiadomość do wysyłki: odbiorca, typ, temat i treść.
+    public record OutgoingMessage(String targetUserId, String type, String subject, String message) {
     }
 
-    // Metoda do wysyłania powiadomienia SNS.
-    // Przyjmuje temat (subject) i treść (message) wiadomości.
-    // Zwraca ID opublikowanej wiadomości SNS lub null w przypadku błędu.
-    public String sendSnsNotification(String subject, String message) {
-        // Zapisz w logach informację, że próbujemy wysłać powiadomienie.
-        // Używamy placeholderów `{}` dla wartości
-        logger.info("Sending SNS notification to topic {}: Subject='{}'", snsTopicArn, subject);
-        try {
-            // Stwórz obiekt żądania publikacji (PublishRequest) za pomocą budowniczego.
-            PublishRequest request = PublishRequest.builder()
-                    .message(message)       // Ustaw treść wiadomości.
-                    .subject(subject)       // Ustaw temat wiadomości (przydatny np. dla subskrypcji e-mail).
-                    .topicArn(snsTopicArn)  // Ustaw ARN tematu SNS, do którego publikujemy.
-                    .build();               // Zbuduj obiekt żądania.
-
-            // Wyślij żądanie publikacji do AWS SNS używając skonfigurowanego klienta.
-            // Ta operacja jest synchroniczna - czekamy na odpowiedź od AWS.
-            PublishResponse result = snsClient.publish(request);
-
-            // Jeśli publikacja się udała, zapisz w logach ID wysłanej wiadomości.
-            logger.info("SNS Notification sent. Message ID: {}", result.messageId());
-
-            // Zwróć ID opublikowanej wiadomości. Może być przydatne do śledzenia.
-            return result.messageId();
-        } catch (SnsException e) { // Złap wyjątek, jeśli coś poszło nie tak podczas komunikacji z SNS.
-            // Zapisz w logach szczegółowy błąd z AWS.
-            // `e.awsErrorDetails().errorMessage()` daje bardziej czytelny komunikat błędu od AWS.
-            // `e` jako ostatni argument loggera spowoduje wydrukowanie pełnego stack trace'u wyjątku.
-            logger.error("Error sending SNS notification: {}", e.awsErrorDetails().errorMessage(), e);
-
-            // W przypadku błędu, zwróć null
-            return null;
+    // Wynik publikacji jednej wiadomości. messageId != null oznacza sukces.
+    // retryable mówi, czy błąd jest przejściowy (dławienie, błąd 5xx, sieć) i warto spróbować ponownie;
+    // błędy po stronie żądania (np. zły ARN, brak uprawnień) nie znikną po ponowieniu.
+    public record PublishResult(String messageId, boolean retryable, String error) {
+
+        static PublishResult sent(String messageId) {
+            return new PublishResult(messageId, false, null);
+        }
+
+        static PublishResult failed(boolean retryable, String error) {
+            return new PublishResult(null, retryable, error);
+        }
+
+        public boolean isSent() {
+            return messageId != null;
+        }
+    }
+
+    // Asynchroniczna wysyłka jednej wiadomości. Metoda nie blokuje - zwraca CompletableFuture,
+    // które zawsze kończy się wynikiem (błędy SNS są zamieniane na PublishResult.failed, a nie rzucane).
+    // Uwaga: callbacki podpięte do zwróconego future wykonują się na puli "future completion" klienta SDK,
+    // a nie na wątku Netty, więc mogą wykonywać krótkie operacje blokujące (np. zapis statusu w DynamoDB).
+    public CompletableFuture<PublishResult> publishAsync(OutgoingMessage outgoing) {
+        // Stwórz obiekt żądania publikacji (PublishRequest) za pomocą budowniczego.
+        PublishRequest request = PublishRequest.builder()
+                .message(outgoing.message())   // Ustaw treść wiadomości.
+                .subject(outgoing.subject())   // Ustaw temat wiadomości (przydatny np. dla subskrypcji e-mail).
+                .topicArn(snsTopicArn)         // Ustaw ARN tematu SNS, do którego publikujemy.
+                .messageAttributes(messageAttributes(outgoing)) // Odbiorca i typ - według nich filtrują subskrypcje.
+                .build();                      // Zbuduj obiekt żądania.
+
+        return snsAsyncClient.publish(request)
+                .thenApply(response -> {
+                    logger.debug("SNS Notification sent. Message ID: {}", response.messageId());
+                    return PublishResult.sent(response.messageId());
+                })
+                .exceptionally(error -> {
+                    Throwable cause = unwrap(error);
+                    logger.warn("Error sending SNS notification: {}", cause.getMessage());
+                    return PublishResult.failed(isRetryable(cause), cause.getMessage());
+                });
+    }
+
+    // Asynchroniczna wysyłka do 10 wiadomości jednym wywołaniem PublishBatch.
+    // Zwraca wyniki w tej samej kolejności co wejście.
+    public CompletableFuture<List<PublishResult>> publishBatchAsync(List<OutgoingMessage> messages) {
+        if (messages.size() > MAX_PUBLISH_BATCH_ENTRIES) {
+            throw new IllegalArgumentException("PublishBatch accepts at most " + MAX_PUBLISH_BATCH_ENTRIES + " entries");
+        }
+
+        // ID wpisu musi być unikalne w ramach jednego PublishBatch - używamy indeksu na liście wejściowej,
+        // dzięki czemu łatwo dopasujemy wynik do wiadomości.
+        List<PublishBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            OutgoingMessage outgoing = messages.get(i);
+            entries.add(PublishBatchRequestEntry.builder()
+                    .id(Integer.toString(i))
+                    .subject(outgoing.subject())
+                    .message(outgoing.message())
+                    .messageAttributes(messageAttributes(outgoing))
+                    .build());
+        }
+
+        return snsAsyncClient.publishBatch(PublishBatchRequest.builder()
+                        .topicArn(snsTopicArn)
+                        .publishBatchRequestEntries(entries)
+                        .build())
+                .thenApply(response -> {
+                    List<PublishResult> results = new ArrayList<>(Collections.nCopies(messages.size(),
+                            PublishResult.failed(true, "Missing in PublishBatch response")));
+                    for (PublishBatchResultEntry entry : response.successful()) {
+                        results.set(Integer.parseInt(entry.id()), PublishResult.sent(entry.messageId()));
+                    }
+                    for (BatchResultErrorEntry error : response.failed()) {
+                        logger.warn("SNS PublishBatch entry {} failed: {} ({})", error.id(), error.message(), error.code());
+                        // senderFault = błąd w samym wpisie (nie ma sensu ponawiać), inaczej - problem po stronie SNS.
+                        results.set(Integer.parseInt(error.id()),
+                                PublishResult.failed(!Boolean.TRUE.equals(error.senderFault()), error.message()));
+                    }
+                    return results;
+                })
+                .exceptionally(error -> {
+                    // Cała paczka nie poszła - każdy wpis dostaje ten sam wynik.
+                    Throwable cause = unwrap(error);
+                    logger.warn("Error sending SNS notification batch: {}", cause.getMessage());
+                    return Collections.nCopies(messages.size(), PublishResult.failed(isRetryable(cause), cause.getMessage()));
+                });
+    }
+
+    // Subskrypcja endpointu (np. e-mail) na powiadomienia jednego użytkownika: FilterPolicy na atrybucie targetUserId
+    // (zakres MessageAttributes). Zwraca ARN subskrypcji - dla e-mail/HTTP to ARN "oczekującej na potwierdzenie"
+    // subskrypcji, bo ReturnSubscriptionArn=true. Wywołanie blokujące - to rzadka operacja zarządzania, nie wysyłka.
+    public String subscribeUser(String userId, String protocol, String endpoint) {
+        String filterPolicy = "{\"" + TARGET_USER_ATTRIBUTE + "\":[" + jsonString(userId) + "]}";
+        return snsAsyncClient.subscribe(SubscribeRequest.builder()
+                        .topicArn(snsTopicArn)
+                        .protocol(protocol)
+                        .endpoint(endpoint)
+                        .attributes(Map.of(
+                                "FilterPolicy", filterPolicy,
+                                "FilterPolicyScope", "MessageAttributes"))
+                        .returnSubscriptionArn(true)
+                        .build())
+                .thenApply(SubscribeResponse::subscriptionArn)
+                .join();
+    }
+
+    public void unsubscribe(String subscriptionArn) {
+        snsAsyncClient.unsubscribe(UnsubscribeRequest.builder().subscriptionArn(subscriptionArn).build()).join();
+    }
+
+    private static Map<String, MessageAttributeValue> messageAttributes(OutgoingMessage outgoing) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        if (outgoing.targetUserId() != null) {
+            attributes.put(TARGET_USER_ATTRIBUTE, stringAttribute(outgoing.targetUserId()));
+        }
+        if (outgoing.type() != null) {
+            attributes.put(TYPE_ATTRIBUTE, stringAttribute(outgoing.type()));
+        }
+        return attributes;
+    }
+
+    private static MessageAttributeValue stringAttribute(String value) {
+        return MessageAttributeValue.builder().dataType("String").stringValue(value).build();
+    }
+
+    // Nick w FilterPolicy (JSON) - escapujemy cudzysłów i backslash.
+    private static String jsonString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof SdkClientException) {
+            return true; // Sieć, timeout, brak połączenia z puli
+        }
+        if (error instanceof AwsServiceException serviceException) {
+            return serviceException.isThrottlingException() || serviceException.statusCode() >= 500;
         }
+        return false;
     }
 }
@@ -0,0 +1,116 @@
+// Rejestr Subskrypcji
+package pl.projektchmury.notificationservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import pl.projektchmury.notificationservice.model.NotificationSubscription;
+import pl.projektchmury.notificationservice.repository.SubscriptionRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Subskrypcje SNS per użytkownik i pamięć podręczna "czy użytkownik ma jakąkolwiek subskrypcję".
+// Każda subskrypcja ma FilterPolicy na atrybucie targetUserId, więc SNS dostarcza wiadomość tylko subskrypcjom
+// odbiorcy. Dodatkowo NotificationStorageService nie publikuje w ogóle powiadomień dla użytkowników bez subskrypcji
+// (status SKIPPED) - koszt SNS zależy od liczby odbiorców z subskrypcjami, a nie od liczby wszystkich powiadomień.
+// Pamięć podręczna jest lokalna dla instancji i wygasa po cache-ttl-ms - subskrypcja założona przez inną instancję
+// zaczyna działać najpóźniej po tym czasie (na tej instancji, która ją założyła - od razu).
+@Service
+public class SubscriptionRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(SubscriptionRegistry.class);
+
+    private record CachedFlag(boolean hasSubscriptions, long expiresAtNanos) {
+    }
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final SnsService snsService;
+    private final Set<String> allowedProtocols;
+    private final long cacheTtlNanos;
+    private final int cacheMaxEntries;
+    private final Map<String, CachedFlag> cache = new ConcurrentHashMap<>();
+
+    public SubscriptionRegistry(SubscriptionRepository subscriptionRepository,
+                                SnsService snsService,
+                                @Value("${app.notifications.subscriptions.allowed-protocols:email}") Set<String> allowedProtocols,
+                                @Value("${app.notifications.subscriptions.cache-ttl-ms:60000}") long cacheTtlMillis,
+                                @Value("${app.notifications.subscriptions.cache-max-entries:100000}") int cacheMaxEntries) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.snsService = snsService;
+        this.allowedProtocols = Set.copyOf(allowedProtocols);
+        this.cacheTtlNanos = TimeUnit.MILLISECONDS.toNanos(cacheTtlMillis);
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    // Czy warto publikować powiadomienie dla userId. Przy błędzie odczytu rejestru odpowiadamy "tak" -
+    // lepiej zapłacić za zbędną publikację niż zgubić powiadomienie.
+    public boolean hasSubscribers(String userId) {
+        long now = System.nanoTime();
+        CachedFlag cached = cache.get(userId);
+        if (cached != null && cached.expiresAtNanos() - now > 0) {
+            return cached.hasSubscriptions();
+        }
+        boolean hasSubscriptions;
+        try {
+            hasSubscriptions = subscriptionRepository.existsForUser(userId);
+        } catch (RuntimeException e) {
+            logger.warn("Subscription registry unavailable for {}, publishing anyway: {}", userId, e.getMessage());
+            return true;
+        }
+        if (cache.size() >= cacheMaxEntries) {
+            cache.clear(); // Prosta granica pamięci - wpisy i tak są tanie do odtworzenia
+        }
+        cache.put(userId, new CachedFlag(hasSubscriptions, now + cacheTtlNanos));
+        return hasSubscriptions;
+    }
+
+    // Domyślnie tylko "email": SNS wysyła na adres link potwierdzający, więc nie da się zapisać cudzego adresu bez zgody
+    // właściciela. "sms" nie ma potwierdzenia (dowolny numer dostaje płatne SMS-y), a "https" kazałby SNS wysyłać żądania
+    // pod dowolny adres podany przez użytkownika - włączamy je tylko świadomie, w allowed-protocols.
+    public NotificationSubscription subscribe(String userId, String protocol, String endpoint) {
+        if (!allowedProtocols.contains(protocol)) {
+            throw new IllegalArgumentException("Unsupported protocol: " + protocol);
+        }
+        if (endpoint == null || endpoint.isBlank()) {
+            throw new IllegalArgumentException("Endpoint is required");
+        }
+        String subscriptionArn = snsService.subscribeUser(userId, protocol, endpoint);
+        NotificationSubscription subscription = new NotificationSubscription();
+        subscription.setUserId(userId);
+        subscription.setSubscriptionArn(subscriptionArn);
+        subscription.setProtocol(protocol);
+        subscription.setEndpoint(endpoint);
+        subscription.setCreatedAt(Instant.now().toEpochMilli());
+        subscriptionRepository.save(subscription);
+        cache.remove(userId);
+        logger.info("User {} subscribed {} endpoint ({})", userId, protocol, subscriptionArn);
+        return subscription;
+    }
+
+    public List<NotificationSubscription> list(String userId) {
+        return subscriptionRepository.findByUserId(userId);
+    }
+
+    // Zwraca false, jeśli subskrypcja nie istnieje albo należy do innego użytkownika.
+    public boolean unsubscribe(String userId, String subscriptionArn) {
+        Optional<NotificationSubscription> subscription = subscriptionRepository.find(userId, subscriptionArn);
+        if (subscription.isEmpty()) {
+            return false;
+        }
+        try {
+            snsService.unsubscribe(subscriptionArn);
+        } catch (RuntimeException e) {
+            // Niepotwierdzonej subskrypcji e-mail nie da się usunąć przez API - wygaśnie sama po 3 dniach.
+            logger.warn("SNS unsubscribe of {} failed, removing it from the registry anyway: {}", subscriptionArn, e.getMessage());
+        }
+        subscriptionRepository.delete(userId, subscriptionArn);
+        cache.remove(userId);
+        return true;
+    }
+}
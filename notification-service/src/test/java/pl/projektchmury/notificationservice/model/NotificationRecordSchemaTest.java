@@ -0,0 +1,69 @@
+package pl.projektchmury.notificationservice.model;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Schematy statyczne (TABLE_SCHEMA) muszą zgadzać się z adnotacjami modelu - inaczej nowe pole
+// dodane tylko jako getter/setter po cichu nie trafiłoby do DynamoDB.
+class NotificationRecordSchemaTest {
+
+    @Test
+    void notificationRecordSchemaMatchesBeanSchema() {
+        assertSameShape(NotificationRecord.TABLE_SCHEMA, TableSchema.fromBean(NotificationRecord.class),
+                NotificationRecord.USER_ID_TIMESTAMP_INDEX, NotificationRecord.UNREAD_USER_ID_TIMESTAMP_INDEX,
+                NotificationRecord.USER_ID_UPDATED_AT_INDEX, NotificationRecord.PENDING_INDEX);
+
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId("n-1");
+        record.setUserId("bob");
+        record.setType("NEW_MESSAGE");
+        record.setMessage("hej");
+        record.setTimestamp(1_700_000_000_000L);
+        record.setStatus(NotificationRecord.STATUS_SENT);
+        record.setUnreadUserId("bob");
+        record.setVersion(2L);
+        record.setCoalescedCount(3);
+        record.setExpiresAt(1_702_592_000L);
+        record.setUpdatedAt(1_700_000_060_000L);
+        record.markPending("Nowa wiadomość");
+
+        Map<String, AttributeValue> item = NotificationRecord.TABLE_SCHEMA.itemToMap(record, true);
+        assertThat(item).isEqualTo(TableSchema.fromBean(NotificationRecord.class).itemToMap(record, true));
+        assertThat(NotificationRecord.TABLE_SCHEMA.mapToItem(item)).usingRecursiveComparison().isEqualTo(record);
+    }
+
+    @Test
+    void projectedItemLeavesMissingAttributesAtDefaults() {
+        // Zapytania z attributesToProject("notificationId") zwracają elementy bez timestamp/readNotification.
+        NotificationRecord record = NotificationRecord.TABLE_SCHEMA.mapToItem(
+                Map.of("notificationId", AttributeValue.fromS("n-1")));
+
+        assertThat(record.getNotificationId()).isEqualTo("n-1");
+        assertThat(record.getTimestamp()).isZero();
+        assertThat(record.isReadNotification()).isFalse();
+        assertThat(record.getVersion()).isNull();
+    }
+
+    @Test
+    void subscriptionSchemaMatchesBeanSchema() {
+        assertSameShape(NotificationSubscription.TABLE_SCHEMA, TableSchema.fromBean(NotificationSubscription.class));
+    }
+
+    private static <T> void assertSameShape(TableSchema<T> staticSchema, TableSchema<T> beanSchema, String... indexNames) {
+        assertThat(staticSchema.attributeNames()).containsExactlyInAnyOrderElementsOf(beanSchema.attributeNames());
+        TableMetadata expected = beanSchema.tableMetadata();
+        TableMetadata actual = staticSchema.tableMetadata();
+        assertThat(actual.primaryPartitionKey()).isEqualTo(expected.primaryPartitionKey());
+        assertThat(actual.primarySortKey()).isEqualTo(expected.primarySortKey());
+        for (String indexName : indexNames) {
+            assertThat(actual.indexPartitionKey(indexName)).isEqualTo(expected.indexPartitionKey(indexName));
+            assertThat(actual.indexSortKey(indexName)).isEqualTo(expected.indexSortKey(indexName));
+        }
+    }
+}
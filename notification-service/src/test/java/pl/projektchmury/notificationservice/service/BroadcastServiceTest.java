@@ -0,0 +1,159 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.notificationservice.model.BroadcastJob;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.BroadcastJobRepository;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+import pl.projektchmury.notificationservice.repository.UserDirectory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BroadcastServiceTest {
+
+    private final UserDirectory userDirectory = mock(UserDirectory.class);
+    private final BroadcastJobRepository jobRepository = mock(BroadcastJobRepository.class);
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final NotificationReadCache readCache = mock(NotificationReadCache.class);
+    private final List<String> writtenUsers = new ArrayList<>();
+    private BroadcastService broadcastService;
+
+    @BeforeEach
+    void setUp() {
+        when(jobRepository.replace(any(), anyLong())).thenReturn(true);
+        when(userDirectory.listUsers(isNull(), anyInt())).thenReturn(new UserDirectory.UserPage(List.of("alice", "bob"), "t1"));
+        when(userDirectory.listUsers("t1", 60)).thenReturn(new UserDirectory.UserPage(List.of("carol"), null));
+        doAnswer(invocation -> {
+            synchronized (writtenUsers) {
+                invocation.<List<NotificationRecord>>getArgument(0).forEach(record -> writtenUsers.add(record.getUserId()));
+            }
+            return invocation.getArgument(0);
+        }).when(notificationRepository).saveAll(anyList());
+        doAnswer(invocation -> {
+            synchronized (writtenUsers) {
+                invocation.<List<NotificationRecord>>getArgument(0).forEach(record -> writtenUsers.add(record.getUserId()));
+            }
+            return invocation.getArgument(0);
+        }).when(notificationRepository).saveAllIfAbsent(anyList());
+        broadcastService = new BroadcastService(userDirectory, jobRepository, notificationRepository,
+                new NotificationRetentionPolicy(90, null), readCache, mock(NotificationStreamRegistry.class),
+                new SimpleMeterRegistry(), 60, 2, 1, 100_000, 4, 1_000, 60_000, 60_000, 1_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        broadcastService.shutdown();
+    }
+
+    @Test
+    void writesEveryUserAndCompletes() {
+        BroadcastJob job = broadcastService.start("admin", null, "Przerwa techniczna");
+        awaitFinished(job);
+
+        assertThat(writtenUsers).containsExactlyInAnyOrder("alice", "bob", "carol");
+        assertThat(job.getStatus()).isEqualTo(BroadcastJob.STATUS_COMPLETED);
+        assertThat(job.getUsersProcessed()).isEqualTo(3);
+        assertThat(job.getPageToken()).isNull();
+    }
+
+    @Test
+    void resumesFromCheckpoint() {
+        BroadcastJob job = job("t1", 2);
+
+        broadcastService.resume("b1");
+        awaitFinished(job);
+
+        verify(userDirectory, never()).listUsers(isNull(), anyInt());
+        assertThat(writtenUsers).containsExactly("carol");
+        assertThat(job.getStatus()).isEqualTo(BroadcastJob.STATUS_COMPLETED);
+        assertThat(job.getUsersProcessed()).isEqualTo(3);
+    }
+
+    @Test
+    void failedPageIsNotPastCheckpoint() {
+        doAnswer(invocation -> {
+            List<NotificationRecord> records = invocation.getArgument(0);
+            if (records.get(0).getUserId().equals("carol")) {
+                throw new RuntimeException("throttled");
+            }
+            return records;
+        }).when(notificationRepository).saveAllIfAbsent(anyList());
+        BroadcastJob job = job(null, 0);
+
+        broadcastService.resume("b1");
+        awaitFinished(job);
+
+        assertThat(job.getStatus()).isEqualTo(BroadcastJob.STATUS_FAILED);
+        assertThat(job.getPageToken()).isEqualTo("t1");
+        assertThat(job.getUsersProcessed()).isEqualTo(2);
+    }
+
+    @Test
+    void resumedBroadcastKeepsRecordsWrittenBeforeTheCheckpoint() {
+        // Poprzednie wykonanie zapisało już rekord boba (np. przeczytany) - wznowienie zaczyna od początku.
+        doAnswer(invocation -> invocation.<List<NotificationRecord>>getArgument(0).stream()
+                .filter(record -> !record.getUserId().equals("bob"))
+                .toList()).when(notificationRepository).saveAllIfAbsent(anyList());
+        BroadcastJob job = job(null, 0);
+
+        broadcastService.resume("b1");
+        awaitFinished(job);
+
+        verify(notificationRepository, never()).saveAll(anyList());
+        verify(readCache).onCreated("alice", 1);
+        verify(readCache).onCreated("carol", 1);
+        verify(readCache, never()).onCreated(eq("bob"), anyInt());
+        assertThat(job.getStatus()).isEqualTo(BroadcastJob.STATUS_COMPLETED);
+        assertThat(job.getUsersProcessed()).isEqualTo(3);
+    }
+
+    @Test
+    void checkpointWaitsForEarlierPages() {
+        BroadcastService.Checkpoint checkpoint = new BroadcastService.Checkpoint(null, 0);
+
+        checkpoint.pageWritten(1, "t2", 60);
+        assertThat(checkpoint.position()).isEqualTo(new BroadcastService.Checkpoint.Position(null, 0));
+
+        checkpoint.pageWritten(0, "t1", 60);
+        assertThat(checkpoint.position()).isEqualTo(new BroadcastService.Checkpoint.Position("t2", 120));
+        assertThat(checkpoint.complete()).isFalse();
+    }
+
+    private BroadcastJob job(String pageToken, long usersProcessed) {
+        BroadcastJob job = new BroadcastJob();
+        job.setBroadcastId("b1");
+        job.setType(BroadcastService.DEFAULT_TYPE);
+        job.setMessage("Przerwa techniczna");
+        job.setStatus(BroadcastJob.STATUS_FAILED); // Wznawiane przez resume()
+        job.setPageToken(pageToken);
+        job.setUsersProcessed(usersProcessed);
+        when(jobRepository.findById("b1")).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    // Zadanie działa w wątku "broadcast-job-" - czekamy na zapis końcowego statusu.
+    private void awaitFinished(BroadcastJob job) {
+        verify(jobRepository, timeout(5_000).atLeastOnce())
+                .replace(argThat(saved -> saved == job && !BroadcastJob.STATUS_RUNNING.equals(saved.getStatus())), anyLong());
+    }
+}
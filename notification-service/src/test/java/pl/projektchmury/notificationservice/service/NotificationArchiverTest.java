@@ -0,0 +1,153 @@
+package pl.projektchmury.notificationservice.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.LocalArchiveStorage;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class NotificationArchiverTest {
+
+    private static final int RETENTION_DAYS = 3;
+
+    @TempDir
+    Path archiveDir;
+
+    private NotificationRepository notificationRepository;
+    private RecordingArchiveStorage storage;
+    private NotificationArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        NotificationRetentionPolicy retentionPolicy = new NotificationRetentionPolicy(RETENTION_DAYS, Map.of());
+        storage = new RecordingArchiveStorage(archiveDir.toString());
+        archiver = new NotificationArchiver(notificationRepository, storage,
+                retentionPolicy, new ObjectMapper(), true, "notifications/", 2, 31, 256, 4);
+    }
+
+    @Test
+    void archivesExpiringRecordsInSegmentsAndReadsThemBack() throws Exception {
+        LocalDate createdOn = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        List<NotificationRecord> expiring = List.of(
+                record("n1", "alice", createdOn, 1),
+                record("n2", "bob", createdOn, 2),
+                record("n3", "alice", createdOn, 3),
+                record("n4", "alice", createdOn, 4));
+        givenExpiring(expiring);
+
+        assertThat(archiver.archiveExpiringSoon()).isEqualTo(4);
+
+        // 3 rekordy alice przy segment-max-records=2 -> dwa segmenty w jej kubełku, bob ma własny kubełek
+        Path dayDir = archiveDir.resolve("notifications/expires=" + createdOn.plusDays(RETENTION_DAYS));
+        Path aliceBucket = dayDir.resolve(bucketDir("alice"));
+        assertThat(aliceBucket.resolve("part-00000.ndjson.gz")).exists();
+        assertThat(aliceBucket.resolve("part-00001.ndjson.gz")).exists();
+        assertThat(dayDir.resolve(bucketDir("bob")).resolve("part-00000.ndjson.gz")).exists();
+        assertThat(Files.readAllLines(dayDir.resolve("_SUCCESS"))).hasSize(3);
+
+        List<NotificationRecord> aliceHistory = archiver.readArchivedHistory("alice", createdOn, createdOn);
+        assertThat(aliceHistory).extracting(NotificationRecord::getNotificationId).containsExactly("n4", "n3", "n1");
+    }
+
+    @Test
+    void readsOnlyTheRequestingUsersBucket() throws Exception {
+        assertThat(NotificationArchiver.userBucket("alice")).isNotEqualTo(NotificationArchiver.userBucket("bob"));
+        LocalDate createdOn = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        givenExpiring(List.of(record("n1", "alice", createdOn, 1), record("n2", "bob", createdOn, 2)));
+        archiver.archiveExpiringSoon();
+
+        List<NotificationRecord> bobHistory = archiver.readArchivedHistory("bob", createdOn, createdOn);
+
+        assertThat(bobHistory).extracting(NotificationRecord::getNotificationId).containsExactly("n2");
+        assertThat(storage.openedSegments).isNotEmpty().allMatch(key -> key.contains(bucketDir("bob") + "/"));
+    }
+
+    @Test
+    void rejectsReadsOverConcurrencyLimit() {
+        NotificationArchiver noReadPermits = new NotificationArchiver(notificationRepository, storage,
+                new NotificationRetentionPolicy(RETENTION_DAYS, Map.of()), new ObjectMapper(), true, "notifications/", 2, 31, 256, 0);
+        LocalDate day = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+
+        assertThatThrownBy(() -> noReadPermits.readArchivedHistory("alice", day, day))
+                .isInstanceOf(NotificationArchiver.ArchiveBusyException.class);
+    }
+
+    @Test
+    void skipsDaysThatAlreadyHaveManifest() throws Exception {
+        archiver.archiveExpiringSoon();
+        archiver.archiveExpiringSoon();
+
+        // Drugie uruchomienie nie ma nic do zrobienia - wszystkie gotowe dni mają manifest.
+        verify(notificationRepository, times(1)).forEachExpiringBetween(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void rejectsTooWideReadRange() {
+        LocalDate from = LocalDate.of(2025, 1, 1);
+        assertThatThrownBy(() -> archiver.readArchivedHistory("alice", from, from.plusDays(31)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void givenExpiring(List<NotificationRecord> expiring) {
+        doAnswer(invocation -> {
+            Consumer<NotificationRecord> consumer = invocation.getArgument(2);
+            expiring.forEach(consumer);
+            return null;
+        }).when(notificationRepository).forEachExpiringBetween(anyLong(), anyLong(), any());
+    }
+
+    private static String bucketDir(String userId) {
+        return String.format("user-bucket=%02d", NotificationArchiver.userBucket(userId));
+    }
+
+    // Zapamiętuje otwierane segmenty (bez manifestów), żeby sprawdzić, które kubełki czyta odczyt historii.
+    private static class RecordingArchiveStorage extends LocalArchiveStorage {
+        private final List<String> openedSegments = new CopyOnWriteArrayList<>();
+
+        RecordingArchiveStorage(String baseDir) {
+            super(baseDir);
+        }
+
+        @Override
+        public InputStream open(String key) throws IOException {
+            if (key.endsWith(".ndjson.gz")) {
+                openedSegments.add(key);
+            }
+            return super.open(key);
+        }
+    }
+
+    private static NotificationRecord record(String id, String userId, LocalDate createdOn, int minute) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(id);
+        record.setUserId(userId);
+        record.setType("NEW_MESSAGE");
+        record.setMessage("message " + id);
+        record.setTimestamp(createdOn.atStartOfDay(ZoneOffset.UTC).plusMinutes(minute).toInstant().toEpochMilli());
+        record.setExpiresAt(createdOn.plusDays(RETENTION_DAYS).atStartOfDay(ZoneOffset.UTC).plusMinutes(minute).toEpochSecond());
+        return record;
+    }
+}
@@ -0,0 +1,88 @@
+package pl.projektchmury.notificationservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pl.projektchmury.notificationservice.model.NotificationRequest;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationCoalescerTest {
+
+    private NotificationStorageService notificationService;
+    private NotificationCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        notificationService = mock(NotificationStorageService.class);
+        coalescer = new NotificationCoalescer(notificationService, true, Set.of("NEW_MESSAGE"), 60_000, 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesBurstFromOneSenderIntoDigest() {
+        assertThat(coalescer.offer(message("alice", "bob", "1"))).isTrue();
+        assertThat(coalescer.offer(message("alice", "bob", "2"))).isTrue();
+        assertThat(coalescer.offer(message("alice", "bob", "3"))).isTrue();
+        assertThat(coalescer.offer(message("alice", "carol", "4"))).isTrue();
+
+        coalescer.flushExpired(); // Okno 60 s jeszcze otwarte
+        verify(notificationService, never()).sendAndStoreNotificationBatch(anyList());
+
+        coalescer.flushAll();
+        ArgumentCaptor<List<NotificationRequest>> sent = ArgumentCaptor.forClass(List.class);
+        verify(notificationService).sendAndStoreNotificationBatch(sent.capture());
+        assertThat(sent.getValue()).hasSize(2);
+
+        NotificationRequest digest = sent.getValue().stream().filter(r -> "bob".equals(r.senderId())).findFirst().orElseThrow();
+        assertThat(digest.coalescedCount()).isEqualTo(3);
+        assertThat(digest.relatedEntityId()).isEqualTo("3");
+        assertThat(digest.message()).isEqualTo("bob wysłał Ci 3 wiadomości");
+
+        NotificationRequest single = sent.getValue().stream().filter(r -> "carol".equals(r.senderId())).findFirst().orElseThrow();
+        assertThat(single.coalescedCount()).isNull();
+        assertThat(single.message()).isEqualTo("message 4");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedFlushKeepsWindowsForTheNextTick() {
+        coalescer = new NotificationCoalescer(notificationService, true, Set.of("NEW_MESSAGE"), 0, 100);
+        when(notificationService.sendAndStoreNotificationBatch(anyList()))
+                .thenThrow(new RuntimeException("throttled"))
+                .thenReturn(List.of());
+        coalescer.offer(message("alice", "bob", "1"));
+        coalescer.offer(message("alice", "bob", "2"));
+
+        coalescer.flushExpired(); // Zapis się nie udaje - okno wraca do mapy
+        coalescer.offer(message("alice", "bob", "3")); // Dopisane po nieudanym ticku
+        coalescer.flushExpired();
+
+        ArgumentCaptor<List<NotificationRequest>> sent = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(2)).sendAndStoreNotificationBatch(sent.capture());
+        NotificationRequest digest = sent.getAllValues().get(1).get(0);
+        assertThat(sent.getAllValues().get(1)).hasSize(1);
+        assertThat(digest.coalescedCount()).isEqualTo(3);
+        assertThat(digest.relatedEntityId()).isEqualTo("3");
+    }
+
+    @Test
+    void passesThroughOtherTypesAndMissingSender() {
+        assertThat(coalescer.offer(new NotificationRequest("alice", "SYSTEM_ALERT", "s", "m", null, "bob", null))).isFalse();
+        assertThat(coalescer.offer(new NotificationRequest("alice", "NEW_MESSAGE", "s", "m", null, null, null))).isFalse();
+    }
+
+    private static NotificationRequest message(String target, String sender, String messageId) {
+        return new NotificationRequest(target, "NEW_MESSAGE", "Nowa wiadomość od " + sender, "message " + messageId,
+                messageId, sender, null);
+    }
+}
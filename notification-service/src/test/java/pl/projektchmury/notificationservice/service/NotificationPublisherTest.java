@@ -0,0 +1,114 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationPublisherTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private SnsService snsService;
+    private NotificationRepository notificationRepository;
+    private NotificationPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        snsService = mock(SnsService.class);
+        notificationRepository = mock(NotificationRepository.class);
+        when(notificationRepository.updateStatus(anyString(), anyString(), anyString())).thenReturn(true);
+        publisher = new NotificationPublisher(snsService, notificationRepository, new SimpleMeterRegistry(),
+                2, 100, 10, MAX_ATTEMPTS, 1, 5, 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.shutdown();
+    }
+
+    @Test
+    void marksSentAfterTransientFailure() {
+        when(snsService.publishAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(SnsService.PublishResult.failed(true, "Throttling")))
+                .thenReturn(CompletableFuture.completedFuture(SnsService.PublishResult.sent("sns-1")));
+
+        publisher.publish(record("n1"), "subject");
+
+        verify(notificationRepository, timeout(2000))
+                .updateStatus("n1", NotificationRecord.STATUS_PENDING, NotificationRecord.STATUS_SENT);
+        verify(snsService, times(2)).publishAsync(any());
+    }
+
+    @Test
+    void marksFailedWithoutRetryOnPermanentError() {
+        when(snsService.publishAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(SnsService.PublishResult.failed(false, "AuthorizationError")));
+
+        publisher.publish(record("n2"), "subject");
+
+        verify(notificationRepository, timeout(2000))
+                .updateStatus("n2", NotificationRecord.STATUS_PENDING, NotificationRecord.STATUS_FAILED);
+        verify(snsService, after(100).times(1)).publishAsync(any());
+    }
+
+    @Test
+    void marksFailedWhenRetriesAreExhausted() {
+        when(snsService.publishAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(SnsService.PublishResult.failed(true, "Internal error")));
+
+        publisher.publish(record("n3"), "subject");
+
+        verify(notificationRepository, timeout(2000))
+                .updateStatus("n3", NotificationRecord.STATUS_PENDING, NotificationRecord.STATUS_FAILED);
+        verify(snsService, times(MAX_ATTEMPTS)).publishAsync(any());
+    }
+
+    @Test
+    void retriesOnlyFailedEntriesOfBatch() {
+        when(snsService.publishBatchAsync(anyList()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(
+                        SnsService.PublishResult.sent("sns-a"),
+                        SnsService.PublishResult.failed(true, "Throttling"))));
+        when(snsService.publishAsync(any()))
+                .thenReturn(CompletableFuture.completedFuture(SnsService.PublishResult.sent("sns-b")));
+
+        publisher.publishAll(List.of(
+                new NotificationPublisher.PublishTask(record("a"), "subject"),
+                new NotificationPublisher.PublishTask(record("b"), "subject")));
+
+        verify(notificationRepository, timeout(2000))
+                .updateStatus("a", NotificationRecord.STATUS_PENDING, NotificationRecord.STATUS_SENT);
+        verify(notificationRepository, timeout(2000))
+                .updateStatus("b", NotificationRecord.STATUS_PENDING, NotificationRecord.STATUS_SENT);
+        verify(snsService, times(1)).publishBatchAsync(anyList());
+        verify(notificationRepository, never())
+                .updateStatus(anyString(), anyString(), eq(NotificationRecord.STATUS_FAILED));
+    }
+
+    private static NotificationRecord record(String notificationId) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(notificationId);
+        record.setUserId("user");
+        record.setMessage("message");
+        record.setStatus(NotificationRecord.STATUS_PENDING);
+        return record;
+    }
+}
@@ -0,0 +1,118 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.notificationservice.model.NotificationPage;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NotificationReadCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private NotificationReadCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new NotificationReadCache(meterRegistry, true, 60_000, 100);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    void servesRepeatedHeadReadsFromMemory() {
+        NotificationPage first = cache.historyHead("bob", 20, () -> load(record("n1", false)));
+        NotificationPage second = cache.historyHead("bob", 20, () -> load(record("n1", false)));
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("notifications.read-cache").tag("cache", "history").tag("result", "hit").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        assertThatThrownBy(() -> cache.historyHead("bob", 20, () -> {
+            throw new RuntimeException("throttled");
+        })).hasMessage("throttled");
+        CompletableFuture<NotificationPage> failed = cache.unreadHeadAsync("bob", 20,
+                () -> CompletableFuture.failedFuture(new RuntimeException("throttled")));
+        assertThat(failed).isCompletedExceptionally();
+
+        assertThat(cache.historyHead("bob", 20, () -> load(record("n1", false))).items()).hasSize(1);
+        assertThat(cache.unreadHead("bob", 20, () -> load(record("n1", false))).items()).hasSize(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void markAsReadUpdatesCachedHeadsAndCount() {
+        cache.historyHead("bob", 20, () -> load(record("n1", false), record("n2", false)));
+        cache.unreadHead("bob", 20, () -> load(record("n1", false), record("n2", false)));
+        cache.unreadCount("bob", () -> 2L);
+
+        cache.onMarkedAsRead("bob", "n1");
+
+        NotificationPage history = cache.historyHead("bob", 20, () -> load());
+        assertThat(history.items()).extracting(NotificationRecord::isReadNotification).containsExactly(true, false);
+        NotificationPage unread = cache.unreadHead("bob", 20, () -> load());
+        assertThat(unread.items()).extracting(NotificationRecord::getNotificationId).containsExactly("n2");
+        assertThat(cache.unreadCount("bob", () -> 99L)).isEqualTo(1L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void newNotificationDropsHeadsButKeepsCount() {
+        cache.historyHead("bob", 20, () -> load(record("n1", false)));
+        cache.unreadCount("bob", () -> 1L);
+
+        cache.onCreated("bob", 2);
+
+        assertThat(cache.unreadCount("bob", () -> 99L)).isEqualTo(3L);
+        cache.historyHead("bob", 20, () -> load(record("n3", false), record("n2", false), record("n1", false)));
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void readStartedBeforeWriteIsNotCached() {
+        cache.unreadCount("bob", () -> {
+            cache.historyHead("bob", 20, () -> load()); // Tworzy wpis użytkownika
+            cache.invalidate("bob");                       // Zapis w trakcie odczytu licznika
+            return 5L;
+        });
+
+        assertThat(cache.unreadCount("bob", () -> 7L)).isEqualTo(7L);
+    }
+
+    @Test
+    void asyncLoadIsStoredWhenItCompletes() {
+        CompletableFuture<NotificationPage> pending = new CompletableFuture<>();
+        CompletableFuture<NotificationPage> first = cache.historyHeadAsync("bob", 20, () -> pending);
+
+        assertThat(first).isNotDone();
+        pending.complete(load(record("n1", false)));
+
+        NotificationPage second = cache.historyHeadAsync("bob", 20, () -> CompletableFuture.completedFuture(load())).join();
+        assertThat(second).isSameAs(first.join());
+        assertThat(loads).hasValue(1);
+    }
+
+    private NotificationPage load(NotificationRecord... records) {
+        loads.incrementAndGet();
+        return new NotificationPage(List.of(records), null);
+    }
+
+    private static NotificationRecord record(String id, boolean read) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(id);
+        record.setUserId("bob");
+        record.setReadNotification(read);
+        return record;
+    }
+}
@@ -0,0 +1,83 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationStreamRegistryTest {
+
+    private static final long RESYNC_LAG_MS = 5_000;
+
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationStreamRegistry registry;
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void rejectsConnectionsOverLimit() {
+        registry = registry(1, 0);
+
+        assertThat(registry.open("bob", null)).isNotNull();
+        assertThat(registry.open("alice", null)).isNull();
+        assertThat(meterRegistry.get("notifications.stream.connections").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void resumesFromLastEventIdWithResyncLag() {
+        when(notificationRepository.findByUserIdSince(eq("bob"), anyLong(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        registry = registry(10, 0);
+
+        registry.open("bob", 100_000L);
+
+        verify(notificationRepository).findByUserIdSince("bob", 100_000L - RESYNC_LAG_MS, 100);
+    }
+
+    @Test
+    void resyncDoesNotRepeatPublishedNotification() {
+        NotificationRecord record = record("n1");
+        when(notificationRepository.findByUserIdSince(eq("bob"), anyLong(), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(record)));
+        registry = registry(10, 20);
+        registry.open("bob", null);
+
+        registry.publish(record);
+
+        verify(notificationRepository, timeout(2000).atLeast(3)).findByUserIdSince(eq("bob"), anyLong(), anyInt());
+        // Komentarz "connected" + jedno zdarzenie z publish() - resync widzi ten sam rekord i go pomija
+        assertThat(meterRegistry.get("notifications.stream.events").tag("outcome", "sent").counter().count())
+                .isEqualTo(2.0);
+    }
+
+    private NotificationStreamRegistry registry(int maxConnections, long resyncIntervalMillis) {
+        return new NotificationStreamRegistry(notificationRepository, meterRegistry, maxConnections, 60_000, 1_000,
+                60_000, resyncIntervalMillis, 4, RESYNC_LAG_MS, 100, 1, 100);
+    }
+
+    private static NotificationRecord record(String id) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(id);
+        record.setUserId("bob");
+        record.setTimestamp(System.currentTimeMillis());
+        return record;
+    }
+}
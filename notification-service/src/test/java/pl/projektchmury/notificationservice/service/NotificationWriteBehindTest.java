@@ -0,0 +1,133 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationWriteBehindTest {
+
+    private final NotificationRepository notificationRepository = mock(NotificationRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writeBehind.shutdown();
+    }
+
+    @Test
+    void writesFullBatchesWithoutWaitingForFlushInterval() throws Exception {
+        // Pierwsza paczka czeka w saveAll, aż w kolejce będzie cała druga - inaczej piszący mógłby
+        // zabrać część drugiej paczki, zanim test zdąży ją dodać.
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = new ArrayList<>();
+        doAnswer(invocation -> {
+            synchronized (batchSizes) {
+                batchSizes.add(invocation.<List<?>>getArgument(0).size());
+            }
+            firstBatchStarted.countDown();
+            release.await(2, TimeUnit.SECONDS);
+            return null;
+        }).when(notificationRepository).saveAll(anyList());
+        writeBehind = writeBehind(1_000, 60_000, 100);
+
+        List<CompletableFuture<NotificationRecord>> futures = new ArrayList<>();
+        for (int i = 0; i < NotificationWriteBehind.BATCH_SIZE; i++) {
+            futures.add(writeBehind.submit(record("n" + i)));
+        }
+        assertThat(firstBatchStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        for (int i = NotificationWriteBehind.BATCH_SIZE; i < 2 * NotificationWriteBehind.BATCH_SIZE; i++) {
+            futures.add(writeBehind.submit(record("n" + i)));
+        }
+        release.countDown();
+
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(2, TimeUnit.SECONDS);
+        synchronized (batchSizes) {
+            assertThat(batchSizes).containsExactly(NotificationWriteBehind.BATCH_SIZE, NotificationWriteBehind.BATCH_SIZE);
+        }
+        verify(notificationRepository, never()).saveAsync(any());
+    }
+
+    @Test
+    void failedBatchFallsBackToDirectWrites() throws Exception {
+        doThrow(new RuntimeException("throttled")).when(notificationRepository).saveAll(anyList());
+        NotificationRecord saved = record("n1");
+        NotificationRecord lost = record("n2");
+        when(notificationRepository.saveAsync(saved)).thenReturn(CompletableFuture.completedFuture(saved));
+        when(notificationRepository.saveAsync(lost)).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+        writeBehind = writeBehind(1_000, 10, 100);
+
+        CompletableFuture<NotificationRecord> first = writeBehind.submit(saved);
+        CompletableFuture<NotificationRecord> second = writeBehind.submit(lost);
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isSameAs(saved);
+        assertThatThrownBy(() -> second.get(2, TimeUnit.SECONDS)).hasRootCauseMessage("down");
+        assertThat(meterRegistry.get("notifications.write-behind").tag("outcome", "direct").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("notifications.write-behind").tag("outcome", "failed").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void fullQueueFallsBackToDirectWrite() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(2, TimeUnit.SECONDS);
+            return null;
+        }).when(notificationRepository).saveAll(anyList());
+        NotificationRecord overflow = record("overflow");
+        when(notificationRepository.saveAsync(overflow)).thenReturn(CompletableFuture.completedFuture(overflow));
+        writeBehind = writeBehind(1, 10, 10);
+
+        CompletableFuture<NotificationRecord> queued = writeBehind.submit(record("n1"));
+        CompletableFuture<NotificationRecord> direct = writeBehind.submit(overflow);
+
+        assertThat(direct.get(1, TimeUnit.SECONDS)).isSameAs(overflow);
+        assertThat(meterRegistry.get("notifications.write-behind").tag("outcome", "direct").counter().count()).isEqualTo(1.0);
+        release.countDown();
+        assertThat(queued.get(2, TimeUnit.SECONDS).getNotificationId()).isEqualTo("n1");
+    }
+
+    @Test
+    void shutdownFlushesQueuedRecords() throws Exception {
+        writeBehind = writeBehind(1_000, 60_000, 100);
+        CompletableFuture<NotificationRecord> saved = writeBehind.submit(record("n1"));
+
+        writeBehind.shutdown();
+
+        assertThat(saved).isCompleted();
+        verify(notificationRepository, timeout(1000)).saveAll(List.of(saved.get()));
+    }
+
+    private NotificationWriteBehind writeBehind(int queueCapacity, long flushIntervalMillis, long offerTimeoutMillis) {
+        return new NotificationWriteBehind(notificationRepository, meterRegistry, true, queueCapacity, 1,
+                flushIntervalMillis, offerTimeoutMillis, 5_000);
+    }
+
+    private static NotificationRecord record(String id) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(id);
+        record.setUserId("bob");
+        record.setTimestamp(System.currentTimeMillis());
+        return record;
+    }
+}
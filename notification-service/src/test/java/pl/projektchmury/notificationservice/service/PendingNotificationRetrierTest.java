@@ -0,0 +1,80 @@
+package pl.projektchmury.notificationservice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import pl.projektchmury.notificationservice.model.NotificationRecord;
+import pl.projektchmury.notificationservice.repository.NotificationRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PendingNotificationRetrierTest {
+
+    private static final long MIN_AGE_MS = 600_000;
+
+    private NotificationRepository notificationRepository;
+    private NotificationPublisher notificationPublisher;
+    private PendingNotificationRetrier retrier;
+
+    @BeforeEach
+    void setUp() {
+        notificationRepository = mock(NotificationRepository.class);
+        notificationPublisher = mock(NotificationPublisher.class);
+        retrier = new PendingNotificationRetrier(notificationRepository, notificationPublisher, new SimpleMeterRegistry(),
+                true, MIN_AGE_MS, 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void republishesOnlyRecordsClaimedByThisInstance() {
+        NotificationRecord claimed = pending("n1", "Temat 1");
+        NotificationRecord takenByOther = pending("n2", "Temat 2");
+        when(notificationRepository.findPendingSince(anyLong(), anyInt())).thenReturn(List.of(claimed, takenByOther));
+        when(notificationRepository.claimPending(eq(claimed), anyLong())).thenReturn(true);
+        when(notificationRepository.claimPending(eq(takenByOther), anyLong())).thenReturn(false);
+
+        long before = System.currentTimeMillis();
+        retrier.republishAbandoned();
+
+        ArgumentCaptor<Long> pendingBefore = ArgumentCaptor.forClass(Long.class);
+        verify(notificationRepository).findPendingSince(pendingBefore.capture(), eq(100));
+        assertThat(pendingBefore.getValue()).isBetween(before - MIN_AGE_MS, System.currentTimeMillis() - MIN_AGE_MS);
+
+        ArgumentCaptor<List<NotificationPublisher.PublishTask>> tasks = ArgumentCaptor.forClass(List.class);
+        verify(notificationPublisher).publishAll(tasks.capture());
+        assertThat(tasks.getValue()).extracting(task -> task.record().getNotificationId()).containsExactly("n1");
+        assertThat(tasks.getValue().get(0).subject()).isEqualTo("Temat 1");
+    }
+
+    @Test
+    void doesNotPublishWhenNothingIsPending() {
+        when(notificationRepository.findPendingSince(anyLong(), anyInt())).thenReturn(List.of());
+
+        retrier.republishAbandoned();
+
+        verify(notificationRepository, never()).claimPending(any(), anyLong());
+        verify(notificationPublisher, never()).publishAll(any());
+    }
+
+    private static NotificationRecord pending(String notificationId, String subject) {
+        NotificationRecord record = new NotificationRecord();
+        record.setNotificationId(notificationId);
+        record.setUserId("bob");
+        record.setType("NEW_MESSAGE");
+        record.setMessage("hej");
+        record.setVersion(1L);
+        record.setSubject(subject);
+        return record;
+    }
+}
@@ -100,6 +100,10 @@ locals {  # Używamy ich, żeby nie powtarzać tych samych wartości w wielu mie
         { name = "SPRING_DATASOURCE_USERNAME", value = aws_db_instance.chat_db.username }, # Nazwa użytkownika bazy danych.
         { name = "SPRING_DATASOURCE_PASSWORD", value = aws_db_instance.chat_db.password }, # Hasło do bazy danych.
         { name = "APP_SERVICES_NOTIFICATION_URL", value = "http://${aws_lb.main_alb.dns_name}/api/notifications" }, # Adres URL serwisu notyfikacji (przez Load Balancer), bo to chat-service jest tym, który inicjuje wysłanie powiadomienia, gdy pojawia się nowa wiadomość
+        { name = "APP_SERVICES_FILE_URL", value = "http://${aws_lb.main_alb.dns_name}/api/files" }, # Adres URL file-service (metadane plików dla /api/messages/bootstrap).
+        { name = "APP_SERVICES_NOTIFICATION_OAUTH_TOKEN_URI", value = "https://${aws_cognito_user_pool_domain.chat_pool_domain.domain}.auth.${data.aws_region.current.name}.amazoncognito.com/oauth2/token" }, # Token usługi (client_credentials) dla powiadomień o wiadomościach zaplanowanych.
+        { name = "APP_SERVICES_NOTIFICATION_OAUTH_CLIENT_ID", value = aws_cognito_user_pool_client.chat_service_client.id },
+        { name = "APP_SERVICES_NOTIFICATION_OAUTH_CLIENT_SECRET", value = aws_cognito_user_pool_client.chat_service_client.client_secret },
         { name = "APP_CORS_ALLOWED_ORIGIN_FRONTEND", value = "http://${aws_elastic_beanstalk_environment.frontend_env.cname}" }
       ]
       depends_on_db      = true  # Tak, ten serwis zależy od bazy danych RDS.
@@ -138,8 +142,14 @@ locals {  # Używamy ich, żeby nie powtarzać tych samych wartości w wielu mie
         { name = "AWS_COGNITO_USER_POOL_ID", value = aws_cognito_user_pool.chat_pool.id },
         { name = "AWS_COGNITO_CLIENT_ID", value = aws_cognito_user_pool_client.chat_pool_client.id },
         { name = "SPRING_SECURITY_OAUTH2_RESOURCESERVER_JWT_ISSUER_URI", value = "https://cognito-idp.${data.aws_region.current.name}.amazonaws.com/${aws_cognito_user_pool.chat_pool.id}" },  # Adres URL wystawcy tokenów JWT Cognito.
+        { name = "AWS_COGNITO_SERVICE_CLIENT_ID", value = aws_cognito_user_pool_client.chat_service_client.id }, # Klient usługi chat-service - jego tokeny mogą tylko wysyłać powiadomienia.
         { name = "AWS_SNS_TOPIC_ARN", value = aws_sns_topic.notifications_topic.arn },                   # ARN tematu SNS do wysyłania notyfikacji.
         { name = "AWS_DYNAMODB_TABLE_NAME_NOTIFICATION_HISTORY", value = aws_dynamodb_table.notifications_history_table.name }, # Nazwa tabeli DynamoDB dla historii notyfikacji.
+        { name = "AWS_DYNAMODB_TABLE_NAME_NOTIFICATION_COUNTERS", value = aws_dynamodb_table.notification_counters_table.name }, # Nazwa tabeli liczników nieprzeczytanych.
+        { name = "AWS_DYNAMODB_TABLE_NAME_NOTIFICATION_SUBSCRIPTIONS", value = aws_dynamodb_table.notification_subscriptions_table.name }, # Rejestr subskrypcji SNS per użytkownik.
+        { name = "AWS_DYNAMODB_TABLE_NAME_NOTIFICATION_BROADCASTS", value = aws_dynamodb_table.notification_broadcasts_table.name }, # Wysyłki do wszystkich (postęp, punkt wznowienia).
+        { name = "APP_NOTIFICATIONS_ARCHIVE_STORAGE", value = "s3" },                                     # Archiwum wygasających powiadomień w S3 (lokalnie: katalog).
+        { name = "APP_NOTIFICATIONS_ARCHIVE_BUCKET", value = aws_s3_bucket.notifications_archive_bucket.bucket }, # Bucket na segmenty NDJSON.gz.
         { name = "APP_CORS_ALLOWED_ORIGIN_FRONTEND", value = "http://${aws_elastic_beanstalk_environment.frontend_env.cname}" } # Adres URL frontendu, który może wysyłać żądania (ważne dla CORS).
         # CORS (Cross-Origin Resource Sharing): To jest mechanizm bezpieczeństwa w przeglądarkach internetowych.
         # Domyślnie przeglądarka nie pozwala stronie internetowej załadowanej z jednego adresu (np. moj-frontend.com) wysyłać żądań (np. pobierać danych) do serwera na zupełnie innym adresie (np. moj-backend-api.com). To ochrona przed złośliwymi stronami.
@@ -525,12 +535,90 @@ resource "aws_dynamodb_table" "notifications_history_table" { # Tabela dla histo
     name = "userId"
     type = "S"
   }
+  attribute { # Ustawiany tylko dla nieprzeczytanych powiadomień (usuwany przy oznaczeniu jako przeczytane).
+    name = "unreadUserId"
+    type = "S"
+  }
+  attribute { # Czas zmiany stanu przeczytania (ms) - ustawiany dopiero przy oznaczeniu jako przeczytane.
+    name = "updatedAt"
+    type = "N"
+  }
+  attribute { # Partycja indeksu PENDING - ustawiana tylko dopóki powiadomienie czeka na publikację w SNS.
+    name = "pendingShard"
+    type = "S"
+  }
+  attribute { # Od kiedy (ms) powiadomienie czeka na publikację.
+    name = "pendingSince"
+    type = "N"
+  }
   global_secondary_index {                            # Definicja globalnego indeksu wtórnego (GSI).
     name            = "userId-timestamp-index"        # Nazwa indeksu. Pozwoli szybko wyszukiwać notyfikacje po "userId" i sortować po "timestamp".
     hash_key        = "userId"                        # Klucz partycji dla tego indeksu.
     range_key       = "timestamp"                     # Klucz sortowania dla tego indeksu.
     projection_type = "ALL"                           # Jakie atrybuty mają być kopiowane do indeksu? "ALL" = wszystkie.
   }
+  global_secondary_index {                            # Indeks "rzadki": zawiera tylko elementy z atrybutem unreadUserId, czyli nieprzeczytane.
+    name            = "unread-userId-timestamp-index"
+    hash_key        = "unreadUserId"
+    range_key       = "timestamp"
+    projection_type = "ALL"
+  }
+  global_secondary_index {                            # Indeks "rzadki" zmian przeczytania dla GET /history?since= (tylko elementy z updatedAt).
+    name               = "userId-updatedAt-index"
+    hash_key           = "userId"
+    range_key          = "updatedAt"
+    projection_type    = "INCLUDE"
+    non_key_attributes = ["readNotification"] # Odpowiedź potrzebuje tylko identyfikatora i stanu
+  }
+  global_secondary_index {                            # Indeks "rzadki" rekordów PENDING - ponowna publikacja po awarii węzła (PendingNotificationRetrier).
+    name               = "pendingShard-pendingSince-index"
+    hash_key           = "pendingShard"
+    range_key          = "pendingSince"
+    projection_type    = "INCLUDE"
+    non_key_attributes = ["userId", "type", "message", "subject", "version"] # Tylko to, czego potrzebuje publikacja
+  }
+  ttl { # DynamoDB samo usuwa elementy po czasie z atrybutu "expiresAt" (sekundy od epochy), bez zużycia WCU.
+    attribute_name = "expiresAt" # Ustawiany przez notification-service wg typu powiadomienia; przed usunięciem trafia do archiwum w S3.
+    enabled        = true
+  }
+  tags = local.common_tags
+}
+
+resource "aws_dynamodb_table" "notification_counters_table" { # Liczniki nieprzeczytanych powiadomień (jeden element na użytkownika).
+  name         = "${local.project_name}-notification-counters"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "userId" # Klucz główny: nick użytkownika. Atrybut "unreadCount" jest zmieniany przez UpdateItem ADD.
+  attribute {
+    name = "userId"
+    type = "S"
+  }
+  tags = local.common_tags
+}
+
+resource "aws_dynamodb_table" "notification_subscriptions_table" { # Subskrypcje SNS użytkowników (FilterPolicy na targetUserId).
+  name         = "${local.project_name}-notification-subscriptions"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "userId"          # Wszystkie subskrypcje użytkownika jednym Query.
+  range_key    = "subscriptionArn" # ARN subskrypcji SNS.
+  attribute {
+    name = "userId"
+    type = "S"
+  }
+  attribute {
+    name = "subscriptionArn"
+    type = "S"
+  }
+  tags = local.common_tags
+}
+
+resource "aws_dynamodb_table" "notification_broadcasts_table" { # Wysyłki powiadomień do wszystkich użytkowników (BroadcastService).
+  name         = "${local.project_name}-notification-broadcasts"
+  billing_mode = "PAY_PER_REQUEST"
+  hash_key     = "broadcastId" # Jeden element na wysyłkę: status, postęp, punkt wznowienia i dzierżawa instancji.
+  attribute {
+    name = "broadcastId"
+    type = "S"
+  }
   tags = local.common_tags
 }
 
@@ -552,6 +640,37 @@ resource "aws_s3_bucket_public_access_block" "upload_bucket_access_block" { # Ko
   # Generalnie: chcemy, żeby nasz bucket był prywatny. Dostęp do plików będzie np. przez presigned URL.
 }
 
+resource "aws_s3_bucket" "notifications_archive_bucket" { # Archiwum powiadomień usuniętych z DynamoDB przez TTL (segmenty NDJSON.gz).
+  bucket        = "${local.project_name_prefix}-notifications-archive-${random_string.suffix.result}"
+  tags          = local.common_tags
+  force_destroy = true
+}
+
+resource "aws_s3_bucket_public_access_block" "notifications_archive_access_block" { # Archiwum jest tylko dla notification-service.
+  bucket = aws_s3_bucket.notifications_archive_bucket.id
+
+  block_public_acls       = true
+  block_public_policy     = true
+  ignore_public_acls      = true
+  restrict_public_buckets = true
+}
+
+resource "aws_s3_bucket_lifecycle_configuration" "notifications_archive_lifecycle" { # Archiwum czytane rzadko - tańsza klasa po 30 dniach.
+  bucket = aws_s3_bucket.notifications_archive_bucket.id
+
+  rule {
+    id     = "archive-to-infrequent-access"
+    status = "Enabled"
+    filter {
+      prefix = "notifications/"
+    }
+    transition {
+      days          = 30
+      storage_class = "STANDARD_IA"
+    }
+  }
+}
+
 # --- AWS Cognito (Zarządzanie użytkownikami) ---
 resource "aws_cognito_user_pool" "chat_pool" { # Tworzymy pulę użytkowników Cognito.
   name = "${local.project_name}-user-pool"    # Nazwa puli.
@@ -578,6 +697,42 @@ resource "aws_cognito_user_pool_client" "chat_pool_client" { # Tworzymy klienta
   # tags = local.common_tags # Tagi dla tego zasobu nie są bezpośrednio wspierane w ten sposób, można je dodać na poziomie puli.
 }
 
+# Token usługi chat-service (przepływ client_credentials) - powiadomienia bez żądania użytkownika, np. przy dostarczeniu
+# wiadomości zaplanowanej. Przepływ wymaga domeny puli (endpoint /oauth2/token) i serwera zasobów z zakresem.
+resource "aws_cognito_user_pool_domain" "chat_pool_domain" {
+  domain       = "${local.project_name}-auth" # Prefiks domeny *.auth.<region>.amazoncognito.com (unikalny w regionie).
+  user_pool_id = aws_cognito_user_pool.chat_pool.id
+}
+
+resource "aws_cognito_resource_server" "notification_service" {
+  identifier   = "notification-service" # Zakres w tokenie: "notification-service/send".
+  name         = "notification-service"
+  user_pool_id = aws_cognito_user_pool.chat_pool.id
+  scope {
+    scope_name        = "send"
+    scope_description = "Wysyłanie powiadomień (/send, /send-batch)"
+  }
+}
+
+resource "aws_cognito_user_pool_client" "chat_service_client" {
+  name                                 = "${local.project_name}-chat-service"
+  user_pool_id                         = aws_cognito_user_pool.chat_pool.id
+  generate_secret                      = true # Klient serwerowy - sekret zna tylko chat-service.
+  allowed_oauth_flows_user_pool_client = true
+  allowed_oauth_flows                  = ["client_credentials"]
+  allowed_oauth_scopes                 = ["${aws_cognito_resource_server.notification_service.identifier}/send"]
+  access_token_validity                = 60 # Minuty
+  token_validity_units {
+    access_token = "minutes"
+  }
+}
+
+resource "aws_cognito_user_group" "admins" { # Administratorzy - mogą wysyłać powiadomienia do wszystkich (claim "cognito:groups").
+  name         = "admins" # Musi zgadzać się z app.notifications.broadcast.admin-group w notification-service.
+  user_pool_id = aws_cognito_user_pool.chat_pool.id
+  description  = "Administratorzy czatu (powiadomienia do wszystkich użytkowników)"
+}
+
 # --- AWS SNS (Simple Notification Service) ---
 resource "aws_sns_topic" "notifications_topic" { # Tworzymy temat SNS do wysyłania notyfikacji.
   name = "${local.project_name}-notifications-topic" # Nazwa tematu.
@@ -683,6 +838,10 @@ resource "aws_ecs_service" "app_fargate_services" {
     aws_dynamodb_table.file_metadata_table,
     aws_sns_topic.notifications_topic,
     aws_dynamodb_table.notifications_history_table,
+    aws_dynamodb_table.notification_counters_table,
+    aws_dynamodb_table.notification_subscriptions_table,
+    aws_dynamodb_table.notification_broadcasts_table,
+    aws_s3_bucket.notifications_archive_bucket,
     aws_dynamodb_table.user_profiles_table
   ]
   # `depends_on` pomaga Terraformowi ustalić prawidłową kolejność tworzenia zasobów.
@@ -855,6 +1014,22 @@ output "cognito_client_id" {
   value       = aws_cognito_user_pool_client.chat_pool_client.id # Wartość: ID klienta aplikacji Cognito.
 }
 
+output "cognito_service_token_uri" {
+  description = "Token endpoint for the chat-service client_credentials flow"
+  value       = "https://${aws_cognito_user_pool_domain.chat_pool_domain.domain}.auth.${data.aws_region.current.name}.amazoncognito.com/oauth2/token"
+}
+
+output "cognito_service_client_id" {
+  description = "Client ID of the chat-service service client"
+  value       = aws_cognito_user_pool_client.chat_service_client.id
+}
+
+output "cognito_service_client_secret" {
+  description = "Client secret of the chat-service service client"
+  value       = aws_cognito_user_pool_client.chat_service_client.client_secret
+  sensitive   = true
+}
+
 output "s3_upload_bucket_name" {
   description = "Name of the S3 bucket for file uploads" # Opis.
   value       = aws_s3_bucket.upload_bucket.bucket     # Wartość: nazwa naszego bucketu S3.